@@ -23,6 +23,7 @@ import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
 import org.openremote.container.Container;
 import org.openremote.container.concurrent.GlobalLock;
+import org.openremote.container.message.DispatchQueue;
 import org.openremote.container.message.MessageBrokerContext;
 import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.timer.TimerService;
@@ -39,30 +40,33 @@ import org.openremote.model.syslog.SyslogCategory;
 import org.openremote.model.util.Pair;
 import org.openremote.model.util.TextUtil;
 import org.openremote.model.value.Value;
+import org.openremote.model.value.ValueFilter;
 import org.openremote.model.value.Values;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static org.openremote.container.concurrent.GlobalLock.withLock;
-import static org.openremote.container.concurrent.GlobalLock.withLockReturning;
 import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
 
 /**
  * Thread-safe base implementation for protocols.
  * <p>
- * Subclasses should use the {@link GlobalLock#withLock} and {@link GlobalLock#withLockReturning} methods
- * to guard critical sections when modifying shared state:
+ * Every protocol instance has its own lock, subclasses should use the {@link #withLock} and
+ * {@link #withLockReturning} methods to guard critical sections when modifying shared state:
  * <blockquote><pre>{@code
  * withLock(getProtocolName(), () -> {
  *     // Critical section
  * });
  * }</pre></blockquote>
  * <blockquote><pre>{@code
- * return withLockReturning(() -> {
+ * return withLockReturning(getProtocolName(), () -> {
  *     // Critical section
  *     return ...;
  * });
@@ -71,6 +75,12 @@ import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
  * All <code>abstract</code> methods are always called within lock scope. An implementation can rely on this lock
  * and safely modify internal, protocol-specific shared state. However, if a protocol implementation schedules
  * an asynchronous task, this task must obtain the lock to call any protocol operations.
+ * <p>
+ * The protocol lock is independent of the {@link GlobalLock}, so protocols don't contend with each other or with
+ * unrelated services. The linked attribute and protocol configuration maps are concurrent and can be read without
+ * the lock. Lifecycle calls from the agent service arrive holding the {@link GlobalLock} and then take the protocol
+ * lock, so code holding the protocol lock must never try to obtain the {@link GlobalLock}; connection status
+ * changes made while holding the protocol lock are therefore published asynchronously.
  */
 public abstract class AbstractProtocol implements Protocol {
 
@@ -78,7 +88,8 @@ public abstract class AbstractProtocol implements Protocol {
 
         final AssetAttribute protocolConfiguration;
         final Consumer<ConnectionStatus> connectionStatusConsumer;
-        ConnectionStatus currentConnectionStatus;
+        final AtomicBoolean statusPublishPending = new AtomicBoolean();
+        volatile ConnectionStatus currentConnectionStatus;
 
         protected LinkedProtocolInfo(
             AssetAttribute protocolConfiguration,
@@ -109,11 +120,16 @@ public abstract class AbstractProtocol implements Protocol {
 
     private static final Logger LOG = SyslogCategory.getLogger(PROTOCOL, AbstractProtocol.class);
     public static final int PRIORITY = MessageBrokerService.PRIORITY + 100;
-    protected final Map<AttributeRef, AssetAttribute> linkedAttributes = new HashMap<>();
-    protected final Set<AttributeRef> dynamicAttributes = new HashSet<>();
-    protected final Map<AttributeRef, LinkedProtocolInfo> linkedProtocolConfigurations = new HashMap<>();
+    protected final ReentrantLock protocolLock = new ReentrantLock(true);
+    protected final Map<AttributeRef, AssetAttribute> linkedAttributes = new ConcurrentHashMap<>();
+    protected final Map<AttributeRef, ValueFilter[]> linkedAttributeValueFilters = new ConcurrentHashMap<>();
+    protected final Map<AttributeRef, SensorUpdateLimiter> linkedAttributeUpdateLimiters = new ConcurrentHashMap<>();
+    protected final Map<AttributeRef, String> linkedAttributeAgentIds = new ConcurrentHashMap<>();
+    protected final Set<AttributeRef> dynamicAttributes = ConcurrentHashMap.newKeySet();
+    protected final Map<AttributeRef, LinkedProtocolInfo> linkedProtocolConfigurations = new ConcurrentHashMap<>();
     protected MessageBrokerContext messageBrokerContext;
     protected ProducerTemplate producerTemplate;
+    protected DispatchQueue<SensorUpdate> sensorQueue;
     protected TimerService timerService;
     protected ProtocolExecutorService executorService;
     protected ProtocolAssetService assetService;
@@ -163,12 +179,17 @@ public abstract class AbstractProtocol implements Protocol {
     final public void start(Container container) throws Exception {
         LOG.fine("Starting protocol: " + getProtocolName());
         this.producerTemplate = container.getService(MessageBrokerService.class).getProducerTemplate();
+        this.sensorQueue = container.getService(MessageBrokerService.class).getDispatchQueue(SENSOR_QUEUE);
     }
 
     @Override
     final public void stop(Container container) {
         withLock(getProtocolName() + "::stop", () -> {
             linkedAttributes.clear();
+            linkedAttributeValueFilters.clear();
+            linkedAttributeAgentIds.clear();
+            linkedAttributeUpdateLimiters.values().forEach(SensorUpdateLimiter::cancel);
+            linkedAttributeUpdateLimiters.clear();
             try {
                 messageBrokerContext.stopRoute("Actuator-" + getProtocolName(), 1, TimeUnit.MILLISECONDS);
                 messageBrokerContext.removeRoute("Actuator-" + getProtocolName());
@@ -229,6 +250,12 @@ public abstract class AbstractProtocol implements Protocol {
                 // Need to add to map before actual linking as protocols may want to update the value as part of
                 // linking process and without entry in the map any update would be blocked
                 linkedAttributes.put(attributeRef, attribute);
+                // Resolve the agent once rather than for every sensor update
+                AgentLink.getAgentLink(attribute).ifPresent(agentLink -> linkedAttributeAgentIds.put(attributeRef, agentLink.getEntityId()));
+                // Extract the value filters once rather than for every inbound value
+                Protocol.getLinkedAttributeValueFilters(attribute).ifPresent(filters -> linkedAttributeValueFilters.put(attributeRef, filters));
+                SensorUpdateLimiter.fromAttribute(attribute, executorService, timerService::getCurrentTimeMillis, this::sendSensorEvent)
+                    .ifPresent(limiter -> linkedAttributeUpdateLimiters.put(attributeRef, limiter));
 
                 // Check for dynamic value placeholder
                 final String writeValue = Values.getMetaItemValueOrThrow(attribute, META_ATTRIBUTE_WRITE_VALUE, false, true)
@@ -243,6 +270,9 @@ public abstract class AbstractProtocol implements Protocol {
                 } catch (Exception e) {
                     LOG.log(Level.SEVERE, "Failed to link attribute to protocol: " + attribute, e);
                     linkedAttributes.remove(attributeRef);
+                    linkedAttributeValueFilters.remove(attributeRef);
+                    linkedAttributeAgentIds.remove(attributeRef);
+                    removeUpdateLimiter(attributeRef);
                 }
             });
         });
@@ -262,6 +292,9 @@ public abstract class AbstractProtocol implements Protocol {
                 LOG.fine("Unlinking attribute on '" + getProtocolName() + "': " + attribute);
                 AttributeRef attributeRef = attribute.getReferenceOrThrow();
                 linkedAttributes.remove(attributeRef);
+                linkedAttributeValueFilters.remove(attributeRef);
+                linkedAttributeAgentIds.remove(attributeRef);
+                removeUpdateLimiter(attributeRef);
                 dynamicAttributes.remove(attributeRef);
                 doUnlinkAttribute(attribute, protocolConfiguration);
             });
@@ -272,7 +305,7 @@ public abstract class AbstractProtocol implements Protocol {
      * Gets a linked attribute by its attribute ref
      */
     protected AssetAttribute getLinkedAttribute(AttributeRef attributeRef) {
-        return withLockReturning(getProtocolName() + "::getLinkedAttribute", () -> linkedAttributes.get(attributeRef));
+        return linkedAttributes.get(attributeRef);
     }
 
     /**
@@ -284,12 +317,10 @@ public abstract class AbstractProtocol implements Protocol {
     }
 
     protected AssetAttribute getLinkedProtocolConfiguration(AttributeRef protocolConfigurationRef) {
-        return withLockReturning(getProtocolName() + "::getLinkedProtocolConfigurations", () -> {
-            LinkedProtocolInfo linkedProtocolInfo = linkedProtocolConfigurations.get(protocolConfigurationRef);
-            // Don't bother with null check if someone calls here with an attribute not linked to this protocol
-            // then they're doing something wrong so fail hard and fast
-            return linkedProtocolInfo.getProtocolConfiguration();
-        });
+        LinkedProtocolInfo linkedProtocolInfo = linkedProtocolConfigurations.get(protocolConfigurationRef);
+        // Don't bother with null check if someone calls here with an attribute not linked to this protocol
+        // then they're doing something wrong so fail hard and fast
+        return linkedProtocolInfo.getProtocolConfiguration();
     }
 
     final protected void processLinkedAttributeWrite(AttributeEvent event) {
@@ -331,14 +362,12 @@ public abstract class AbstractProtocol implements Protocol {
      * publish new sensor values, which performs additional verification and uses a different messaging queue.
      */
     final protected void sendAttributeEvent(AttributeEvent event) {
-        withLock(getProtocolName() + "::sendAttributeEvent", () -> {
-            // Don't allow updating linked attributes with this mechanism as it could cause an infinite loop
-            if (linkedAttributes.containsKey(event.getAttributeRef())) {
-                LOG.warning("Cannot update an attribute linked to the same protocol; use updateLinkedAttribute for that: " + event);
-                return;
-            }
-            assetService.sendAttributeEvent(event);
-        });
+        // Don't allow updating linked attributes with this mechanism as it could cause an infinite loop
+        if (linkedAttributes.containsKey(event.getAttributeRef())) {
+            LOG.warning("Cannot update an attribute linked to the same protocol; use updateLinkedAttribute for that: " + event);
+            return;
+        }
+        assetService.sendAttributeEvent(event);
     }
 
     /**
@@ -353,7 +382,11 @@ public abstract class AbstractProtocol implements Protocol {
             return;
         }
 
-        Pair<Boolean, Value> ignoreAndConverted = Protocol.doInboundValueProcessing(attribute, state.getValue().orElse(null), assetService);
+        Pair<Boolean, Value> ignoreAndConverted = Protocol.doInboundValueProcessing(
+            attribute,
+            linkedAttributeValueFilters.get(state.getAttributeRef()),
+            state.getValue().orElse(null),
+            assetService);
 
         if (ignoreAndConverted.key) {
             LOG.fine("Value conversion returned ignore so attribute will not be updated: " + attribute.getReferenceOrThrow());
@@ -361,8 +394,34 @@ public abstract class AbstractProtocol implements Protocol {
         }
 
         AttributeEvent attributeEvent = new AttributeEvent(new AttributeState(attribute.getReferenceOrThrow(), ignoreAndConverted.value), timestamp);
+        SensorUpdateLimiter limiter = linkedAttributeUpdateLimiters.get(state.getAttributeRef());
+
+        if (limiter != null) {
+            limiter.offer(attributeEvent);
+            return;
+        }
+
+        sendSensorEvent(attributeEvent);
+    }
+
+    protected void sendSensorEvent(AttributeEvent attributeEvent) {
+        if (sensorQueue == null) {
+            LOG.warning("No sensor queue available, dropping update: " + attributeEvent);
+            return;
+        }
         LOG.fine("Sending on sensor queue: " + attributeEvent);
-        producerTemplate.sendBodyAndHeader(SENSOR_QUEUE, attributeEvent, Protocol.SENSOR_QUEUE_SOURCE_PROTOCOL, getProtocolName());
+        String agentId = linkedAttributeAgentIds.get(attributeEvent.getAttributeRef());
+        if (!sensorQueue.offer(new SensorUpdate(getProtocolName(), agentId, attributeEvent))) {
+            // Sensor queue is full, don't block the protocol; rejections are counted by the queue
+            LOG.fine("Sensor queue rejected update: " + attributeEvent);
+        }
+    }
+
+    protected void removeUpdateLimiter(AttributeRef attributeRef) {
+        SensorUpdateLimiter limiter = linkedAttributeUpdateLimiters.remove(attributeRef);
+        if (limiter != null) {
+            limiter.cancel();
+        }
     }
 
     /**
@@ -379,38 +438,91 @@ public abstract class AbstractProtocol implements Protocol {
      * the consumer to perform the modification.
      */
     final protected void updateLinkedProtocolConfiguration(AssetAttribute protocolConfiguration, Consumer<AssetAttribute> protocolUpdater) {
-        withLock(getProtocolName() + "::updateLinkedProtocolConfiguration", () -> {
-            // Clone the protocol configuration rather than modify this one
-            AssetAttribute modifiedProtocolConfiguration = protocolConfiguration.deepCopy();
-            protocolUpdater.accept(modifiedProtocolConfiguration);
-            assetService.updateProtocolConfiguration(modifiedProtocolConfiguration);
-        });
+        // Clone the protocol configuration rather than modify this one
+        AssetAttribute modifiedProtocolConfiguration = protocolConfiguration.deepCopy();
+        protocolUpdater.accept(modifiedProtocolConfiguration);
+        assetService.updateProtocolConfiguration(modifiedProtocolConfiguration);
     }
 
     /**
      * Update the runtime status of a protocol configuration by its attribute ref
      */
     final protected void updateStatus(AttributeRef protocolRef, ConnectionStatus connectionStatus) {
-        withLock(getProtocolName() + "::updateStatus", () -> {
-            LinkedProtocolInfo protocolInfo = linkedProtocolConfigurations.get(protocolRef);
-            if (protocolInfo != null) {
-                LOG.fine("Updating protocol status to '" + connectionStatus + "': " + protocolRef);
-                protocolInfo.getConnectionStatusConsumer().accept(connectionStatus);
-                protocolInfo.setCurrentConnectionStatus(connectionStatus);
-            }
-        });
+        LinkedProtocolInfo protocolInfo = linkedProtocolConfigurations.get(protocolRef);
+        if (protocolInfo != null) {
+            LOG.fine("Updating protocol status to '" + connectionStatus + "': " + protocolRef);
+            protocolInfo.setCurrentConnectionStatus(connectionStatus);
+            publishStatus(protocolInfo);
+        }
+    }
+
+    /**
+     * Passes the current status of the protocol configuration to its status consumer. The consumer obtains the {@link
+     * GlobalLock}; when the calling thread already holds it (i.e. the call originates from the agent service) the
+     * status is published immediately, otherwise it is published by a background task so the protocol lock is never
+     * held while waiting for the {@link GlobalLock}. Pending publications are coalesced and always publish the latest
+     * status.
+     */
+    protected void publishStatus(LinkedProtocolInfo protocolInfo) {
+        if (GlobalLock.isHeldByCurrentThread()) {
+            protocolInfo.getConnectionStatusConsumer().accept(protocolInfo.getCurrentConnectionStatus());
+            return;
+        }
+
+        if (protocolInfo.statusPublishPending.compareAndSet(false, true)) {
+            executorService.execute(() -> GlobalLock.withLock(getProtocolName() + "::publishStatus", () -> {
+                protocolInfo.statusPublishPending.set(false);
+                protocolInfo.getConnectionStatusConsumer().accept(protocolInfo.getCurrentConnectionStatus());
+            }));
+        }
     }
 
     /**
      * Gets the current runtime status of a protocol configuration.
      */
     final protected ConnectionStatus getStatus(AssetAttribute protocolConfiguration) {
-        return withLockReturning(getProtocolName() + "::getStatus", () -> {
-            LinkedProtocolInfo linkedProtocolInfo = linkedProtocolConfigurations.get(protocolConfiguration.getReferenceOrThrow());
-            return linkedProtocolInfo.getCurrentConnectionStatus();
+        LinkedProtocolInfo linkedProtocolInfo = linkedProtocolConfigurations.get(protocolConfiguration.getReferenceOrThrow());
+        return linkedProtocolInfo.getCurrentConnectionStatus();
+    }
+
+    /**
+     * Obtain the protocol lock within {@link GlobalLock#getLockTimeoutMillis()} or throw {@link IllegalStateException}.
+     *
+     * @param info     An informal text that is printed in log messages.
+     * @param runnable The guarded code to execute while holding the lock.
+     */
+    protected void withLock(String info, Runnable runnable) {
+        withLockReturning(info, () -> {
+            runnable.run();
+            return null;
         });
     }
 
+    /**
+     * Obtain the protocol lock within {@link GlobalLock#getLockTimeoutMillis()} or throw {@link IllegalStateException}.
+     *
+     * @param info     An informal text that is printed in log messages.
+     * @param supplier The guarded code to execute while holding the lock.
+     */
+    protected <R> R withLockReturning(String info, Supplier<R> supplier) {
+        try {
+            if (protocolLock.tryLock(GlobalLock.getLockTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                try {
+                    return supplier.get();
+                } finally {
+                    protocolLock.unlock();
+                }
+            } else {
+                throw new IllegalStateException(
+                    "Could not acquire protocol lock after waiting " + GlobalLock.getLockTimeoutMillis() + "ms: " + Thread.currentThread().getName() + " executing " + info
+                );
+            }
+        } catch (InterruptedException ex) {
+            LOG.log(Level.FINEST, "Interrupted while waiting for protocol lock: " + info);
+            return null;
+        }
+    }
+
     @Override
     final public ProtocolDescriptor getProtocolDescriptor() {
         return new ProtocolDescriptor(
@@ -444,6 +556,15 @@ public abstract class AbstractProtocol implements Protocol {
         if (descriptors.stream().noneMatch(d -> d.getUrn().equalsIgnoreCase(META_ATTRIBUTE_WRITE_VALUE_CONVERTER.getUrn()))) {
             descriptors.add(META_ATTRIBUTE_WRITE_VALUE_CONVERTER);
         }
+        if (descriptors.stream().noneMatch(d -> d.getUrn().equalsIgnoreCase(META_ATTRIBUTE_UPDATE_MIN_INTERVAL.getUrn()))) {
+            descriptors.add(META_ATTRIBUTE_UPDATE_MIN_INTERVAL);
+        }
+        if (descriptors.stream().noneMatch(d -> d.getUrn().equalsIgnoreCase(META_ATTRIBUTE_UPDATE_MAX_INTERVAL.getUrn()))) {
+            descriptors.add(META_ATTRIBUTE_UPDATE_MAX_INTERVAL);
+        }
+        if (descriptors.stream().noneMatch(d -> d.getUrn().equalsIgnoreCase(META_ATTRIBUTE_UPDATE_DEADBAND.getUrn()))) {
+            descriptors.add(META_ATTRIBUTE_UPDATE_DEADBAND);
+        }
 
         return descriptors;
     }
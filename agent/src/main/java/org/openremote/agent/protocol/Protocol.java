@@ -19,6 +19,8 @@
  */
 package org.openremote.agent.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import org.apache.commons.codec.binary.BinaryCodec;
 import org.apache.commons.codec.binary.Hex;
 import org.openremote.container.web.OAuthGrant;
@@ -86,8 +88,9 @@ import static org.openremote.model.value.Values.NULL_LITERAL;
  * <p>
  * If the actual state of the device (or service) changes, the linked protocol writes the new
  * state into the attribute value and notifies the context broker of the change. A protocol updates
- * a linked attributes' value by sending  an {@link AttributeEvent} messages on the
- * {@link #SENSOR_QUEUE}, including the source protocol name in header {@link #SENSOR_QUEUE_SOURCE_PROTOCOL}.
+ * a linked attributes' value by offering a {@link SensorUpdate} to the {@link #SENSOR_QUEUE} dispatch queue, the
+ * update is forwarded to the asset queue with the protocol name in message header
+ * {@link #SENSOR_QUEUE_SOURCE_PROTOCOL}.
  * <p>
  * If the user writes a new value into the linked attribute, the protocol translates this value
  * change into a device (or service) action. Write operations on attributes linked to a protocol
@@ -170,6 +173,8 @@ public interface Protocol extends ContainerService {
 
     Logger LOG = SyslogCategory.getLogger(PROTOCOL, Protocol.class);
     String ACTUATOR_TOPIC_TARGET_PROTOCOL = "Protocol";
+    // Header of the asset queue message with the name of the protocol a sensor update came from, the sensor queue
+    // itself is a dispatch queue without headers
     String SENSOR_QUEUE_SOURCE_PROTOCOL = "Protocol";
 
     /**
@@ -321,6 +326,41 @@ public interface Protocol extends ContainerService {
         false,
         null);
 
+    /**
+     * Minimum time in milliseconds between sensor updates of a protocol linked attribute; values received within this
+     * window are coalesced so only the latest value is sent when the window ends.
+     */
+    MetaItemDescriptor META_ATTRIBUTE_UPDATE_MIN_INTERVAL = metaItemInteger(
+        PROTOCOL_NAMESPACE + ":updateMinInterval",
+        ACCESS_PRIVATE,
+        false,
+        0,
+        Integer.MAX_VALUE);
+
+    /**
+     * Maximum time in milliseconds that a received value can be suppressed by {@link #META_ATTRIBUTE_UPDATE_DEADBAND}
+     * for a protocol linked attribute; once this has elapsed since the last sensor update the next received value is
+     * sent even if it hasn't changed.
+     */
+    MetaItemDescriptor META_ATTRIBUTE_UPDATE_MAX_INTERVAL = metaItemInteger(
+        PROTOCOL_NAMESPACE + ":updateMaxInterval",
+        ACCESS_PRIVATE,
+        false,
+        0,
+        Integer.MAX_VALUE);
+
+    /**
+     * Change threshold for sensor updates of a protocol linked attribute; numeric values that differ from the last sent
+     * value by less than this amount are not sent, other values are only sent when they have changed (so a deadband of
+     * 0 only suppresses repeated values).
+     */
+    MetaItemDescriptor META_ATTRIBUTE_UPDATE_DEADBAND = metaItemNumber(
+        PROTOCOL_NAMESPACE + ":updateDeadband",
+        ACCESS_PRIVATE,
+        false,
+        0d,
+        null);
+
     /**
      * Defines a value converter map to allow for basic value type conversion; the incoming value will be converted
      * to JSON and if this string matches a key in the converter then the value of that key will be pushed through to
@@ -402,8 +442,9 @@ public interface Protocol extends ContainerService {
     // Message topic for communicating from asset/thing to protocol layer (asset attribute changed, trigger actuator)
     String ACTUATOR_TOPIC = "seda://ActuatorTopic?multipleConsumers=true&concurrentConsumers=1&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&limitConcurrentConsumers=false&size=1000";
 
-    // Message queue for communicating from protocol to asset/thing layer (sensor changed, trigger asset attribute update)
-    String SENSOR_QUEUE = "seda://SensorQueue?waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=false&size=25000";
+    // Dispatch queue for communicating from protocol to asset/thing layer (sensor changed, trigger asset attribute update),
+    // see MessageBrokerService#getDispatchQueue; created by the service consuming the queue
+    String SENSOR_QUEUE = "SensorQueue";
 
     String DYNAMIC_VALUE_PLACEHOLDER = "{$value}";
 
@@ -522,6 +563,13 @@ public interface Protocol extends ContainerService {
         return Hex.encodeHexString(bytes);
     }
 
+    /**
+     * Same as {@link #bytesToHexString(byte[])} for the readable bytes of the buffer; doesn't modify the reader index.
+     */
+    static String bytesToHexString(ByteBuf buf) {
+        return ByteBufUtil.hexDump(buf);
+    }
+
     static byte[] bytesFromHexString(String hex) {
         try {
             return Hex.decodeHex(hex.toCharArray());
@@ -535,6 +583,22 @@ public interface Protocol extends ContainerService {
         return BinaryCodec.toAsciiString(bytes);
     }
 
+    /**
+     * Same as {@link #bytesToBinaryString(byte[])} for the readable bytes of the buffer; doesn't modify the reader
+     * index.
+     */
+    static String bytesToBinaryString(ByteBuf buf) {
+        StringBuilder sb = new StringBuilder(buf.readableBytes() * 8);
+        // Last byte first, most significant bit first (as BinaryCodec does)
+        for (int i = buf.writerIndex() - 1; i >= buf.readerIndex(); i--) {
+            int b = buf.getByte(i);
+            for (int bit = 7; bit >= 0; bit--) {
+                sb.append(((b >> bit) & 1) == 0 ? '0' : '1');
+            }
+        }
+        return sb.toString();
+    }
+
     static byte[] bytesFromBinaryString(String binary) {
         try {
             return BinaryCodec.fromAscii(binary.toCharArray());
@@ -617,9 +681,16 @@ public interface Protocol extends ContainerService {
     }
 
     static Pair<Boolean, Value> doInboundValueProcessing(AssetAttribute attribute, Value value, ProtocolAssetService assetService) {
+        return doInboundValueProcessing(attribute, Protocol.getLinkedAttributeValueFilters(attribute).orElse(null), value, assetService);
+    }
+
+    /**
+     * Same as {@link #doInboundValueProcessing(AssetAttribute, Value, ProtocolAssetService)} but with the
+     * {@link ValueFilter}s of the attribute already extracted, so they don't have to be deserialized for every value.
+     */
+    static Pair<Boolean, Value> doInboundValueProcessing(AssetAttribute attribute, ValueFilter[] filters, Value value, ProtocolAssetService assetService) {
 
         // filtering
-        ValueFilter[] filters = Protocol.getLinkedAttributeValueFilters(attribute).orElse(null);
         if (filters != null) {
             value = assetService.applyValueFilters(value, filters);
         }
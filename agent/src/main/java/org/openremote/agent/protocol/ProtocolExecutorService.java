@@ -19,6 +19,8 @@
  */
 package org.openremote.agent.protocol;
 
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.openremote.container.ContainerService;
 
 import java.util.concurrent.ScheduledExecutorService;
@@ -45,4 +47,26 @@ public interface ProtocolExecutorService extends ScheduledExecutorService, Conta
      * @see java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay
      */
     ScheduledFuture<?> scheduleWithFixedDelay(Runnable runnable, long initialDelayMillis, long periodMillis);
+
+    /**
+     * The shared Netty event loop group for non-blocking IO, used by all
+     * {@link org.openremote.agent.protocol.io.AbstractNettyIoClient}s and
+     * {@link org.openremote.agent.protocol.io.AbstractNettyIoServer}s; it is managed by the container and must not be
+     * shut down by users.
+     */
+    EventLoopGroup getIoEventLoopGroup();
+
+    /**
+     * The shared Netty event loop group for transports that only support blocking IO (e.g. serial ports); it is
+     * managed by the container and must not be shut down by users.
+     */
+    EventLoopGroup getBlockingIoEventLoopGroup();
+
+    /**
+     * The shared executor group that runs the inbound message handlers of IO clients and servers, so message
+     * processing in protocols (which may block, e.g. waiting for the protocol lock) never stalls the shared event
+     * loops; each channel is pinned to one executor so messages are still handled in order. It is managed by the
+     * container and must not be shut down by users.
+     */
+    EventExecutorGroup getIoHandlerExecutorGroup();
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol;
+
+import org.openremote.model.attribute.AttributeEvent;
+
+/**
+ * A sensor value update offered by a protocol to the {@link Protocol#SENSOR_QUEUE}, with the protocol and agent it
+ * came from.
+ */
+public class SensorUpdate {
+
+    protected final String protocolName;
+    protected final String agentId;
+    protected final AttributeEvent attributeEvent;
+
+    public SensorUpdate(String protocolName, String agentId, AttributeEvent attributeEvent) {
+        this.protocolName = protocolName;
+        this.agentId = agentId;
+        this.attributeEvent = attributeEvent;
+    }
+
+    public String getProtocolName() {
+        return protocolName;
+    }
+
+    /**
+     * @return the ID of the agent of the protocol configuration the attribute is linked to, <code>null</code> if the
+     * attribute was unlinked before the update was sent.
+     */
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public AttributeEvent getAttributeEvent() {
+        return attributeEvent;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "protocolName='" + protocolName + '\'' +
+            ", agentId='" + agentId + '\'' +
+            ", attributeEvent=" + attributeEvent +
+            '}';
+    }
+}
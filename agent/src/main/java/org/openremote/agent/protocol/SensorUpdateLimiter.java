@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol;
+
+import org.openremote.model.asset.AssetAttribute;
+import org.openremote.model.attribute.AttributeEvent;
+import org.openremote.model.value.Value;
+import org.openremote.model.value.Values;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static org.openremote.agent.protocol.Protocol.*;
+
+/**
+ * Rate limits and coalesces sensor updates of a single protocol linked attribute based on the
+ * {@link Protocol#META_ATTRIBUTE_UPDATE_MIN_INTERVAL}, {@link Protocol#META_ATTRIBUTE_UPDATE_MAX_INTERVAL} and
+ * {@link Protocol#META_ATTRIBUTE_UPDATE_DEADBAND} meta items:
+ * <ul>
+ * <li>Values within the deadband of the last sent value are dropped unless the max interval has elapsed
+ * <li>Values received within the min interval of the last sent value are held back and only the latest one is sent
+ * when the interval ends
+ * </ul>
+ */
+public class SensorUpdateLimiter {
+
+    protected final long minIntervalMillis;
+    protected final long maxIntervalMillis;
+    protected final Double deadband;
+    protected final ProtocolExecutorService executorService;
+    protected final LongSupplier clock;
+    protected final Consumer<AttributeEvent> sender;
+    protected Value lastSentValue;
+    protected long lastSentTime;
+    protected boolean sent;
+    protected AttributeEvent pendingEvent;
+    protected ScheduledFuture<?> pendingFuture;
+
+    public SensorUpdateLimiter(long minIntervalMillis, long maxIntervalMillis, Double deadband, ProtocolExecutorService executorService, LongSupplier clock, Consumer<AttributeEvent> sender) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.deadband = deadband;
+        this.executorService = executorService;
+        this.clock = clock;
+        this.sender = sender;
+    }
+
+    /**
+     * Returns a limiter for the attribute if any of the limiting meta items are set, otherwise returns empty.
+     */
+    public static Optional<SensorUpdateLimiter> fromAttribute(AssetAttribute attribute, ProtocolExecutorService executorService, LongSupplier clock, Consumer<AttributeEvent> sender) {
+        long minInterval = Values.getMetaItemValueOrThrow(attribute, META_ATTRIBUTE_UPDATE_MIN_INTERVAL, false, true)
+            .flatMap(Values::getIntegerCoerced).orElse(0);
+        long maxInterval = Values.getMetaItemValueOrThrow(attribute, META_ATTRIBUTE_UPDATE_MAX_INTERVAL, false, true)
+            .flatMap(Values::getIntegerCoerced).orElse(0);
+        Double deadband = Values.getMetaItemValueOrThrow(attribute, META_ATTRIBUTE_UPDATE_DEADBAND, false, true)
+            .flatMap(Values::getNumber).orElse(null);
+
+        if (minInterval <= 0 && deadband == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new SensorUpdateLimiter(minInterval, maxInterval, deadband, executorService, clock, sender));
+    }
+
+    public synchronized void offer(AttributeEvent event) {
+        long now = clock.getAsLong();
+        Value value = event.getValue().orElse(null);
+        boolean maxIntervalElapsed = maxIntervalMillis > 0 && now - lastSentTime >= maxIntervalMillis;
+
+        if (pendingEvent != null) {
+            // Latest value wins within the window
+            pendingEvent = event;
+            return;
+        }
+
+        if (sent && !maxIntervalElapsed && isWithinDeadband(value)) {
+            return;
+        }
+
+        long remaining = sent ? minIntervalMillis - (now - lastSentTime) : 0;
+
+        if (remaining <= 0) {
+            send(event, now);
+            return;
+        }
+
+        pendingEvent = event;
+        pendingFuture = executorService.schedule(this::sendPending, remaining);
+    }
+
+    /**
+     * Cancels any pending update.
+     */
+    public synchronized void cancel() {
+        if (pendingFuture != null) {
+            pendingFuture.cancel(false);
+            pendingFuture = null;
+        }
+        pendingEvent = null;
+    }
+
+    protected synchronized void sendPending() {
+        AttributeEvent event = pendingEvent;
+        pendingEvent = null;
+        pendingFuture = null;
+
+        if (event != null) {
+            send(event, clock.getAsLong());
+        }
+    }
+
+    protected void send(AttributeEvent event, long now) {
+        lastSentValue = event.getValue().orElse(null);
+        lastSentTime = now;
+        sent = true;
+        sender.accept(event);
+    }
+
+    protected boolean isWithinDeadband(Value value) {
+        if (deadband == null) {
+            return false;
+        }
+
+        Optional<Double> number = Values.getNumber(value);
+        Optional<Double> lastNumber = Values.getNumber(lastSentValue);
+
+        if (number.isPresent() && lastNumber.isPresent()) {
+            double difference = Math.abs(number.get() - lastNumber.get());
+            return deadband > 0 ? difference < deadband : difference == 0;
+        }
+
+        return Objects.equals(value, lastSentValue);
+    }
+}
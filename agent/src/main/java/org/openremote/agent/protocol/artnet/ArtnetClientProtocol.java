@@ -16,6 +16,7 @@ import org.openremote.model.asset.Asset;
 import org.openremote.model.asset.AssetAttribute;
 import org.openremote.model.asset.AssetTreeNode;
 import org.openremote.model.asset.AssetType;
+import org.openremote.model.asset.agent.ConnectionStatus;
 import org.openremote.model.attribute.*;
 import org.openremote.model.file.FileInfo;
 import org.openremote.model.query.AssetQuery;
@@ -23,6 +24,7 @@ import org.openremote.model.util.Pair;
 import org.openremote.model.value.*;
 
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -80,7 +82,14 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
             META_ARTNET_LIGHT_ID,
             META_ARTNET_CONFIGURATION);
 
+    /**
+     * Rate at which dirty universes are sent (the maximum DMX refresh rate for a full universe)
+     */
+    public static final int FRAME_RATE_HZ = 44;
+
     protected final Map<AttributeRef, List<Pair<AttributeRef, Consumer<ArtnetPacket>>>> protocolMessageConsumers = new HashMap<>();
+    protected final Map<AttributeRef, Map<Integer, ArtnetUniverse>> protocolUniverses = new HashMap<>();
+    protected final Map<AttributeRef, ScheduledFuture<?>> frameSenders = new HashMap<>();
 
     private List<ArtnetLight> artnetLightMemory = new ArrayList<>();
 
@@ -120,14 +129,87 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
                 );
     }
 
+    @Override
+    protected void doLinkProtocolConfiguration(Asset agent, AssetAttribute protocolConfiguration) {
+        super.doLinkProtocolConfiguration(agent, protocolConfiguration);
+        AttributeRef protocolRef = protocolConfiguration.getReferenceOrThrow();
+        long framePeriodMillis = 1000 / FRAME_RATE_HZ;
+
+        synchronized (frameSenders) {
+            frameSenders.put(protocolRef, executorService.scheduleAtFixedRate(() -> sendFrames(protocolRef), framePeriodMillis, framePeriodMillis));
+        }
+    }
+
     @Override
     protected void doUnlinkProtocolConfiguration(Asset agent, AssetAttribute protocolConfiguration) {
+        AttributeRef protocolRef = protocolConfiguration.getReferenceOrThrow();
         synchronized (protocolMessageConsumers) {
-            protocolMessageConsumers.remove(protocolConfiguration.getReferenceOrThrow());
+            protocolMessageConsumers.remove(protocolRef);
+        }
+        synchronized (frameSenders) {
+            ScheduledFuture<?> frameSender = frameSenders.remove(protocolRef);
+            if (frameSender != null) {
+                frameSender.cancel(false);
+            }
+        }
+        synchronized (protocolUniverses) {
+            protocolUniverses.remove(protocolRef);
         }
         super.doUnlinkProtocolConfiguration(agent, protocolConfiguration);
     }
 
+    /**
+     * Sends a packet for each universe that has changed since the last frame.
+     */
+    protected void sendFrames(AttributeRef protocolRef) {
+        ProtocolIoClient<ArtnetPacket, UdpIoClient<ArtnetPacket>> protocolIoClient = protocolIoClientMap.get(protocolRef);
+        if (protocolIoClient == null || protocolIoClient.client.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+            return;
+        }
+
+        List<ArtnetUniverse> universes;
+        synchronized (protocolUniverses) {
+            Map<Integer, ArtnetUniverse> universeMap = protocolUniverses.get(protocolRef);
+            if (universeMap == null) {
+                return;
+            }
+            universes = new ArrayList<>(universeMap.values());
+        }
+
+        for (ArtnetUniverse universe : universes) {
+            ArtnetPacket frame = universe.takeFrame();
+            if (frame != null) {
+                protocolIoClient.client.sendMessage(frame);
+            }
+        }
+    }
+
+    protected ArtnetUniverse getUniverse(AttributeRef protocolRef, int universeId) {
+        synchronized (protocolUniverses) {
+            return protocolUniverses
+                .computeIfAbsent(protocolRef, ref -> new HashMap<>())
+                .computeIfAbsent(universeId, id -> {
+                    ArtnetUniverse universe = new ArtnetUniverse(id);
+                    universe.setLights(getUniverseLights(id));
+                    return universe;
+                });
+        }
+    }
+
+    protected List<ArtnetLight> getUniverseLights(int universeId) {
+        return artnetLightMemory.stream().filter(light -> light.getUniverse() == universeId).collect(Collectors.toList());
+    }
+
+    /**
+     * Recalculates the buffer layouts after lights have been added or removed.
+     */
+    protected void refreshUniverses() {
+        synchronized (protocolUniverses) {
+            protocolUniverses.values().forEach(universeMap ->
+                universeMap.values().forEach(universe -> universe.setLights(getUniverseLights(universe.getUniverse()))));
+        }
+    }
+
     @Override
     protected UdpIoClient<ArtnetPacket> createIoClient(AssetAttribute protocolConfiguration) throws Exception {
         String host = Values.getMetaItemValueOrThrow(
@@ -216,8 +298,10 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
                 for(String key : requiredKeys)
                     state.getReceivedValues().put(key, 0);
                 ArtnetLight lightToCreate = new ArtnetLight(lightId, groupId, universe, amountOfLeds, requiredKeys, state, null);
-                if(artnetLightMemory.stream().noneMatch(light -> light.getLightId() == lightToCreate.getLightId()))
+                if(artnetLightMemory.stream().noneMatch(light -> light.getLightId() == lightToCreate.getLightId())) {
                     artnetLightMemory.add(lightToCreate);
+                    refreshUniverses();
+                }
             }
         }
     }
@@ -237,6 +321,7 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
                     if(lightId != -1 && universe != -1) {
                         if(artnetLightMemory.stream().anyMatch(light -> light.getLightId() == lightId)) {
                             artnetLightMemory.stream().filter(light -> light.getLightId() == lightId).findFirst().ifPresent(artnetLight -> artnetLightMemory.remove(artnetLight));
+                            refreshUniverses();
                         }
                     }
                 }
@@ -314,12 +399,10 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
                                         e.printStackTrace();
                                     }
                                 }
-                                //SEND ALL LIGHTS TO UPDATE TO THE ENCODER
-                                List<ArtnetLight> lightsToSend = new ArrayList<ArtnetLight>();
-                                for(ArtnetLight abstractLight : artnetLightMemory.stream().filter(light -> light.getUniverse() == universeId).collect(Collectors.toList()))
-                                    lightsToSend.add((ArtnetLight)abstractLight);
+                                //WRITE THE LIGHT INTO THE UNIVERSE BUFFER, IT IS SENT WITH THE NEXT FRAME
+                                getUniverse(protocolConfiguration.getReferenceOrThrow(), universeId).updateLight(updatedLight);
                                 updateLinkedAttribute(event.getAttributeState());
-                                return new ArtnetPacket(universeId, lightsToSend);
+                                return null;
                             }
                         }
                     }
@@ -349,6 +432,7 @@ public class ArtnetClientProtocol extends AbstractIoClientProtocol<ArtnetPacket,
         try{
             List<ArtnetLight> newLights = parseArtnetLightsFromImport(new ObjectMapper().readTree(jsonString));
             syncLightsToMemory(newLights);
+            refreshUniverses();
             return syncLightsToAssets(newLights, protocolConfiguration);
         } catch (JsonProcessingException e) {
             throw new IllegalStateException("The provided json is invalid.");
@@ -17,6 +17,7 @@ public class ArtnetPacket {
 
     private int universe;
     private List<ArtnetLight> lights;
+    private ArtnetUniverse frameUniverse;
 
     public ArtnetPacket(int universe, List<ArtnetLight> lights) {
         this.universe = universe;
@@ -24,10 +25,21 @@ public class ArtnetPacket {
         this.lights = lights;
     }
 
+    /**
+     * Creates a packet that writes the DMX frame of the universe as laid out by {@link ArtnetUniverse}.
+     */
+    public ArtnetPacket(ArtnetUniverse frameUniverse) {
+        this.universe = frameUniverse.getUniverse();
+        this.frameUniverse = frameUniverse;
+    }
+
     public void toByteBuf(ByteBuf buf) {
         writePrefix(buf, this.universe);
-        for(ArtnetLight light : lights)
-            writeLight(buf, light.getLightState().getValues(), light.getAmountOfLeds());
+        if(frameUniverse != null)
+            frameUniverse.writeFrame(buf);
+        else
+            for(ArtnetLight light : lights)
+                writeLight(buf, light.getLightState().getValues(), light.getAmountOfLeds());
         updateLength(buf);
     }
 
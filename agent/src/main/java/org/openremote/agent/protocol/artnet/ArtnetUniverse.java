@@ -0,0 +1,113 @@
+package org.openremote.agent.protocol.artnet;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.*;
+
+/**
+ * Preallocated DMX buffer for a single universe; lights are laid out in light ID order (the same order as used by
+ * {@link ArtnetPacket}) and light state changes are written into the buffer in place. The universe is flagged as
+ * dirty until the next frame has been taken with {@link #takeFrame}; the values are copied straight into the outgoing
+ * (pooled) buffer when the frame packet is encoded. Each light takes one channel per required value per LED, whether
+ * or not it has a state yet.
+ */
+public class ArtnetUniverse {
+
+    public static final int DMX_CHANNELS = 512;
+
+    private final int universe;
+    private final byte[] data = new byte[DMX_CHANNELS];
+    private final Map<Integer, Integer> lightOffsets = new HashMap<>();
+    private final ArtnetPacket framePacket;
+    private int length;
+    private boolean dirty;
+
+    public ArtnetUniverse(int universe) {
+        this.universe = universe;
+        this.framePacket = new ArtnetPacket(this);
+    }
+
+    public int getUniverse() {
+        return universe;
+    }
+
+    /**
+     * Recalculates the layout of the buffer for the supplied lights and rewrites all light values; this doesn't flag
+     * the universe as dirty so nothing is sent until a light actually changes.
+     */
+    public synchronized void setLights(List<ArtnetLight> lights) {
+        List<ArtnetLight> sortedLights = new ArrayList<>(lights);
+        sortedLights.sort(Comparator.comparingInt(ArtnetLight::getLightId));
+
+        Arrays.fill(data, (byte) 0);
+        lightOffsets.clear();
+        int offset = 0;
+
+        for (ArtnetLight light : sortedLights) {
+            lightOffsets.put(light.getLightId(), offset);
+            offset += writeLight(light, offset);
+        }
+
+        length = Math.min(offset, DMX_CHANNELS);
+    }
+
+    /**
+     * Writes the current state of the light into the buffer; returns false if the light is not part of this universe.
+     */
+    public synchronized boolean updateLight(ArtnetLight light) {
+        Integer offset = lightOffsets.get(light.getLightId());
+        if (offset == null) {
+            return false;
+        }
+
+        writeLight(light, offset);
+        dirty = true;
+        return true;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Clears the dirty flag and returns the packet to send for this universe; returns null if nothing changed since the
+     * last frame. The same packet instance is returned for every frame, it writes the values that are current when it
+     * is encoded (see {@link #writeFrame}).
+     */
+    public synchronized ArtnetPacket takeFrame() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return framePacket;
+    }
+
+    /**
+     * Writes the current DMX values of the universe into the buffer.
+     */
+    public synchronized void writeFrame(ByteBuf buf) {
+        buf.writeBytes(data, 0, length);
+    }
+
+    public static int getChannelsPerLed(ArtnetLight light) {
+        return light.getRequiredValues() != null ? light.getRequiredValues().length : 0;
+    }
+
+    private int writeLight(ArtnetLight light, int offset) {
+        int width = getChannelsPerLed(light);
+        int size = width * light.getAmountOfLeds();
+        Byte[] values = light.getLightState() != null ? light.getLightState().getValues() : null;
+
+        for (int led = 0; led < light.getAmountOfLeds(); led++) {
+            for (int i = 0; i < width; i++) {
+                int channel = offset + (led * width) + i;
+                if (channel >= DMX_CHANNELS) {
+                    return size;
+                }
+                data[channel] = values != null && i < values.length && values[i] != null ? values[i] : 0;
+            }
+        }
+
+        return size;
+    }
+}
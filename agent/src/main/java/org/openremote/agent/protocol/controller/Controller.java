@@ -5,8 +5,6 @@ import org.openremote.model.attribute.AttributeRef;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static org.openremote.container.concurrent.GlobalLock.withLock;
-
 /**
  * Controller class represent a Controller defined in a Manager Agent and store all sensors and commands linked to that Controller agent.
  *
@@ -58,11 +56,9 @@ public class Controller {
         return this.controllerConfigName;
     }
 
-    public void removeAttributeRef(AttributeRef attributeRef) {
-        withLock(ControllerProtocol.PROTOCOL_NAME + ":Controller::removeAttributeRef", () -> {
-            this.commandsList.remove(attributeRef);
-            this.sensorsList.remove(attributeRef);
-        });
+    public synchronized void removeAttributeRef(AttributeRef attributeRef) {
+        this.commandsList.remove(attributeRef);
+        this.sensorsList.remove(attributeRef);
     }
 
     /**
@@ -28,6 +28,8 @@ import org.jboss.resteasy.specimpl.ResponseBuilderImpl;
 import org.openremote.agent.protocol.AbstractProtocol;
 import org.openremote.agent.protocol.Protocol;
 import org.openremote.container.Container;
+import org.openremote.container.concurrent.ContainerExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
 import org.openremote.container.web.HeaderInjectorFilter;
 import org.openremote.container.web.OAuthGrant;
 import org.openremote.container.web.QueryParameterInjectorFilter;
@@ -49,6 +51,7 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
@@ -58,14 +61,16 @@ import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static org.openremote.container.concurrent.GlobalLock.withLock;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
 import static org.openremote.model.attribute.MetaItemDescriptor.Access.ACCESS_PRIVATE;
 import static org.openremote.model.attribute.MetaItemDescriptorImpl.*;
@@ -124,6 +129,20 @@ import static org.openremote.model.util.TextUtil.REGEXP_PATTERN_STRING_NON_EMPTY
  * <p>
  * <b>NOTE: if an exception is thrown during the request that means no response is returned then this is treated as if
  * a 500 response has been received</b>
+ * <h1>Request execution</h1>
+ * Polling requests are scheduled on the {@link org.openremote.agent.protocol.ProtocolExecutorService} but executed on
+ * a dedicated bounded pool (see {@link #HTTP_CLIENT_REQUEST_THREADS_MAX}), so slow HTTP servers can't block the
+ * threads shared by all protocols. The number of concurrent polling requests to the same host is limited (see
+ * {@link #HTTP_CLIENT_MAX_REQUESTS_PER_HOST}), polls beyond the limit wait for a free slot in the order they were
+ * submitted; ping requests are not limited. A poll is skipped if the previous request of the same poll is still in
+ * flight. The first execution of each poll is delayed by a random jitter so polls don't all start at once. Connect,
+ * connection pool checkout and socket read timeouts are set by {@link #HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS}.
+ * <h1>Request coalescing</h1>
+ * Linked attributes of the same {@link ProtocolConfiguration} with identical polling requests (same path, method,
+ * headers, query parameters and body) share a single polling request that executes at the shortest requested polling
+ * interval; the response is passed to all of these attributes and each applies its own
+ * {@link Protocol#META_ATTRIBUTE_VALUE_FILTERS}. Using {@link #META_CONDITIONAL_POLLING} the polling request includes
+ * the ETag/Last-Modified of the previous response and unchanged (304 Not Modified) responses are skipped.
  * <h1>Dynamic value injection</h1>
  * This allows the {@link #META_ATTRIBUTE_PATH} and/or {@link Protocol#META_ATTRIBUTE_WRITE_VALUE} to contain the linked
  * {@link Attribute} value when sending requests. To dynamically inject the attribute value use
@@ -269,7 +288,14 @@ public class HttpClientProtocol extends AbstractProtocol {
         }
 
         public Response invoke(String value) {
+            return invoke(value, null);
+        }
+
+        public Response invoke(String value, MultivaluedMap<String, Object> additionalHeaders) {
             Invocation.Builder requestBuilder = getRequestBuilder(value);
+            if (additionalHeaders != null) {
+                additionalHeaders.forEach((name, values) -> values.forEach(headerValue -> requestBuilder.header(name, headerValue)));
+            }
             Invocation invocation = buildInvocation(requestBuilder, value);
             return invocation.invoke();
         }
@@ -286,6 +312,99 @@ public class HttpClientProtocol extends AbstractProtocol {
         }
     }
 
+    /**
+     * Limits the concurrent requests to a host; requests beyond the limit wait in submission order rather than being
+     * dropped, so every poll of a busy host eventually runs.
+     */
+    protected static class HostRequestQueue {
+
+        protected final int maxRequests;
+        protected final Queue<Pair<Runnable, Runnable>> pending = new ArrayDeque<>();
+        protected int active;
+
+        protected HostRequestQueue(int maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        /**
+         * Returns true if the request can be started now, otherwise the request and its completion callback are
+         * queued and returned by {@link #complete} when a running request of the host completes.
+         */
+        protected synchronized boolean tryStart(Runnable request, Runnable onComplete) {
+            if (active < maxRequests) {
+                active++;
+                return true;
+            }
+            pending.add(new Pair<>(request, onComplete));
+            return false;
+        }
+
+        /**
+         * Called when a running request completes; returns the next queued request, which takes over the slot of the
+         * completed request, or null if there is none.
+         */
+        protected synchronized Pair<Runnable, Runnable> complete() {
+            Pair<Runnable, Runnable> next = pending.poll();
+            if (next == null) {
+                active--;
+            }
+            return next;
+        }
+
+        protected synchronized int getActive() {
+            return active;
+        }
+
+        protected synchronized int getQueued() {
+            return pending.size();
+        }
+    }
+
+    /**
+     * A polling request shared by all linked attributes with an identical request, it is scheduled at the shortest
+     * polling interval of these attributes.
+     */
+    protected static class HttpPollingRequest {
+
+        protected final HttpClientRequest clientRequest;
+        protected final AttributeRef protocolConfigurationRef;
+        protected final String body;
+        protected final boolean conditional;
+        protected final Map<AttributeRef, Integer> attributePollingMillis = new LinkedHashMap<>();
+        // Outlives the polling task so a request of a cancelled schedule is not overlapped by the next schedule
+        protected final AtomicBoolean inFlight = new AtomicBoolean();
+        protected ScheduledFuture pollingTask;
+        protected int pollingMillis;
+        protected volatile String eTag;
+        protected volatile String lastModified;
+
+        protected HttpPollingRequest(HttpClientRequest clientRequest, AttributeRef protocolConfigurationRef, String body, boolean conditional) {
+            this.clientRequest = clientRequest;
+            this.protocolConfigurationRef = protocolConfigurationRef;
+            this.body = body;
+            this.conditional = conditional;
+        }
+
+        protected MultivaluedMap<String, Object> getConditionalHeaders() {
+            if (!conditional || (eTag == null && lastModified == null)) {
+                return null;
+            }
+            MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+            if (eTag != null) {
+                headers.add(HttpHeaders.IF_NONE_MATCH, eTag);
+            }
+            if (lastModified != null) {
+                headers.add(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+            return headers;
+        }
+
+        @Override
+        public String toString() {
+            return clientRequest + " (attributes: " + attributePollingMillis.size() + ", " + pollingMillis + " ms)";
+        }
+    }
+
     protected static class PagingResponse extends BuiltResponse {
 
         private PagingResponse(int status, Headers<Object> metadata, Object entity, Annotation[] entityAnnotations) {
@@ -337,6 +456,31 @@ public class HttpClientProtocol extends AbstractProtocol {
     protected static int MIN_POLLING_MILLIS = 1000;
     protected static int MIN_PING_MILLIS = 10000;
 
+    /**
+     * Threads used to execute the blocking HTTP requests of this protocol.
+     */
+    public static final String HTTP_CLIENT_REQUEST_THREADS_MAX = "HTTP_CLIENT_REQUEST_THREADS_MAX";
+    public static final int HTTP_CLIENT_REQUEST_THREADS_MAX_DEFAULT = 20;
+    public static final int HTTP_CLIENT_REQUEST_QUEUE_SIZE = 1000;
+
+    /**
+     * Maximum number of concurrent requests to a single host (host and port of the request URI).
+     */
+    public static final String HTTP_CLIENT_MAX_REQUESTS_PER_HOST = "HTTP_CLIENT_MAX_REQUESTS_PER_HOST";
+    public static final int HTTP_CLIENT_MAX_REQUESTS_PER_HOST_DEFAULT = 4;
+
+    /**
+     * Timeout of each HTTP request for connecting, obtaining a pooled connection and waiting for response data; a
+     * paged response stops fetching further pages once this time has passed since the first request.
+     */
+    public static final String HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS = "HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS";
+    public static final int HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS_DEFAULT = (int) WebTargetBuilder.CONNECTION_TIMEOUT_MILLISECONDS;
+
+    /**
+     * Upper bound of the random delay of the first execution of a poll.
+     */
+    protected static final int POLLING_INITIAL_JITTER_MILLIS_MAX = 2000;
+
     /*--------------- META ITEMS TO BE USED ON PROTOCOL CONFIGURATIONS ---------------*/
     /**
      * Base URI for all requests to this server
@@ -506,6 +650,16 @@ public class HttpClientProtocol extends AbstractProtocol {
             ACCESS_PRIVATE,
             false);
 
+    /**
+     * Boolean indicating if polling requests should be conditional; the ETag and Last-Modified headers of the previous
+     * response are sent as If-None-Match and If-Modified-Since and an unchanged (304 Not Modified) response doesn't
+     * update the linked attribute(s).
+     */
+    public static final MetaItemDescriptor META_CONDITIONAL_POLLING = metaItemFixedBoolean(
+            PROTOCOL_NAME + ":conditionalPolling",
+            ACCESS_PRIVATE,
+            false);
+
     /**
      * Query parameters for the request; values specified on a {@link ProtocolConfiguration} will be appended to all
      * requests, values specified on linked attributes will be added to those specified on the {@link
@@ -540,6 +694,7 @@ public class HttpClientProtocol extends AbstractProtocol {
             META_QUERY_PARAMETERS,
             META_FAILURE_CODES,
             META_PAGING_ENABLED,
+            META_CONDITIONAL_POLLING,
             META_READ_TIMEOUT_MILLISECONDS);
 
     public static final List<MetaItemDescriptor> PROTOCOL_META_ITEM_DESCRIPTORS = Arrays.asList(
@@ -564,7 +719,18 @@ public class HttpClientProtocol extends AbstractProtocol {
     protected final Map<AttributeRef, Pair<ResteasyWebTarget, List<Integer>>> clientMap = new HashMap<>();
     protected final Map<AttributeRef, HttpClientRequest> requestMap = new HashMap<>();
     protected final Map<AttributeRef, ScheduledFuture> pollingMap = new HashMap<>();
+    protected final Map<String, HttpPollingRequest> pollingRequestMap = new HashMap<>();
+    protected final Map<AttributeRef, HttpPollingRequest> attributePollingRequestMap = new HashMap<>();
     protected final Map<AttributeRef, Set<AttributeRef>> pollingLinkedAttributeMap = new HashMap<>();
+    protected final Map<String, HostRequestQueue> hostRequestQueues = new ConcurrentHashMap<>();
+    protected final AtomicInteger requestsInFlight = new AtomicInteger();
+    protected final AtomicLong requestsCompleted = new AtomicLong();
+    protected final AtomicLong pollsSkipped = new AtomicLong();
+    protected final AtomicLong requestsRejected = new AtomicLong();
+    protected ExecutorService requestExecutor;
+    protected int maxRequestsPerHost;
+    protected int requestThreadsMax = HTTP_CLIENT_REQUEST_THREADS_MAX_DEFAULT;
+    protected int requestTimeoutMillis = HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS_DEFAULT;
     protected ResteasyClient client;
 
     public static Optional<Pair<StringValue, StringValue>> getUsernameAndPassword(AssetAttribute attribute) throws IllegalArgumentException {
@@ -643,19 +809,44 @@ public class HttpClientProtocol extends AbstractProtocol {
     @Override
     public void init(Container container) throws Exception {
         super.init(container);
+
+        requestThreadsMax = getInteger(container.getConfig(), HTTP_CLIENT_REQUEST_THREADS_MAX, HTTP_CLIENT_REQUEST_THREADS_MAX_DEFAULT);
+        maxRequestsPerHost = getInteger(container.getConfig(), HTTP_CLIENT_MAX_REQUESTS_PER_HOST, HTTP_CLIENT_MAX_REQUESTS_PER_HOST_DEFAULT);
+        requestTimeoutMillis = getInteger(container.getConfig(), HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS, HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS_DEFAULT);
         client = createClient();
+
+        // Rejections must be visible to the submitter so the host slot can be released
+        requestExecutor = new ContainerExecutor(
+            new ContainerThreadFactory("HTTP client request"),
+            new ThreadPoolExecutor.AbortPolicy(),
+            requestThreadsMax,
+            requestThreadsMax,
+            60,
+            new LinkedBlockingQueue<>(HTTP_CLIENT_REQUEST_QUEUE_SIZE));
     }
 
+    /**
+     * The connection pool is sized to the request threads so request threads never wait for a pooled connection.
+     */
     protected ResteasyClient createClient() {
-        return WebTargetBuilder.createClient(executorService);
+        return WebTargetBuilder.createClient(executorService, requestThreadsMax, requestTimeoutMillis, null);
     }
 
     @Override
     protected void doStop(Container container) {
         pollingMap.forEach((attributeRef, scheduledFuture) -> scheduledFuture.cancel(true));
         pollingMap.clear();
+        synchronized (pollingRequestMap) {
+            pollingRequestMap.values().forEach(pollingRequest -> pollingRequest.pollingTask.cancel(true));
+            pollingRequestMap.clear();
+            attributePollingRequestMap.clear();
+        }
         requestMap.clear();
         clientMap.clear();
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+        }
+        hostRequestQueues.clear();
     }
 
     @Override
@@ -734,7 +925,7 @@ public class HttpClientProtocol extends AbstractProtocol {
 
         WebTargetBuilder webTargetBuilder;
         if (readTimeout != null) {
-            webTargetBuilder = new WebTargetBuilder(WebTargetBuilder.createClient(executorService, WebTargetBuilder.CONNECTION_POOL_SIZE, readTimeout.longValue(), null), uri);
+            webTargetBuilder = new WebTargetBuilder(WebTargetBuilder.createClient(executorService, requestThreadsMax, readTimeout.longValue(), null), uri);
         } else {
             webTargetBuilder = new WebTargetBuilder(client, uri);
         }
@@ -998,24 +1189,86 @@ public class HttpClientProtocol extends AbstractProtocol {
 
         requestMap.put(attributeRef, clientRequest);
 
-        Optional.ofNullable(pollingMillis).ifPresent(seconds -> {
+        Optional.ofNullable(pollingMillis).ifPresent(millis -> {
             String body = Values.getMetaItemValueOrThrow(attribute, META_ATTRIBUTE_WRITE_VALUE, false, true)
                 .map(Object::toString).orElse(null);
 
-            pollingMap.put(attributeRef, schedulePollingRequest(
-                attributeRef,
-                protocolConfigurationRef,
-                clientRequest,
-                body,
-                seconds));
+            boolean conditional = Values.getMetaItemValueOrThrow(attribute, META_CONDITIONAL_POLLING, false, true)
+                .flatMap(Values::getBoolean).orElse(false);
+
+            addPollingRequest(attributeRef, protocolConfigurationRef, clientRequest, body, conditional, millis);
         });
     }
 
+    /**
+     * Adds the attribute to the polling request that is identical to the given request, or creates a new polling
+     * request if there is none.
+     */
+    protected void addPollingRequest(AttributeRef attributeRef,
+                                     AttributeRef protocolConfigurationRef,
+                                     HttpClientRequest clientRequest,
+                                     String body,
+                                     boolean conditional,
+                                     int pollingMillis) {
+
+        String key = getPollingRequestKey(protocolConfigurationRef, clientRequest, body, conditional);
+
+        synchronized (pollingRequestMap) {
+            removePollingRequest(attributeRef);
+
+            HttpPollingRequest pollingRequest = pollingRequestMap.computeIfAbsent(
+                key,
+                k -> new HttpPollingRequest(clientRequest, protocolConfigurationRef, body, conditional));
+
+            if (pollingRequest.clientRequest != clientRequest) {
+                LOG.fine("Attribute '" + attributeRef + "' shares identical polling request: " + pollingRequest);
+            }
+
+            pollingRequest.attributePollingMillis.put(attributeRef, pollingMillis);
+            attributePollingRequestMap.put(attributeRef, pollingRequest);
+            schedulePollingRequest(pollingRequest);
+        }
+    }
+
+    /**
+     * Removes the attribute from its polling request, the polling request is cancelled if no attributes remain.
+     */
+    protected void removePollingRequest(AttributeRef attributeRef) {
+        synchronized (pollingRequestMap) {
+            HttpPollingRequest pollingRequest = attributePollingRequestMap.remove(attributeRef);
+            if (pollingRequest == null) {
+                return;
+            }
+
+            pollingRequest.attributePollingMillis.remove(attributeRef);
+
+            if (pollingRequest.attributePollingMillis.isEmpty()) {
+                pollingRequest.pollingTask.cancel(false);
+                pollingRequestMap.values().remove(pollingRequest);
+            } else {
+                schedulePollingRequest(pollingRequest);
+            }
+        }
+    }
+
+    protected static String getPollingRequestKey(AttributeRef protocolConfigurationRef, HttpClientRequest clientRequest, String body, boolean conditional) {
+        return protocolConfigurationRef
+            + "|" + clientRequest.method
+            + "|" + clientRequest.path
+            + "|" + clientRequest.headers
+            + "|" + clientRequest.queryParameters
+            + "|" + clientRequest.contentType
+            + "|" + clientRequest.failureCodes
+            + "|" + clientRequest.pagingEnabled
+            + "|" + conditional
+            + "|" + body;
+    }
+
     @Override
     protected void doUnlinkAttribute(AssetAttribute attribute, AssetAttribute protocolConfiguration) {
         AttributeRef attributeRef = attribute.getReferenceOrThrow();
         requestMap.remove(attributeRef);
-        cancelPolling(attributeRef);
+        removePollingRequest(attributeRef);
 
         String pollingAttribute = Values.getMetaItemValueOrThrow(
             attribute,
@@ -1127,39 +1380,166 @@ public class HttpClientProtocol extends AbstractProtocol {
 
         LOG.fine("Scheduling polling request '" + clientRequest + "' to execute every " + pollingMillis + " ms for attribute: " + attributeRef);
 
-        return executorService.scheduleWithFixedDelay(() ->
-                executePollingRequest(clientRequest, body, response -> {
+        // Without an attribute this is the ping request, which must not wait behind polls to the same host
+        return schedulePollingRequest(
+            clientRequest,
+            body,
+            () -> null,
+            pollingMillis,
+            new AtomicBoolean(),
+            attributeRef != null,
+            response -> onPollingResponse(clientRequest, response, attributeRef, protocolConfigurationRef));
+    }
+
+    /**
+     * (Re)schedules the polling request at the shortest polling interval of its attributes.
+     */
+    protected void schedulePollingRequest(HttpPollingRequest pollingRequest) {
+        int pollingMillis = pollingRequest.attributePollingMillis.values().stream()
+            .min(Integer::compare)
+            .orElse(MIN_POLLING_MILLIS);
+
+        if (pollingRequest.pollingTask != null) {
+            if (pollingRequest.pollingMillis == pollingMillis) {
+                return;
+            }
+            pollingRequest.pollingTask.cancel(false);
+        }
+
+        LOG.fine("Scheduling polling request '" + pollingRequest.clientRequest + "' to execute every " + pollingMillis + " ms for attributes: " + pollingRequest.attributePollingMillis.keySet());
+
+        pollingRequest.pollingMillis = pollingMillis;
+        pollingRequest.pollingTask = schedulePollingRequest(
+            pollingRequest.clientRequest,
+            pollingRequest.body,
+            pollingRequest::getConditionalHeaders,
+            pollingMillis,
+            pollingRequest.inFlight,
+            true,
+            response -> onPollingResponse(pollingRequest, response));
+    }
+
+    protected ScheduledFuture schedulePollingRequest(HttpClientRequest clientRequest,
+                                                     String body,
+                                                     Supplier<MultivaluedMap<String, Object>> headersSupplier,
+                                                     int pollingMillis,
+                                                     AtomicBoolean inFlight,
+                                                     boolean hostLimited,
+                                                     Consumer<Response> responseConsumer) {
+
+        long initialDelayMillis = ThreadLocalRandom.current().nextLong(Math.max(1, Math.min(pollingMillis, POLLING_INITIAL_JITTER_MILLIS_MAX)));
+
+        return executorService.scheduleWithFixedDelay(() -> {
+            // Don't queue up requests to a server that is slower than the polling rate
+            if (!inFlight.compareAndSet(false, true)) {
+                pollsSkipped.incrementAndGet();
+                LOG.finest("Skipping poll as previous request is still in flight: " + clientRequest);
+                return;
+            }
+
+            submitRequest(clientRequest, () ->
+                executePollingRequest(clientRequest, body, headersSupplier.get(), response -> {
                     try {
-                        onPollingResponse(
-                            clientRequest,
-                            response,
-                            attributeRef,
-                            protocolConfigurationRef);
+                        responseConsumer.accept(response);
                     } catch (Exception e) {
-                        LOG.log(Level.WARNING, getProtocolDisplayName() + " exception thrown whilst processing polling response [" + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()) + "]: " + clientRequest.requestTarget.getUriBuilder().build().toString());
+                        LOG.log(Level.WARNING, getProtocolDisplayName() + " exception thrown whilst processing polling response [" + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()) + "]: " + clientRequest);
                     }
-                }), 0, pollingMillis, TimeUnit.MILLISECONDS);
+                }), () -> inFlight.set(false), hostLimited);
+        }, initialDelayMillis, pollingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the request on the {@link #requestExecutor}; a host limited request waits in the {@link
+     * HostRequestQueue} of its host until the host has a free request slot. The completion callback is always called,
+     * also when the request is rejected.
+     */
+    protected void submitRequest(HttpClientRequest clientRequest, Runnable request, Runnable onComplete, boolean hostLimited) {
+        HostRequestQueue hostQueue = hostLimited
+            ? hostRequestQueues.computeIfAbsent(clientRequest.client.getUri().getAuthority(), host -> new HostRequestQueue(maxRequestsPerHost))
+            : null;
+
+        if (hostQueue == null || hostQueue.tryStart(request, onComplete)) {
+            executeRequest(hostQueue, request, onComplete);
+        } else {
+            LOG.finest("Queueing request as maximum concurrent requests to host has been reached: " + clientRequest);
+        }
+    }
+
+    protected void executeRequest(HostRequestQueue hostQueue, Runnable request, Runnable onComplete) {
+        try {
+            requestExecutor.execute(() -> {
+                requestsInFlight.incrementAndGet();
+                try {
+                    request.run();
+                } finally {
+                    requestsInFlight.decrementAndGet();
+                    requestsCompleted.incrementAndGet();
+                    onComplete.run();
+                    startNextRequest(hostQueue);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            requestsRejected.incrementAndGet();
+            LOG.fine("Request executor rejected request");
+            onComplete.run();
+            startNextRequest(hostQueue);
+        }
+    }
+
+    protected void startNextRequest(HostRequestQueue hostQueue) {
+        if (hostQueue == null) {
+            return;
+        }
+        Pair<Runnable, Runnable> next = hostQueue.complete();
+        if (next != null) {
+            executeRequest(hostQueue, next.key, next.value);
+        }
+    }
+
+    /**
+     * Request statistics of this protocol instance.
+     */
+    public ObjectValue getRequestStatistics() {
+        ObjectValue statistics = Values.createObject();
+        statistics.put("inFlight", requestsInFlight.get());
+        statistics.put("completed", requestsCompleted.get());
+        statistics.put("skipped", pollsSkipped.get());
+        statistics.put("rejected", requestsRejected.get());
+        statistics.put("queued", requestExecutor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) requestExecutor).getQueue().size() : 0);
+        statistics.put("hostQueued", hostRequestQueues.values().stream().mapToInt(HostRequestQueue::getQueued).sum());
+        statistics.put("hosts", hostRequestQueues.size());
+        return statistics;
     }
 
     protected void executePollingRequest(HttpClientRequest clientRequest, String body, Consumer<Response> responseConsumer) {
+        executePollingRequest(clientRequest, body, null, responseConsumer);
+    }
+
+    protected void executePollingRequest(HttpClientRequest clientRequest, String body, MultivaluedMap<String, Object> additionalHeaders, Consumer<Response> responseConsumer) {
         Response originalResponse = null, lastResponse = null;
         List<String> entities = new ArrayList<>();
 
         try {
-            originalResponse = clientRequest.invoke(body);
-            if (clientRequest.pagingEnabled) {
+            long deadline = System.currentTimeMillis() + requestTimeoutMillis;
+            originalResponse = clientRequest.invoke(body, additionalHeaders);
+            if (clientRequest.pagingEnabled && originalResponse.getStatus() != Response.Status.NOT_MODIFIED.getStatusCode()) {
                 lastResponse = originalResponse;
                 entities.add(lastResponse.readEntity(String.class));
                 while ((lastResponse = executePagingRequest(clientRequest, lastResponse)) != null) {
                     entities.add(lastResponse.readEntity(String.class));
                     lastResponse.close();
+                    if (System.currentTimeMillis() > deadline) {
+                        LOG.warning("Request timeout reached whilst fetching pages, using the pages fetched so far: " + clientRequest);
+                        lastResponse = null;
+                        break;
+                    }
                 }
                 originalResponse = PagingResponse.fromResponse(originalResponse).entity(entities).build();
             }
 
             responseConsumer.accept(originalResponse);
         } catch (Exception e) {
-            LOG.log(Level.WARNING, getProtocolDisplayName() + " exception thrown whilst doing polling request [" + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()) + "]: " + clientRequest.requestTarget.getUriBuilder().build().toString());
+            LOG.log(Level.WARNING, getProtocolDisplayName() + " exception thrown whilst doing polling request [" + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()) + "]: " + clientRequest);
         } finally {
             if (originalResponse != null) {
                 originalResponse.close();
@@ -1196,11 +1576,48 @@ public class HttpClientProtocol extends AbstractProtocol {
         }
     }
 
+    /**
+     * Passes the response of a shared polling request to all of its attributes.
+     */
+    protected void onPollingResponse(HttpPollingRequest pollingRequest, Response response) {
+        if (response != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            LOG.finest("Polling response not modified: " + pollingRequest);
+            if (pollingRequest.clientRequest.updateConnectionStatus) {
+                updateConnectionStatus(pollingRequest.clientRequest, pollingRequest.protocolConfigurationRef, Response.Status.OK.getStatusCode());
+            }
+            return;
+        }
+
+        if (pollingRequest.conditional && response != null && response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+            pollingRequest.eTag = response.getHeaderString(HttpHeaders.ETAG);
+            pollingRequest.lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        }
+
+        List<AttributeRef> attributeRefs;
+        synchronized (pollingRequestMap) {
+            attributeRefs = new ArrayList<>(pollingRequest.attributePollingMillis.keySet());
+        }
+
+        onPollingResponse(pollingRequest.clientRequest, response, attributeRefs, pollingRequest.protocolConfigurationRef);
+    }
+
     protected void onPollingResponse(HttpClientRequest request,
                                      Response response,
                                      AttributeRef attributeRef,
                                      AttributeRef protocolConfigurationRef) {
 
+        onPollingResponse(
+            request,
+            response,
+            attributeRef != null ? Collections.singletonList(attributeRef) : Collections.emptyList(),
+            protocolConfigurationRef);
+    }
+
+    protected void onPollingResponse(HttpClientRequest request,
+                                     Response response,
+                                     Collection<AttributeRef> attributeRefs,
+                                     AttributeRef protocolConfigurationRef) {
+
         int responseCode = response != null ? response.getStatus() : 500;
 
         if (request.updateConnectionStatus) {
@@ -1222,11 +1639,15 @@ public class HttpClientProtocol extends AbstractProtocol {
             }
         } else if (isPermanentFailure(responseCode, request.failureCodes)) {
             doPermanentFailure(protocolConfigurationRef);
-            cancelPolling(attributeRef != null ? attributeRef : protocolConfigurationRef);
+            if (attributeRefs.isEmpty()) {
+                cancelPolling(protocolConfigurationRef);
+            } else {
+                attributeRefs.forEach(this::removePollingRequest);
+            }
             return;
         }
 
-        if (attributeRef != null) {
+        for (AttributeRef attributeRef : attributeRefs) {
             updateLinkedAttribute(new AttributeState(attributeRef, value));
 
             // Look for any attributes that also want to use this polling response
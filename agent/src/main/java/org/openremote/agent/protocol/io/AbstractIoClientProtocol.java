@@ -137,14 +137,12 @@ public abstract class AbstractIoClientProtocol<T, U extends IoClient<T>> extends
                     encodersDecoders.add(new FixedLengthFrameDecoder(maxLength));
                 }
 
-                // Incoming messages will be bytes
+                // Incoming messages will be frames of bytes, converted straight from the frame slice
                 encodersDecoders.add(
-                    new AbstractNettyIoClient.ByteToMessageDecoder<>(
+                    new AbstractNettyIoClient.ByteBufFrameDecoder<>(
                         client,
-                        (byteBuf, messages) -> {
-                            byte[] bytes = new byte[byteBuf.readableBytes()];
-                            byteBuf.readBytes(bytes);
-                            String msg = hexMode ? Protocol.bytesToHexString(bytes) : Protocol.bytesToBinaryString(bytes);
+                        (frame, messages) -> {
+                            String msg = hexMode ? Protocol.bytesToHexString(frame) : Protocol.bytesToBinaryString(frame);
                             messages.add(msg);
                         }
                     )
@@ -105,6 +105,43 @@ public abstract class AbstractNettyIoClient<T, U extends SocketAddress> implemen
         }
     }
 
+    /**
+     * This is intended to be used at the end of a decoder chain directly after a framing decoder (e.g.
+     * {@link io.netty.handler.codec.DelimiterBasedFrameDecoder} or {@link io.netty.handler.codec.FixedLengthFrameDecoder})
+     * which outputs each frame as a retained slice of the received {@link ByteBuf}; the slice is handed to the provided
+     * {@link #decoder} as is (unlike {@link ByteToMessageDecoder} nothing is accumulated) and is released once the
+     * messages extracted from it have been passed to the {@link IoClient}. Messages must therefore not reference the
+     * frame unless the {@link #decoder} retains it.
+     */
+    public static class ByteBufFrameDecoder<T> extends SimpleChannelInboundHandler<ByteBuf> {
+        protected List<T> messages = new ArrayList<>(1);
+        protected AbstractNettyIoClient<T, ?> client;
+        protected BiConsumer<ByteBuf, List<T>> decoder;
+
+        public ByteBufFrameDecoder(AbstractNettyIoClient<T, ?> client, @NotNull BiConsumer<ByteBuf, List<T>> decoder) {
+            super(ByteBuf.class, false);
+            this.client = client;
+            this.decoder = decoder;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            try {
+                decoder.accept(frame, messages);
+                messages.forEach(m -> client.onMessageReceived(m));
+            } finally {
+                messages.clear();
+                frame.release();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            super.exceptionCaught(ctx, cause);
+            client.onDecodeException(ctx, cause);
+        }
+    }
+
     /**
      * This is intended to be used at the end of a decoder chain where the previous decoder outputs messages of type &lt;T&gt;.
      */
@@ -181,7 +218,13 @@ public abstract class AbstractNettyIoClient<T, U extends SocketAddress> implemen
 
     protected abstract Class<? extends Channel> getChannelClass();
 
-    protected abstract EventLoopGroup getWorkerGroup();
+    /**
+     * Defaults to the shared {@link ProtocolExecutorService#getIoEventLoopGroup}; implementations that return their
+     * own group own it and it is shut down when the client disconnects.
+     */
+    protected EventLoopGroup getWorkerGroup() {
+        return executorService.getIoEventLoopGroup();
+    }
 
     protected abstract ChannelFuture startChannel();
 
@@ -239,7 +282,6 @@ public abstract class AbstractNettyIoClient<T, U extends SocketAddress> implemen
         LOG.info("Establishing connection: " + getClientUri());
 
         if (workerGroup == null) {
-            // TODO: In Netty 5 you can pass in an executor service; can only pass in thread factory for now
             workerGroup = getWorkerGroup();
         }
 
@@ -331,7 +373,11 @@ public abstract class AbstractNettyIoClient<T, U extends SocketAddress> implemen
             }
         } finally {
             if (workerGroup != null) {
-                workerGroup.shutdownGracefully();
+                // Shared event loop groups are managed by the executor service
+                if (workerGroup != executorService.getIoEventLoopGroup()
+                    && workerGroup != executorService.getBlockingIoEventLoopGroup()) {
+                    workerGroup.shutdownGracefully();
+                }
                 workerGroup = null;
             }
         }
@@ -435,12 +481,16 @@ public abstract class AbstractNettyIoClient<T, U extends SocketAddress> implemen
         addEncodersDecoders(channel);
     }
 
+    /**
+     * The encoders and decoders run on the {@link ProtocolExecutorService#getIoHandlerExecutorGroup} rather than the
+     * shared event loop as the message consumers are called from the last decoder.
+     */
     protected void addEncodersDecoders(Channel channel) {
         if (encoderDecoderProvider != null) {
             ChannelHandler[] handlers = encoderDecoderProvider.get();
             if (handlers != null) {
                 Arrays.stream(handlers).forEach(
-                    handler -> channel.pipeline().addLast(handler)
+                    handler -> channel.pipeline().addLast(executorService.getIoHandlerExecutorGroup(), handler)
                 );
             }
         }
@@ -23,7 +23,6 @@ import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.channel.*;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.openremote.agent.protocol.ProtocolExecutorService;
 import org.openremote.model.asset.agent.ConnectionStatus;
@@ -44,7 +43,6 @@ import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
 /**
  * Abstract implementation of {@link IoServer} that uses the Netty library.
  */
-// TODO: In Netty 5 you can pass in an executor service; can only pass in thread factory for now
 @SuppressWarnings("unchecked")
 public abstract class AbstractNettyIoServer<T, U extends Channel, V extends AbstractBootstrap, W extends SocketAddress> implements IoServer<T, U, W> {
 
@@ -81,8 +79,7 @@ public abstract class AbstractNettyIoServer<T, U extends Channel, V extends Abst
         onConnectionStatusChanged(ConnectionStatus.CONNECTING);
 
         if (workerGroup == null) {
-            // TODO: In Netty 5 you can pass in an executor service; can only pass in thread factory for now
-            workerGroup = new NioEventLoopGroup();
+            workerGroup = getWorkerGroup();
         }
 
         try {
@@ -137,6 +134,14 @@ public abstract class AbstractNettyIoServer<T, U extends Channel, V extends Abst
         }
     }
 
+    /**
+     * Defaults to the shared {@link ProtocolExecutorService#getIoEventLoopGroup}; implementations that return their
+     * own group own it and it is shut down when the server stops.
+     */
+    protected EventLoopGroup getWorkerGroup() {
+        return executorService.getIoEventLoopGroup();
+    }
+
     @Override
     public synchronized void stop() {
         if (connectionStatus == ConnectionStatus.DISCONNECTING || connectionStatus == ConnectionStatus.DISCONNECTED) {
@@ -172,7 +177,11 @@ public abstract class AbstractNettyIoServer<T, U extends Channel, V extends Abst
 
         } finally {
             if (workerGroup != null) {
-                workerGroup.shutdownGracefully();
+                // Shared event loop groups are managed by the executor service
+                if (workerGroup != executorService.getIoEventLoopGroup()
+                    && workerGroup != executorService.getBlockingIoEventLoopGroup()) {
+                    workerGroup.shutdownGracefully();
+                }
                 workerGroup = null;
             }
             onConnectionStatusChanged(ConnectionStatus.DISCONNECTED);
@@ -319,8 +328,8 @@ public abstract class AbstractNettyIoServer<T, U extends Channel, V extends Abst
         addDecoders(channel);
         addEncoders(channel);
 
-        // Add handler to route the final messages
-        channel.pipeline().addLast(new SimpleChannelInboundHandler<T>() {
+        // Add handler to route the final messages, off the shared event loop as message processing may block
+        channel.pipeline().addLast(executorService.getIoHandlerExecutorGroup(), new SimpleChannelInboundHandler<T>() {
             @Override
             protected void channelRead0(ChannelHandlerContext ctx, T msg) {
                 handleMessageReceived(channel, msg);
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol.io;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.openremote.model.syslog.SyslogCategory;
+import org.openremote.model.value.ArrayValue;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Values;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
+
+/**
+ * Utilities for the Netty transport used by {@link AbstractNettyIoClient}s and {@link AbstractNettyIoServer}s; the
+ * native epoll transport is used when available, otherwise NIO. Channel classes must match the type of the
+ * {@link EventLoopGroup} they are registered with, so they are resolved from the group.
+ * <p>
+ * Only the <code>linux-x86_64</code> native library is bundled, the Netty version in use doesn't publish an epoll
+ * library for other platforms (e.g. <code>aarch_64</code> on a Raspberry Pi gateway) so NIO is used there; the reason
+ * is logged when the event loop group is created.
+ */
+public final class NettyTransport {
+
+    private static final Logger LOG = SyslogCategory.getLogger(PROTOCOL, NettyTransport.class);
+
+    private NettyTransport() {
+    }
+
+    public static boolean isEpollAvailable() {
+        return Epoll.isAvailable();
+    }
+
+    public static EventLoopGroup createEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        if (isEpollAvailable()) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+        LOG.info("Native epoll transport is not available on " + System.getProperty("os.name") + "/"
+            + System.getProperty("os.arch") + ", using NIO: " + Epoll.unavailabilityCause());
+        return new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * Sets the Netty buffer leak detection level (DISABLED, SIMPLE, ADVANCED or PARANOID); leaks are reported in the
+     * log when a {@link io.netty.buffer.ByteBuf} is garbage collected without having been released.
+     */
+    public static void setLeakDetectionLevel(String level) {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.parseLevel(level));
+    }
+
+    /**
+     * Memory usage of Netty's default allocator, which channels use unless configured otherwise; arena/cache counts
+     * are included when it is pooled (the default unless <code>io.netty.allocator.type</code> is set).
+     */
+    public static ObjectValue getAllocatorStatus() {
+        ObjectValue status = Values.createObject();
+        ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        status.put("type", allocator.getClass().getSimpleName());
+        status.put("leakDetection", ResourceLeakDetector.getLevel().name());
+        if (allocator instanceof ByteBufAllocatorMetricProvider) {
+            ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+            status.put("usedDirectMemory", metric.usedDirectMemory());
+            status.put("usedHeapMemory", metric.usedHeapMemory());
+        }
+        if (allocator instanceof PooledByteBufAllocator) {
+            PooledByteBufAllocatorMetric metric = ((PooledByteBufAllocator) allocator).metric();
+            status.put("preferDirect", PooledByteBufAllocator.defaultPreferDirect());
+            status.put("directArenas", metric.numDirectArenas());
+            status.put("heapArenas", metric.numHeapArenas());
+            status.put("threadLocalCaches", metric.numThreadLocalCaches());
+            status.put("chunkSize", metric.chunkSize());
+        }
+        return status;
+    }
+
+    public static Class<? extends SocketChannel> getSocketChannelClass(EventLoopGroup eventLoopGroup) {
+        return eventLoopGroup instanceof EpollEventLoopGroup ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public static Class<? extends ServerSocketChannel> getServerSocketChannelClass(EventLoopGroup eventLoopGroup) {
+        return eventLoopGroup instanceof EpollEventLoopGroup ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends DatagramChannel> getDatagramChannelClass(EventLoopGroup eventLoopGroup) {
+        return eventLoopGroup instanceof EpollEventLoopGroup ? EpollDatagramChannel.class : NioDatagramChannel.class;
+    }
+
+    /**
+     * Registered channel count and pending task count of each event loop in the group, the registered channel count
+     * is -1 when the event loop doesn't track it.
+     */
+    public static ObjectValue getEventLoopGroupStatus(EventExecutorGroup eventLoopGroup) {
+        ObjectValue status = Values.createObject();
+        ArrayValue loops = Values.createArray();
+        int totalChannels = 0;
+        int totalPendingTasks = 0;
+
+        for (EventExecutor executor : eventLoopGroup) {
+            int channels = executor instanceof SingleThreadEventLoop ? ((SingleThreadEventLoop) executor).registeredChannels() : -1;
+            int pendingTasks = executor instanceof SingleThreadEventExecutor ? ((SingleThreadEventExecutor) executor).pendingTasks() : 0;
+            totalChannels += Math.max(channels, 0);
+            totalPendingTasks += pendingTasks;
+
+            ObjectValue loop = Values.createObject();
+            loop.put("channels", channels);
+            loop.put("pendingTasks", pendingTasks);
+            loop.put("shutdown", executor.isShuttingDown());
+            loops.add(loop);
+        }
+
+        status.put("type", eventLoopGroup.getClass().getSimpleName());
+        status.put("eventLoops", loops.length());
+        status.put("channels", totalChannels);
+        status.put("pendingTasks", totalPendingTasks);
+        status.put("loops", loops);
+        return status;
+    }
+}
@@ -63,11 +63,10 @@ public class SerialIoClient<T> extends AbstractNettyIoClient<T, NrJavaSerialAddr
         return "serial://" + port;
     }
 
-    @SuppressWarnings("deprecation")
     @Override
     protected io.netty.channel.EventLoopGroup getWorkerGroup() {
-        // Note that OioEventLoopGroup has to be used because NioEventLoopGroup is *NOT* compatible
+        // Note that the blocking (OIO) group has to be used because NioEventLoopGroup is *NOT* compatible
         // with io.netty.channel.rxtx.RxtxChannel and causes IllegalStateException.
-        return new io.netty.channel.oio.OioEventLoopGroup(1);
+        return executorService.getBlockingIoEventLoopGroup();
     }
 }
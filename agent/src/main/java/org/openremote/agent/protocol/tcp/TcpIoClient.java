@@ -20,11 +20,10 @@
 package org.openremote.agent.protocol.tcp;
 
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import org.openremote.agent.protocol.ProtocolExecutorService;
 import org.openremote.agent.protocol.io.AbstractNettyIoClient;
 import org.openremote.agent.protocol.io.IoClient;
+import org.openremote.agent.protocol.io.NettyTransport;
 import org.openremote.model.util.TextUtil;
 
 import java.net.InetSocketAddress;
@@ -52,7 +51,7 @@ public class TcpIoClient<T> extends AbstractNettyIoClient<T, InetSocketAddress>
 
     @Override
     protected Class<? extends Channel> getChannelClass() {
-        return NioSocketChannel.class;
+        return NettyTransport.getSocketChannelClass(workerGroup);
     }
 
     @Override
@@ -60,11 +59,6 @@ public class TcpIoClient<T> extends AbstractNettyIoClient<T, InetSocketAddress>
         return "tcp://" + host + ":" + port;
     }
 
-    @Override
-    protected EventLoopGroup getWorkerGroup() {
-        return new NioEventLoopGroup(1);
-    }
-
     @Override
     protected ChannelFuture startChannel() {
         return bootstrap.connect(new InetSocketAddress(host, port));
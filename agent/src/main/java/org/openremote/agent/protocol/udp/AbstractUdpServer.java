@@ -22,15 +22,14 @@ package org.openremote.agent.protocol.udp;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.handler.codec.DatagramPacketEncoder;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import org.openremote.agent.protocol.ProtocolExecutorService;
 import org.openremote.agent.protocol.io.AbstractNettyIoServer;
+import org.openremote.agent.protocol.io.NettyTransport;
 
 import java.net.InetSocketAddress;
 import java.util.List;
@@ -66,8 +65,8 @@ public abstract class AbstractUdpServer<T> extends AbstractNettyIoServer<T, Data
     @Override
     protected Bootstrap createAndConfigureBootstrap() {
         Bootstrap b = new Bootstrap();
-        b.group(new NioEventLoopGroup())
-                .channel(NioDatagramChannel.class)
+        b.group(workerGroup)
+                .channel(NettyTransport.getDatagramChannelClass(workerGroup))
                 .localAddress(localAddress)
                 .option(ChannelOption.SO_BROADCAST, true);
         return b;
@@ -88,8 +87,8 @@ public abstract class AbstractUdpServer<T> extends AbstractNettyIoServer<T, Data
 
         addDecoders(channel);
 
-        // Add handler to route the final messages
-        channel.pipeline().addLast(new SimpleChannelInboundHandler<T>() {
+        // Add handler to route the final messages, off the shared event loop as message processing may block
+        channel.pipeline().addLast(executorService.getIoHandlerExecutorGroup(), new SimpleChannelInboundHandler<T>() {
             @Override
             protected void channelRead0(ChannelHandlerContext ctx, T msg) {
                 handleMessageReceived(channel, msg);
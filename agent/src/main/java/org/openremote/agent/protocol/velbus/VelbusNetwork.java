@@ -33,10 +33,131 @@ import static org.openremote.agent.protocol.velbus.AbstractVelbusProtocol.LOG;
 
 public class VelbusNetwork {
 
+    /**
+     * Holds pending packets in two lanes chosen by where the packets come from: property write packets are always sent
+     * before initialisation and status request packets, whatever the priority set in the packets. Packets for a module
+     * are still sent in the order they were queued: when a write is queued, poll packets already queued for the same
+     * module are moved to the write lane ahead of it. A pending packet that sets a level/position is replaced in place
+     * by a newer packet for the same address, command and channel so only the latest value gets written; this is only
+     * done if it is the last packet queued for the address, otherwise the newer packet is appended so it isn't sent
+     * before packets queued in between (e.g. a halt).
+     */
+    protected static class PacketQueue {
+
+        protected static class Entry {
+            protected VelbusPacket packet;
+            protected boolean write;
+            protected final long queuedTimestamp;
+
+            protected Entry(VelbusPacket packet, boolean write, long queuedTimestamp) {
+                this.packet = packet;
+                this.write = write;
+                this.queuedTimestamp = queuedTimestamp;
+            }
+        }
+
+        protected final Deque<Entry> writeLane = new ArrayDeque<>();
+        protected final Deque<Entry> pollLane = new ArrayDeque<>();
+        protected final Map<Integer, Entry> supersedable = new HashMap<>();
+        protected final Map<Integer, Entry> lastQueued = new HashMap<>();
+        protected long superseded;
+
+        protected void add(VelbusPacket packet, boolean write, long timestamp) {
+            Integer key = getSupersedeKey(packet);
+            Entry last = lastQueued.get(packet.getAddress());
+
+            if (key != null) {
+                Entry existing = supersedable.get(key);
+                if (existing != null && existing == last && existing.write == write) {
+                    existing.packet = packet;
+                    superseded++;
+                    return;
+                }
+            }
+
+            Entry entry = new Entry(packet, write, timestamp);
+            if (write) {
+                if (last != null && !last.write) {
+                    promotePolls(packet.getAddress());
+                }
+                writeLane.add(entry);
+            } else {
+                pollLane.add(entry);
+            }
+            if (key != null) {
+                supersedable.put(key, entry);
+            }
+            lastQueued.put(packet.getAddress(), entry);
+        }
+
+        /**
+         * Moves the poll packets queued for the address to the end of the write lane.
+         */
+        protected void promotePolls(int address) {
+            Iterator<Entry> iterator = pollLane.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.packet.getAddress() == address) {
+                    iterator.remove();
+                    entry.write = true;
+                    writeLane.add(entry);
+                }
+            }
+        }
+
+        protected Entry poll() {
+            Entry entry = writeLane.poll();
+            if (entry == null) {
+                entry = pollLane.poll();
+            }
+            if (entry != null) {
+                Integer key = getSupersedeKey(entry.packet);
+                if (key != null) {
+                    supersedable.remove(key, entry);
+                }
+                lastQueued.remove(entry.packet.getAddress(), entry);
+            }
+            return entry;
+        }
+
+        public int size() {
+            return writeLane.size() + pollLane.size();
+        }
+
+        protected void clear() {
+            writeLane.clear();
+            pollLane.clear();
+            supersedable.clear();
+            lastQueued.clear();
+        }
+
+        protected static Integer getSupersedeKey(VelbusPacket packet) {
+            if (packet.getDataSize() < 2) {
+                return null;
+            }
+
+            switch (VelbusPacket.OutboundCommand.fromCode(packet.getCommand())) {
+                case SET_LEVEL:
+                case BLIND_POSITION:
+                case TEMP_SET:
+                    return (packet.getAddress() << 16) | (packet.getCommand() << 8) | packet.getInt(1);
+            }
+
+            return null;
+        }
+    }
+
     protected static int DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS = 100; // Need to throttle bus writes
+    protected static int MIN_DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS = 20; // Used once the last write has been acknowledged
     protected final Integer timeInjectionIntervalSeconds;
     protected IoClient<VelbusPacket> client;
-    protected final Queue<VelbusPacket> messageQueue = new ArrayDeque<>();
+    protected final PacketQueue messageQueue = new PacketQueue();
+    protected volatile VelbusPacket lastSentPacket;
+    protected long lastSentTimestamp;
+    protected volatile boolean lastSentAcknowledged = true;
+    protected long sentPacketCount;
+    protected long totalQueueLatencyMillis;
+    protected long maxQueueLatencyMillis;
     protected List<ScheduledFuture> scheduledTasks = new ArrayList<>();
     protected ScheduledFuture timeInjector;
     protected VelbusDevice[] devices = new VelbusDevice[254];
@@ -73,13 +194,31 @@ public class VelbusNetwork {
         return this.executorService;
     }
 
+    /**
+     * Queues initialisation, status request and other housekeeping packets; these are sent after any pending property
+     * write packets.
+     */
     public void sendPackets(VelbusPacket... packets) {
+        queuePackets(false, packets);
+    }
+
+    /**
+     * Queues packets that write device properties; these are sent before any pending poll packets.
+     */
+    public void writePackets(VelbusPacket... packets) {
+        queuePackets(true, packets);
+    }
+
+    protected void queuePackets(boolean write, VelbusPacket... packets) {
         if (getConnectionStatus() != ConnectionStatus.CONNECTED) {
             return;
         }
 
         synchronized (messageQueue) {
-            messageQueue.addAll(Arrays.asList(packets));
+            long now = System.currentTimeMillis();
+            for (VelbusPacket packet : packets) {
+                messageQueue.add(packet, write, now);
+            }
 
             if (queueProcessingTask == null) {
                 startSendingPackets();
@@ -173,6 +312,7 @@ public class VelbusNetwork {
         }
 
         VelbusDevice matchingDevice = devices[address-1];
+        onPacketAcknowledged(address, matchingDevice != null ? matchingDevice : subAddressDevices[address-1]);
         VelbusPacket.InboundCommand command = VelbusPacket.InboundCommand.fromCode(packet.getCommand());
         LOG.finest("Received packet " + command + " : " + packet);
 
@@ -266,34 +406,106 @@ public class VelbusNetwork {
         return devices[address-1];
     }
 
+    /**
+     * Number of packets waiting to be written to the bus.
+     */
+    public int getQueueSize() {
+        synchronized (messageQueue) {
+            return messageQueue.size();
+        }
+    }
+
+    /**
+     * Average time in milliseconds that written packets spent in the queue.
+     */
+    public long getAverageQueueLatencyMillis() {
+        synchronized (messageQueue) {
+            return sentPacketCount > 0 ? totalQueueLatencyMillis / sentPacketCount : 0L;
+        }
+    }
+
+    public long getMaxQueueLatencyMillis() {
+        synchronized (messageQueue) {
+            return maxQueueLatencyMillis;
+        }
+    }
+
+    /**
+     * Number of queued packets that were replaced by a newer packet before being written.
+     */
+    public long getSupersededPacketCount() {
+        synchronized (messageQueue) {
+            return messageQueue.superseded;
+        }
+    }
+
     protected void startSendingPackets() {
+        // Poll at the minimum delay; packets are only written once the previous write was acknowledged or the full
+        // delay has passed
         queueProcessingTask = getExecutorService().scheduleWithFixedDelay(
             this::doSendPacket,
             0,
-            DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS,
+            Math.min(MIN_DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS, DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS),
             TimeUnit.MILLISECONDS
         );
     }
 
+    /**
+     * Any packet received from the device the last packet was written to is treated as the acknowledgement of that
+     * write.
+     */
+    protected void onPacketAcknowledged(int address, VelbusDevice device) {
+        VelbusPacket packet = lastSentPacket;
+
+        if (lastSentAcknowledged || packet == null) {
+            return;
+        }
+
+        if (packet.getAddress() == address || (device != null && device.getBaseAddress() == packet.getAddress())) {
+            lastSentAcknowledged = true;
+        }
+    }
+
     protected void doSendPacket() {
         if (getConnectionStatus() != ConnectionStatus.CONNECTED) {
             return;
         }
 
-        VelbusPacket packet;
+        PacketQueue.Entry entry;
+        long now = System.currentTimeMillis();
 
         synchronized (messageQueue) {
-            packet = messageQueue.poll();
-        }
+            long elapsed = now - lastSentTimestamp;
+            if (elapsed < DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS && !lastSentAcknowledged) {
+                return;
+            }
 
-        if (packet == null) {
-            queueProcessingTask.cancel(false);
-            queueProcessingTask = null;
-            return;
+            entry = messageQueue.poll();
+
+            if (entry == null) {
+                if (queueProcessingTask != null) {
+                    queueProcessingTask.cancel(false);
+                    queueProcessingTask = null;
+                }
+                if (sentPacketCount > 0) {
+                    LOG.fine("Velbus queue drained: sent=" + sentPacketCount + ", superseded=" + messageQueue.superseded
+                        + ", avgLatency=" + (totalQueueLatencyMillis / sentPacketCount) + "ms, maxLatency=" + maxQueueLatencyMillis + "ms");
+                }
+                return;
+            }
+
+            long latency = now - entry.queuedTimestamp;
+            sentPacketCount++;
+            totalQueueLatencyMillis += latency;
+            maxQueueLatencyMillis = Math.max(maxQueueLatencyMillis, latency);
+            lastSentPacket = entry.packet;
+            lastSentTimestamp = now;
+            lastSentAcknowledged = false;
         }
 
+        VelbusPacket packet = entry.packet;
         VelbusPacket.OutboundCommand command = VelbusPacket.OutboundCommand.fromCode(packet.getCommand());
-        LOG.finest("Sending packet " + command + " : " + packet);
+        LOG.finest("Sending packet " + command + " (queue size=" + getQueueSize() + ") : " + packet);
         client.sendMessage(packet);
     }
 
@@ -303,7 +303,7 @@ public class VelbusPacket {
      * Get packet priority
      */
     public PacketPriority getPriority() {
-        return (rawPacket[1] == 0xF8 ? PacketPriority.HIGH : PacketPriority.LOW);
+        return ((rawPacket[1] & 0xFF) == PacketPriority.HIGH.getValue() ? PacketPriority.HIGH : PacketPriority.LOW);
     }
 
     /*
@@ -99,7 +99,7 @@ public class OledProcessor extends FeatureProcessor {
                     // Create timer task to clear memo text
                     int finalTimeout = timeout;
                     device.velbusNetwork.scheduleTask(() -> {
-                            device.velbusNetwork.sendPackets(
+                            device.velbusNetwork.writePackets(
                                 getCancelMemoTextPacket(device)
                             );
                             device.setProperty("MEMO_TEXT", StringDevicePropertyValue.EMPTY);
@@ -211,7 +211,7 @@ public class VelbusDevice {
             for (FeatureProcessor processor : featureProcessors) {
                 List<VelbusPacket> packets = processor.getPropertyWritePackets(this, property, value);
                 if (packets != null) {
-                    velbusNetwork.sendPackets(packets.toArray(new VelbusPacket[0]));
+                    velbusNetwork.writePackets(packets.toArray(new VelbusPacket[0]));
                     break;
                 }
             }
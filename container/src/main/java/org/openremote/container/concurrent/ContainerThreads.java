@@ -19,6 +19,11 @@
  */
 package org.openremote.container.concurrent;
 
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Values;
+
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -66,6 +71,40 @@ public interface ContainerThreads {
         }
     }
 
+    static ObjectValue getExecutorStatus(ThreadPoolExecutor executor) {
+        ObjectValue value = Values.createObject();
+        value.put("poolSize", executor.getPoolSize());
+        value.put("activeCount", executor.getActiveCount());
+        value.put("largestPoolSize", executor.getLargestPoolSize());
+        value.put("maximumPoolSize", executor.getMaximumPoolSize());
+        value.put("queueSize", executor.getQueue().size());
+        value.put("completedTaskCount", executor.getCompletedTaskCount());
+        return value;
+    }
+
+    /**
+     * Counts live threads by name, without the number suffix added by {@link ContainerThreadFactory}, to show which
+     * pools hold most threads.
+     */
+    static ObjectValue getThreadCountsByName() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() * 2];
+        int threadCount = root.enumerate(threads, true);
+
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = threads[i];
+            String name = thread.getName().replaceAll("[-\\s#]*\\d+$", "");
+            counts.merge(name.isEmpty() ? "unnamed" : name, 1, Integer::sum);
+        }
+        ObjectValue value = Values.createObject();
+        counts.forEach((name, count) -> value.put(name, count));
+        return value;
+    }
+
     static Throwable unwrap(Throwable throwable) throws IllegalArgumentException {
         if (throwable == null) {
             throw new IllegalArgumentException("Cannot unwrap null throwable");
@@ -80,6 +80,13 @@ public class GlobalLock {
         return 30000;
     }
 
+    /**
+     * @return <code>true</code> if the calling thread currently holds the lock.
+     */
+    static public boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
     /**
      * Obtain the lock within {@link #getLockTimeoutMillis()} or throw {@link IllegalStateException}.
      *
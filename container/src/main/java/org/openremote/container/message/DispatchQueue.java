@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.message;
+
+import org.openremote.container.concurrent.ContainerThreadFactory;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Values;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded in-process queue with a single consumer thread, for internal hops that don't need Camel routing. Items
+ * are passed as they are, there is no {@link org.apache.camel.Exchange}, header map or type conversion per item, and
+ * the consumer drains items in batches. When the queue is at capacity {@link #offer} returns <code>false</code>
+ * instead of blocking the producer, the rejection is counted. Items still queued when the queue is stopped are
+ * discarded.
+ */
+public class DispatchQueue<T> {
+
+    private static final Logger LOG = Logger.getLogger(DispatchQueue.class.getName());
+    public static final int BATCH_SIZE = 256;
+    public static final int STOP_TIMEOUT_MILLIS = 5000;
+
+    protected final String name;
+    protected final int capacity;
+    protected final Consumer<T> consumer;
+    protected final ArrayBlockingQueue<T> queue;
+    protected final AtomicLong accepted = new AtomicLong();
+    protected final AtomicLong rejected = new AtomicLong();
+    protected final AtomicLong dispatched = new AtomicLong();
+    protected final AtomicLong failed = new AtomicLong();
+    protected volatile int maxDepth;
+    protected volatile boolean running;
+    protected Thread thread;
+
+    public DispatchQueue(String name, int capacity, Consumer<T> consumer) {
+        this.name = name;
+        this.capacity = capacity;
+        this.consumer = consumer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean offer(T item) {
+        if (!queue.offer(item)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        int depth = queue.size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        return true;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new ContainerThreadFactory("Dispatch-" + name).newThread(this::dispatch);
+        thread.start();
+    }
+
+    /**
+     * Stops the consumer thread and waits for it to finish the item it is dispatching, so the consumer isn't called
+     * anymore once this returns (unless called by the consumer itself or the thread doesn't finish in time).
+     */
+    public void stop() {
+        Thread dispatchThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            dispatchThread = thread;
+            thread = null;
+        }
+        dispatchThread.interrupt();
+        if (dispatchThread != Thread.currentThread()) {
+            try {
+                dispatchThread.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (dispatchThread.isAlive()) {
+                LOG.warning("Dispatch thread of queue '" + name + "' didn't stop within " + STOP_TIMEOUT_MILLIS + "ms");
+            }
+        }
+        queue.clear();
+    }
+
+    protected void dispatch() {
+        List<T> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                T first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (T item : batch) {
+                    try {
+                        consumer.accept(item);
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                        LOG.log(Level.WARNING, "Error dispatching item from queue '" + name + "': " + item, ex);
+                    }
+                }
+                dispatched.addAndGet(batch.size());
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the current depth and the counters since the queue was created.
+     *
+     * @param resetMaximums Reset the maximum depth after reading it, so the next call reports the maximum since this
+     *                      call rather than since the queue was created.
+     */
+    public ObjectValue getStatistics(boolean resetMaximums) {
+        ObjectValue value = Values.createObject();
+        value.put("capacity", capacity);
+        value.put("depth", queue.size());
+        value.put("maxDepth", maxDepth);
+        value.put("accepted", accepted.get());
+        value.put("rejected", rejected.get());
+        value.put("dispatched", dispatched.get());
+        value.put("failed", failed.get());
+        if (resetMaximums) {
+            maxDepth = 0;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "name='" + name + '\'' +
+            ", capacity=" + capacity +
+            ", depth=" + queue.size() +
+            '}';
+    }
+}
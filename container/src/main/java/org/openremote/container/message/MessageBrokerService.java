@@ -19,6 +19,7 @@
  */
 package org.openremote.container.message;
 
+import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.impl.DefaultStreamCachingStrategy;
@@ -29,28 +30,59 @@ import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
 import org.openremote.container.concurrent.ContainerExecutor;
 import org.openremote.container.concurrent.ContainerScheduledExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
+import org.openremote.container.concurrent.ContainerThreads;
 import org.openremote.container.persistence.PersistenceService;
 import org.openremote.container.security.IdentityService;
 import org.openremote.container.web.DefaultWebsocketComponent;
 import org.openremote.container.web.WebService;
 import org.openremote.container.web.socket.WebsocketComponent;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Values;
 
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.logging.Logger;
 
+import static org.openremote.container.concurrent.ContainerThreads.DEFAULT_REJECTED_EXECUTION_HANDLER;
+import static org.openremote.container.util.MapAccess.getBoolean;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.container.util.MapAccess.getString;
 
 public class MessageBrokerService implements ContainerService {
 
     public static final String MESSAGE_SESSION_ALLOWED_ORIGIN = "MESSAGE_SESSION_ALLOWED_ORIGIN";
     public static final String MESSAGE_SESSION_ALLOWED_ORIGIN_DEFAULT = null;
+    /**
+     * Accept the permessage-deflate websocket extension, this applies to all websocket clients that offer it.
+     */
+    public static final String MESSAGE_SESSION_PERMESSAGE_DEFLATE = "MESSAGE_SESSION_PERMESSAGE_DEFLATE";
+    public static final boolean MESSAGE_SESSION_PERMESSAGE_DEFLATE_DEFAULT = false;
+    /**
+     * Maximum threads of the otherwise unbounded messaging pool (used by multicast aggregation), when set tasks are
+     * run by the submitting thread once all threads are busy instead of starting more threads; 0 means unbounded.
+     */
+    public static final String MESSAGING_POOL_THREADS_MAX = "MESSAGING_POOL_THREADS_MAX";
+    public static final int MESSAGING_POOL_THREADS_MAX_DEFAULT = 0;
     private static final Logger LOG = Logger.getLogger(MessageBrokerService.class.getName());
     public static final int PRIORITY = ContainerService.HIGH_PRIORITY;
 
     protected ProducerTemplate producerTemplate;
     protected MessageBrokerContext context;
+    protected final Map<String, PriorityExchangeQueue.Factory> queueFactories = new ConcurrentSkipListMap<>();
+    protected final Map<String, DispatchQueue<?>> dispatchQueues = new ConcurrentSkipListMap<>();
+    protected final Map<String, ThreadPoolExecutor> executors = new ConcurrentSkipListMap<>();
+    protected boolean started;
 
     @Override
     public int getPriority() {
@@ -62,25 +94,49 @@ public class MessageBrokerService implements ContainerService {
     public void init(Container container) throws Exception {
 
         context = new MessageBrokerContext();
+        int messagingPoolThreadsMax = getInteger(container.getConfig(), MESSAGING_POOL_THREADS_MAX, MESSAGING_POOL_THREADS_MAX_DEFAULT);
 
         final ExecutorServiceManager executorServiceManager = context.getExecutorServiceManager();
         executorServiceManager.setThreadNamePattern("#counter# #name#");
         executorServiceManager.setThreadPoolFactory(new ThreadPoolFactory() {
             @Override
             public ExecutorService newCachedThreadPool(ThreadFactory threadFactory) {
+                String name = getExecutorName("MessagingPool", threadFactory);
+                if (messagingPoolThreadsMax > 0) {
+                    // Tasks are handed off directly and run by the caller when all threads are busy, queueing them
+                    // could deadlock when a task waits for nested work submitted to the same pool
+                    return createExecutor(
+                        name,
+                        new ThreadPoolExecutor.CallerRunsPolicy(),
+                        1,
+                        messagingPoolThreadsMax,
+                        10,
+                        new SynchronousQueue<>()
+                    );
+                }
                 // This is an unlimited pool used probably only be multicast aggregation
-                return new ContainerExecutor(getExecutorName("MessagingPool", threadFactory), 1, Integer.MAX_VALUE, 10, -1);
+                return createExecutor(
+                    name,
+                    DEFAULT_REJECTED_EXECUTION_HANDLER,
+                    1,
+                    Integer.MAX_VALUE,
+                    10,
+                    new SynchronousQueue<>()
+                );
             }
 
             @Override
             public ExecutorService newThreadPool(ThreadPoolProfile profile, ThreadFactory threadFactory) {
                 // This pool is used by SEDA consumers, so the endpoint parameters define the pool and queue sizes
-                return new ContainerExecutor(
+                return createExecutor(
                     getExecutorName("Messaging", threadFactory),
+                    DEFAULT_REJECTED_EXECUTION_HANDLER,
                     profile.getPoolSize(),
                     profile.getMaxPoolSize(),
                     profile.getKeepAliveTime(),
-                    profile.getMaxQueueSize()
+                    profile.getMaxQueueSize() == -1
+                        ? new SynchronousQueue<>()
+                        : new ArrayBlockingQueue<>(profile.getMaxQueueSize())
                 );
             }
 
@@ -92,6 +148,32 @@ public class MessageBrokerService implements ContainerService {
                 );
             }
 
+            protected ExecutorService createExecutor(String name,
+                                                     RejectedExecutionHandler rejectedHandler,
+                                                     int corePoolSize,
+                                                     int maximumPoolSize,
+                                                     long keepAliveSeconds,
+                                                     BlockingQueue<Runnable> workQueue) {
+                ContainerExecutor executor = new ContainerExecutor(
+                    new ContainerThreadFactory(name),
+                    rejectedHandler,
+                    corePoolSize,
+                    maximumPoolSize,
+                    keepAliveSeconds,
+                    workQueue
+                ) {
+                    @Override
+                    protected void terminated() {
+                        super.terminated();
+                        // Only remove this executor, a restarted endpoint may have registered one with the same name
+                        executors.remove(name, this);
+                    }
+                };
+                // Names aren't unique when an endpoint is restarted, the latest executor replaces the previous one
+                executors.put(name, executor);
+                return executor;
+            }
+
             protected String getExecutorName(String name, ThreadFactory threadFactory) {
                 if (threadFactory instanceof CamelThreadFactory) {
                     CamelThreadFactory factory = (CamelThreadFactory) threadFactory;
@@ -136,7 +218,8 @@ public class MessageBrokerService implements ContainerService {
         WebsocketComponent websocketComponent = new DefaultWebsocketComponent(
             container.getService(IdentityService.class),
             container.getService(WebService.class),
-            allowedOrigin
+            allowedOrigin,
+            getBoolean(container.getConfig(), MESSAGE_SESSION_PERMESSAGE_DEFLATE, MESSAGE_SESSION_PERMESSAGE_DEFLATE_DEFAULT)
         );
 
         context.addComponent(WebsocketComponent.NAME, websocketComponent);
@@ -147,10 +230,18 @@ public class MessageBrokerService implements ContainerService {
         producerTemplate = context.createProducerTemplate();
         LOG.info("Starting Camel message broker");
         context.start();
+        synchronized (dispatchQueues) {
+            started = true;
+            dispatchQueues.values().forEach(DispatchQueue::start);
+        }
     }
 
     @Override
     public void stop(Container container) throws Exception {
+        synchronized (dispatchQueues) {
+            started = false;
+            dispatchQueues.values().forEach(DispatchQueue::stop);
+        }
         if (context != null) {
             context.stop();
         }
@@ -164,6 +255,75 @@ public class MessageBrokerService implements ContainerService {
         return producerTemplate;
     }
 
+    /**
+     * Registers a bounded {@link PriorityExchangeQueue} factory in the registry, a SEDA endpoint uses it with option
+     * <code>queueFactory=#name</code>. Must be called in {@link ContainerService#init} so the factory is available
+     * when routes are started. The priority function may be <code>null</code> for a plain FIFO queue.
+     */
+    public void registerQueue(String name, int capacity, ToIntFunction<Exchange> priority) {
+        PriorityExchangeQueue.Factory factory = new PriorityExchangeQueue.Factory(capacity, priority);
+        queueFactories.put(name, factory);
+        context.getRegistry().put(name, factory);
+    }
+
+    public PriorityExchangeQueue getQueue(String name) {
+        PriorityExchangeQueue.Factory factory = queueFactories.get(name);
+        return factory != null ? factory.getQueue() : null;
+    }
+
+    /**
+     * @return status of the messaging thread pools, by name.
+     */
+    public ObjectValue getExecutorStatistics() {
+        ObjectValue value = Values.createObject();
+        executors.forEach((name, executor) -> {
+            if (!executor.isShutdown()) {
+                value.put(name, ContainerThreads.getExecutorStatus(executor));
+            }
+        });
+        return value;
+    }
+
+    /**
+     * Creates a {@link DispatchQueue} for an internal hop that doesn't need Camel, the queue is started with this
+     * service. The consumer is called on the queue's own thread.
+     */
+    public <T> DispatchQueue<T> createDispatchQueue(String name, int capacity, Consumer<T> consumer) {
+        DispatchQueue<T> queue = new DispatchQueue<>(name, capacity, consumer);
+        synchronized (dispatchQueues) {
+            DispatchQueue<?> existing = dispatchQueues.put(name, queue);
+            if (existing != null) {
+                existing.stop();
+            }
+            if (started) {
+                queue.start();
+            }
+        }
+        return queue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> DispatchQueue<T> getDispatchQueue(String name) {
+        return (DispatchQueue<T>) dispatchQueues.get(name);
+    }
+
+    /**
+     * @param resetMaximums See {@link PriorityExchangeQueue#getStatistics} and {@link DispatchQueue#getStatistics}.
+     * @return statistics of all queues registered with {@link #registerQueue} and {@link #createDispatchQueue}, by
+     * name.
+     */
+    public ObjectValue getQueueStatistics(boolean resetMaximums) {
+        ObjectValue value = Values.createObject();
+        queueFactories.forEach((name, factory) -> {
+            PriorityExchangeQueue queue = factory.getQueue();
+            if (queue != null) {
+                value.put(name, queue.getStatistics(resetMaximums));
+            }
+        });
+        dispatchQueues.forEach((name, queue) -> value.put(name, queue.getStatistics(resetMaximums)));
+        return value;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
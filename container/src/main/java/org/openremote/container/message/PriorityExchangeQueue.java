@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.message;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.component.seda.BlockingQueueFactory;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Values;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * A bounded SEDA queue that orders exchanges by priority lane (lowest value first) and keeps FIFO order within a
+ * lane. Each lane is bounded by the capacity on its own, so a flood of low priority exchanges can't take the space of
+ * higher priority ones. When a lane is at capacity {@link #add} throws {@link IllegalStateException} instead of
+ * blocking the producer, the rejection is counted.
+ * <p>
+ * Use {@link Factory} with the <code>queueFactory</code> option of a SEDA endpoint, see
+ * {@link MessageBrokerService#registerQueue}.
+ */
+public class PriorityExchangeQueue extends PriorityBlockingQueue<Exchange> {
+
+    public static class Factory implements BlockingQueueFactory<Exchange> {
+
+        protected final int capacity;
+        protected final ToIntFunction<Exchange> priority;
+        protected volatile PriorityExchangeQueue queue;
+
+        public Factory(int capacity, ToIntFunction<Exchange> priority) {
+            this.capacity = capacity;
+            this.priority = priority;
+        }
+
+        /**
+         * The configured capacity of each lane is used, the <code>size</code> option of the endpoint is ignored.
+         */
+        @Override
+        public PriorityExchangeQueue create() {
+            queue = new PriorityExchangeQueue(capacity, priority);
+            return queue;
+        }
+
+        @Override
+        public PriorityExchangeQueue create(int capacity) {
+            return create();
+        }
+
+        /**
+         * @return the queue created for the endpoint or <code>null</code> if the endpoint hasn't been used yet.
+         */
+        public PriorityExchangeQueue getQueue() {
+            return queue;
+        }
+    }
+
+    public static final String PROPERTY_SEQUENCE = PriorityExchangeQueue.class.getName() + ".SEQUENCE";
+    public static final String PROPERTY_ENQUEUED = PriorityExchangeQueue.class.getName() + ".ENQUEUED";
+    public static final String PROPERTY_LANE = PriorityExchangeQueue.class.getName() + ".LANE";
+
+    protected final int capacity;
+    protected final ToIntFunction<Exchange> priority;
+    protected final Map<Integer, AtomicInteger> laneDepths = new ConcurrentHashMap<>();
+    protected final AtomicLong sequence = new AtomicLong();
+    protected final AtomicLong accepted = new AtomicLong();
+    protected final AtomicLong rejected = new AtomicLong();
+    protected final AtomicLong dequeued = new AtomicLong();
+    protected final AtomicLong totalWaitMillis = new AtomicLong();
+    protected volatile long maxWaitMillis;
+    protected volatile int maxDepth;
+
+    public PriorityExchangeQueue(int capacity, ToIntFunction<Exchange> priority) {
+        super(Math.min(capacity, 1024), createComparator(priority));
+        this.capacity = capacity;
+        this.priority = priority;
+    }
+
+    protected static Comparator<Exchange> createComparator(ToIntFunction<Exchange> priority) {
+        Comparator<Exchange> bySequence = Comparator.comparingLong(exchange -> exchange.getProperty(PROPERTY_SEQUENCE, 0L, Long.class));
+        return priority != null ? Comparator.comparingInt(priority).thenComparing(bySequence) : bySequence;
+    }
+
+    @Override
+    public boolean offer(Exchange exchange) {
+        int lane = priority != null ? priority.applyAsInt(exchange) : 0;
+        AtomicInteger laneDepth = laneDepths.computeIfAbsent(lane, l -> new AtomicInteger());
+        if (laneDepth.incrementAndGet() > capacity) {
+            laneDepth.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+        exchange.setProperty(PROPERTY_LANE, lane);
+        exchange.setProperty(PROPERTY_SEQUENCE, sequence.incrementAndGet());
+        exchange.setProperty(PROPERTY_ENQUEUED, System.currentTimeMillis());
+        boolean result = super.offer(exchange);
+        accepted.incrementAndGet();
+        int depth = size();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean offer(Exchange exchange, long timeout, TimeUnit unit) {
+        return offer(exchange);
+    }
+
+    @Override
+    public boolean add(Exchange exchange) {
+        if (!offer(exchange)) {
+            throw new IllegalStateException("Queue full");
+        }
+        return true;
+    }
+
+    @Override
+    public void put(Exchange exchange) {
+        add(exchange);
+    }
+
+    /**
+     * @return the capacity left in the fullest lane, so at least this many exchanges can be added to any lane.
+     */
+    @Override
+    public int remainingCapacity() {
+        int maxLaneDepth = laneDepths.values().stream().mapToInt(AtomicInteger::get).max().orElse(0);
+        return Math.max(0, capacity - maxLaneDepth);
+    }
+
+    @Override
+    public Exchange poll() {
+        return onDequeued(super.poll());
+    }
+
+    @Override
+    public Exchange poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return onDequeued(super.poll(timeout, unit));
+    }
+
+    @Override
+    public Exchange take() throws InterruptedException {
+        return onDequeued(super.take());
+    }
+
+    @Override
+    public int drainTo(Collection<? super Exchange> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Exchange> c, int maxElements) {
+        List<Exchange> drained = new ArrayList<>();
+        int count = super.drainTo(drained, maxElements);
+        for (Exchange exchange : drained) {
+            c.add(onDequeued(exchange));
+        }
+        return count;
+    }
+
+    /**
+     * Used by SEDA when an exchange times out before it was processed.
+     */
+    @Override
+    public boolean remove(Object o) {
+        boolean removed = super.remove(o);
+        if (removed && o instanceof Exchange) {
+            releaseLane((Exchange) o);
+        }
+        return removed;
+    }
+
+    /**
+     * Used by SEDA to purge the queue, purged exchanges don't count as dequeued.
+     */
+    @Override
+    public void clear() {
+        List<Exchange> purged = new ArrayList<>();
+        super.drainTo(purged, Integer.MAX_VALUE);
+        purged.forEach(this::releaseLane);
+    }
+
+    protected void releaseLane(Exchange exchange) {
+        Integer lane = exchange.getProperty(PROPERTY_LANE, Integer.class);
+        AtomicInteger laneDepth = lane != null ? laneDepths.get(lane) : null;
+        if (laneDepth != null) {
+            laneDepth.decrementAndGet();
+        }
+    }
+
+    protected Exchange onDequeued(Exchange exchange) {
+        if (exchange == null) {
+            return null;
+        }
+        releaseLane(exchange);
+        Long enqueued = exchange.getProperty(PROPERTY_ENQUEUED, Long.class);
+        if (enqueued != null) {
+            long waitMillis = Math.max(0, System.currentTimeMillis() - enqueued);
+            totalWaitMillis.addAndGet(waitMillis);
+            if (waitMillis > maxWaitMillis) {
+                maxWaitMillis = waitMillis;
+            }
+        }
+        dequeued.incrementAndGet();
+        return exchange;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the current depth and the counters since the queue was created.
+     *
+     * @param resetMaximums Reset the maximum depth and wait time after reading them, so the next call reports the
+     *                      maximums since this call rather than since the queue was created.
+     */
+    public ObjectValue getStatistics(boolean resetMaximums) {
+        long dequeuedCount = dequeued.get();
+        ObjectValue value = Values.createObject();
+        value.put("laneCapacity", capacity);
+        value.put("depth", size());
+        ObjectValue lanes = Values.createObject();
+        laneDepths.forEach((lane, depth) -> lanes.put(Integer.toString(lane), depth.get()));
+        value.put("laneDepths", lanes);
+        value.put("maxDepth", maxDepth);
+        value.put("accepted", accepted.get());
+        value.put("rejected", rejected.get());
+        value.put("dequeued", dequeuedCount);
+        value.put("averageWaitMillis", dequeuedCount > 0 ? (double) totalWaitMillis.get() / dequeuedCount : 0d);
+        value.put("maxWaitMillis", maxWaitMillis);
+        if (resetMaximums) {
+            maxDepth = 0;
+            maxWaitMillis = 0;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "capacity=" + capacity +
+            ", depth=" + size() +
+            ", rejected=" + rejected.get() +
+            '}';
+    }
+}
@@ -72,6 +72,18 @@ public class PersistenceService implements ContainerService {
     public static final int DATABASE_MAX_POOL_SIZE_DEFAULT = 20;
     public static final String DATABASE_CONNECTION_TIMEOUT_SECONDS = "DATABASE_CONNECTION_TIMEOUT_SECONDS";
     public static final int DATABASE_CONNECTION_TIMEOUT_SECONDS_DEFAULT = 5;
+    /**
+     * Number of executions of the same SQL on a connection after which the JDBC driver switches to a server side
+     * prepared statement, so the query plan is reused.
+     */
+    public static final String DATABASE_PREPARE_THRESHOLD = "DATABASE_PREPARE_THRESHOLD";
+    public static final int DATABASE_PREPARE_THRESHOLD_DEFAULT = 3;
+    /**
+     * Size of the JDBC driver's per connection cache of prepared statements; this is the driver's own cache and the
+     * only statement cache, no hit/miss metrics are exposed.
+     */
+    public static final String DATABASE_PREPARED_STATEMENT_CACHE_QUERIES = "DATABASE_PREPARED_STATEMENT_CACHE_QUERIES";
+    public static final int DATABASE_PREPARED_STATEMENT_CACHE_QUERIES_DEFAULT = 512;
     public static final int PRIORITY = Integer.MIN_VALUE + 100;
 
     protected MessageBrokerService messageBrokerService;
@@ -198,7 +210,15 @@ public class PersistenceService implements ContainerService {
 
     protected void openDatabase(Container container, Database database) {
         String connectionUrl = getString(container.getConfig(), DATABASE_CONNECTION_URL, DATABASE_CONNECTION_URL_DEFAULT);
-        connectionUrl = UriBuilder.fromUri(connectionUrl).replaceQueryParam("currentSchema", DEFAULT_SCHEMA_NAME).build().toString();
+        UriBuilder connectionUriBuilder = UriBuilder.fromUri(connectionUrl).replaceQueryParam("currentSchema", DEFAULT_SCHEMA_NAME);
+        // Settings in the connection URL take precedence
+        if (!connectionUrl.contains("prepareThreshold=")) {
+            connectionUriBuilder.replaceQueryParam("prepareThreshold", getInteger(container.getConfig(), DATABASE_PREPARE_THRESHOLD, DATABASE_PREPARE_THRESHOLD_DEFAULT));
+        }
+        if (!connectionUrl.contains("preparedStatementCacheQueries=")) {
+            connectionUriBuilder.replaceQueryParam("preparedStatementCacheQueries", getInteger(container.getConfig(), DATABASE_PREPARED_STATEMENT_CACHE_QUERIES, DATABASE_PREPARED_STATEMENT_CACHE_QUERIES_DEFAULT));
+        }
+        connectionUrl = connectionUriBuilder.build().toString();
         String databaseUsername = getString(container.getConfig(), DATABASE_USERNAME, DATABASE_USERNAME_DEFAULT);
         String databasePassword = getString(container.getConfig(), DATABASE_PASSWORD, DATABASE_PASSWORD_DEFAULT);
         int databaseMinPoolSize = getInteger(container.getConfig(), DATABASE_MIN_POOL_SIZE, DATABASE_MIN_POOL_SIZE_DEFAULT);
@@ -25,6 +25,7 @@ import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.SecurityConstraint;
 import io.undertow.servlet.api.SecurityInfo;
 import io.undertow.servlet.api.WebResourceCollection;
+import io.undertow.websockets.extensions.PerMessageDeflateHandshake;
 import io.undertow.websockets.jsr.DefaultContainerConfigurator;
 import io.undertow.websockets.jsr.UndertowContainerProvider;
 import io.undertow.websockets.jsr.WebSocketDeploymentInfo;
@@ -62,13 +63,19 @@ public class DefaultWebsocketComponent extends WebsocketComponent {
     final protected IdentityService identityService;
     final protected WebService webService;
     final protected String allowedOrigin;
+    final protected boolean perMessageDeflate;
     protected DeploymentInfo deploymentInfo;
     protected WebService.RequestHandler websocketHttpHandler;
 
     public DefaultWebsocketComponent(IdentityService identityService, WebService webService, String allowedOrigin) {
+        this(identityService, webService, allowedOrigin, false);
+    }
+
+    public DefaultWebsocketComponent(IdentityService identityService, WebService webService, String allowedOrigin, boolean perMessageDeflate) {
         this.identityService = identityService;
         this.webService = webService;
         this.allowedOrigin = allowedOrigin;
+        this.perMessageDeflate = perMessageDeflate;
     }
 
     @Override
@@ -125,6 +132,12 @@ public class DefaultWebsocketComponent extends WebsocketComponent {
         // pool for websocket frame processing
         webSocketDeploymentInfo.setDispatchToWorkerThread(false);
 
+        // The extension is negotiated with every client that offers it (browsers included) so it's opt-in, the
+        // compression cost is only worth it for high volume clients such as edge gateways
+        if (perMessageDeflate) {
+            webSocketDeploymentInfo.addExtension(new PerMessageDeflateHandshake());
+        }
+
         // Make the shit Undertow/Websocket JSR client bootstrap happy - this is the pool that would be used
         // when Undertow acts as a WebSocket client, which we don't do... and I'm not even sure it can do that...
         webSocketDeploymentInfo.setWorker(Xnio.getInstance().createWorker(
@@ -187,8 +187,12 @@ public class WebTargetBuilder {
             .setConnectTimeout(new Long(CONNECTION_CHECKOUT_TIMEOUT_MILLISECONDS).intValue())
             .setSocketTimeout(new Long(overrideSocketTimeout).intValue())
             .build();
+        // The engine is supplied so the pool size of the Resteasy builder doesn't apply, the Apache defaults are
+        // only 2 connections per host
         HttpClient apacheClient = HttpClientBuilder.create()
             .setDefaultRequestConfig(requestConfig)
+            .setMaxConnTotal(connectionPoolSize)
+            .setMaxConnPerRoute(connectionPoolSize)
             .build();
         ApacheHttpClient43Engine engine = new ApacheHttpClient43Engine(apacheClient);
 
@@ -28,11 +28,14 @@ import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -47,6 +50,12 @@ import javax.servlet.http.HttpServletResponse;
  * as an abstract template, slightly refactored, rewritten and modernized with a.o. fast NIO stuff instead of legacy
  * RandomAccessFile. GZIP support is stripped off as that can be done application wide via GzipResponseFilter.
  * <p>
+ * When the client accepts it and no range is requested, a pre-compressed <code>.br</code> or <code>.gz</code> sibling
+ * of the file is served instead, if present and not older than the file. Otherwise files for which
+ * {@link #isCompressible(HttpServletRequest, File)} is true are compressed once and kept in the
+ * {@link FileContentCache}, together with other small files, so hot files are not read and compressed on every
+ * request.
+ * <p>
  * This servlet properly deals with <code>ETag</code>, <code>If-None-Match</code> and <code>If-Modified-Since</code>
  * caching requests, hereby improving browser caching. This servlet also properly deals with <code>Range</code> and
  * <code>If-Range</code> ranging requests (<a href="https://tools.ietf.org/html/rfc7233">RFC7233</a>), which is required
@@ -124,6 +133,12 @@ public abstract class AbstractFileServlet extends HttpServlet {
 	private static final String ETAG = "W/\"%s-%s\"";
 	private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=[0-9]*-[0-9]*(,[0-9]*-[0-9]*)*$");
 	private static final String MULTIPART_BOUNDARY = UUID.randomUUID().toString();
+	public static final long DEFAULT_CONTENT_CACHE_SIZE = 32 * 1024 * 1024;
+	public static final long DEFAULT_CONTENT_CACHE_ENTRY_SIZE = 4 * 1024 * 1024;
+
+	// Properties -----------------------------------------------------------------------------------------------------
+
+	protected final FileContentCache contentCache = new FileContentCache(DEFAULT_CONTENT_CACHE_SIZE, DEFAULT_CONTENT_CACHE_ENTRY_SIZE);
 
 	// Actions --------------------------------------------------------------------------------------------------------
 
@@ -160,6 +175,13 @@ public abstract class AbstractFileServlet extends HttpServlet {
 			return;
 		}
 
+		if (hasEncodedRepresentations(request, resource)) {
+			// Caches must key on the encoding for every response of this path, including identity and 304 responses
+			response.setHeader("Vary", "Accept-Encoding");
+		}
+
+		resource = selectRepresentation(request, resource);
+
 		if (preconditionFailed(request, resource)) {
 			response.sendError(HttpServletResponse.SC_PRECONDITION_FAILED);
 			return;
@@ -246,8 +268,71 @@ public abstract class AbstractFileServlet extends HttpServlet {
 		return coalesce(request.getServletContext().getMimeType(file.getName()), "application/octet-stream");
 	}
 
+	/**
+	 * Returns whether the file may be compressed once and served from the {@link FileContentCache} to clients accepting
+	 * GZIP.
+	 * <p>
+	 * The default implementation returns <code>false</code>.
+	 * @param request The involved HTTP servlet request.
+	 * @param file The involved file.
+	 * @return <code>true</code> if the content of the file compresses well, e.g. text.
+	 */
+	protected boolean isCompressible(HttpServletRequest request, File file) {
+		return false;
+	}
+
 	// Sub-actions ----------------------------------------------------------------------------------------------------
 
+	/**
+	 * Returns the representation to serve: a pre-compressed sibling file, cached compressed or cached plain content, or
+	 * the file itself. Ranges always refer to the plain file, so compressed representations are only used when no
+	 * range is requested.
+	 */
+	private Resource selectRepresentation(HttpServletRequest request, Resource resource) throws IOException {
+		if (request.getHeader("Range") == null) {
+			if (acceptsEncoding(request, "br")) {
+				File brotliFile = getPrecompressedFile(resource, ".br");
+				if (brotliFile != null) {
+					return new Resource(resource, brotliFile, null, "br");
+				}
+			}
+
+			if (acceptsEncoding(request, "gzip")) {
+				File gzipFile = getPrecompressedFile(resource, ".gz");
+				if (gzipFile != null) {
+					return new Resource(resource, gzipFile, null, "gzip");
+				}
+
+				if (isCompressible(request, resource.file)) {
+					byte[] gzipContent = contentCache.get(resource.file, "gzip", resource.lastModified, resource.length, () -> gzip(resource.file));
+					if (gzipContent != null) {
+						return new Resource(resource, null, gzipContent, "gzip");
+					}
+				}
+			}
+		}
+
+		byte[] content = contentCache.get(resource.file, null, resource.lastModified, resource.length, () -> Files.readAllBytes(resource.file.toPath()));
+		return content != null ? new Resource(resource, null, content, null) : resource;
+	}
+
+	/**
+	 * Returns true if the content served for the file may depend on the <code>Accept-Encoding</code> of the request.
+	 */
+	private boolean hasEncodedRepresentations(HttpServletRequest request, Resource resource) {
+		return isCompressible(request, resource.file)
+			|| getPrecompressedFile(resource, ".br") != null
+			|| getPrecompressedFile(resource, ".gz") != null;
+	}
+
+	/**
+	 * Returns the pre-compressed sibling of the file with the given suffix, if it exists and is not older than the file.
+	 */
+	private static File getPrecompressedFile(Resource resource, String suffix) {
+		File file = new File(resource.file.getPath() + suffix);
+		return file.isFile() && file.lastModified() >= resource.lastModified ? file : null;
+	}
+
 	/**
 	 * Returns true if it's a conditional request which must return 412.
 	 */
@@ -347,6 +432,10 @@ public abstract class AbstractFileServlet extends HttpServlet {
 		String contentType = getContentType(request, resource.file);
 		response.setHeader("Accept-Ranges", "bytes");
 
+		if (resource.encoding != null) {
+			response.setHeader("Content-Encoding", resource.encoding);
+		}
+
 		if (ranges.size() == 1) {
 			Range range = ranges.get(0);
 			response.setContentType(contentType);
@@ -371,7 +460,7 @@ public abstract class AbstractFileServlet extends HttpServlet {
 
 		if (ranges.size() == 1) {
 			Range range = ranges.get(0);
-			stream(resource.file, output, range.start, range.length);
+			write(resource, output, range);
 		}
 		else {
 			for (Range range : ranges) {
@@ -379,7 +468,7 @@ public abstract class AbstractFileServlet extends HttpServlet {
 				output.println("--" + MULTIPART_BOUNDARY);
 				output.println("Content-Type: " + contentType);
 				output.println("Content-Range: bytes " + range.start + "-" + range.end + "/" + resource.length);
-				stream(resource.file, output, range.start, range.length);
+				write(resource, output, range);
 			}
 
 			output.println();
@@ -387,8 +476,46 @@ public abstract class AbstractFileServlet extends HttpServlet {
 		}
 	}
 
+	/**
+	 * Write the given range of the resource content, from memory if it's cached.
+	 */
+	private static void write(Resource resource, ServletOutputStream output, Range range) throws IOException {
+		if (resource.content != null) {
+			output.write(resource.content, (int) range.start, (int) range.length);
+		}
+		else {
+			stream(resource.contentFile, output, range.start, range.length);
+		}
+	}
+
 	// Helpers --------------------------------------------------------------------------------------------------------
 
+	/**
+	 * Returns true if one of the <code>Accept-Encoding</code> headers of the request accepts the given encoding.
+	 */
+	private static boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+		for (Enumeration<String> headers = request.getHeaders("Accept-Encoding"); headers != null && headers.hasMoreElements();) {
+			for (String value : headers.nextElement().split("\\s*,\\s*")) {
+				String[] parts = value.split("\\s*;\\s*");
+				if (parts[0].equalsIgnoreCase(encoding)) {
+					return parts.length < 2 || !parts[1].matches("q=0(\\.0*)?");
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the GZIP compressed content of the file, compressed with the best compression as this is only done once.
+	 */
+	private static byte[] gzip(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+		try (OutputStream output = new GZIPOutputStream(bytes) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+			Files.copy(file.toPath(), output);
+		}
+		return bytes.toByteArray();
+	}
+
 	/**
 	 * Returns true if the given match header matches the given ETag value.
 	 */
@@ -433,6 +560,9 @@ public abstract class AbstractFileServlet extends HttpServlet {
 	 */
 	public static class Resource {
 		private final File file;
+		private final File contentFile;
+		private final byte[] content;
+		private final String encoding;
 		private final long length;
 		private final long lastModified;
 		private final String eTag;
@@ -450,6 +580,25 @@ public abstract class AbstractFileServlet extends HttpServlet {
 				lastModified = 0;
 				eTag = null;
 			}
+			contentFile = this.file;
+			content = null;
+			encoding = null;
+		}
+
+		/**
+		 * Another representation of the given resource, with content from a different file or from memory. Encoded
+		 * representations get their own ETag.
+		 */
+		public Resource(Resource resource, File contentFile, byte[] content, String encoding) {
+			file = resource.file;
+			this.contentFile = contentFile;
+			this.content = content;
+			this.encoding = encoding;
+			length = content != null ? content.length : contentFile.length();
+			lastModified = resource.lastModified;
+			eTag = encoding != null
+				? format(ETAG, encodeURL(file.getName()), lastModified + "-" + encoding)
+				: resource.eTag;
 		}
 
 	}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.web.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded, least recently used cache of file content, optionally encoded (e.g. compressed). Entries are keyed
+ * by file path and encoding and are only returned while the file's last modified time and length are unchanged.
+ */
+public class FileContentCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws IOException;
+    }
+
+    protected static class Entry {
+        final long lastModified;
+        final long fileLength;
+        final byte[] content;
+
+        Entry(long lastModified, long fileLength, byte[] content) {
+            this.lastModified = lastModified;
+            this.fileLength = fileLength;
+            this.content = content;
+        }
+    }
+
+    protected final long maxSize;
+    protected final long maxEntrySize;
+    protected final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+    protected long size;
+
+    public FileContentCache(long maxSize, long maxEntrySize) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Returns the cached content or loads and caches it, the loader is called without holding the cache lock.
+     *
+     * @return <code>null</code> if the file is larger than the maximum entry size.
+     */
+    public byte[] get(File file, String encoding, long lastModified, long fileLength, Loader loader) throws IOException {
+        if (fileLength > maxEntrySize) {
+            return null;
+        }
+
+        String key = encoding != null ? file.getPath() + ";" + encoding : file.getPath();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.lastModified == lastModified && entry.fileLength == fileLength) {
+                hits.incrementAndGet();
+                return entry.content;
+            }
+        }
+
+        misses.incrementAndGet();
+        byte[] content = loader.load();
+        if (content.length > maxEntrySize) {
+            return content;
+        }
+
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(lastModified, fileLength, content));
+            if (previous != null) {
+                size -= previous.content.length;
+            }
+            size += content.length;
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                size -= iterator.next().content.length;
+                iterator.remove();
+            }
+        }
+        return content;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (entries) {
+            return getClass().getSimpleName() + "{" +
+                "entries=" + entries.size() +
+                ", size=" + size +
+                ", hits=" + hits.get() +
+                ", misses=" + misses.get() +
+                '}';
+        }
+    }
+}
@@ -15,6 +15,7 @@ package org.openremote.container.web.file;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -89,6 +90,9 @@ public class GzipHttpServletResponse extends HttpServletResponseOutputWrapper {
 			else if ("content-range".equals(lowerCasedName)) {
 				noGzip = (value != null);
 			}
+			else if ("content-encoding".equals(lowerCasedName)) {
+				noGzip = (value != null); // Already encoded, e.g. a pre-compressed file.
+			}
 			else if ("cache-control".equals(lowerCasedName)) {
 				noGzip = (value != null && NO_TRANSFORM.matcher(value).matches());
 			}
@@ -108,6 +112,9 @@ public class GzipHttpServletResponse extends HttpServletResponseOutputWrapper {
 			else if ("content-range".equals(lowerCasedName)) {
 				noGzip = true;
 			}
+			else if ("content-encoding".equals(lowerCasedName)) {
+				noGzip = true; // Already encoded, e.g. a pre-compressed file.
+			}
 			else if ("cache-control".equals(lowerCasedName)) {
 				noGzip = (noGzip || NO_TRANSFORM.matcher(value).matches());
 			}
@@ -184,7 +191,9 @@ public class GzipHttpServletResponse extends HttpServletResponseOutputWrapper {
 
 				if (contentType != null && mimetypes.contains(contentType.split(";", 2)[0])) {
 					addHeader("Content-Encoding", "gzip");
-					setHeader("Vary", (!isOneOf(vary, null, "*") ? (vary + ",") : "") + "Accept-Encoding");
+					if (vary == null || !vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+						setHeader("Vary", (!isOneOf(vary, null, "*") ? (vary + ",") : "") + "Accept-Encoding");
+					}
 
 					// Remove Content-Length header that was set before we knew about whether to zip the response or not.
                     // The servlet container will now set the header (at least Undertow does) based on its internal
@@ -19,6 +19,7 @@
  */
 package org.openremote.manager.agent;
 
+import org.openremote.agent.protocol.http.HttpClientProtocol;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerHealthStatusProvider;
 import org.openremote.container.ContainerService;
@@ -79,6 +80,11 @@ public class AgentHealthStatusProvider implements ContainerHealthStatusProvider
         ObjectValue objectValue = Values.createObject();
         objectValue.put("agents", agentService.getAgents().size());
         objectValue.put("protocols", agentService.protocols.size());
+        objectValue.put("sensorRateLimited", agentService.getSensorRateStatistics());
+
+        agentService.protocols.values().stream()
+            .filter(protocol -> protocol instanceof HttpClientProtocol)
+            .forEach(protocol -> objectValue.put(protocol.getProtocolName(), ((HttpClientProtocol) protocol).getRequestStatistics()));
 
         for (Asset agent : agentService.getAgents().values()) {
             AtomicInteger total = new AtomicInteger(0);
@@ -19,15 +19,23 @@
  */
 package org.openremote.manager.agent;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.cache.Cache;
+import com.jayway.jsonpath.spi.cache.CacheProvider;
 import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import org.apache.camel.CamelExecutionException;
 import org.apache.camel.builder.RouteBuilder;
 import org.openremote.agent.protocol.Protocol;
 import org.openremote.agent.protocol.ProtocolAssetService;
+import org.openremote.agent.protocol.SensorUpdate;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
 import org.openremote.container.message.MessageBrokerService;
@@ -54,6 +62,7 @@ import org.openremote.model.value.*;
 
 import javax.persistence.EntityManager;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -66,6 +75,7 @@ import static org.openremote.agent.protocol.Protocol.ACTUATOR_TOPIC;
 import static org.openremote.agent.protocol.Protocol.SENSOR_QUEUE;
 import static org.openremote.container.concurrent.GlobalLock.withLock;
 import static org.openremote.container.concurrent.GlobalLock.withLockReturning;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.container.persistence.PersistenceEvent.*;
 import static org.openremote.manager.asset.AssetProcessingService.ASSET_QUEUE;
 import static org.openremote.model.AbstractValueTimestampHolder.VALUE_TIMESTAMP_FIELD_NAME;
@@ -89,6 +99,11 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
 
     private static final Logger LOG = Logger.getLogger(AgentService.class.getName());
     public static final int PRIORITY = DEFAULT_PRIORITY + 100; // Start quite late to ensure protocols etc. are initialised
+    public static final String SENSOR_QUEUE_SIZE = "SENSOR_QUEUE_SIZE";
+    public static final int SENSOR_QUEUE_SIZE_DEFAULT = 25000;
+    // Maximum sensor updates per second and agent, excess updates are dropped; 0 disables the limit
+    public static final String SENSOR_RATE_LIMIT = "SENSOR_RATE_LIMIT";
+    public static final int SENSOR_RATE_LIMIT_DEFAULT = 0;
     protected TimerService timerService;
     protected ManagerIdentityService identityService;
     protected AssetProcessingService assetProcessingService;
@@ -105,6 +120,14 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
     protected ParseContext jsonPathParser;
     protected boolean initDone;
     protected Container container;
+    protected int sensorRateLimit;
+    protected final Map<String, SensorRate> sensorRates = new ConcurrentHashMap<>();
+
+    protected static class SensorRate {
+        protected long window;
+        protected int count;
+        protected long dropped;
+    }
 
     /**
      * It's important that {@link Protocol}s have a lower priority than this service so they are fully initialized
@@ -134,6 +157,14 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
             return;
         }
 
+        // A protocol wants to write a new sensor value
+        messageBrokerService.createDispatchQueue(
+            SENSOR_QUEUE,
+            getInteger(container.getConfig(), SENSOR_QUEUE_SIZE, SENSOR_QUEUE_SIZE_DEFAULT),
+            this::onSensorUpdate
+        );
+        sensorRateLimit = getInteger(container.getConfig(), SENSOR_RATE_LIMIT, SENSOR_RATE_LIMIT_DEFAULT);
+
         clientEventService.addSubscriptionAuthorizer((auth, subscription) ->
             subscription.isEventType(AgentStatusEvent.class)
                 && identityService.getIdentityProvider()
@@ -224,13 +255,62 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
                     processAssetChange(asset, persistenceEvent);
                 }
             });
+    }
 
-        // A protocol wants to write a new sensor value
-        from(SENSOR_QUEUE)
-            .routeId("FromSensorUpdates")
-            .filter(body().isInstanceOf(AttributeEvent.class))
-            .setHeader(HEADER_SOURCE, () -> SENSOR)
-            .to(ASSET_QUEUE);
+    protected void onSensorUpdate(SensorUpdate sensorUpdate) {
+        if (!isSensorUpdateAllowed(sensorUpdate.getAgentId())) {
+            return;
+        }
+        Map<String, Object> headers = new HashMap<>(4);
+        headers.put(HEADER_SOURCE, SENSOR);
+        headers.put(Protocol.SENSOR_QUEUE_SOURCE_PROTOCOL, sensorUpdate.getProtocolName());
+        try {
+            messageBrokerService.getProducerTemplate().sendBodyAndHeaders(ASSET_QUEUE, sensorUpdate.getAttributeEvent(), headers);
+        } catch (CamelExecutionException ex) {
+            // Asset queue is full, rejections are counted by the queue
+            LOG.fine("Asset queue rejected sensor update: " + sensorUpdate.getAttributeEvent() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Applies {@link #SENSOR_RATE_LIMIT} with a one second window per agent, so a flooding agent can't fill the asset
+     * queue with sensor data nor use up the limit of other agents of the same protocol. Updates of attributes that were
+     * unlinked in the meantime are allowed, they are ignored by the asset processing anyway.
+     */
+    protected boolean isSensorUpdateAllowed(String agentId) {
+        if (sensorRateLimit <= 0 || agentId == null) {
+            return true;
+        }
+        SensorRate rate = sensorRates.computeIfAbsent(agentId, id -> new SensorRate());
+        long window = timerService.getCurrentTimeMillis() / 1000;
+        synchronized (rate) {
+            if (rate.window != window) {
+                if (rate.count >= sensorRateLimit) {
+                    LOG.fine("Sensor rate limit reached by agent '" + agentId + "', total dropped updates: " + rate.dropped);
+                }
+                rate.window = window;
+                rate.count = 0;
+            }
+            if (rate.count < sensorRateLimit) {
+                rate.count++;
+                return true;
+            }
+            rate.dropped++;
+            return false;
+        }
+    }
+
+    /**
+     * @return number of sensor updates dropped by the rate limit, by agent ID.
+     */
+    public ObjectValue getSensorRateStatistics() {
+        ObjectValue value = Values.createObject();
+        sensorRates.forEach((agentId, rate) -> {
+            synchronized (rate) {
+                value.put(agentId, rate.dropped);
+            }
+        });
+        return value;
     }
 
     /**
@@ -663,6 +743,7 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
             String agentId = configurations.get(0).getReferenceOrThrow().getEntityId();
             if (protocolConfigurations.keySet().stream().noneMatch(protocolConfigRef -> protocolConfigRef.getEntityId().equals(agentId))) {
                 childAssetSubscriptions.remove(agentId);
+                sensorRates.remove(agentId);
             }
         }));
     }
@@ -1038,39 +1119,142 @@ public class AgentService extends RouteBuilder implements ContainerService, Asse
         return filteredStr == null ? null : Values.create(filteredStr);
     }
 
+    /**
+     * Evaluates the compiled path directly on a {@link JsonNode} tree of the value, string values are assumed to be
+     * JSON payloads and are parsed straight into a tree.
+     */
     protected Value applyJsonPathFilter(Value value, JsonPathFilter filter) {
         if (value == null || TextUtil.isNullOrEmpty(filter.path)) {
             return null;
         }
 
+        JsonNode node;
+
         if (value.getType() == ValueType.STRING) {
             try {
                 // Assume value is actually a JSON payload
-                value = Values.parse(((StringValue) value).getString()).orElse(null);
+                node = Container.JSON.readTree(((StringValue) value).getString());
             } catch (Exception e) {
-                value = null;
+                node = null;
             }
+        } else {
+            node = toJsonNode(value);
         }
 
-        if (value == null) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
             return null;
         }
 
-        Object obj = jsonPathParser.parse(value.toJson()).read(filter.path);
-        String pathJson = obj != null ? obj.toString() : null;
-        if (TextUtil.isNullOrEmpty(pathJson)) {
-            return null;
+        Object obj = jsonPathParser.parse((Object) node).read(getJsonPath(filter));
+        Value pathValue = fromJsonPathResult(obj);
+
+        if (pathValue != null && (filter.returnFirst || filter.returnLast) && pathValue.getType() == ValueType.ARRAY) {
+            ArrayValue arr = (ArrayValue) pathValue;
+            pathValue = arr.length() > 0 ? (filter.returnFirst ? arr.get(0) : arr.get(arr.length() - 1)).orElse(null) : null;
         }
 
-        if (filter.returnFirst || filter.returnLast) {
-            Value pathValue = Values.parse(pathJson).orElse(null);
-            if (pathValue != null && pathValue.getType() == ValueType.ARRAY) {
-                pathValue = Values.getArray(pathValue).flatMap(arr -> arr.length() > 0 ? filter.returnFirst ? arr.get(0) : arr.get(arr.length() - 1) : Optional.empty()).orElse(null);
+        return pathValue;
+    }
+
+    /**
+     * The path is compiled once and kept on the filter instance, filters are deserialized when an attribute is linked
+     * so the compiled path is dropped when the attribute is unlinked. Filters that are deserialized for every value
+     * (e.g. those of an {@link org.openremote.model.attribute.AttributeLink}) get their compiled path from the LRU
+     * cache of the JSON path library.
+     */
+    protected static JsonPath getJsonPath(JsonPathFilter filter) {
+        Object compiledPath = filter.compiledPath;
+        if (!(compiledPath instanceof JsonPath)) {
+            Cache cache = CacheProvider.getCache();
+            JsonPath jsonPath = cache.get(filter.path);
+            if (jsonPath == null) {
+                jsonPath = JsonPath.compile(filter.path);
+                cache.put(filter.path, jsonPath);
             }
-            return pathValue;
+            filter.compiledPath = compiledPath = jsonPath;
+        }
+        return (JsonPath) compiledPath;
+    }
+
+    protected static Value fromJsonPathResult(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        if (obj instanceof JsonNode) {
+            return fromJsonNode((JsonNode) obj);
+        }
+        if (obj instanceof String) {
+            return TextUtil.isNullOrEmpty((String) obj) ? null : Values.create((String) obj);
+        }
+        if (obj instanceof Number) {
+            return Values.create(((Number) obj).doubleValue());
+        }
+        if (obj instanceof Boolean) {
+            return Values.create((Boolean) obj);
+        }
+        return Values.parseOrNull(obj.toString());
+    }
+
+    protected static JsonNode toJsonNode(Value value) {
+        if (value == null) {
+            return JsonNodeFactory.instance.nullNode();
+        }
+
+        switch (value.getType()) {
+            case OBJECT:
+                ObjectValue objectValue = (ObjectValue) value;
+                ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+                for (String key : objectValue.keys()) {
+                    objectNode.set(key, toJsonNode(objectValue.get(key).orElse(null)));
+                }
+                return objectNode;
+            case ARRAY:
+                ArrayValue arrayValue = (ArrayValue) value;
+                ArrayNode arrayNode = JsonNodeFactory.instance.arrayNode();
+                for (int i = 0; i < arrayValue.length(); i++) {
+                    arrayNode.add(toJsonNode(arrayValue.get(i).orElse(null)));
+                }
+                return arrayNode;
+            case STRING:
+                return JsonNodeFactory.instance.textNode(((StringValue) value).getString());
+            case NUMBER:
+                double number = ((NumberValue) value).getNumber();
+                // Keep integral numbers integral, as they would be when written as JSON
+                if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE) {
+                    return JsonNodeFactory.instance.numberNode((long) number);
+                }
+                return JsonNodeFactory.instance.numberNode(number);
+            case BOOLEAN:
+                return JsonNodeFactory.instance.booleanNode(((BooleanValue) value).getBoolean());
+            default:
+                return JsonNodeFactory.instance.nullNode();
         }
+    }
 
-        return Values.parse(pathJson).orElse(null);
+    protected static Value fromJsonNode(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        if (node.isObject()) {
+            ObjectValue objectValue = Values.createObject();
+            node.fields().forEachRemaining(field -> {
+                Value fieldValue = fromJsonNode(field.getValue());
+                objectValue.put(field.getKey(), fieldValue);
+            });
+            return objectValue;
+        }
+        if (node.isArray()) {
+            ArrayValue arrayValue = Values.createArray();
+            node.forEach(element -> arrayValue.add(fromJsonNode(element)));
+            return arrayValue;
+        }
+        if (node.isNumber()) {
+            return Values.create(node.doubleValue());
+        }
+        if (node.isBoolean()) {
+            return Values.create(node.booleanValue());
+        }
+        return Values.create(node.asText());
     }
 
     @Override
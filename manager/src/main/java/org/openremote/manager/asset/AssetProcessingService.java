@@ -57,6 +57,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.openremote.container.concurrent.GlobalLock.withLock;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.manager.asset.AssetProcessingException.Reason.*;
 import static org.openremote.manager.event.ClientEventService.CLIENT_EVENT_TOPIC;
 import static org.openremote.model.asset.agent.AgentLink.getAgentLink;
@@ -124,9 +125,12 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
     public static final int PRIORITY = AssetStorageService.PRIORITY + 1000;
     private static final Logger LOG = Logger.getLogger(AssetProcessingService.class.getName());
 
-    // TODO: Some of these options should be configurable depending on expected load etc.
-    // Message topic for communicating individual asset attribute changes
-    public static final String ASSET_QUEUE = "seda://AssetQueue?waitForTaskToComplete=IfReplyExpected&timeout=10000&purgeWhenStopping=true&discardIfNoConsumers=false&size=25000";
+    // Capacity of each priority lane of the asset queue
+    public static final String ASSET_QUEUE_SIZE = "ASSET_QUEUE_SIZE";
+    public static final int ASSET_QUEUE_SIZE_DEFAULT = 25000;
+    public static final String ASSET_QUEUE_FACTORY = "AssetQueueFactory";
+    // Message topic for communicating individual asset attribute changes, bounded with priority lanes see #getQueuePriority
+    public static final String ASSET_QUEUE = "seda://AssetQueue?waitForTaskToComplete=IfReplyExpected&timeout=10000&purgeWhenStopping=true&discardIfNoConsumers=false&queueFactory=#" + ASSET_QUEUE_FACTORY;
 
     protected TimerService timerService;
     protected ManagerIdentityService identityService;
@@ -162,6 +166,13 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
         assetAttributeLinkingService = container.getService(AssetAttributeLinkingService.class);
         messageBrokerService = container.getService(MessageBrokerService.class);
         clientEventService = container.getService(ClientEventService.class);
+
+        messageBrokerService.registerQueue(
+            ASSET_QUEUE_FACTORY,
+            getInteger(container.getConfig(), ASSET_QUEUE_SIZE, ASSET_QUEUE_SIZE_DEFAULT),
+            AssetProcessingService::getQueuePriority
+        );
+
         EventSubscriptionAuthorizer assetEventAuthorizer = AssetStorageService.assetInfoAuthorizer(identityService, assetStorageService);
 
         clientEventService.addSubscriptionAuthorizer((auth, subscription) -> {
@@ -361,9 +372,8 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
                         }
                     );
 
-                    // Create a copy of the attribute and set the new value and timestamp
-                    AssetAttribute updatedAttribute = oldAttribute.deepCopy();
-                    updatedAttribute.setValue(event.getValue().orElse(null), eventTime);
+                    // Create a copy of the attribute with the new value and timestamp, sharing the unchanged meta
+                    AssetAttribute updatedAttribute = oldAttribute.copyWithValue(event.getValue().orElse(null), eventTime);
 
                     // Validate constraints of attribute
                     List<ValidationFailure> validationFailures = updatedAttribute.getValidationFailures();
@@ -385,6 +395,18 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
             .process(handleAssetProcessingException(LOG));
     }
 
+    /**
+     * User initiated writes are processed first, then internal events (rules, linking, gateway), then bulk sensor data.
+     * Events of the same lane are processed in the order they were queued.
+     */
+    protected static int getQueuePriority(Exchange exchange) {
+        Source source = exchange.getIn().getHeader(HEADER_SOURCE, Source.class);
+        if (source == CLIENT) {
+            return 0;
+        }
+        return source == SENSOR ? 2 : 1;
+    }
+
     /**
      * Send internal attribute change events into the {@link #ASSET_QUEUE}.
      */
@@ -506,7 +528,6 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
     }
 
     protected void publishClientEvent(Asset asset, AssetAttribute attribute) {
-        // TODO Catch "queue full" exception (e.g. when producing thousands of INFO messages in rules)?
         clientEventService.publishEvent(
             attribute.isAccessRestrictedRead(),
             new AttributeEvent(
@@ -19,6 +19,12 @@
  */
 package org.openremote.manager.asset;
 
+import org.apache.camel.CamelExecutionException;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.WaitForTaskToComplete;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.support.SynchronizationAdapter;
 import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.timer.TimerService;
 import org.openremote.manager.security.ManagerIdentityService;
@@ -44,8 +50,16 @@ import org.openremote.model.value.Values;
 import javax.persistence.OptimisticLockException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
-import java.io.IOException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import static javax.ws.rs.core.Response.Status.*;
@@ -62,6 +76,8 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
     private static final Logger LOG = Logger.getLogger(AssetResourceImpl.class.getName());
 
     protected final static Asset[] EMPTY_ASSETS = new Asset[0];
+    protected final static int WRITE_ATTRIBUTE_VALUES_CHUNK_SIZE = 100;
+    protected final static int WRITE_ATTRIBUTE_VALUES_TIMEOUT_MILLIS = 10000;
     protected final AssetStorageService assetStorageService;
     protected final MessageBrokerService messageBrokerService;
 
@@ -398,14 +414,8 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
                 LOG.info("Write attribute value request: " + event);
 
                 // Process asynchronously but block for a little while waiting for the result
-                Map<String, Object> headers = new HashMap<>();
-                headers.put(AttributeEvent.HEADER_SOURCE, CLIENT);
-
-                if (isAuthenticated()) {
-                    headers.put(Constants.AUTH_CONTEXT, getAuthContext());
-                }
                 Object result = messageBrokerService.getProducerTemplate().requestBodyAndHeaders(
-                    AssetProcessingService.ASSET_QUEUE, event, headers
+                    AssetProcessingService.ASSET_QUEUE, event, getWriteAttributeHeaders()
                 );
 
                 if (result instanceof AssetProcessingException) {
@@ -437,6 +447,79 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
         }
     }
 
+    @Override
+    public Response writeAttributeValues(RequestParams requestParams, boolean async, AttributeEvent[] attributeEvents) {
+        if (attributeEvents == null || attributeEvents.length == 0) {
+            return Response.ok(new AttributeWriteResult[0]).build();
+        }
+
+        LOG.fine("Write attribute values request, async=" + async + ": " + attributeEvents.length + " event(s)");
+
+        Map<String, Object> headers = getWriteAttributeHeaders();
+        long timestamp = timerService.getCurrentTimeMillis();
+        AttributeWriteResult[] results = new AttributeWriteResult[attributeEvents.length];
+
+        for (int i = 0; i < attributeEvents.length; i++) {
+            AttributeEvent event = attributeEvents[i];
+            if (!isValidWriteEvent(event)) {
+                results[i] = new AttributeWriteResult(event != null ? event.getAttributeRef() : null, AttributeWriteResult.Failure.INVALID_REQUEST);
+            } else {
+                // Same as a single attribute write, the server decides the time of the write
+                event.setTimestamp(timestamp);
+            }
+        }
+
+        if (async) {
+            for (int i = 0; i < attributeEvents.length; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                AttributeEvent event = attributeEvents[i];
+                try {
+                    // The asset queue is bounded, an event it can't take is rejected rather than blocking the request
+                    messageBrokerService.getProducerTemplate().sendBodyAndHeaders(
+                        AssetProcessingService.ASSET_QUEUE, event, headers
+                    );
+                    results[i] = new AttributeWriteResult(event.getAttributeRef(), null);
+                } catch (CamelExecutionException ex) {
+                    LOG.fine("Failed to enqueue attribute event: " + event + ": " + ex.getMessage());
+                    results[i] = new AttributeWriteResult(event.getAttributeRef(), AttributeWriteResult.Failure.QUEUE_FULL);
+                }
+            }
+            return Response.status(ACCEPTED).entity(results).build();
+        }
+
+        // Wait for each chunk before submitting the next, so a large batch doesn't flood the asset queue
+        for (int start = 0; start < attributeEvents.length; start += WRITE_ATTRIBUTE_VALUES_CHUNK_SIZE) {
+            int end = Math.min(attributeEvents.length, start + WRITE_ATTRIBUTE_VALUES_CHUNK_SIZE);
+            Map<Integer, Future<Object>> futures = new LinkedHashMap<>();
+
+            for (int i = start; i < end; i++) {
+                if (results[i] == null) {
+                    futures.put(i, enqueueWriteEvent(attributeEvents[i], headers));
+                }
+            }
+
+            for (Map.Entry<Integer, Future<Object>> future : futures.entrySet()) {
+                AttributeRef attributeRef = attributeEvents[future.getKey()].getAttributeRef();
+                Object result;
+                try {
+                    result = future.getValue().get(WRITE_ATTRIBUTE_VALUES_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new WebApplicationException(ex, SERVICE_UNAVAILABLE);
+                } catch (ExecutionException ex) {
+                    result = ex.getCause();
+                } catch (TimeoutException ex) {
+                    result = ex;
+                }
+                results[future.getKey()] = new AttributeWriteResult(attributeRef, toWriteFailure(result));
+            }
+        }
+
+        return Response.ok(results).build();
+    }
+
     @Override
     public Asset create(RequestParams requestParams, Asset asset) {
         try {
@@ -537,46 +620,87 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
     @Override
     public Asset[] queryAssets(RequestParams requestParams, AssetQuery query) {
         try {
+            query = prepareQuery(query);
+
             if (query == null) {
                 return EMPTY_ASSETS;
             }
 
-            if (isRestrictedUser()) {
-                // A restricted user can only query linked assets
-                query = query.userIds(getUserId());
+            List<Asset> result = assetStorageService.findAll(query);
 
-                // A restricted user may not query private asset data, only restricted or public
-                if (query.access == null || query.access == Access.PRIVATE)
-                    query.access(Access.PROTECTED);
-            }
+            // Compress response (the request attribute enables the interceptor)
+            request.setAttribute(HttpHeaders.CONTENT_ENCODING, "gzip");
 
-            String realm = query.tenant != null && !isNullOrEmpty(query.tenant.realm)
-                ? query.tenant.realm
-                : getAuthenticatedRealm();
+            return result.toArray(new Asset[result.size()]);
 
-            if (TextUtil.isNullOrEmpty(realm)) {
-                throw new WebApplicationException(NOT_FOUND);
-            }
+        } catch (IllegalStateException ex) {
+            throw new WebApplicationException(ex, BAD_REQUEST);
+        }
+    }
 
-            if (!isTenantActiveAndAccessible(realm)) {
-                return EMPTY_ASSETS;
-            }
+    @Override
+    public Response streamAssets(RequestParams requestParams, AssetQuery query) {
+        Iterator<List<Asset>> pages;
 
-            // This replicates behaviour of old getRoot and getChildren methods
-            if (!isSuperUser()) {
-                query.tenant(new TenantPredicate(realm));
+        try {
+            query = prepareQuery(query);
+            // Reads the first page, an invalid query fails here before the response status is sent
+            pages = query != null ? assetStorageService.findAllPages(query) : Collections.emptyIterator();
+        } catch (IllegalStateException | IllegalArgumentException ex) {
+            throw new WebApplicationException(ex, BAD_REQUEST);
+        }
+
+        // Not compressed, so each page reaches the client when it is flushed
+        StreamingOutput output = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            while (pages.hasNext()) {
+                for (Asset asset : pages.next()) {
+                    writer.write(JSON.writeValueAsString(asset));
+                    writer.write('\n');
+                }
+                writer.flush();
             }
+        };
 
-            List<Asset> result = assetStorageService.findAll(query);
+        return Response.ok(output, "application/x-ndjson").build();
+    }
 
-            // Compress response (the request attribute enables the interceptor)
-            request.setAttribute(HttpHeaders.CONTENT_ENCODING, "gzip");
+    /**
+     * Restricts the query to what the authenticated user may access, returns null if the user can't access any
+     * assets of the query.
+     */
+    protected AssetQuery prepareQuery(AssetQuery query) {
+        if (query == null) {
+            return null;
+        }
 
-            return result.toArray(new Asset[result.size()]);
+        if (isRestrictedUser()) {
+            // A restricted user can only query linked assets
+            query = query.userIds(getUserId());
 
-        } catch (IllegalStateException ex) {
-            throw new WebApplicationException(ex, BAD_REQUEST);
+            // A restricted user may not query private asset data, only restricted or public
+            if (query.access == null || query.access == Access.PRIVATE)
+                query.access(Access.PROTECTED);
+        }
+
+        String realm = query.tenant != null && !isNullOrEmpty(query.tenant.realm)
+            ? query.tenant.realm
+            : getAuthenticatedRealm();
+
+        if (TextUtil.isNullOrEmpty(realm)) {
+            throw new WebApplicationException(NOT_FOUND);
         }
+
+        if (!isTenantActiveAndAccessible(realm)) {
+            return null;
+        }
+
+        // This replicates behaviour of old getRoot and getChildren methods
+        if (!isSuperUser()) {
+            query.tenant(new TenantPredicate(realm));
+        }
+
+        return query;
     }
 
     @Override
@@ -630,4 +754,85 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
 
         return result;
     }
+
+    protected Map<String, Object> getWriteAttributeHeaders() {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(AttributeEvent.HEADER_SOURCE, CLIENT);
+
+        if (isAuthenticated()) {
+            headers.put(Constants.AUTH_CONTEXT, getAuthContext());
+        }
+        return headers;
+    }
+
+    protected static boolean isValidWriteEvent(AttributeEvent event) {
+        return event != null
+            && event.getAttributeRef() != null
+            && !isNullOrEmpty(event.getEntityId())
+            && !isNullOrEmpty(event.getAttributeName());
+    }
+
+    /**
+     * Puts the event on the asset queue from the calling thread, so the events of a batch are queued (and processed)
+     * in request order, and completes the returned future with the reply once the event has been processed. The
+     * completion of the exchange is handed over to the copy that the queue consumer processes.
+     */
+    protected Future<Object> enqueueWriteEvent(AttributeEvent event, Map<String, Object> headers) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        Exchange exchange = new DefaultExchange(messageBrokerService.getContext(), ExchangePattern.InOut);
+        exchange.getIn().setBody(event);
+        exchange.getIn().setHeaders(new HashMap<>(headers));
+        exchange.setProperty(Exchange.ASYNC_WAIT, WaitForTaskToComplete.Never);
+        exchange.addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange processed) {
+                if (processed.getException() != null) {
+                    reply.complete(processed.getException());
+                } else {
+                    reply.complete(processed.hasOut() ? processed.getOut().getBody() : processed.getIn().getBody());
+                }
+            }
+        });
+
+        messageBrokerService.getProducerTemplate().send(AssetProcessingService.ASSET_QUEUE, exchange);
+
+        // The asset queue is bounded, an event it can't take is rejected rather than blocking the request
+        if (exchange.getException() != null) {
+            LOG.fine("Failed to enqueue attribute event: " + event + ": " + exchange.getException().getMessage());
+            reply.complete(AttributeWriteResult.Failure.QUEUE_FULL);
+        }
+        return reply;
+    }
+
+    protected static AttributeWriteResult.Failure toWriteFailure(Object result) {
+        if (result instanceof AttributeWriteResult.Failure) {
+            return (AttributeWriteResult.Failure) result;
+        }
+        if (result instanceof CamelExecutionException) {
+            result = ((CamelExecutionException) result).getCause();
+        }
+        if (result instanceof AssetProcessingException) {
+            switch (((AssetProcessingException) result).getReason()) {
+                case ILLEGAL_SOURCE:
+                case NO_AUTH_CONTEXT:
+                case INSUFFICIENT_ACCESS:
+                    return AttributeWriteResult.Failure.INSUFFICIENT_ACCESS;
+                case ASSET_NOT_FOUND:
+                    return AttributeWriteResult.Failure.ASSET_NOT_FOUND;
+                case ATTRIBUTE_NOT_FOUND:
+                    return AttributeWriteResult.Failure.ATTRIBUTE_NOT_FOUND;
+                case INVALID_AGENT_LINK:
+                case ILLEGAL_AGENT_UPDATE:
+                case INVALID_ATTRIBUTE_EXECUTE_STATUS:
+                case INVALID_VALUE_FOR_WELL_KNOWN_ATTRIBUTE:
+                    return AttributeWriteResult.Failure.INVALID_REQUEST;
+                default:
+                    return AttributeWriteResult.Failure.PROCESSING_FAILED;
+            }
+        }
+        if (result instanceof Throwable) {
+            return AttributeWriteResult.Failure.PROCESSING_FAILED;
+        }
+        return null;
+    }
 }
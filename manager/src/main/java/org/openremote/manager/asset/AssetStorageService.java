@@ -124,6 +124,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
     public static final int PRIORITY = MED_PRIORITY;
     protected static String META_ITEM_RESTRICTED_READ_SQL_FRAGMENT;
     protected static String META_ITEM_PUBLIC_READ_SQL_FRAGMENT;
+    protected static final int STREAM_PAGE_SIZE = 200;
 
     public static <T extends SharedEvent & AssetInfo> EventSubscriptionAuthorizer assetInfoAuthorizer(ManagerIdentityService identityService, AssetStorageService assetStorageService) {
 
@@ -507,6 +508,77 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return persistenceService.doReturningTransaction(em -> findAll(em, query));
     }
 
+    /**
+     * Reads the assets of the query page by page, so large results don't have to be held in memory. Each page is read
+     * in its own transaction, no database connection is held while the caller processes a page. The first page is read
+     * by this method, so an invalid query throws {@link IllegalArgumentException} here rather than while iterating.
+     * <p>
+     * The pages are read using keyset pagination ({@link AssetQuery#after}), which requires ordering by {@link
+     * OrderBy.Property#CREATED_ON} (the default) or {@link OrderBy.Property#NAME}; queries with another order or a
+     * calendar event predicate are read as a single page. The given query is not modified.
+     */
+    public Iterator<List<Asset>> findAllPages(AssetQuery query) {
+        query = copyQuery(query);
+
+        if (query.orderBy == null)
+            query.orderBy = new OrderBy(OrderBy.Property.CREATED_ON);
+
+        boolean keysetOrder = query.orderBy.property == OrderBy.Property.CREATED_ON || query.orderBy.property == OrderBy.Property.NAME;
+
+        if (!keysetOrder || hasCalendarEventPredicate(query.attributes)) {
+            return Collections.singletonList(findAll(query)).iterator();
+        }
+
+        return new AssetPageIterator(query);
+    }
+
+    protected class AssetPageIterator implements Iterator<List<Asset>> {
+
+        protected final AssetQuery query;
+        protected final boolean limited;
+        protected int remaining;
+        protected List<Asset> page;
+
+        protected AssetPageIterator(AssetQuery query) {
+            this.query = query;
+            this.limited = query.limit > 0;
+            this.remaining = query.limit;
+            page = readPage();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return page != null;
+        }
+
+        @Override
+        public List<Asset> next() {
+            if (page == null) {
+                throw new NoSuchElementException();
+            }
+            List<Asset> result = page;
+            page = null;
+
+            // A full page means there may be more assets after the last one
+            if (result.size() == query.limit && (!limited || remaining > 0)) {
+                Asset last = result.get(result.size() - 1);
+                query.after = new After(last.getId(), last.getCreatedOn().getTime(), last.getName());
+                page = readPage();
+                if (page.isEmpty()) {
+                    page = null;
+                }
+            }
+            return result;
+        }
+
+        protected List<Asset> readPage() {
+            query.limit = limited ? Math.min(remaining, STREAM_PAGE_SIZE) : STREAM_PAGE_SIZE;
+            List<Asset> assets = findAll(query);
+            remaining -= assets.size();
+            return assets;
+        }
+    }
+
     public List<String> findNames(String... ids) {
         if (ids == null || ids.length == 0)
             return new ArrayList<>();
@@ -940,8 +1012,8 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return persistenceService.doReturningTransaction(entityManager -> entityManager.unwrap(Session.class).doReturningWork(new AbstractReturningWork<Boolean>() {
             @Override
             public Boolean execute(Connection connection) throws SQLException {
-                try (PreparedStatement st = connection.prepareStatement("select count(*) from Asset a where ? = ANY(get_asset_tree_path(a.ID)) AND a.id = ANY(?)")) {
-                    st.setString(1, parentAssetId);
+                try (PreparedStatement st = connection.prepareStatement("select count(*) from Asset a where a.PATH @> ? AND a.id = ANY(?)")) {
+                    st.setArray(1, st.getConnection().createArrayOf("text", new String[] {parentAssetId}));
                     st.setArray(2, st.getConnection().createArrayOf("text", assetIds.toArray()));
                     ResultSet rs = st.executeQuery();
                     return rs.next() && rs.getInt(1) == assetIds.size();
@@ -1022,12 +1094,21 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
     }
 
     protected List<Asset> findAll(EntityManager em, AssetQuery query) {
+        List<Asset> result = new ArrayList<>();
+        findAll(em, query, result::add);
+        return result;
+    }
+
+    /**
+     * Passes each asset to the consumer as the rows are read.
+     */
+    protected void findAll(EntityManager em, AssetQuery query, Consumer<Asset> assetConsumer) {
 
         if (query.access == null)
             query.access = PRIVATE;
 
-        // Default to order by creation date if the query may return multiple results
-        if (query.orderBy == null && query.ids == null)
+        // Default to order by creation date if the query may return multiple results or is paged
+        if (query.orderBy == null && (query.ids == null || query.limit > 0 || query.after != null))
             query.orderBy = new OrderBy(OrderBy.Property.CREATED_ON);
 
         Pair<PreparedAssetQuery, Boolean> queryAndContainsCalendarPredicate = buildQuery(query);
@@ -1039,37 +1120,37 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             throw new IllegalArgumentException("Asset query contains a calendar event predicate which requires the attribute values and types to be included in the select (as calendar event predicate is applied post DB query)");
         }
 
-        return em.unwrap(Session.class).doReturningWork(new AbstractReturningWork<List<Asset>>() {
-            @Override
-            public List<Asset> execute(Connection connection) throws SQLException {
-                LOG.fine("Executing: " + querySql.querySql);
-                try (PreparedStatement st = connection.prepareStatement(querySql.querySql)) {
-                    querySql.apply(st);
-
-                    try (ResultSet rs = st.executeQuery()) {
-                        List<Asset> result = new ArrayList<>();
-                        if (containsCalendarPredicate) {
-                            while (rs.next()) {
-                                Asset asset = mapResultTuple(query, rs);
-                                // Apply calendar event filter here (difficult to translate this into a SQL query)
-                                if (calendarEventPredicateMatches(query, asset)) {
-                                    result.add(asset);
-                                }
-                            }
-                        } else {
-                            while (rs.next()) {
-                                result.add(mapResultTuple(query, rs));
-                            }
+        em.unwrap(Session.class).doWork(connection -> {
+            LOG.fine("Executing: " + querySql.querySql);
+            try (PreparedStatement st = connection.prepareStatement(querySql.querySql)) {
+                querySql.apply(st);
+
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        Asset asset = mapResultTuple(query, rs);
+                        // Apply calendar event filter here (difficult to translate this into a SQL query)
+                        if (!containsCalendarPredicate || calendarEventPredicateMatches(query, asset)) {
+                            assetConsumer.accept(asset);
                         }
-                        return result;
                     }
                 }
             }
         });
     }
 
+    /**
+     * The SQL and its parameter binders are built for every query, there is no cache of either. Values are bound as
+     * parameters so structurally identical queries produce identical SQL, which lets the JDBC driver reuse its server
+     * side prepared statement (see {@link PersistenceService#DATABASE_PREPARE_THRESHOLD}).
+     */
     protected Pair<PreparedAssetQuery, Boolean> buildQuery(AssetQuery query) {
         LOG.fine("Building: " + query);
+
+        if (isParentIdsOnlyRecursiveQuery(query)) {
+            // Descendants can be found using the materialized asset path instead of recursing through the tree
+            query = toDescendantPathQuery(query);
+        }
+
         StringBuilder sb = new StringBuilder();
         boolean recursive = query.recursive;
         List<ParameterBinder> binders = new ArrayList<>();
@@ -1090,7 +1171,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         }
 
         sb.append(buildOrderByString(query));
-        sb.append(buildLimitString(query));
+        sb.append(buildLimitString(query, binders));
         return new Pair<>(new PreparedAssetQuery(sb.toString(), binders), containsCalendarPredicate);
     }
 
@@ -1119,7 +1200,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
         if (!query.recursive || level == 3) {
             if (select == null || !select.excludePath) {
-                sb.append(", get_asset_tree_path(A.ID) as PATH");
+                sb.append(", A.PATH as PATH");
             } else {
                 sb.append(", NULL as PATH");
             }
@@ -1275,7 +1356,8 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
     protected String buildOrderByString(AssetQuery query) {
         StringBuilder sb = new StringBuilder();
 
-        if (query.ids != null && !query.recursive) {
+        // A page of the results must always be read in a stable order, only skip ordering of a complete ID lookup
+        if (query.ids != null && !query.recursive && query.limit <= 0 && query.after == null) {
             return sb.toString();
         }
 
@@ -1300,14 +1382,52 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                     break;
             }
             sb.append(query.orderBy.descending ? "desc " : "asc ");
+
+            // Make the order unique so it can be used for keyset pagination
+            if (query.orderBy.property == OrderBy.Property.CREATED_ON || query.orderBy.property == OrderBy.Property.NAME) {
+                sb.append(", A.ID ");
+                sb.append(query.orderBy.descending ? "desc " : "asc ");
+            }
         }
 
         return sb.toString();
     }
 
-    protected String buildLimitString(AssetQuery query) {
+    /**
+     * Keyset pagination, uses a row comparison on the order by property and ID so the (CREATED_ON, ID) and (NAME, ID)
+     * indices can be used.
+     */
+    protected void appendAfterClause(StringBuilder sb, AssetQuery query, List<ParameterBinder> binders) {
+        After after = query.after;
+        OrderBy.Property property = query.orderBy != null ? query.orderBy.property : null;
+
+        if (TextUtil.isNullOrEmpty(after.id)) {
+            throw new IllegalArgumentException("Asset query after position must include the asset ID");
+        }
+
+        String operator = query.orderBy != null && query.orderBy.descending ? " < " : " > ";
+
+        if (property == OrderBy.Property.CREATED_ON && after.createdOn != null) {
+            sb.append(" and (A.CREATED_ON, A.ID)").append(operator).append("(?, ?)");
+            final int pos = binders.size() + 1;
+            binders.add(st -> st.setTimestamp(pos, new java.sql.Timestamp(after.createdOn)));
+        } else if (property == OrderBy.Property.NAME && after.name != null) {
+            sb.append(" and (A.NAME, A.ID)").append(operator).append("(?, ?)");
+            final int pos = binders.size() + 1;
+            binders.add(st -> st.setString(pos, after.name));
+        } else {
+            throw new IllegalArgumentException("Asset query after position requires order by CREATED_ON or NAME with the matching value");
+        }
+
+        final int pos = binders.size() + 1;
+        binders.add(st -> st.setString(pos, after.id));
+    }
+
+    protected String buildLimitString(AssetQuery query, List<ParameterBinder> binders) {
         if (query.limit > 0) {
-            return " LIMIT " + query.limit;
+            final int pos = binders.size() + 1;
+            binders.add(st -> st.setInt(pos, query.limit));
+            return " LIMIT ?";
         }
         return "";
     }
@@ -1410,9 +1530,15 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 }
                 isFirst = false;
 
-                sb.append("? <@ get_asset_tree_path(A.ID)");
+                sb.append("? <@ A.PATH");
                 final int pos = binders.size() + 1;
                 binders.add(st -> st.setArray(pos, st.getConnection().createArrayOf("text", pred.path)));
+
+                if (pred instanceof DescendantPathPredicate) {
+                    sb.append(" and A.ID != ?");
+                    final int pos2 = binders.size() + 1;
+                    binders.add(st -> st.setString(pos2, pred.path[0]));
+                }
             }
 
             sb.append(")");
@@ -1425,6 +1551,10 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 binders.add(st -> st.setString(pos, query.tenant.realm));
             }
 
+            if (query.after != null) {
+                appendAfterClause(sb, query, binders);
+            }
+
             if (query.ids == null && query.userIds != null && query.userIds.length > 0) {
                 sb.append(" and ua.ASSET_ID = a.ID and ua.USER_ID IN (?");
                 final int pos = binders.size() + 1;
@@ -1467,9 +1597,12 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
             if (query.attributeMeta != null) {
                 for (MetaPredicate attributeMetaPredicate : query.attributeMeta) {
+                    // Binders are positional so the containment filter must be built first
+                    String containmentFilter = buildAttributeMetaContainmentFilter(binders, attributeMetaPredicate);
                     String attributeMetaFilter = buildAttributeMetaFilter(binders, attributeMetaPredicate);
 
                     if (attributeMetaFilter.length() > 0) {
+                        sb.append(containmentFilter);
                         sb.append(" and A.ID in (select A.ID from");
                         sb.append(" jsonb_each(A.ATTRIBUTES) as AX,");
                         sb.append(" jsonb_array_elements(AX.VALUE #> '{meta}') as AM");
@@ -1482,6 +1615,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
             if (query.attributes != null) {
                 AtomicInteger joinCounter = new AtomicInteger(1);
+                sb.append(buildAttributeContainmentFilter(binders, query.attributes));
                 sb.append(" and A.ID in (select A.ID from");
                 sb.append(" jsonb_each(A.ATTRIBUTES) as AX1");
                 int offset = sb.length();
@@ -1561,6 +1695,79 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return containsCalendarPredicate;
     }
 
+    /**
+     * Recursive queries where the top level assets are only constrained by parent ID(s) simply select all descendants
+     * of these parents. {@link Access#PUBLIC} queries are excluded, the public read filter is only applied to the top
+     * level assets of a non-recursive query and the rewritten query would also apply it to the descendants.
+     */
+    protected static boolean isParentIdsOnlyRecursiveQuery(AssetQuery query) {
+        return query.recursive
+            && query.access != Access.PUBLIC
+            && (query.ids == null || query.ids.length == 0)
+            && (query.names == null || query.names.length == 0)
+            && (query.paths == null || query.paths.length == 0)
+            && query.parents != null && query.parents.length > 0
+            && Arrays.stream(query.parents).allMatch(p -> p.id != null && p.type == null && p.name == null && !p.noParent);
+    }
+
+    /**
+     * Shallow copy of the query, for reading pages without changing the caller's query.
+     */
+    protected static AssetQuery copyQuery(AssetQuery query) {
+        AssetQuery copy = new AssetQuery();
+        copy.recursive = query.recursive;
+        copy.select = query.select;
+        copy.access = query.access;
+        copy.ids = query.ids;
+        copy.names = query.names;
+        copy.parents = query.parents;
+        copy.paths = query.paths;
+        copy.tenant = query.tenant;
+        copy.userIds = query.userIds;
+        copy.types = query.types;
+        copy.attributes = query.attributes;
+        copy.attributeMeta = query.attributeMeta;
+        copy.orderBy = query.orderBy;
+        copy.after = query.after;
+        copy.limit = query.limit;
+        return copy;
+    }
+
+    protected static boolean hasCalendarEventPredicate(LogicGroup<AttributePredicate> group) {
+        if (group == null) {
+            return false;
+        }
+        if (group.items != null && group.items.stream().anyMatch(item -> item.value instanceof CalendarEventPredicate)) {
+            return true;
+        }
+        return group.groups != null && group.groups.stream().anyMatch(AssetStorageService::hasCalendarEventPredicate);
+    }
+
+    protected static AssetQuery toDescendantPathQuery(AssetQuery query) {
+        AssetQuery pathQuery = new AssetQuery();
+        pathQuery.select = query.select;
+        pathQuery.access = query.access;
+        pathQuery.paths = Arrays.stream(query.parents).map(p -> new DescendantPathPredicate(p.id)).toArray(PathPredicate[]::new);
+        pathQuery.tenant = query.tenant;
+        pathQuery.userIds = query.userIds;
+        pathQuery.types = query.types;
+        pathQuery.attributes = query.attributes;
+        pathQuery.attributeMeta = query.attributeMeta;
+        pathQuery.orderBy = query.orderBy;
+        pathQuery.after = query.after;
+        pathQuery.limit = query.limit;
+        return pathQuery;
+    }
+
+    /**
+     * Matches descendants of the asset with the specified ID, excluding the asset itself.
+     */
+    protected static class DescendantPathPredicate extends PathPredicate {
+        protected DescendantPathPredicate(String assetId) {
+            super(assetId);
+        }
+    }
+
     protected boolean hasPathConstraint(PathPredicate[] pathPredicates) {
         if (pathPredicates == null || pathPredicates.length == 0) {
             return false;
@@ -1569,6 +1776,73 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return Arrays.stream(pathPredicates).anyMatch(p -> p.path != null);
     }
 
+    /**
+     * Builds a JSON containment filter on the asset attributes that is implied by the top level AND predicates; this
+     * doesn't replace the predicates but narrows down the assets using the ATTRIBUTES index before the attributes are
+     * expanded.
+     */
+    protected String buildAttributeContainmentFilter(List<ParameterBinder> binders, LogicGroup<AttributePredicate> attributePredicateGroup) {
+        if (attributePredicateGroup.operator == LogicGroup.Operator.OR || attributePredicateGroup.getItems().isEmpty()) {
+            return "";
+        }
+
+        ObjectValue containment = Values.createObject();
+
+        for (AttributePredicate attributePredicate : attributePredicateGroup.getItems()) {
+            if (attributePredicate.notExists || !isContainmentMatch(attributePredicate.name)) {
+                continue;
+            }
+
+            ObjectValue attribute = containment.getObject(attributePredicate.name.value).orElse(Values.createObject());
+            if (attributePredicate.value instanceof BooleanPredicate) {
+                attribute.put("value", ((BooleanPredicate) attributePredicate.value).value);
+            }
+            containment.put(attributePredicate.name.value, attribute);
+        }
+
+        if (!containment.hasKeys()) {
+            return "";
+        }
+
+        final int pos = binders.size() + 1;
+        binders.add(st -> st.setString(pos, containment.toJson()));
+        return " and A.ATTRIBUTES @> cast(? as jsonb)";
+    }
+
+    /**
+     * Builds a JSON containment filter on the meta items of the asset attributes that is implied by the predicate,
+     * this can use the ASSET_META_ITEMS index.
+     */
+    protected String buildAttributeMetaContainmentFilter(List<ParameterBinder> binders, MetaPredicate attributeMetaPredicate) {
+        ObjectValue metaItem = Values.createObject();
+
+        if (isContainmentMatch(attributeMetaPredicate.itemNamePredicate)) {
+            metaItem.put("name", attributeMetaPredicate.itemNamePredicate.value);
+        }
+        if (attributeMetaPredicate.itemValuePredicate instanceof BooleanPredicate) {
+            metaItem.put("value", ((BooleanPredicate) attributeMetaPredicate.itemValuePredicate).value);
+        }
+
+        if (!metaItem.hasKeys()) {
+            return "";
+        }
+
+        final int pos = binders.size() + 1;
+        binders.add(st -> st.setString(pos, Values.createArray().add(metaItem).toJson()));
+        return " and ASSET_META_ITEMS(A.ATTRIBUTES) @> cast(? as jsonb)";
+    }
+
+    /**
+     * Only exact, case sensitive and non negated string predicates can be expressed as JSON containment.
+     */
+    protected static boolean isContainmentMatch(StringPredicate predicate) {
+        return predicate != null
+            && predicate.value != null
+            && predicate.match == Match.EXACT
+            && predicate.caseSensitive
+            && !predicate.negate;
+    }
+
     protected String buildAttributeMetaFilter(List<ParameterBinder> binders, MetaPredicate...attributeMetaPredicates) {
         StringBuilder sb = new StringBuilder();
 
@@ -1611,9 +1885,9 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                     binders.add(st -> st.setString(pos, stringPredicate.prepareValue()));
                 } else if (attributeMetaPredicate.itemValuePredicate instanceof BooleanPredicate) {
                     BooleanPredicate booleanPredicate = (BooleanPredicate) attributeMetaPredicate.itemValuePredicate;
-                    sb.append(" and AM.VALUE #> '{value}' = to_jsonb(")
-                        .append(booleanPredicate.value)
-                        .append(")");
+                    sb.append(" and AM.VALUE #> '{value}' = to_jsonb(?)");
+                    final int pos = binders.size() + 1;
+                    binders.add(st -> st.setBoolean(pos, booleanPredicate.value));
                 } else if (attributeMetaPredicate.itemValuePredicate instanceof StringArrayPredicate) {
                     StringArrayPredicate stringArrayPredicate = (StringArrayPredicate) attributeMetaPredicate.itemValuePredicate;
                     for (int i = 0; i < stringArrayPredicate.predicates.length; i++) {
@@ -1666,9 +1940,9 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 BooleanPredicate booleanPredicate = (BooleanPredicate) attributePredicate.value;
                 attributeBuilder.append("AX")
                     .append(joinCounter)
-                    .append(".VALUE #> '{value}' = to_jsonb(")
-                    .append(booleanPredicate.value)
-                    .append(")");
+                    .append(".VALUE #> '{value}' = to_jsonb(?)");
+                final int pos = binders.size() + 1;
+                binders.add(st -> st.setBoolean(pos, booleanPredicate.value));
             } else if (attributePredicate.value instanceof StringArrayPredicate) {
                 StringArrayPredicate stringArrayPredicate = (StringArrayPredicate) attributePredicate.value;
                 for (int i = 0; i < stringArrayPredicate.predicates.length; i++) {
@@ -1761,20 +2035,23 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 if (arrayPredicate.lengthEquals != null) {
                     attributeBuilder.append("json_array_length(AX")
                         .append(joinCounter)
-                        .append(".VALUE) = ")
-                        .append(arrayPredicate.lengthEquals);
+                        .append(".VALUE) = ?");
+                    final int pos = binders.size() + 1;
+                    binders.add(st -> st.setInt(pos, arrayPredicate.lengthEquals));
                 }
                 if (arrayPredicate.lengthGreaterThan != null) {
                     attributeBuilder.append("json_array_length(AX")
                         .append(joinCounter)
-                        .append(".VALUE) > ")
-                        .append(arrayPredicate.lengthGreaterThan);
+                        .append(".VALUE) > ?");
+                    final int pos = binders.size() + 1;
+                    binders.add(st -> st.setInt(pos, arrayPredicate.lengthGreaterThan));
                 }
                 if (arrayPredicate.lengthLessThan != null) {
                     attributeBuilder.append("json_array_length(AX")
                         .append(joinCounter)
-                        .append(".VALUE) < ")
-                        .append(arrayPredicate.lengthLessThan);
+                        .append(".VALUE) < ?");
+                    final int pos = binders.size() + 1;
+                    binders.add(st -> st.setInt(pos, arrayPredicate.lengthLessThan));
                 }
                 if (arrayPredicate.negated) {
                     attributeBuilder.append(")");
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.concurrent;
+
+import org.openremote.agent.protocol.io.NettyTransport;
+import org.openremote.container.Container;
+import org.openremote.container.ContainerHealthStatusProvider;
+import org.openremote.container.ContainerService;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Value;
+import org.openremote.model.value.Values;
+
+/**
+ * Reports connection counts and per event loop load of the Netty event loop groups shared by protocol IO clients
+ * and servers along with the memory usage of the shared buffer allocator.
+ */
+public class IoEventLoopHealthStatusProvider implements ContainerHealthStatusProvider {
+
+    public static final String NAME = "ioEventLoops";
+    public static final String VERSION = "1.0";
+    protected ManagerExecutorService executorService;
+
+    @Override
+    public int getPriority() {
+        return ContainerService.DEFAULT_PRIORITY;
+    }
+
+    @Override
+    public void init(Container container) throws Exception {
+        executorService = container.getService(ManagerExecutorService.class);
+    }
+
+    @Override
+    public void start(Container container) throws Exception {
+
+    }
+
+    @Override
+    public void stop(Container container) throws Exception {
+
+    }
+
+    @Override
+    public String getHealthStatusName() {
+        return NAME;
+    }
+
+    @Override
+    public String getHealthStatusVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Value getHealthStatus() {
+        ObjectValue objectValue = Values.createObject();
+        objectValue.put("epoll", NettyTransport.isEpollAvailable());
+        objectValue.put("io", NettyTransport.getEventLoopGroupStatus(executorService.getIoEventLoopGroup()));
+        objectValue.put("blockingIo", NettyTransport.getEventLoopGroupStatus(executorService.getBlockingIoEventLoopGroup()));
+        objectValue.put("ioHandlers", NettyTransport.getEventLoopGroupStatus(executorService.getIoHandlerExecutorGroup()));
+        objectValue.put("allocator", NettyTransport.getAllocatorStatus());
+        return objectValue;
+    }
+}
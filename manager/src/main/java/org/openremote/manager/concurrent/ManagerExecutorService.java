@@ -19,16 +19,26 @@
  */
 package org.openremote.manager.concurrent;
 
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.oio.OioEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.openremote.agent.protocol.ProtocolExecutorService;
+import org.openremote.agent.protocol.io.NettyTransport;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
 import org.openremote.container.concurrent.ContainerScheduledExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
+import org.openremote.container.concurrent.ContainerThreads;
+import org.openremote.model.util.TextUtil;
+import org.openremote.model.value.ObjectValue;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
 
 import static org.openremote.container.util.MapAccess.getInteger;
+import static org.openremote.container.util.MapAccess.getString;
 
 public class ManagerExecutorService implements ProtocolExecutorService {
 
@@ -39,19 +49,55 @@ public class ManagerExecutorService implements ProtocolExecutorService {
      */
     public static final String SCHEDULED_TASKS_THREADS_MAX = "SCHEDULED_TASKS_THREADS_MAX";
     public static final int SCHEDULED_TASKS_THREADS_MAX_DEFAULT = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+
+    /**
+     * Threads of the Netty event loop group shared by all protocol IO clients and servers, each thread multiplexes
+     * the non-blocking IO of many connections.
+     */
+    public static final String IO_EVENT_LOOP_THREADS_MAX = "IO_EVENT_LOOP_THREADS_MAX";
+    public static final int IO_EVENT_LOOP_THREADS_MAX_DEFAULT = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+    /**
+     * Threads that run the inbound message handlers of protocol IO clients and servers, message processing may block
+     * so it is kept off the shared event loop threads.
+     */
+    public static final String IO_HANDLER_THREADS_MAX = "IO_HANDLER_THREADS_MAX";
+    public static final int IO_HANDLER_THREADS_MAX_DEFAULT = Math.max(Runtime.getRuntime().availableProcessors() * 2, 4);
+    /**
+     * Netty buffer leak detection level (DISABLED, SIMPLE, ADVANCED or PARANOID), Netty's default is used if not set
+     */
+    public static final String IO_BUFFER_LEAK_DETECTION = "IO_BUFFER_LEAK_DETECTION";
     public static final int PRIORITY = ContainerService.HIGH_PRIORITY + 200;
-    protected ScheduledExecutorService scheduledTasksExecutor;
+    protected ContainerScheduledExecutor scheduledTasksExecutor;
+    protected EventLoopGroup ioEventLoopGroup;
+    protected EventLoopGroup blockingIoEventLoopGroup;
+    protected EventExecutorGroup ioHandlerExecutorGroup;
 
     @Override
     public int getPriority() {
         return PRIORITY;
     }
 
+    @SuppressWarnings("deprecation")
     @Override
     public void init(Container container) throws Exception {
         int scheduledTasksThreadsMax =
             getInteger(container.getConfig(), SCHEDULED_TASKS_THREADS_MAX, SCHEDULED_TASKS_THREADS_MAX_DEFAULT);
         scheduledTasksExecutor = new ContainerScheduledExecutor("Scheduled task", scheduledTasksThreadsMax);
+
+        int ioEventLoopThreadsMax =
+            getInteger(container.getConfig(), IO_EVENT_LOOP_THREADS_MAX, IO_EVENT_LOOP_THREADS_MAX_DEFAULT);
+        String leakDetection = getString(container.getConfig(), IO_BUFFER_LEAK_DETECTION, null);
+        if (!TextUtil.isNullOrEmpty(leakDetection)) {
+            NettyTransport.setLeakDetectionLevel(leakDetection);
+        }
+
+        ioEventLoopGroup = NettyTransport.createEventLoopGroup(ioEventLoopThreadsMax, new ContainerThreadFactory("IO event loop"));
+        // Blocking transports need a thread per channel, threads are only created when channels are registered
+        blockingIoEventLoopGroup = new OioEventLoopGroup(0, new ContainerThreadFactory("Blocking IO event loop"));
+
+        int ioHandlerThreadsMax =
+            getInteger(container.getConfig(), IO_HANDLER_THREADS_MAX, IO_HANDLER_THREADS_MAX_DEFAULT);
+        ioHandlerExecutorGroup = new DefaultEventExecutorGroup(ioHandlerThreadsMax, new ContainerThreadFactory("IO handler"));
     }
 
     @Override
@@ -61,6 +107,28 @@ public class ManagerExecutorService implements ProtocolExecutorService {
     @Override
     public void stop(Container container) throws Exception {
         scheduledTasksExecutor.shutdownNow();
+        ioEventLoopGroup.shutdownGracefully();
+        blockingIoEventLoopGroup.shutdownGracefully();
+        ioHandlerExecutorGroup.shutdownGracefully();
+    }
+
+    public ObjectValue getScheduledTasksStatus() {
+        return ContainerThreads.getExecutorStatus(scheduledTasksExecutor);
+    }
+
+    @Override
+    public EventLoopGroup getIoEventLoopGroup() {
+        return ioEventLoopGroup;
+    }
+
+    @Override
+    public EventLoopGroup getBlockingIoEventLoopGroup() {
+        return blockingIoEventLoopGroup;
+    }
+
+    @Override
+    public EventExecutorGroup getIoHandlerExecutorGroup() {
+        return ioHandlerExecutorGroup;
     }
 
     @Override
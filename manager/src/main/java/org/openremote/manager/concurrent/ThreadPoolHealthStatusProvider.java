@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.concurrent;
+
+import org.openremote.container.Container;
+import org.openremote.container.ContainerHealthStatusProvider;
+import org.openremote.container.ContainerService;
+import org.openremote.container.concurrent.ContainerThreads;
+import org.openremote.container.message.MessageBrokerService;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Value;
+import org.openremote.model.value.Values;
+
+/**
+ * Reports the size and utilization of the messaging and scheduled task thread pools, and live thread counts by
+ * thread name to show which pools (e.g. blocking IO channels) hold most platform threads.
+ */
+public class ThreadPoolHealthStatusProvider implements ContainerHealthStatusProvider {
+
+    public static final String NAME = "threadPools";
+    public static final String VERSION = "1.0";
+    protected MessageBrokerService messageBrokerService;
+    protected ManagerExecutorService executorService;
+
+    @Override
+    public int getPriority() {
+        return ContainerService.DEFAULT_PRIORITY;
+    }
+
+    @Override
+    public void init(Container container) throws Exception {
+        messageBrokerService = container.getService(MessageBrokerService.class);
+        executorService = container.getService(ManagerExecutorService.class);
+    }
+
+    @Override
+    public void start(Container container) throws Exception {
+
+    }
+
+    @Override
+    public void stop(Container container) throws Exception {
+
+    }
+
+    @Override
+    public String getHealthStatusName() {
+        return NAME;
+    }
+
+    @Override
+    public String getHealthStatusVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Value getHealthStatus() {
+        ObjectValue objectValue = Values.createObject();
+        objectValue.put("scheduledTasks", executorService.getScheduledTasksStatus());
+        objectValue.put("messaging", messageBrokerService.getExecutorStatistics());
+        objectValue.put("threadsByName", ContainerThreads.getThreadCountsByName());
+        return objectValue;
+    }
+}
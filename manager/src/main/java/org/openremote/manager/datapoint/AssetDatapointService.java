@@ -39,6 +39,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
@@ -63,6 +64,10 @@ public class AssetDatapointService implements ContainerService, AssetUpdateProce
     public static final int DATA_POINTS_MAX_AGE_DAYS_DEFAULT = 31;
     private static final Logger LOG = Logger.getLogger(AssetDatapointService.class.getName());
     public static final int PRIORITY = AssetStorageService.PRIORITY + 100;
+    protected static final String UPSERT_DATAPOINT_SQL = "INSERT INTO asset_datapoint (entity_id, attribute_name, value, timestamp) \n" +
+        "VALUES (?, ?, ?, ?)\n" +
+        "ON CONFLICT (entity_id, attribute_name, timestamp) DO UPDATE \n" +
+        "  SET value = excluded.value";
     protected PersistenceService persistenceService;
     protected AssetStorageService assetStorageService;
     protected TimerService timerService;
@@ -128,29 +133,57 @@ public class AssetDatapointService implements ContainerService, AssetUpdateProce
 
             // Perform upsert on datapoint (datapoint isn't immutable then really and tied to postgresql but prevents entire attribute event from failing)
             LOG.finest("Storing datapoint for: " + attribute);
+            upsertValue(em, asset.getId(), attribute.name, attribute.getValue().orElse(null), attribute.getValueTimestamp().orElse(null));
+        }
+        return false;
+    }
 
-            PGobject pgJsonValue = new PGobject();
-            pgJsonValue.setType("jsonb");
-            try {
-                pgJsonValue.setValue(attribute.getValue().map(Value::toJson).orElse(null));
-            } catch (SQLException e) {
-                throw new AssetProcessingException(AssetProcessingException.Reason.STATE_STORAGE_FAILED, "Failed to insert or update asset data point for attribute: " + attribute);
+    /**
+     * Stores datapoints directly without going through asset processing, used for historical values (e.g. events
+     * replayed by an edge gateway after being disconnected) which would otherwise be rejected as outdated. The
+     * datapoints are upserted as one statement batch in a single transaction.
+     */
+    public void storeDatapoints(Collection<AssetDatapoint> datapoints) {
+        if (datapoints.isEmpty()) {
+            return;
+        }
+
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement st = connection.prepareStatement(UPSERT_DATAPOINT_SQL)) {
+                for (AssetDatapoint datapoint : datapoints) {
+                    PGobject pgJsonValue = new PGobject();
+                    pgJsonValue.setType("jsonb");
+                    pgJsonValue.setValue(datapoint.getValue() != null ? datapoint.getValue().toJson() : null);
+
+                    st.setString(1, datapoint.getEntityId());
+                    st.setString(2, datapoint.getAttributeName());
+                    st.setObject(3, pgJsonValue);
+                    st.setTimestamp(4, new java.sql.Timestamp(datapoint.getTimestamp()));
+                    st.addBatch();
+                }
+                st.executeBatch();
             }
+        }));
+    }
 
-            em.unwrap(Session.class).doWork(connection -> {
-                PreparedStatement st = connection.prepareStatement("INSERT INTO asset_datapoint (entity_id, attribute_name, value, timestamp) \n" +
-                    "VALUES (?, ?, ?, ?)\n" +
-                    "ON CONFLICT (entity_id, attribute_name, timestamp) DO UPDATE \n" +
-                    "  SET value = excluded.value");
-
-                st.setString(1, asset.getId());
-                st.setString(2, attribute.name);
-                st.setObject(3, pgJsonValue);
-                st.setTimestamp(4, attribute.getValueTimestamp().map(java.sql.Timestamp::new).orElse(null));
-                st.executeUpdate();
-            });
+    protected void upsertValue(EntityManager em, String assetId, String attributeName, Value value, Long timestamp) throws AssetProcessingException {
+        PGobject pgJsonValue = new PGobject();
+        pgJsonValue.setType("jsonb");
+        try {
+            pgJsonValue.setValue(value != null ? value.toJson() : null);
+        } catch (SQLException e) {
+            throw new AssetProcessingException(AssetProcessingException.Reason.STATE_STORAGE_FAILED, "Failed to insert or update asset data point for attribute: " + new AttributeRef(assetId, attributeName));
         }
-        return false;
+
+        em.unwrap(Session.class).doWork(connection -> {
+            PreparedStatement st = connection.prepareStatement(UPSERT_DATAPOINT_SQL);
+
+            st.setString(1, assetId);
+            st.setString(2, attributeName);
+            st.setObject(3, pgJsonValue);
+            st.setTimestamp(4, timestamp != null ? new java.sql.Timestamp(timestamp) : null);
+            st.executeUpdate();
+        });
     }
 
     public List<AssetDatapoint> getDatapoints(AttributeRef attributeRef) {
@@ -293,7 +326,8 @@ public class AssetDatapointService implements ContainerService, AssetUpdateProce
                                 "and " +
                                 "TIMESTAMP <= to_timestamp(?) " +
                                 "and " +
-                                "ENTITY_ID = ? and ATTRIBUTE_NAME = ? "
+                                "ENTITY_ID = ? and ATTRIBUTE_NAME = ? " +
+                                "order by X asc"
                             );
                         }
 
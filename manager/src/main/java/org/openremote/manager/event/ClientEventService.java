@@ -19,6 +19,7 @@
  */
 package org.openremote.manager.event;
 
+import org.apache.camel.CamelExecutionException;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 import org.keycloak.representations.idm.ClientRepresentation;
@@ -49,6 +50,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.apache.camel.builder.PredicateBuilder.or;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.container.web.ConnectionConstants.SESSION;
 import static org.openremote.agent.protocol.ProtocolClientEventService.getSessionKey;
 import static org.openremote.model.Constants.KEYCLOAK_CLIENT_ID;
@@ -120,7 +122,11 @@ public class ClientEventService implements ProtocolClientEventService {
     // TODO: Some of these options should be configurable depending on expected load etc.
     public static final String CLIENT_EVENT_TOPIC = "seda://ClientEventTopic?multipleConsumers=true&concurrentConsumers=1&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&limitConcurrentConsumers=false&size=1000";
 
-    public static final String CLIENT_EVENT_QUEUE = "seda://ClientEventQueue?multipleConsumers=false&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&size=25000";
+    public static final String CLIENT_EVENT_QUEUE_SIZE = "CLIENT_EVENT_QUEUE_SIZE";
+    public static final int CLIENT_EVENT_QUEUE_SIZE_DEFAULT = 25000;
+    public static final String CLIENT_EVENT_QUEUE_FACTORY = "ClientEventQueueFactory";
+
+    public static final String CLIENT_EVENT_QUEUE = "seda://ClientEventQueue?multipleConsumers=false&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&queueFactory=#" + CLIENT_EVENT_QUEUE_FACTORY;
 
     final protected Collection<EventSubscriptionAuthorizer> eventSubscriptionAuthorizers = new CopyOnWriteArraySet<>();
     final protected Collection<Consumer<Exchange>> exchangeInterceptors = new CopyOnWriteArraySet<>();
@@ -149,6 +155,13 @@ public class ClientEventService implements ProtocolClientEventService {
             container.getService(TimerService.class)
         );
 
+        // Session open/close and events must stay in order so this is a plain bounded FIFO queue
+        messageBrokerService.registerQueue(
+            CLIENT_EVENT_QUEUE_FACTORY,
+            getInteger(container.getConfig(), CLIENT_EVENT_QUEUE_SIZE, CLIENT_EVENT_QUEUE_SIZE_DEFAULT),
+            null
+        );
+
         messageBrokerService.getContext().getTypeConverterRegistry().addTypeConverters(
             new EventTypeConverters()
         );
@@ -400,8 +413,13 @@ public class ClientEventService implements ProtocolClientEventService {
             if (!(event instanceof SyslogEvent)) {
                 LOG.fine("Publishing: " + event);
             }
-            messageBrokerService.getProducerTemplate()
-                .sendBodyAndHeader(CLIENT_EVENT_QUEUE, event, HEADER_ACCESS_RESTRICTED, accessRestricted);
+            try {
+                messageBrokerService.getProducerTemplate()
+                    .sendBodyAndHeader(CLIENT_EVENT_QUEUE, event, HEADER_ACCESS_RESTRICTED, accessRestricted);
+            } catch (CamelExecutionException ex) {
+                // Queue is full, clients will miss this event, rejections are counted by the queue
+                LOG.fine("Failed to publish event: " + event + ": " + ex.getMessage());
+            }
         }
     }
 
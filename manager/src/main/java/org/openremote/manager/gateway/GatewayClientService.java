@@ -31,6 +31,7 @@ import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.persistence.PersistenceEvent;
 import org.openremote.container.persistence.PersistenceService;
 import org.openremote.container.timer.TimerService;
+import org.openremote.container.util.UniqueIdentifierGenerator;
 import org.openremote.manager.asset.AssetProcessingService;
 import org.openremote.manager.asset.AssetStorageService;
 import org.openremote.manager.concurrent.ManagerExecutorService;
@@ -47,27 +48,64 @@ import org.openremote.model.event.shared.TenantFilter;
 import org.openremote.model.gateway.GatewayConnection;
 import org.openremote.model.gateway.GatewayConnectionStatusEvent;
 import org.openremote.model.gateway.GatewayDisconnectEvent;
+import org.openremote.model.gateway.GatewayEventBatch;
+import org.openremote.model.gateway.GatewayReplayAckEvent;
 import org.openremote.model.query.AssetQuery;
 import org.openremote.model.query.filter.TenantPredicate;
 import org.openremote.model.syslog.SyslogCategory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static org.openremote.container.persistence.PersistenceEvent.PERSISTENCE_TOPIC;
 import static org.openremote.container.persistence.PersistenceEvent.isPersistenceEventForEntityType;
+import static org.openremote.container.util.MapAccess.getInteger;
+import static org.openremote.container.util.MapAccess.getString;
 import static org.openremote.model.syslog.SyslogCategory.GATEWAY;
 
 /**
- * Handles outbound connections to central managers
+ * Handles outbound connections to central managers.
+ * <p>
+ * Asset and attribute events of the local realm are sent to the central manager as they occur. Batching is opt-in as
+ * older central managers don't understand {@link GatewayEventBatch}: when {@link #GATEWAY_EVENT_BATCH_MILLIS} is set,
+ * events are collected for up to that time (or until {@link #GATEWAY_EVENT_BATCH_SIZE} events are pending) and then
+ * sent as a single batch in which only the latest {@link AttributeEvent} of each attribute is kept.
+ * <p>
+ * When {@link #GATEWAY_OUTBOX_SIZE_MB} is set (the central manager has to support replay batches), attribute events
+ * are written to a {@link GatewayOutbox} per realm in {@link #GATEWAY_OUTBOX_PATH} whilst the central manager can't
+ * be reached; once reconnected they are replayed in order at up to {@link #GATEWAY_OUTBOX_REPLAY_RATE} events per
+ * second so the central manager can store their datapoints. Replayed events only add to the history of the central
+ * manager, its current values come from the sync on reconnect and from events sent live alongside the replay. Events
+ * are only removed from the outbox once the central manager has confirmed them, events older than
+ * {@link #GATEWAY_OUTBOX_RETENTION_HOURS} are discarded.
  */
 public class GatewayClientService extends RouteBuilder implements ContainerService {
 
     public static final int PRIORITY = ManagerWebService.PRIORITY - 300;
     private static final Logger LOG = SyslogCategory.getLogger(GATEWAY, GatewayClientService.class.getName());
     public static final String CLIENT_EVENT_SESSION_PREFIX = GatewayClientService.class.getSimpleName() + ":";
+    public static final String GATEWAY_EVENT_BATCH_MILLIS = "GATEWAY_EVENT_BATCH_MILLIS";
+    public static final int GATEWAY_EVENT_BATCH_MILLIS_DEFAULT = 0;
+    public static final String GATEWAY_EVENT_BATCH_SIZE = "GATEWAY_EVENT_BATCH_SIZE";
+    public static final int GATEWAY_EVENT_BATCH_SIZE_DEFAULT = 500;
+    public static final String GATEWAY_OUTBOX_PATH = "GATEWAY_OUTBOX_PATH";
+    public static final String GATEWAY_OUTBOX_PATH_DEFAULT = "deployment/gateway/outbox";
+    public static final String GATEWAY_OUTBOX_SIZE_MB = "GATEWAY_OUTBOX_SIZE_MB";
+    public static final int GATEWAY_OUTBOX_SIZE_MB_DEFAULT = 0;
+    public static final String GATEWAY_OUTBOX_RETENTION_HOURS = "GATEWAY_OUTBOX_RETENTION_HOURS";
+    public static final int GATEWAY_OUTBOX_RETENTION_HOURS_DEFAULT = 24;
+    public static final String GATEWAY_OUTBOX_REPLAY_RATE = "GATEWAY_OUTBOX_REPLAY_RATE";
+    public static final int GATEWAY_OUTBOX_REPLAY_RATE_DEFAULT = 500;
+    protected static final long OUTBOX_REPLAY_INTERVAL_MILLIS = 1000;
+    protected static final long OUTBOX_REPLAY_TIMEOUT_MILLIS = 30000;
+    protected static final String OUTBOX_REPLAY_MESSAGE_ID_PREFIX = "REPLAY_";
     protected AssetStorageService assetStorageService;
     protected AssetProcessingService assetProcessingService;
     protected PersistenceService persistenceService;
@@ -77,6 +115,38 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
     protected ManagerIdentityService identityService;
     protected final Map<String, GatewayConnection> connectionRealmMap = new HashMap<>();
     protected final Map<String, WebsocketIoClient<String>> clientRealmMap = new HashMap<>();
+    protected final Map<String, PendingEvents> pendingEventsRealmMap = new HashMap<>();
+    protected final Map<String, GatewayOutbox> outboxRealmMap = new HashMap<>();
+    protected final Map<String, ScheduledFuture<?>> outboxReplayRealmMap = new HashMap<>();
+    protected final Map<String, PendingReplay> outboxReplayPendingRealmMap = new HashMap<>();
+    protected int eventBatchMillis;
+    protected int eventBatchSize;
+    protected Path outboxPath;
+    protected int outboxSize;
+    protected long outboxRetentionMillis;
+    protected int outboxReplayRate;
+
+    /**
+     * Events waiting to be sent to the central manager of a realm, in order; an {@link AttributeEvent} replaces any
+     * pending event of the same attribute and moves to the end of the queue.
+     */
+    protected static class PendingEvents {
+        protected final LinkedHashMap<Object, SharedEvent> events = new LinkedHashMap<>();
+        protected ScheduledFuture<?> flushFuture;
+    }
+
+    /**
+     * A replay batch sent to the central manager of a realm that hasn't been confirmed yet.
+     */
+    protected static class PendingReplay {
+        protected final String messageId;
+        protected final long sentMillis;
+
+        protected PendingReplay(String messageId, long sentMillis) {
+            this.messageId = messageId;
+            this.sentMillis = sentMillis;
+        }
+    }
 
     @Override
     public int getPriority() {
@@ -92,6 +162,12 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
         timerService = container.getService(TimerService.class);
         executorService = container.getService(ManagerExecutorService.class);
         identityService = container.getService(ManagerIdentityService.class);
+        eventBatchMillis = Math.max(0, getInteger(container.getConfig(), GATEWAY_EVENT_BATCH_MILLIS, GATEWAY_EVENT_BATCH_MILLIS_DEFAULT));
+        eventBatchSize = Math.max(1, getInteger(container.getConfig(), GATEWAY_EVENT_BATCH_SIZE, GATEWAY_EVENT_BATCH_SIZE_DEFAULT));
+        outboxPath = Paths.get(getString(container.getConfig(), GATEWAY_OUTBOX_PATH, GATEWAY_OUTBOX_PATH_DEFAULT));
+        outboxSize = Math.max(0, getInteger(container.getConfig(), GATEWAY_OUTBOX_SIZE_MB, GATEWAY_OUTBOX_SIZE_MB_DEFAULT)) * 1024 * 1024;
+        outboxRetentionMillis = Math.max(0, getInteger(container.getConfig(), GATEWAY_OUTBOX_RETENTION_HOURS, GATEWAY_OUTBOX_RETENTION_HOURS_DEFAULT)) * 3600000L;
+        outboxReplayRate = Math.max(1, getInteger(container.getConfig(), GATEWAY_OUTBOX_REPLAY_RATE, GATEWAY_OUTBOX_REPLAY_RATE_DEFAULT));
 
         container.getService(ManagerWebService.class).getApiSingletons().add(
             new GatewayClientResourceImpl(timerService, identityService, this)
@@ -181,6 +257,7 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
                     if (client != null) {
                         destroyGatewayClient(connection, client);
                     }
+                    deleteOutbox(connection.getLocalRealm());
                     break;
             }
         }
@@ -226,20 +303,22 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
 
             client.addMessageConsumer(message -> onCentralManagerMessage(connection, message));
 
+            if (outboxSize > 0) {
+                openOutbox(connection.getLocalRealm());
+            }
+
             // Subscribe to Asset and attribute events of local realm and pass through to connected manager
             clientEventService.addInternalSubscription(
                 getClientSessionKey(connection)+"Asset",
                 AssetEvent.class,
                 new AssetFilter<AssetEvent>().setRealm(connection.getLocalRealm()),
-                assetEvent ->
-                    sendCentralManagerMessage(connection.getLocalRealm(), messageToString(SharedEvent.MESSAGE_PREFIX, assetEvent)));
+                assetEvent -> queueCentralManagerEvent(connection.getLocalRealm(), new Object(), assetEvent));
 
             clientEventService.addInternalSubscription(
                 getClientSessionKey(connection)+"Attribute",
                 AttributeEvent.class,
                 new AssetFilter<AttributeEvent>().setRealm(connection.getLocalRealm()),
-                attributeEvent ->
-                    sendCentralManagerMessage(connection.getLocalRealm(), messageToString(SharedEvent.MESSAGE_PREFIX, attributeEvent)));
+                attributeEvent -> onLocalAttributeEvent(connection.getLocalRealm(), attributeEvent));
 
             client.connect();
             return client;
@@ -269,11 +348,24 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
         if (connection != null) {
             clientEventService.cancelInternalSubscription(getClientSessionKey(connection)+"Asset");
             clientEventService.cancelInternalSubscription(getClientSessionKey(connection)+"Attribute");
+
+            synchronized (pendingEventsRealmMap) {
+                PendingEvents pendingEvents = pendingEventsRealmMap.remove(connection.getLocalRealm());
+                if (pendingEvents != null && pendingEvents.flushFuture != null) {
+                    pendingEvents.flushFuture.cancel(false);
+                }
+            }
+
+            closeOutbox(connection.getLocalRealm());
         }
     }
 
     protected void onGatewayClientConnectionStatusChanged(GatewayConnection connection, ConnectionStatus connectionStatus) {
         LOG.info("Connection status change for gateway IO client '" + connectionStatus + "': " + connection);
+        if (connectionStatus != ConnectionStatus.CONNECTED) {
+            // A replay batch in flight may not have reached the central manager
+            resetOutboxReplay(connection.getLocalRealm());
+        }
         clientEventService.publishEvent(new GatewayConnectionStatusEvent(timerService.getCurrentTimeMillis(), connection.getLocalRealm(), connectionStatus));
     }
 
@@ -301,6 +393,8 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
                     destroyGatewayClient(connection, clientRealmMap.get(connection.getLocalRealm()));
                     clientRealmMap.put(connection.getLocalRealm(), null);
                 }
+            } else if (event instanceof GatewayReplayAckEvent) {
+                onOutboxReplayAcknowledged(connection.getLocalRealm(), messageId);
             } else if (event instanceof AttributeEvent) {
                 assetProcessingService.sendAttributeEvent((AttributeEvent)event, AttributeEvent.Source.INTERNAL);
             } else if (event instanceof AssetEvent) {
@@ -365,6 +459,277 @@ public class GatewayClientService extends RouteBuilder implements ContainerServi
         }
     }
 
+    protected void onLocalAttributeEvent(String realm, AttributeEvent attributeEvent) {
+        GatewayOutbox outbox = getOutbox(realm);
+
+        // Events sent whilst the outbox is replayed still go live, the central manager only stores replayed datapoints
+        if (outbox != null && !isClientConnected(realm)) {
+            appendToOutbox(outbox, attributeEvent);
+            return;
+        }
+
+        queueCentralManagerEvent(realm, attributeEvent.getAttributeRef(), attributeEvent);
+    }
+
+    /**
+     * Queues an event for the central manager of the realm, events with the same key are coalesced; sends immediately
+     * if batching is disabled.
+     */
+    protected void queueCentralManagerEvent(String realm, Object key, SharedEvent event) {
+        if (eventBatchMillis == 0) {
+            sendCentralManagerMessage(realm, messageToString(SharedEvent.MESSAGE_PREFIX, event));
+            return;
+        }
+
+        boolean flush;
+
+        synchronized (pendingEventsRealmMap) {
+            PendingEvents pendingEvents = pendingEventsRealmMap.computeIfAbsent(realm, r -> new PendingEvents());
+            pendingEvents.events.remove(key);
+            pendingEvents.events.put(key, event);
+            flush = pendingEvents.events.size() >= eventBatchSize;
+
+            if (!flush && pendingEvents.flushFuture == null) {
+                pendingEvents.flushFuture = executorService.schedule(() -> flushCentralManagerEvents(realm), eventBatchMillis);
+            }
+        }
+
+        if (flush) {
+            flushCentralManagerEvents(realm);
+        }
+    }
+
+    protected void flushCentralManagerEvents(String realm) {
+        PendingEvents pendingEvents;
+
+        synchronized (pendingEventsRealmMap) {
+            pendingEvents = pendingEventsRealmMap.get(realm);
+        }
+
+        if (pendingEvents == null) {
+            return;
+        }
+
+        // Hold the realm's pending events while sending so concurrent flushes can't reorder batches
+        synchronized (pendingEvents) {
+            List<SharedEvent> events;
+
+            synchronized (pendingEventsRealmMap) {
+                if (pendingEvents.flushFuture != null) {
+                    pendingEvents.flushFuture.cancel(false);
+                    pendingEvents.flushFuture = null;
+                }
+                if (pendingEvents.events.isEmpty()) {
+                    return;
+                }
+                events = new ArrayList<>(pendingEvents.events.values());
+                pendingEvents.events.clear();
+            }
+
+            if (!isClientConnected(realm)) {
+                GatewayOutbox outbox = getOutbox(realm);
+                if (outbox != null) {
+                    events.stream()
+                        .filter(event -> event instanceof AttributeEvent)
+                        .forEach(event -> appendToOutbox(outbox, event));
+                }
+                return;
+            }
+
+            // A single event is sent as is to avoid the wrapping overhead
+            SharedEvent event = events.size() == 1 ? events.get(0) : new GatewayEventBatch(events);
+            sendCentralManagerMessage(realm, messageToString(SharedEvent.MESSAGE_PREFIX, event));
+        }
+    }
+
+    protected boolean isClientConnected(String realm) {
+        WebsocketIoClient<String> client;
+
+        synchronized (clientRealmMap) {
+            client = clientRealmMap.get(realm);
+        }
+
+        return client != null && client.getConnectionStatus() == ConnectionStatus.CONNECTED;
+    }
+
+    protected GatewayOutbox getOutbox(String realm) {
+        synchronized (outboxRealmMap) {
+            return outboxRealmMap.get(realm);
+        }
+    }
+
+    protected Path getOutboxFile(String realm) {
+        return outboxPath.resolve(realm + ".outbox");
+    }
+
+    protected void openOutbox(String realm) {
+        closeOutbox(realm);
+
+        try {
+            GatewayOutbox outbox = new GatewayOutbox(getOutboxFile(realm), outboxSize);
+            synchronized (outboxRealmMap) {
+                outboxRealmMap.put(realm, outbox);
+                outboxReplayRealmMap.put(
+                    realm,
+                    executorService.scheduleWithFixedDelay(() -> replayOutbox(realm), OUTBOX_REPLAY_INTERVAL_MILLIS, OUTBOX_REPLAY_INTERVAL_MILLIS)
+                );
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to open gateway outbox so events will be dropped whilst disconnected: Realm=" + realm, e);
+        }
+    }
+
+    protected void closeOutbox(String realm) {
+        GatewayOutbox outbox;
+
+        synchronized (outboxRealmMap) {
+            outbox = outboxRealmMap.remove(realm);
+            ScheduledFuture<?> replayFuture = outboxReplayRealmMap.remove(realm);
+            if (replayFuture != null) {
+                replayFuture.cancel(false);
+            }
+        }
+
+        synchronized (outboxReplayPendingRealmMap) {
+            outboxReplayPendingRealmMap.remove(realm);
+        }
+
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to close gateway outbox: " + outbox, e);
+            }
+        }
+    }
+
+    protected void deleteOutbox(String realm) {
+        closeOutbox(realm);
+
+        try {
+            Files.deleteIfExists(getOutboxFile(realm));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to delete gateway outbox: Realm=" + realm, e);
+        }
+    }
+
+    protected void appendToOutbox(GatewayOutbox outbox, SharedEvent event) {
+        try {
+            if (!outbox.append(event.getTimestamp(), Container.JSON.writeValueAsBytes(event))) {
+                LOG.fine("Event too large for gateway outbox so dropping: " + event);
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to write event to gateway outbox: " + outbox, e);
+        }
+    }
+
+    /**
+     * Sends the next events from the outbox of the realm to the central manager as a replay batch of up to
+     * {@link #outboxReplayRate} events, at most one per {@link #OUTBOX_REPLAY_INTERVAL_MILLIS}. The events are only
+     * removed from the outbox once the central manager confirms the batch, until then no further batch is sent; an
+     * unconfirmed batch is sent again after {@link #OUTBOX_REPLAY_TIMEOUT_MILLIS}.
+     */
+    protected void replayOutbox(String realm) {
+        GatewayOutbox outbox = getOutbox(realm);
+
+        if (outbox == null) {
+            return;
+        }
+
+        outbox.sync();
+
+        if (outbox.isEmpty() || !isClientConnected(realm)) {
+            return;
+        }
+
+        synchronized (outboxReplayPendingRealmMap) {
+            PendingReplay pendingReplay = outboxReplayPendingRealmMap.get(realm);
+
+            if (pendingReplay != null) {
+                if (timerService.getCurrentTimeMillis() - pendingReplay.sentMillis < OUTBOX_REPLAY_TIMEOUT_MILLIS) {
+                    return;
+                }
+                LOG.info("Replayed events not confirmed by central manager so sending them again: " + outbox);
+                outboxReplayPendingRealmMap.remove(realm);
+                outbox.reset();
+            }
+        }
+
+        long minTimestamp = timerService.getCurrentTimeMillis() - outboxRetentionMillis;
+
+        try {
+            List<byte[]> records = outbox.peek(outboxReplayRate, minTimestamp);
+
+            List<SharedEvent> events = new ArrayList<>(records.size());
+            for (byte[] record : records) {
+                try {
+                    events.add(Container.JSON.readValue(record, SharedEvent.class));
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to read event from gateway outbox so skipping it: " + outbox, e);
+                }
+            }
+
+            if (events.isEmpty()) {
+                // Discard any expired or unreadable records that were skipped
+                outbox.acknowledge();
+                return;
+            }
+
+            String messageId = OUTBOX_REPLAY_MESSAGE_ID_PREFIX + UniqueIdentifierGenerator.generateId();
+
+            synchronized (outboxReplayPendingRealmMap) {
+                outboxReplayPendingRealmMap.put(realm, new PendingReplay(messageId, timerService.getCurrentTimeMillis()));
+            }
+
+            sendCentralManagerMessage(
+                realm,
+                messageToString(
+                    EventRequestResponseWrapper.MESSAGE_PREFIX,
+                    new EventRequestResponseWrapper<>(messageId, new GatewayEventBatch(events, true))
+                ));
+
+            LOG.fine("Replayed " + events.size() + " event(s) from gateway outbox: " + outbox);
+        } catch (Exception e) {
+            resetOutboxReplay(realm);
+            LOG.log(Level.WARNING, "Failed to replay gateway outbox: " + outbox, e);
+        }
+    }
+
+    /**
+     * Removes the events of the replay batch in flight from the outbox once confirmed by the central manager.
+     */
+    protected void onOutboxReplayAcknowledged(String realm, String messageId) {
+        GatewayOutbox outbox = getOutbox(realm);
+
+        synchronized (outboxReplayPendingRealmMap) {
+            PendingReplay pendingReplay = outboxReplayPendingRealmMap.get(realm);
+
+            if (pendingReplay == null || !pendingReplay.messageId.equals(messageId)) {
+                LOG.fine("Ignoring confirmation of unknown replay batch: Realm=" + realm + ", Message ID=" + messageId);
+                return;
+            }
+
+            outboxReplayPendingRealmMap.remove(realm);
+            if (outbox != null) {
+                outbox.acknowledge();
+            }
+        }
+    }
+
+    /**
+     * Forgets any replay batch in flight so its events are sent again.
+     */
+    protected void resetOutboxReplay(String realm) {
+        GatewayOutbox outbox = getOutbox(realm);
+
+        synchronized (outboxReplayPendingRealmMap) {
+            outboxReplayPendingRealmMap.remove(realm);
+            if (outbox != null) {
+                outbox.reset();
+            }
+        }
+    }
+
     protected String getClientSessionKey(GatewayConnection connection) {
         return CLIENT_EVENT_SESSION_PREFIX + connection.getLocalRealm();
     }
@@ -23,12 +23,16 @@ import org.openremote.container.util.UniqueIdentifierGenerator;
 import org.openremote.manager.asset.AssetProcessingService;
 import org.openremote.manager.asset.AssetStorageService;
 import org.openremote.manager.concurrent.ManagerExecutorService;
+import org.openremote.manager.datapoint.AssetDatapointService;
 import org.openremote.model.asset.*;
 import org.openremote.model.asset.agent.ConnectionStatus;
 import org.openremote.model.attribute.AttributeEvent;
+import org.openremote.model.datapoint.AssetDatapoint;
 import org.openremote.model.event.shared.EventRequestResponseWrapper;
 import org.openremote.model.event.shared.SharedEvent;
 import org.openremote.model.gateway.GatewayDisconnectEvent;
+import org.openremote.model.gateway.GatewayEventBatch;
+import org.openremote.model.gateway.GatewayReplayAckEvent;
 import org.openremote.model.query.AssetQuery;
 import org.openremote.model.syslog.SyslogCategory;
 import org.openremote.model.util.Pair;
@@ -60,6 +64,7 @@ public class GatewayConnector {
     public static long ASSET_CRUD_TIMEOUT_MILLIS = 10000; // How long to wait for a response when merging an asset before throwing an exception
     public static int MAX_SYNC_RETRIES = 5;
     public static int SYNC_ASSET_BATCH_SIZE = 20;
+    public static int SYNC_ASSET_BATCH_WINDOW = 4; // How many asset batch requests can be outstanding during sync
     public static final String ASSET_READ_EVENT_NAME_INITIAL = "INITIAL";
     public static final String ASSET_READ_EVENT_NAME_BATCH = "BATCH";
     protected static final Map<String, Pair<Function<String, String>, Function<String, String>>> ASSET_ID_MAPPERS = new HashMap<>();
@@ -68,20 +73,64 @@ public class GatewayConnector {
     protected final AssetStorageService assetStorageService;
     protected final ManagerExecutorService executorService;
     protected final AssetProcessingService assetProcessingService;
+    protected final AssetDatapointService assetDatapointService;
     protected final Map<String, Asset> pendingAssetMerges = new HashMap<>();
     protected final AtomicReference<EventRequestResponseWrapper<DeleteAssetsRequestEvent>> pendingAssetDelete = new AtomicReference<>();
     protected List<AssetEvent> cachedAssetEvents;
     protected List<AttributeEvent> cachedAttributeEvents;
+    protected final Map<String, Asset> cachedLatestAssets = new HashMap<>();
+    protected final Set<String> cachedDeletedAssetIds = new HashSet<>();
+    protected final Map<String, SyncedAssetState> syncedAssetStates = new HashMap<>();
+    protected final Map<Integer, List<Asset>> syncBatchResponses = new HashMap<>();
+    protected final Set<String> syncSavedAssetIds = new HashSet<>();
     protected Consumer<Object> gatewayMessageConsumer;
     protected Runnable disconnectRunnable;
     protected boolean disabled;
     protected boolean initialSyncInProgress;
     protected ScheduledFuture<?> syncProcessorFuture;
     List<String> syncAssetIds;
-    int syncIndex;
+    List<List<String>> syncBatches;
+    int syncChangedAssetCount;
+    int syncBatchesSent;
+    int syncBatchesApplied;
     int syncErrors;
     Asset gateway;
-    String expectedSyncResponseName;
+
+    /**
+     * The version and attribute value timestamps of a gateway asset when it was last synchronised; used to work out
+     * which gateway assets have changed when the gateway reconnects.
+     */
+    protected static class SyncedAssetState {
+        protected final long version;
+        protected final Map<String, Long> attributeTimestamps = new HashMap<>();
+
+        protected SyncedAssetState(Asset asset) {
+            version = asset.getVersion();
+            asset.getAttributesStream().forEach(attribute ->
+                attribute.getName().ifPresent(name -> attributeTimestamps.put(name, attribute.getValueTimestamp().orElse(0L)))
+            );
+        }
+
+        protected boolean matches(Asset asset) {
+            if (asset.getVersion() != version) {
+                return false;
+            }
+
+            List<AssetAttribute> attributes = asset.getAttributesList();
+            return attributes.size() == attributeTimestamps.size()
+                && attributes.stream().allMatch(attribute ->
+                    attribute.getName().map(name -> Objects.equals(attributeTimestamps.get(name), attribute.getValueTimestamp().orElse(0L))).orElse(false)
+                );
+        }
+
+        /**
+         * Returns false if the attribute isn't known, in which case the state is out of date; the timestamp is never
+         * moved backwards.
+         */
+        protected boolean updateAttributeTimestamp(String name, long timestamp) {
+            return attributeTimestamps.computeIfPresent(name, (attributeName, current) -> Math.max(current, timestamp)) != null;
+        }
+    }
 
     protected static List<Integer> ALPHA_NUMERIC_CHARACTERS = new ArrayList<>(62);
 
@@ -124,11 +173,13 @@ public class GatewayConnector {
     public GatewayConnector(
         AssetStorageService assetStorageService,
         AssetProcessingService assetProcessingService,
+        AssetDatapointService assetDatapointService,
         ManagerExecutorService executorService,
         Asset gateway) {
 
         this.assetStorageService = assetStorageService;
         this.assetProcessingService = assetProcessingService;
+        this.assetDatapointService = assetDatapointService;
         this.executorService = executorService;
         boolean disabled = gateway.getAttribute("disabled").flatMap(AssetAttribute::getValueAsBoolean).orElse(false);
         this.realm = gateway.getRealm();
@@ -165,8 +216,15 @@ public class GatewayConnector {
         syncProcessorFuture = null;
         cachedAssetEvents = new ArrayList<>();
         cachedAttributeEvents = new ArrayList<>();
+        cachedLatestAssets.clear();
+        cachedDeletedAssetIds.clear();
+        syncBatchResponses.clear();
+        syncSavedAssetIds.clear();
         syncAssetIds = null;
-        syncIndex = 0;
+        syncBatches = null;
+        syncChangedAssetCount = 0;
+        syncBatchesSent = 0;
+        syncBatchesApplied = 0;
         syncErrors = 0;
 
         startSync();
@@ -241,27 +299,66 @@ public class GatewayConnector {
             return;
         }
 
+        if (e instanceof GatewayEventBatch) {
+            GatewayEventBatch batch = (GatewayEventBatch) e;
+            if (batch.getEvents() != null) {
+                if (batch.isReplay()) {
+                    // Replayed events are history, the current state comes from the sync and live events
+                    onReplayedEvents(messageId, batch.getEvents());
+                } else {
+                    batch.getEvents().forEach(event -> onGatewayEvent(messageId, event));
+                }
+            }
+            return;
+        }
+
         if (initialSyncInProgress) {
             if (e instanceof AssetsEvent) {
                 onSyncAssetsResponse(messageId, (AssetsEvent) e);
             } else if (e instanceof AttributeEvent) {
                 cachedAttributeEvents.add((AttributeEvent) e);
             } else if (e instanceof AssetEvent) {
-                cachedAssetEvents.add((AssetEvent) e);
+                cacheAssetEvent((AssetEvent) e);
             }
         } else {
             if (e instanceof AssetEvent) {
+                // Asset events don't necessarily carry the complete asset so it will need checking on next sync
+                syncedAssetStates.remove(((AssetEvent) e).getEntityId());
                 onAssetEvent((AssetEvent) e);
             } else if (e instanceof AttributeEvent) {
-                onAttributeEvent((AttributeEvent) e);
+                AttributeEvent attributeEvent = (AttributeEvent) e;
+                SyncedAssetState state = syncedAssetStates.get(attributeEvent.getEntityId());
+                if (state != null && !state.updateAttributeTimestamp(attributeEvent.getAttributeName(), attributeEvent.getTimestamp())) {
+                    syncedAssetStates.remove(attributeEvent.getEntityId());
+                }
+                onAttributeEvent(attributeEvent);
             } else if (e instanceof DeleteAssetsResponseEvent) {
                 onAssetDeleteResponseEvent(messageId, (DeleteAssetsResponseEvent) e);
             }
         }
     }
 
+    protected void cacheAssetEvent(AssetEvent assetEvent) {
+        cachedAssetEvents.add(assetEvent);
+        String assetId = assetEvent.getEntityId();
+
+        switch (assetEvent.getCause()) {
+            case DELETE:
+                cachedDeletedAssetIds.add(assetId);
+                break;
+            case READ:
+            case UPDATE:
+                Asset cachedAsset = cachedLatestAssets.get(assetId);
+                if (cachedAsset == null || assetEvent.getAsset().getVersion() > cachedAsset.getVersion()) {
+                    cachedLatestAssets.put(assetId, assetEvent.getAsset());
+                }
+                break;
+        }
+    }
+
     /**
-     * Get list of gateway assets (get basic details and then batch load them to minimise load)
+     * Get list of gateway assets with their version and attribute value timestamps (but not values or meta) so only
+     * assets that have changed since they were last synchronised need to be loaded
      */
     synchronized protected void startSync() {
 
@@ -269,10 +366,16 @@ public class GatewayConnector {
             return;
         }
 
-        expectedSyncResponseName = ASSET_READ_EVENT_NAME_INITIAL;
         sendMessageToGateway(new EventRequestResponseWrapper<>(
             ASSET_READ_EVENT_NAME_INITIAL,
-            new ReadAssetsEvent(new AssetQuery().select(selectExcludeAll()).recursive(true))));
+            new ReadAssetsEvent(new AssetQuery()
+                .select(new AssetQuery.Select()
+                    .excludeAttributeMeta(true)
+                    .excludeAttributeType(true)
+                    .excludeAttributeValue(true)
+                    .excludePath(true)
+                    .excludeParentInfo(true))
+                .recursive(true))));
         syncProcessorFuture = executorService.schedule(this::onSyncAssetsTimeout, SYNC_TIMEOUT_MILLIS);
     }
 
@@ -295,7 +398,7 @@ public class GatewayConnector {
             // Haven't received initial list of assets so retry
             startSync();
         } else {
-            requestAssets();
+            requestAssets(true);
         }
     }
 
@@ -311,30 +414,63 @@ public class GatewayConnector {
     }
 
     /**
-     * Request assets in batches of {@link #SYNC_ASSET_BATCH_SIZE} to avoid overloading the gateway
+     * Request changed assets in batches of {@link #SYNC_ASSET_BATCH_SIZE} keeping up to
+     * {@link #SYNC_ASSET_BATCH_WINDOW} batches outstanding; if resending then outstanding batches that haven't been
+     * answered are requested again
      */
-    protected void requestAssets() {
+    protected void requestAssets(boolean resend) {
 
         if (syncAborted()) {
             return;
         }
 
-        String[] requestAssetIds = syncAssetIds.stream().skip(syncIndex).limit(SYNC_ASSET_BATCH_SIZE).toArray(String[]::new);
-        expectedSyncResponseName = ASSET_READ_EVENT_NAME_BATCH + syncIndex;
+        if (resend) {
+            for (int i = syncBatchesApplied; i < syncBatchesSent; i++) {
+                if (!syncBatchResponses.containsKey(i)) {
+                    requestAssetBatch(i);
+                }
+            }
+        }
+
+        while (syncBatchesSent < syncBatches.size() && syncBatchesSent - syncBatchesApplied < SYNC_ASSET_BATCH_WINDOW) {
+            requestAssetBatch(syncBatchesSent++);
+        }
+
+        if (syncProcessorFuture != null) {
+            syncProcessorFuture.cancel(false);
+        }
+        syncProcessorFuture = executorService.schedule(this::onSyncAssetsTimeout, SYNC_TIMEOUT_MILLIS);
+    }
 
-        LOG.fine("Synchronising gateway assets " + syncIndex+1 + "-" + syncIndex + requestAssetIds.length + " of " + syncAssetIds.size());
+    protected void requestAssetBatch(int batchIndex) {
+        List<String> requestAssetIds = syncBatches.get(batchIndex);
+        int offset = batchIndex * SYNC_ASSET_BATCH_SIZE;
+
+        LOG.fine("Synchronising gateway assets " + (offset + 1) + "-" + (offset + requestAssetIds.size()) + " of " + syncChangedAssetCount);
 
         sendMessageToGateway(
             new EventRequestResponseWrapper<>(
-                expectedSyncResponseName,
+                ASSET_READ_EVENT_NAME_BATCH + offset,
                 new ReadAssetsEvent(
                     new AssetQuery()
                         .select(new AssetQuery.Select().excludeParentInfo(true).excludePath(true))
-                        .ids(requestAssetIds)
+                        .ids(requestAssetIds.toArray(new String[0]))
                 )
             )
         );
-        syncProcessorFuture = executorService.schedule(this::requestAssets, SYNC_TIMEOUT_MILLIS);
+    }
+
+    protected Integer getAssetBatchIndex(String messageId) {
+        if (messageId == null || !messageId.toUpperCase(Locale.ROOT).startsWith(ASSET_READ_EVENT_NAME_BATCH)) {
+            return null;
+        }
+
+        try {
+            int offset = Integer.parseInt(messageId.substring(ASSET_READ_EVENT_NAME_BATCH.length()));
+            return offset % SYNC_ASSET_BATCH_SIZE == 0 ? offset / SYNC_ASSET_BATCH_SIZE : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     synchronized protected void onSyncAssetsResponse(String messageId, AssetsEvent e) {
@@ -342,148 +478,205 @@ public class GatewayConnector {
             return;
         }
 
-        if (!expectedSyncResponseName.equalsIgnoreCase(messageId)) {
-            LOG.info("Unexpected response from gateway so ignoring (expected=" + expectedSyncResponseName + ", actual =" + messageId + "): " + e);
+        if (ASSET_READ_EVENT_NAME_INITIAL.equalsIgnoreCase(messageId)) {
+            if (syncAssetIds != null) {
+                LOG.info("Unexpected initial assets response from gateway so ignoring: " + e);
+                return;
+            }
+
+            syncProcessorFuture.cancel(true);
+            syncProcessorFuture = null;
+            onSyncAssetList(e.getAssets() != null ? e.getAssets() : Collections.emptyList());
             return;
         }
 
-        syncProcessorFuture.cancel(true);
-        syncProcessorFuture = null;
-        boolean isInitialResponse = ASSET_READ_EVENT_NAME_INITIAL.equalsIgnoreCase(messageId);
-
-        if (isInitialResponse) {
+        Integer batchIndex = getAssetBatchIndex(messageId);
 
-            // Put assets in hierarchical order
-            Map<String, String> gatewayAssetIdParentIdMap = e.getAssets().stream()
-                .collect(HashMap::new, (m, v) -> m.put(v.getId(), v.getParentId()), HashMap::putAll);
+        if (syncBatches == null
+            || batchIndex == null
+            || batchIndex < syncBatchesApplied
+            || batchIndex >= syncBatchesSent
+            || syncBatchResponses.containsKey(batchIndex)) {
+            LOG.info("Unexpected response from gateway so ignoring (messageId=" + messageId + "): " + e);
+            return;
+        }
 
-            ToIntFunction<Asset> assetLevelExtractor = asset -> {
-                int level = 0;
-                String parentId = asset.getParentId();
-                while (parentId != null) {
-                    level++;
-                    parentId = gatewayAssetIdParentIdMap.get(parentId);
-                }
-                return level;
-            };
+        List<String> requestedAssetIds = syncBatches.get(batchIndex);
+        List<Asset> returnedAssets = e.getAssets() != null ? e.getAssets() : Collections.emptyList();
+        Set<String> returnedAssetIds = returnedAssets.stream().map(Asset::getId).collect(Collectors.toSet());
 
-            syncAssetIds = e.getAssets()
-                .stream()
-                .sorted(Comparator.comparingInt(assetLevelExtractor))
-                .map(Asset::getId)
-                .collect(Collectors.toList());
+        // Requested assets can only be missing if they have been deleted since requested
+        boolean mismatch = returnedAssetIds.size() != returnedAssets.size()
+            || !requestedAssetIds.containsAll(returnedAssetIds)
+            || requestedAssetIds.stream().anyMatch(id -> !returnedAssetIds.contains(id) && !cachedDeletedAssetIds.contains(id));
 
-            if (syncAssetIds.isEmpty()) {
-                deleteObsoleteLocalAssets();
-                onInitialSyncComplete();
-                return;
+        if (mismatch) {
+            LOG.warning("Retrieved gateway asset batch count or ID mismatch, attempting to re-send the request");
+            syncErrors++;
+            if (!syncAborted()) {
+                requestAssetBatch(batchIndex);
             }
+            return;
+        }
 
-            requestAssets();
+        syncBatchResponses.put(batchIndex, returnedAssets);
 
+        // Save batches in request order so parents are always saved before their children
+        while (syncBatchResponses.containsKey(syncBatchesApplied)) {
+            saveAssetBatch(syncBatches.get(syncBatchesApplied), syncBatchResponses.remove(syncBatchesApplied));
+            syncBatchesApplied++;
+        }
+
+        if (syncBatchesApplied >= syncBatches.size()) {
+            onSyncAssetsRetrieved();
         } else {
+            requestAssets(false);
+        }
+    }
 
-            List<String> requestedAssetIds = syncAssetIds.stream().skip(syncIndex).limit(SYNC_ASSET_BATCH_SIZE).collect(Collectors.toList());
-            List<Asset> returnedAssets = e.getAssets();
+    /**
+     * Put the gateway assets in hierarchical order and work out which of them have changed since the last sync
+     */
+    protected void onSyncAssetList(List<Asset> gatewayAssets) {
 
-            // Remove any assets that have been deleted since requested
-            cachedAssetEvents.removeIf(
-                assetEvent -> {
-                    boolean remove = requestedAssetIds.stream().anyMatch(id -> id.equals(assetEvent.getEntityId()) && assetEvent.getCause() == AssetEvent.Cause.DELETE);
-                    if (remove) {
-                        syncAssetIds.remove(assetEvent.getEntityId());
-                        requestedAssetIds.remove(assetEvent.getEntityId());
-                    }
-                    return remove;
-                });
+        Map<String, String> gatewayAssetIdParentIdMap = gatewayAssets.stream()
+            .collect(HashMap::new, (m, v) -> m.put(v.getId(), v.getParentId()), HashMap::putAll);
+
+        ToIntFunction<Asset> assetLevelExtractor = asset -> {
+            int level = 0;
+            String parentId = asset.getParentId();
+            while (parentId != null) {
+                level++;
+                parentId = gatewayAssetIdParentIdMap.get(parentId);
+            }
+            return level;
+        };
+
+        List<Asset> sortedAssets = gatewayAssets
+            .stream()
+            .sorted(Comparator.comparingInt(assetLevelExtractor))
+            .collect(Collectors.toList());
+
+        syncAssetIds = sortedAssets.stream().map(Asset::getId).collect(Collectors.toList());
+
+        Set<String> localAssetIds = getLocalAssets().stream()
+            .map(localAsset -> mapAssetId(gatewayId, localAsset.getId(), true))
+            .collect(Collectors.toSet());
+
+        List<String> changedAssetIds = sortedAssets.stream()
+            .filter(asset -> {
+                SyncedAssetState state = syncedAssetStates.get(asset.getId());
+                return !localAssetIds.contains(asset.getId()) || state == null || !state.matches(asset);
+            })
+            .map(Asset::getId)
+            .collect(Collectors.toList());
+
+        LOG.info("Gateway assets changed since last sync: Gateway ID=" + gatewayId + ", Changed=" + changedAssetIds.size() + ", Total=" + syncAssetIds.size());
+
+        syncChangedAssetCount = changedAssetIds.size();
+        syncBatches = new ArrayList<>();
+        for (int i = 0; i < changedAssetIds.size(); i += SYNC_ASSET_BATCH_SIZE) {
+            syncBatches.add(changedAssetIds.subList(i, Math.min(i + SYNC_ASSET_BATCH_SIZE, changedAssetIds.size())));
+        }
+
+        if (syncBatches.isEmpty()) {
+            onSyncAssetsRetrieved();
+            return;
+        }
+
+        requestAssets(false);
+    }
+
+    /**
+     * Merge returned assets ensuring the latest version of each is merged
+     */
+    protected void saveAssetBatch(List<String> requestedAssetIds, List<Asset> returnedAssets) {
+        Map<String, Asset> returnedAssetMap = returnedAssets.stream()
+            .collect(Collectors.toMap(Asset::getId, asset -> asset));
 
-            if (returnedAssets.size() != requestedAssetIds.size() || !returnedAssets.stream().allMatch(asset -> requestedAssetIds.contains(asset.getId()))) {
-                LOG.warning("Retrieved gateway asset batch count or ID mismatch, attempting to re-send the request");
-                syncErrors++;
-                requestAssets();
+        // Returned asset order may not match request order so use the request order
+        requestedAssetIds.forEach(id -> {
+            Asset asset = returnedAssetMap.get(id);
+
+            if (asset == null) {
+                // Deleted since requested
                 return;
             }
 
-            // Returned asset order may not match request order so re-order
-            returnedAssets = returnedAssets.stream()
-                .sorted(Comparator.comparingInt(a -> syncAssetIds.indexOf(a.getId())))
-                .collect(Collectors.toList());
-
-            // Merge returned assets ensuring the latest version of each is merged
-            returnedAssets.stream()
-                .map(returnedAsset -> {
-                    final AtomicReference<Asset> latestAssetVersion = new AtomicReference<>(returnedAsset);
-                    cachedAssetEvents.removeIf(
-                        assetEvent -> {
-                            boolean remove = assetEvent.getEntityId().equals(returnedAsset.getId()) && (assetEvent.getCause() == AssetEvent.Cause.UPDATE || assetEvent.getCause() == AssetEvent.Cause.READ);
-                            if (remove && assetEvent.getAsset().getVersion() > latestAssetVersion.get().getVersion()) {
-                                latestAssetVersion.set(assetEvent.getAsset());
-                            }
-                            return remove;
-                        });
-                    return latestAssetVersion.get();
-                }).forEach(this::saveAssetLocally);
-
-
-            // Request next batch or move on
-            syncIndex += requestedAssetIds.size();
-            if (syncIndex >= syncAssetIds.size()) {
-                LOG.info("All requested gateway assets retrieved");
-
-                Set<String> refreshAssets = new HashSet<>();
-
-                cachedAssetEvents.forEach(
-                    assetEvent -> {
-                        if (assetEvent.getCause() == AssetEvent.Cause.DELETE) {
-                            syncAssetIds.remove(assetEvent.getEntityId());
-                        } else if (assetEvent.getCause() == AssetEvent.Cause.CREATE) {
-                            syncAssetIds.add(assetEvent.getEntityId());
-                            try {
-                                saveAssetLocally(assetEvent.getAsset());
-                            } catch (Exception ex) {
-                                LOG.log(Level.SEVERE, "Failed to add new gateway asset (Gateway ID=" + gatewayId + ", Asset=" + assetEvent.getAsset(), ex);
-                            }
-                        } else {
-                            refreshAssets.add(assetEvent.getEntityId());
-                        }
-                    }
-                );
+            Asset cachedAsset = cachedLatestAssets.get(id);
+            if (cachedAsset != null && cachedAsset.getVersion() > asset.getVersion()) {
+                asset = cachedAsset;
+            }
 
-                deleteObsoleteLocalAssets();
-                onInitialSyncComplete();
+            SyncedAssetState state = new SyncedAssetState(asset);
+            saveAssetLocally(asset);
+            syncedAssetStates.put(id, state);
+            syncSavedAssetIds.add(id);
+        });
+    }
 
-                // Refresh attributes that have changed
-                cachedAttributeEvents.forEach(attributeEvent -> {
-                    String assetId = attributeEvent.getEntityId();
-                    if (!refreshAssets.contains(assetId)) {
-                        LOG.info("1 or more gateway asset attribute values have changed so requesting the asset again (Gateway ID=" + gatewayId + ", Asset ID=" + assetId);
-                        refreshAssets.add(assetId);
+    protected void onSyncAssetsRetrieved() {
+        LOG.info("All requested gateway assets retrieved");
+
+        Set<String> gatewayAssetIds = new HashSet<>(syncAssetIds);
+        Set<String> refreshAssets = new HashSet<>();
+
+        cachedAssetEvents.forEach(
+            assetEvent -> {
+                String assetId = assetEvent.getEntityId();
+                if (assetEvent.getCause() == AssetEvent.Cause.DELETE) {
+                    gatewayAssetIds.remove(assetId);
+                } else if (assetEvent.getCause() == AssetEvent.Cause.CREATE) {
+                    gatewayAssetIds.add(assetId);
+                    try {
+                        saveAssetLocally(assetEvent.getAsset());
+                    } catch (Exception ex) {
+                        LOG.log(Level.SEVERE, "Failed to add new gateway asset (Gateway ID=" + gatewayId + ", Asset=" + assetEvent.getAsset(), ex);
                     }
-                });
+                } else if (!syncSavedAssetIds.contains(assetId)) {
+                    refreshAssets.add(assetId);
+                }
+                syncedAssetStates.remove(assetId);
+            }
+        );
 
-                // Refresh assets that have changed
-                refreshAssets.forEach(id -> sendMessageToGateway(new ReadAssetEvent(id)));
-            } else {
-                requestAssets();
+        // Attribute values changed during the sync so these assets aren't known to be up to date
+        cachedAttributeEvents.forEach(attributeEvent -> syncedAssetStates.remove(attributeEvent.getEntityId()));
+        syncedAssetStates.keySet().retainAll(gatewayAssetIds);
+
+        deleteObsoleteLocalAssets(gatewayAssetIds);
+        onInitialSyncComplete();
+
+        // Refresh attributes that have changed
+        cachedAttributeEvents.forEach(attributeEvent -> {
+            String assetId = attributeEvent.getEntityId();
+            if (!refreshAssets.contains(assetId)) {
+                LOG.info("1 or more gateway asset attribute values have changed so requesting the asset again (Gateway ID=" + gatewayId + ", Asset ID=" + assetId);
+                refreshAssets.add(assetId);
             }
-        }
-    }
+        });
 
-    protected void deleteObsoleteLocalAssets() {
+        // Refresh assets that have changed
+        refreshAssets.forEach(id -> sendMessageToGateway(new ReadAssetEvent(id)));
+    }
 
-        // Find obsolete local assets
-        List<Asset> localAssets = assetStorageService.findAll(
+    protected List<Asset> getLocalAssets() {
+        return assetStorageService.findAll(
             new AssetQuery()
                 .select(selectExcludeAll())
                 .recursive(true)
                 .parents(gatewayId)
         );
+    }
 
-        // Delete obsolete assets
-        List<String> obsoleteLocalAssetIds = localAssets.stream()
-            .filter(localAsset -> !syncAssetIds.contains(mapAssetId(gatewayId, localAsset.getId(), true)))
+    protected void deleteObsoleteLocalAssets(Set<String> gatewayAssetIds) {
+
+        // Find obsolete local assets
+        List<String> obsoleteLocalAssetIds = getLocalAssets().stream()
+            .filter(localAsset -> !gatewayAssetIds.contains(mapAssetId(gatewayId, localAsset.getId(), true)))
             .map(Asset::getId).collect(Collectors.toList());
 
+        // Delete obsolete assets
         if (!obsoleteLocalAssetIds.isEmpty()) {
             boolean deleted = deleteAssetsLocally(obsoleteLocalAssetIds);
             if (!deleted) {
@@ -496,6 +689,10 @@ public class GatewayConnector {
         initialSyncInProgress = false;
         cachedAssetEvents.clear();
         cachedAttributeEvents.clear();
+        cachedLatestAssets.clear();
+        cachedDeletedAssetIds.clear();
+        syncBatchResponses.clear();
+        syncSavedAssetIds.clear();
         assetProcessingService.sendAttributeEvent(new AttributeEvent(gatewayId, "status", Values.create(ConnectionStatus.CONNECTED.name())), AttributeEvent.Source.GATEWAY);
     }
 
@@ -669,6 +866,56 @@ public class GatewayConnector {
         );
     }
 
+    /**
+     * Events buffered by the gateway whilst disconnected are usually older than the current attribute values (which
+     * are updated by the sync) and would be rejected by asset processing, so store their datapoints directly to
+     * preserve the history. They are not processed as live events so they don't affect the sync state or the current
+     * values. This is done on the executor, looking up the assets and storing the datapoints in one go,
+     * and the gateway is sent a {@link GatewayReplayAckEvent} once stored so it can remove them from its outbox.
+     */
+    protected void onReplayedEvents(String messageId, List<SharedEvent> events) {
+        List<AttributeEvent> attributeEvents = events.stream()
+            .filter(event -> event instanceof AttributeEvent)
+            .map(event -> (AttributeEvent) event)
+            .filter(attributeEvent -> attributeEvent.getValue().isPresent() && attributeEvent.getTimestamp() > 0)
+            .collect(Collectors.toList());
+
+        executorService.execute(() -> {
+            try {
+                if (!attributeEvents.isEmpty()) {
+                    String[] assetIds = attributeEvents.stream()
+                        .map(attributeEvent -> mapAssetId(gatewayId, attributeEvent.getEntityId(), false))
+                        .distinct()
+                        .toArray(String[]::new);
+                    Map<String, Asset> assets = assetStorageService.findAll(new AssetQuery().ids(assetIds)).stream()
+                        .collect(Collectors.toMap(Asset::getId, asset -> asset));
+
+                    List<AssetDatapoint> datapoints = new ArrayList<>(attributeEvents.size());
+                    attributeEvents.forEach(attributeEvent -> {
+                        String assetId = mapAssetId(gatewayId, attributeEvent.getEntityId(), false);
+                        boolean storeDatapoints = Optional.ofNullable(assets.get(assetId))
+                            .flatMap(asset -> asset.getAttribute(attributeEvent.getAttributeName()))
+                            .map(AssetAttribute::isStoreDatapoints)
+                            .orElse(false);
+
+                        if (storeDatapoints) {
+                            datapoints.add(new AssetDatapoint(assetId, attributeEvent.getAttributeName(), attributeEvent.getValue().get(), attributeEvent.getTimestamp()));
+                        }
+                    });
+
+                    assetDatapointService.storeDatapoints(datapoints);
+                }
+
+                if (messageId != null) {
+                    sendMessageToGateway(new EventRequestResponseWrapper<>(messageId, new GatewayReplayAckEvent()));
+                }
+            } catch (Exception ex) {
+                // Not acknowledged so the gateway will send the events again
+                LOG.log(Level.WARNING, "Failed to store replayed gateway datapoints: Gateway ID=" + gatewayId, ex);
+            }
+        });
+    }
+
     protected Asset saveAssetLocally(Asset asset) {
         String assetId = asset.getId();
         asset.setId(mapAssetId(gatewayId, assetId, false));
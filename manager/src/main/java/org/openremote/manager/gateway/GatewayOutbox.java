@@ -0,0 +1,326 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.gateway;
+
+import org.openremote.model.syslog.SyslogCategory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardOpenOption.*;
+import static org.openremote.model.syslog.SyslogCategory.GATEWAY;
+
+/**
+ * A log of records in a ring buffer backed by a memory-mapped file of fixed capacity, used by the
+ * {@link GatewayClientService} to keep outbound events whilst the central manager can't be reached.
+ * <p>
+ * Records are read with {@link #peek} and only removed once {@link #acknowledge}d so a failed send can be retried.
+ * Records wrap around the end of the buffer; when it is full the oldest records are dropped, records older than the
+ * minimum timestamp given to {@link #peek} are skipped. The capacity, read position and size are kept in the file
+ * header so the log survives restarts; when opened the records are checked and the log is truncated at the first invalid
+ * record. When opened with a different capacity the pending records are moved into a ring of the new capacity, dropping
+ * the oldest records if they don't fit.
+ */
+public class GatewayOutbox implements Closeable {
+
+    private static final Logger LOG = SyslogCategory.getLogger(GATEWAY, GatewayOutbox.class.getName());
+    protected static final int MAGIC = 0x4F524733;
+    // Magic, capacity, read offset, size
+    protected static final int HEADER_SIZE = 16;
+    // Length, timestamp
+    protected static final int RECORD_HEADER_SIZE = 12;
+    protected final Path file;
+    protected final FileChannel channel;
+    protected MappedByteBuffer buffer;
+    protected final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    protected final int capacity;
+    // Offsets are relative to the start of the records after the file header
+    protected int readOffset;
+    protected int size;
+    protected int peekedSize;
+    protected long dropped;
+
+    public GatewayOutbox(Path file, int capacity) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, CREATE, READ, WRITE);
+
+        int storedCapacity = readStoredCapacity(channel);
+        if (storedCapacity > 0 && storedCapacity != capacity) {
+            // Offsets in the file are only valid for the ring they were written in
+            migrate(storedCapacity);
+            return;
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+
+        readOffset = buffer.getInt(8);
+        size = buffer.getInt(12);
+
+        if (buffer.getInt(0) != MAGIC
+            || buffer.getInt(4) != capacity
+            || readOffset < 0
+            || readOffset >= capacity
+            || size < 0
+            || size > capacity) {
+            LOG.info("Initialising gateway outbox: " + file);
+            readOffset = 0;
+            size = 0;
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, capacity);
+            writePositions();
+        } else if (size > 0) {
+            int validSize = getValidSize();
+            if (validSize < size) {
+                LOG.warning("Truncating gateway outbox at invalid record after " + validSize + " of " + size + " byte(s): " + file);
+                size = validSize;
+                writePositions();
+            }
+            LOG.info("Opened gateway outbox with " + size + " byte(s) pending: " + file);
+        }
+    }
+
+    /**
+     * Returns the capacity stored in the header of the file or 0 if the file doesn't have a valid header.
+     */
+    protected static int readStoredCapacity(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            return 0;
+        }
+        int storedCapacity = header.getInt(4);
+        return storedCapacity > 0 && channel.size() >= HEADER_SIZE + (long) storedCapacity ? storedCapacity : 0;
+    }
+
+    /**
+     * Reads the pending records of the file written with the stored capacity, then resizes the file to this capacity
+     * and appends them again.
+     */
+    protected void migrate(int storedCapacity) throws IOException {
+        List<Long> timestamps = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+
+        try (GatewayOutbox previous = new GatewayOutbox(file, storedCapacity)) {
+            while (previous.peekedSize < previous.size) {
+                int recordOffset = previous.offset(previous.readOffset, previous.peekedSize);
+                int recordSize = previous.readRecordHeader(recordOffset);
+                byte[] record = new byte[recordSize - RECORD_HEADER_SIZE];
+                previous.read(previous.offset(recordOffset, RECORD_HEADER_SIZE), record);
+                timestamps.add(previous.recordHeader.getLong(4));
+                records.add(record);
+                previous.peekedSize += recordSize;
+            }
+        }
+
+        LOG.info("Resizing gateway outbox from " + storedCapacity + " to " + capacity + " byte(s) with " + records.size() + " record(s) pending: " + file);
+        channel.truncate(0);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        writePositions();
+
+        for (int i = 0; i < records.size(); i++) {
+            append(timestamps.get(i), records.get(i));
+        }
+        if (dropped > 0) {
+            LOG.warning("Dropped " + dropped + " record(s) that don't fit in the resized gateway outbox: " + file);
+        }
+    }
+
+    /**
+     * Appends a record, dropping the oldest records if there isn't enough space; returns false if the record is larger
+     * than the outbox.
+     */
+    public synchronized boolean append(long timestamp, byte[] record) {
+        int recordSize = RECORD_HEADER_SIZE + record.length;
+
+        if (recordSize > capacity) {
+            dropped++;
+            return false;
+        }
+
+        while (capacity - size < recordSize) {
+            int headSize = readRecordHeader(readOffset);
+            readOffset = offset(readOffset, headSize);
+            size -= headSize;
+            peekedSize = Math.max(0, peekedSize - headSize);
+            dropped++;
+        }
+
+        int writeOffset = offset(readOffset, size);
+        recordHeader.putInt(0, record.length);
+        recordHeader.putLong(4, timestamp);
+        write(writeOffset, recordHeader.array());
+        write(offset(writeOffset, RECORD_HEADER_SIZE), record);
+        size += recordSize;
+        writePositions();
+        return true;
+    }
+
+    /**
+     * Returns up to the specified number of records following any previously peeked records, skipping records with a
+     * timestamp older than the specified minimum.
+     */
+    public synchronized List<byte[]> peek(int max, long minTimestamp) {
+        List<byte[]> records = new ArrayList<>(Math.min(max, 256));
+
+        while (records.size() < max && peekedSize < size) {
+            int peekOffset = offset(readOffset, peekedSize);
+            int recordSize = readRecordHeader(peekOffset);
+
+            if (recordHeader.getLong(4) >= minTimestamp) {
+                byte[] record = new byte[recordSize - RECORD_HEADER_SIZE];
+                read(offset(peekOffset, RECORD_HEADER_SIZE), record);
+                records.add(record);
+                peekedSize += recordSize;
+            } else if (peekedSize == 0) {
+                // Expired records at the head can be removed straight away
+                readOffset = offset(readOffset, recordSize);
+                size -= recordSize;
+                dropped++;
+            } else {
+                // Removed with the records peeked before it
+                peekedSize += recordSize;
+            }
+        }
+
+        writePositions();
+        return records;
+    }
+
+    /**
+     * Removes all records returned by {@link #peek} so far.
+     */
+    public synchronized void acknowledge() {
+        readOffset = offset(readOffset, peekedSize);
+        size -= peekedSize;
+        peekedSize = 0;
+        writePositions();
+    }
+
+    /**
+     * Makes records returned by {@link #peek} but not {@link #acknowledge}d available to be peeked again.
+     */
+    public synchronized void reset() {
+        peekedSize = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Writes any changes through to the file.
+     */
+    public synchronized void sync() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the records from the head up to the first one with a length that doesn't fit.
+     */
+    protected int getValidSize() {
+        int validSize = 0;
+
+        while (size - validSize >= RECORD_HEADER_SIZE) {
+            int recordSize = readRecordHeader(offset(readOffset, validSize));
+            if (recordSize < RECORD_HEADER_SIZE || recordSize > size - validSize) {
+                break;
+            }
+            validSize += recordSize;
+        }
+
+        return validSize;
+    }
+
+    /**
+     * Reads the header of the record at the offset into {@link #recordHeader} and returns the size of the record.
+     */
+    protected int readRecordHeader(int offset) {
+        read(offset, recordHeader.array());
+        return RECORD_HEADER_SIZE + recordHeader.getInt(0);
+    }
+
+    protected int offset(int offset, int length) {
+        return (int) (((long) offset + length) % capacity);
+    }
+
+    protected void write(int offset, byte[] bytes) {
+        int length = Math.min(bytes.length, capacity - offset);
+        buffer.position(HEADER_SIZE + offset);
+        buffer.put(bytes, 0, length);
+        if (length < bytes.length) {
+            buffer.position(HEADER_SIZE);
+            buffer.put(bytes, length, bytes.length - length);
+        }
+    }
+
+    protected void read(int offset, byte[] bytes) {
+        int length = Math.min(bytes.length, capacity - offset);
+        buffer.position(HEADER_SIZE + offset);
+        buffer.get(bytes, 0, length);
+        if (length < bytes.length) {
+            buffer.position(HEADER_SIZE);
+            buffer.get(bytes, length, bytes.length - length);
+        }
+    }
+
+    protected void writePositions() {
+        buffer.putInt(8, readOffset);
+        buffer.putInt(12, size);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "file=" + file +
+            ", capacity=" + capacity +
+            ", size=" + size +
+            ", dropped=" + dropped +
+            '}';
+    }
+}
@@ -32,6 +32,7 @@ import org.openremote.manager.asset.AssetProcessingService;
 import org.openremote.manager.asset.AssetStorageService;
 import org.openremote.manager.asset.AssetUpdateProcessor;
 import org.openremote.manager.concurrent.ManagerExecutorService;
+import org.openremote.manager.datapoint.AssetDatapointService;
 import org.openremote.manager.event.ClientEventService;
 import org.openremote.manager.security.ManagerIdentityService;
 import org.openremote.manager.security.ManagerKeycloakIdentityProvider;
@@ -74,6 +75,7 @@ public class GatewayService extends RouteBuilder implements ContainerService, As
     private static final Logger LOG = SyslogCategory.getLogger(GATEWAY, GatewayService.class.getName());
     protected AssetStorageService assetStorageService;
     protected AssetProcessingService assetProcessingService;
+    protected AssetDatapointService assetDatapointService;
     protected ManagerIdentityService identityService;
     protected ManagerKeycloakIdentityProvider identityProvider;
     protected ClientEventService clientEventService;
@@ -99,6 +101,7 @@ public class GatewayService extends RouteBuilder implements ContainerService, As
     public void init(Container container) throws Exception {
         assetStorageService = container.getService(AssetStorageService.class);
         assetProcessingService = container.getService(AssetProcessingService.class);
+        assetDatapointService = container.getService(AssetDatapointService.class);
         identityService = container.getService(ManagerIdentityService.class);
         clientEventService = container.getService(ClientEventService.class);
         executorService = container.getService(ManagerExecutorService.class);
@@ -142,7 +145,7 @@ public class GatewayService extends RouteBuilder implements ContainerService, As
                 }
 
                 // Create connector
-                GatewayConnector connector = new GatewayConnector(assetStorageService, assetProcessingService, executorService, gateway);
+                GatewayConnector connector = new GatewayConnector(assetStorageService, assetProcessingService, assetDatapointService, executorService, gateway);
                 gatewayConnectorMap.put(gateway.getId(), connector);
 
                 // Get IDs of all assets under this gateway
@@ -429,7 +432,7 @@ public class GatewayService extends RouteBuilder implements ContainerService, As
             case CREATE:
                 createGatewayClient(gateway);
                 synchronized (gatewayConnectorMap) {
-                    GatewayConnector connector = new GatewayConnector(assetStorageService, assetProcessingService, executorService, gateway);
+                    GatewayConnector connector = new GatewayConnector(assetStorageService, assetProcessingService, assetDatapointService, executorService, gateway);
                     gatewayConnectorMap.put(gateway.getId(), connector);
                 }
                 break;
@@ -19,12 +19,18 @@
  */
 package org.openremote.manager.notification;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.util.AsyncProcessorHelper;
+import org.hibernate.Session;
 import org.openremote.agent.protocol.Protocol;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
+import org.openremote.container.concurrent.ContainerExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
 import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.persistence.PersistenceService;
 import org.openremote.container.security.AuthContext;
@@ -46,6 +52,10 @@ import javax.persistence.TypedQuery;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -53,6 +63,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.time.temporal.ChronoUnit.*;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.manager.notification.NotificationProcessingException.Reason.*;
 import static org.openremote.model.notification.Notification.HEADER_SOURCE;
 import static org.openremote.model.notification.Notification.Source.*;
@@ -60,7 +71,14 @@ import static org.openremote.model.notification.Notification.Source.*;
 // TODO Implement notification purging - configurable MAX_AGE for notifications?
 public class NotificationService extends RouteBuilder implements ContainerService {
 
+    public static final String NOTIFICATION_DISPATCH_THREADS = "NOTIFICATION_DISPATCH_THREADS";
+    public static final int NOTIFICATION_DISPATCH_THREADS_DEFAULT = 4;
+    public static final String NOTIFICATION_DISPATCH_QUEUE_SIZE = "NOTIFICATION_DISPATCH_QUEUE_SIZE";
+    public static final int NOTIFICATION_DISPATCH_QUEUE_SIZE_DEFAULT = 1000;
+    public static final String NOTIFICATION_DISPATCH_BATCH_SIZE = "NOTIFICATION_DISPATCH_BATCH_SIZE";
+    public static final int NOTIFICATION_DISPATCH_BATCH_SIZE_DEFAULT = 100;
     public static final String NOTIFICATION_QUEUE = "seda://NotificationQueue?waitForTaskToComplete=IfReplyExpected&timeout=10000&purgeWhenStopping=true&discardIfNoConsumers=false&size=25000";
+    protected static final String DISPATCH_PROPERTY = NotificationService.class.getName() + ".dispatch";
     private static final Logger LOG = Logger.getLogger(NotificationService.class.getName());
     protected TimerService timerService;
     protected PersistenceService persistenceService;
@@ -68,6 +86,8 @@ public class NotificationService extends RouteBuilder implements ContainerServic
     protected ManagerIdentityService identityService;
     protected MessageBrokerService messageBrokerService;
     protected Map<String, NotificationHandler> notificationHandlerMap = new HashMap<>();
+    protected ExecutorService dispatchExecutor;
+    protected int dispatchBatchSize;
 
     protected static Processor handleNotificationProcessingException(Logger logger) {
         return exchange -> {
@@ -114,6 +134,13 @@ public class NotificationService extends RouteBuilder implements ContainerServic
         this.assetStorageService = container.getService(AssetStorageService.class);
         this.identityService = container.getService(ManagerIdentityService.class);
         this.messageBrokerService = container.getService(MessageBrokerService.class);
+
+        int dispatchThreads = Math.max(1, getInteger(container.getConfig(), NOTIFICATION_DISPATCH_THREADS, NOTIFICATION_DISPATCH_THREADS_DEFAULT));
+        int dispatchQueueSize = Math.max(1, getInteger(container.getConfig(), NOTIFICATION_DISPATCH_QUEUE_SIZE, NOTIFICATION_DISPATCH_QUEUE_SIZE_DEFAULT));
+        dispatchBatchSize = Math.max(1, getInteger(container.getConfig(), NOTIFICATION_DISPATCH_BATCH_SIZE, NOTIFICATION_DISPATCH_BATCH_SIZE_DEFAULT));
+
+        dispatchExecutor = createDispatchExecutor(dispatchThreads, dispatchQueueSize);
+
         container.getService(MessageBrokerService.class).getContext().addRoutes(this);
 
         container.getServices(NotificationHandler.class).forEach(notificationHandler ->
@@ -134,7 +161,9 @@ public class NotificationService extends RouteBuilder implements ContainerServic
 
     @Override
     public void stop(Container container) throws Exception {
-
+        if (dispatchExecutor != null) {
+            dispatchExecutor.shutdown();
+        }
     }
 
     @Override
@@ -235,57 +264,174 @@ public class NotificationService extends RouteBuilder implements ContainerServic
                             .collect(Collectors.toList());
                     }
 
-                    // Send message to each applicable target
-                    mappedTargetsList.forEach(
-                        target ->
-                            persistenceService.doTransaction(em -> {
-
-                                // commit the notification first to get the ID
-                                SentNotification sentNotification = new SentNotification()
-                                    .setName(notification.getName())
-                                    .setType(notification.getMessage().getType())
-                                    .setSource(source)
-                                    .setSourceId(sourceId.get())
-                                    .setTarget(target.getType())
-                                    .setTargetId(target.getId())
-                                    .setMessage(notification.getMessage().toValue())
-                                    .setSentOn(Date.from(timerService.getNow()));
-
-                                sentNotification = em.merge(sentNotification);
-                                long id = sentNotification.getId();
-
-                                try {
-                                    NotificationSendResult result = handler.sendMessage(
-                                        id,
-                                        source,
-                                        sourceId.get(),
-                                        target,
-                                        notification.getMessage());
-
-                                    if (result.isSuccess()) {
-                                        LOG.info("Notification sent '" + id + "': " + target);
-                                    } else {
-                                        LOG.warning("Notification failed '" + id + "': " + target + ", reason=" + result.getMessage());
-                                        sentNotification.setError(TextUtil.isNullOrEmpty(result.getMessage()) ? "Unknown error" : result.getMessage());
-                                    }
-                                    // Merge the sent notification again with the message included just in case the handler modified the message
-                                    sentNotification.setMessage(notification.getMessage().toValue());
-                                    em.merge(sentNotification);
-                                } catch (Exception e) {
-                                    LOG.log(Level.SEVERE,
-                                        "Notification handler threw an exception whilst sending notification '" + id + "'",
-                                        e);
-                                    sentNotification.setError(TextUtil.isNullOrEmpty(e.getMessage()) ? "Unknown error" : e.getMessage());
-                                    em.merge(sentNotification);
-                                }
-                            })
-                    );
+                    // Persist all sent notifications up front so that IDs are available and repeat frequency
+                    // checks see them, then hand off the actual sending so no DB connection is held whilst the
+                    // handler is waiting on the remote service
+                    List<SentNotification> sentNotifications = persistSentNotifications(notification, source, sourceId.get(), mappedTargetsList);
+                    exchange.setProperty(DISPATCH_PROPERTY, dispatch(handler, notification, source, sourceId.get(), mappedTargetsList, sentNotifications));
+                })
+                .process(new AsyncProcessor() {
+                    @Override
+                    public void process(Exchange exchange) throws Exception {
+                        AsyncProcessorHelper.process(this, exchange);
+                    }
+
+                    // Only complete the exchange once dispatched when the caller expects a reply, without blocking the
+                    // queue consumer whilst the handlers are sending
+                    @Override
+                    public boolean process(Exchange exchange, AsyncCallback callback) {
+                        CompletableFuture<?> dispatch = exchange.getProperty(DISPATCH_PROPERTY, CompletableFuture.class);
+                        exchange.removeProperty(DISPATCH_PROPERTY);
+
+                        if (dispatch == null || dispatch.isDone() || !exchange.getPattern().isOutCapable()) {
+                            callback.done(true);
+                            return true;
+                        }
+
+                        dispatch.whenComplete((result, throwable) -> callback.done(false));
+                        return false;
+                    }
                 })
                 .endDoTry()
                 .doCatch(NotificationProcessingException.class)
                 .process(handleNotificationProcessingException(LOG));
     }
 
+    /**
+     * When the queue is full the calling thread sends the notification itself which throttles intake; once stopped the
+     * dispatch is rejected rather than discarded so a caller waiting for the outcome doesn't hang.
+     */
+    protected ExecutorService createDispatchExecutor(int threads, int queueSize) {
+        return new ContainerExecutor(
+            new ContainerThreadFactory("Notification dispatch"),
+            (runnable, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Notification dispatch has been stopped");
+                }
+                runnable.run();
+            },
+            threads,
+            threads,
+            60,
+            new LinkedBlockingQueue<>(queueSize));
+    }
+
+    /**
+     * Hands the sending of the persisted notifications to the dispatch executor; if rejected the failure is recorded
+     * for each of them.
+     */
+    protected CompletableFuture<Void> dispatch(NotificationHandler handler, Notification notification, Notification.Source source, String sourceId, List<Notification.Target> targets, List<SentNotification> sentNotifications) throws NotificationProcessingException {
+        try {
+            return CompletableFuture.runAsync(
+                () -> dispatchNotification(handler, notification, source, sourceId, targets, sentNotifications),
+                dispatchExecutor);
+        } catch (RejectedExecutionException e) {
+            sentNotifications.forEach(sentNotification -> sentNotification.setError(e.getMessage()));
+            recordResults(sentNotifications);
+            throw new NotificationProcessingException(SEND_FAILURE, e.getMessage());
+        }
+    }
+
+    protected List<SentNotification> persistSentNotifications(Notification notification, Notification.Source source, String sourceId, List<Notification.Target> targets) {
+        Date sentOn = Date.from(timerService.getNow());
+
+        return persistenceService.doReturningTransaction(em -> {
+            // Sequence IDs are allocated up front so the inserts can be batched
+            em.unwrap(Session.class).setJdbcBatchSize(dispatchBatchSize);
+            List<SentNotification> sentNotifications = new ArrayList<>(targets.size());
+
+            for (Notification.Target target : targets) {
+                SentNotification sentNotification = new SentNotification()
+                    .setName(notification.getName())
+                    .setType(notification.getMessage().getType())
+                    .setSource(source)
+                    .setSourceId(sourceId)
+                    .setTarget(target.getType())
+                    .setTargetId(target.getId())
+                    .setMessage(notification.getMessage().toValue())
+                    .setSentOn(sentOn);
+
+                em.persist(sentNotification);
+                sentNotifications.add(sentNotification);
+            }
+            em.flush();
+            return sentNotifications;
+        });
+    }
+
+    /**
+     * Sends the message to each target in turn and records the results in batches; targets of a single notification
+     * are sent sequentially as handlers are free to modify the message per target.
+     */
+    protected void dispatchNotification(NotificationHandler handler, Notification notification, Notification.Source source, String sourceId, List<Notification.Target> targets, List<SentNotification> sentNotifications) {
+        List<SentNotification> results = new ArrayList<>(Math.min(targets.size(), dispatchBatchSize));
+
+        for (int i = 0; i < targets.size(); i++) {
+            Notification.Target target = targets.get(i);
+            SentNotification sentNotification = sentNotifications.get(i);
+            long id = sentNotification.getId();
+
+            try {
+                NotificationSendResult result = handler.sendMessage(
+                    id,
+                    source,
+                    sourceId,
+                    target,
+                    notification.getMessage());
+
+                if (result.isSuccess()) {
+                    LOG.info("Notification sent '" + id + "': " + target);
+                } else {
+                    LOG.warning("Notification failed '" + id + "': " + target + ", reason=" + result.getMessage());
+                    sentNotification.setError(TextUtil.isNullOrEmpty(result.getMessage()) ? "Unknown error" : result.getMessage());
+                }
+                // Store the message again just in case the handler modified the message
+                sentNotification.setMessage(notification.getMessage().toValue());
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE,
+                    "Notification handler threw an exception whilst sending notification '" + id + "'",
+                    e);
+                sentNotification.setError(TextUtil.isNullOrEmpty(e.getMessage()) ? "Unknown error" : e.getMessage());
+            }
+
+            results.add(sentNotification);
+
+            if (results.size() >= dispatchBatchSize) {
+                recordResults(results);
+                results = new ArrayList<>(dispatchBatchSize);
+            }
+        }
+
+        recordResults(results);
+    }
+
+    protected void recordResults(List<SentNotification> sentNotifications) {
+        if (sentNotifications.isEmpty()) {
+            return;
+        }
+
+        // Load the notifications with a single query and only update the result fields, merging would select each row
+        // and overwrite any delivery state recorded in the meantime
+        Map<Long, SentNotification> results = sentNotifications.stream()
+            .collect(Collectors.toMap(SentNotification::getId, sentNotification -> sentNotification));
+
+        try {
+            persistenceService.doTransaction(em -> {
+                em.unwrap(Session.class).setJdbcBatchSize(dispatchBatchSize);
+                em.createQuery("select sn from SentNotification sn where sn.id in :ids", SentNotification.class)
+                    .setParameter("ids", results.keySet())
+                    .getResultList()
+                    .forEach(storedNotification -> {
+                        SentNotification result = results.get(storedNotification.getId());
+                        storedNotification.setError(result.getError());
+                        storedNotification.setMessage(result.getMessage());
+                    });
+            });
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to record results of " + sentNotifications.size() + " sent notification(s)", e);
+        }
+    }
+
     public void sendNotification(Notification notification) throws NotificationProcessingException {
         sendNotification(notification, INTERNAL, "");
     }
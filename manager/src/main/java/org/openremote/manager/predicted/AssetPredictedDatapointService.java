@@ -203,7 +203,8 @@ public class AssetPredictedDatapointService implements ContainerService, Protoco
                             "and " +
                             "TIMESTAMP < to_timestamp(?) " +
                             "and " +
-                            "ENTITY_ID = ? and ATTRIBUTE_NAME = ? "
+                            "ENTITY_ID = ? and ATTRIBUTE_NAME = ? " +
+                            "order by X asc"
                         );
                     }
 
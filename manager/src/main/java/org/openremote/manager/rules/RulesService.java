@@ -276,7 +276,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Asse
             .forEach(pair -> {
                 Asset asset = pair.key;
                 pair.value.forEach(ruleAttribute -> {
-                    AssetState assetState = new AssetState(asset, ruleAttribute, Source.INTERNAL);
+                    AssetState assetState = new AssetState(asset, ruleAttribute.copyOnWrite(), Source.INTERNAL);
                     updateAssetState(assetState);
                 });
             });
@@ -325,15 +325,17 @@ public class RulesService extends RouteBuilder implements ContainerService, Asse
                                       Source source) throws AssetProcessingException {
         // We might process two facts for a single attribute update, if that is what the user wants
 
+        // Facts snapshot the attribute, the copy on write shares the meta until either side modifies it
+
         // First as asset state
         if (attribute.isRuleState()) {
-            updateAssetState(new AssetState(asset, attribute, source));
+            updateAssetState(new AssetState(asset, attribute.copyOnWrite(), source));
         }
 
         // Then as asset event (if there wasn't an error), this will also fire the rules engines
         if (attribute.isRuleEvent()) {
             insertAssetEvent(
-                new AssetState(asset, attribute, source),
+                new AssetState(asset, attribute.copyOnWrite(), source),
                 attribute.getRuleEventExpires().orElse(configEventExpires)
             );
         }
@@ -19,6 +19,7 @@
  */
 package org.openremote.manager.syslog;
 
+import org.hibernate.Session;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
 import org.openremote.container.persistence.PersistenceService;
@@ -34,33 +35,62 @@ import org.openremote.model.util.Pair;
 
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.model.syslog.SyslogConfig.DEFAULT_LIMIT;
 
 /**
  * Act as a JUL handler, publishes (some) log messages on the client event bus, stores
  * (some, depending on {@link SyslogConfig}) log messages in the database.
+ * <p>
+ * Events to be stored are buffered in a bounded queue without locking the logging thread; when the buffer is full new
+ * events are dropped and counted. Publishing on the client event bus is limited to a configurable number of events
+ * per second, beyond which only a sample of the events is published.
  */
 public class SyslogService extends Handler implements ContainerService {
 
+    public static final String SYSLOG_BUFFER_SIZE = "SYSLOG_BUFFER_SIZE";
+    public static final int SYSLOG_BUFFER_SIZE_DEFAULT = 10000;
+    public static final String SYSLOG_FLUSH_BATCH_SIZE = "SYSLOG_FLUSH_BATCH_SIZE";
+    public static final int SYSLOG_FLUSH_BATCH_SIZE_DEFAULT = 500;
+    public static final String SYSLOG_PUBLISH_RATE = "SYSLOG_PUBLISH_RATE";
+    public static final int SYSLOG_PUBLISH_RATE_DEFAULT = 100;
+    public static final String SYSLOG_PUBLISH_SAMPLE_INTERVAL = "SYSLOG_PUBLISH_SAMPLE_INTERVAL";
+    public static final int SYSLOG_PUBLISH_SAMPLE_INTERVAL_DEFAULT = 10;
+    protected static final String INSERT_EVENT_SQL = "insert into SYSLOG_EVENT (ID, TIMESTAMP, CATEGORY, LEVEL, MESSAGE, SUBCATEGORY) values (nextval('OPENREMOTE_SEQUENCE'), ?, ?, ?, ?, ?)";
     private static final Logger LOG = Logger.getLogger(SyslogService.class.getName());
 
     protected ManagerExecutorService executorService;
     protected PersistenceService persistenceService;
     protected ClientEventService clientEventService;
 
-    protected SyslogConfig config;
+    protected volatile SyslogConfig config;
 
-    final protected List<SyslogEvent> batch = new ArrayList<>();
+    final protected Queue<SyslogEvent> batch = new ConcurrentLinkedQueue<>();
+    final protected AtomicInteger batchSize = new AtomicInteger();
+    final protected AtomicLong droppedEvents = new AtomicLong();
+    final protected Object flushLock = new Object();
+    protected int maxBatchSize;
+    protected int flushBatchSize;
+
+    final protected AtomicLong publishWindow = new AtomicLong();
+    final protected AtomicInteger publishWindowCount = new AtomicInteger();
+    final protected AtomicLong suppressedEvents = new AtomicLong();
+    protected int publishRate;
+    protected int publishSampleInterval;
     protected ScheduledFuture flushBatchFuture;
     protected ScheduledFuture deleteOldFuture;
 
@@ -73,6 +103,11 @@ public class SyslogService extends Handler implements ContainerService {
     public void init(Container container) throws Exception {
         executorService = container.getService(ManagerExecutorService.class);
 
+        maxBatchSize = Math.max(1, getInteger(container.getConfig(), SYSLOG_BUFFER_SIZE, SYSLOG_BUFFER_SIZE_DEFAULT));
+        flushBatchSize = Math.max(1, getInteger(container.getConfig(), SYSLOG_FLUSH_BATCH_SIZE, SYSLOG_FLUSH_BATCH_SIZE_DEFAULT));
+        publishRate = getInteger(container.getConfig(), SYSLOG_PUBLISH_RATE, SYSLOG_PUBLISH_RATE_DEFAULT);
+        publishSampleInterval = Math.max(1, getInteger(container.getConfig(), SYSLOG_PUBLISH_SAMPLE_INTERVAL, SYSLOG_PUBLISH_SAMPLE_INTERVAL_DEFAULT));
+
         if (container.hasService(ClientEventService.class) && container.hasService(PersistenceService.class)) {
             LOG.info("Syslog service enabled");
             clientEventService = container.getService(ClientEventService.class);
@@ -111,10 +146,7 @@ public class SyslogService extends Handler implements ContainerService {
                 // Not ready on startup
                 if (persistenceService.getEntityManagerFactory() == null)
                     return;
-                final int maxAgeMinutes;
-                synchronized (batch) {
-                    maxAgeMinutes = config.getStoredMaxAgeMinutes();
-                }
+                final int maxAgeMinutes = config.getStoredMaxAgeMinutes();
                 persistenceService.doTransaction(em -> {
                     em.createQuery(
                         "delete from SyslogEvent e " +
@@ -155,7 +187,7 @@ public class SyslogService extends Handler implements ContainerService {
                 LOG.log(Level.SEVERE, "Failed to store syslog event", e);
             }
             try {
-                if (clientEventService != null)
+                if (clientEventService != null && isPublishAllowed(syslogEvent.getTimestamp()))
                     clientEventService.publishEvent(syslogEvent);
             } catch (Exception e) {
                 LOG.log(Level.SEVERE, "Failed to send syslog event to subscribed clients", e);
@@ -164,22 +196,32 @@ public class SyslogService extends Handler implements ContainerService {
     }
 
     public void setConfig(SyslogConfig config) {
-        synchronized (batch) {
-            LOG.info("Using: " + config);
-            this.config = config;
-        }
+        LOG.info("Using: " + config);
+        this.config = config;
     }
 
     public SyslogConfig getConfig() {
-        synchronized (batch) {
-            return config;
-        }
+        return config;
+    }
+
+    /**
+     * Number of events that could not be stored because the buffer was full.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Number of events that were not published to clients because the publish rate was exceeded.
+     */
+    public long getSuppressedEvents() {
+        return suppressedEvents.get();
     }
 
     public void clearStoredEvents() {
         if (persistenceService == null)
             return;
-        synchronized (batch) {
+        synchronized (flushLock) {
             persistenceService.doTransaction(em -> em.createQuery("delete from SyslogEvent e").executeUpdate());
         }
     }
@@ -262,41 +304,86 @@ public class SyslogService extends Handler implements ContainerService {
         if (persistenceService.getEntityManagerFactory() == null) {
             return;
         }
+        SyslogConfig config = this.config;
         boolean isLoggable =
             config.getStoredLevel().isLoggable(syslogEvent)
                 && Arrays.asList(config.getStoredCategories()).contains(syslogEvent.getCategory());
         if (isLoggable) {
-            synchronized (batch) {
-                batch.add(syslogEvent);
+            // Reserve a slot before adding so the buffer never exceeds its bound
+            if (batchSize.incrementAndGet() > maxBatchSize) {
+                batchSize.decrementAndGet();
+                droppedEvents.incrementAndGet();
+                return;
             }
+            batch.offer(syslogEvent);
         }
     }
 
+    /**
+     * Allows up to the configured publish rate of events per second, after that only every n-th event is published
+     * until the next second starts.
+     */
+    protected boolean isPublishAllowed(long timestamp) {
+        if (publishRate <= 0) {
+            return true;
+        }
+
+        long window = timestamp / 1000;
+        long currentWindow = publishWindow.get();
+        if (window != currentWindow && publishWindow.compareAndSet(currentWindow, window)) {
+            publishWindowCount.set(0);
+        }
+
+        int count = publishWindowCount.incrementAndGet();
+        if (count <= publishRate || (count - publishRate) % publishSampleInterval == 0) {
+            return true;
+        }
+
+        suppressedEvents.incrementAndGet();
+        return false;
+    }
+
     protected void flushBatch() {
         if (persistenceService == null)
             return;
-        synchronized (batch) {
-            final List<SyslogEvent> transientEvents = new ArrayList<>(batch);
-            batch.clear();
+        synchronized (flushLock) {
+            final List<SyslogEvent> transientEvents = new ArrayList<>(Math.min(batchSize.get(), maxBatchSize));
+            SyslogEvent event;
+            while ((event = batch.poll()) != null) {
+                batchSize.decrementAndGet();
+                transientEvents.add(event);
+            }
             if (transientEvents.size() == 0)
                 return;
             LOG.fine("Flushing syslog batch: " + transientEvents.size());
             try {
-                persistenceService.doTransaction(em -> {
-                    try {
+                persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement st = connection.prepareStatement(INSERT_EVENT_SQL)) {
+                        int count = 0;
                         for (SyslogEvent e : transientEvents) {
-                            em.persist(e);
+                            st.setTimestamp(1, new Timestamp(e.getTimestamp()));
+                            st.setString(2, e.getCategory().name());
+                            st.setInt(3, e.getLevel().ordinal());
+                            st.setString(4, e.getMessage());
+                            st.setString(5, e.getSubCategoryOptional().orElse(null));
+                            st.addBatch();
+                            if (++count % flushBatchSize == 0) {
+                                st.executeBatch();
+                            }
+                        }
+                        if (count % flushBatchSize != 0) {
+                            st.executeBatch();
                         }
-                    } catch (RuntimeException ex) {
-                        // This is not a big problem, it may happen on shutdown of database connections during tests, just inform the user
-                        // TODO Or is it a serious problem and we need to escalate? In any case, just throwing the ex is not good
-                        LOG.info("Error flushing syslog to database, some events are lost: " + ex);
-                    } finally {
-                        em.flush();
                     }
-                });
+                }));
             } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Exception occurred whilst flushing the syslog", e);
+                // This is not a big problem, it may happen on shutdown of database connections during tests, just inform the user
+                LOG.log(Level.INFO, "Error flushing syslog to database, " + transientEvents.size() + " events are lost", e);
+            }
+
+            long dropped = droppedEvents.get();
+            if (dropped > 0) {
+                LOG.fine("Syslog buffer overflow, total events dropped: " + dropped);
             }
         }
     }
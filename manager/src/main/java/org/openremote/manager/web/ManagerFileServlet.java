@@ -31,9 +31,11 @@ import org.openremote.container.web.file.GzipResponseFilter;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -93,6 +95,14 @@ public class ManagerFileServlet extends FileServlet {
         super(devMode, base, requiredRoles, MIME_TYPES, MIME_TYPES_EXPIRE_SECONDS, FILE_EXTENSIONS_ALREADY_ZIPPED);
     }
 
+    /**
+     * Text content is compressed once and cached instead of being compressed by the GZIP filter on every request.
+     */
+    @Override
+    protected boolean isCompressible(HttpServletRequest request, File file) {
+        return Arrays.asList(MIME_TYPES_TO_ZIP).contains(getContentType(request, file));
+    }
+
     public static DeploymentInfo createDeploymentInfo(boolean devMode, String contextPath, Path docRoot, String[] requiredRoles) {
         if (!Files.isDirectory(docRoot)) {
             throw new IllegalArgumentException("Document root does not exist: " + docRoot.toAbsolutePath());
@@ -0,0 +1,77 @@
+/*
+  ############################# ASSET PATH #############################
+
+  The asset tree path (ID of the asset followed by the IDs of its ancestors up to the root asset) is materialized in
+  the PATH column, so it doesn't have to be resolved recursively for every asset in a query. The path is maintained
+  by triggers when an asset is inserted or moved to another parent, deleting an asset requires it to have no children
+  so doesn't affect any other paths.
+ */
+alter table ASSET
+  add column PATH text [];
+
+update ASSET
+set PATH = GET_ASSET_TREE_PATH(ID);
+
+alter table ASSET
+  alter column PATH set not null;
+
+create or replace function UPDATE_ASSET_PATH()
+  returns trigger as
+$$
+declare
+  PARENT_PATH text [];
+begin
+  -- OLD is not assigned on insert and plpgsql doesn't short-circuit boolean expressions, so test it separately
+  if TG_OP = 'UPDATE' then
+    if NEW.PARENT_ID is not distinct from OLD.PARENT_ID and NEW.PATH is not null then
+      return NEW;
+    end if;
+  end if;
+
+  if NEW.PARENT_ID is null then
+    NEW.PATH := array [text(NEW.ID)];
+  else
+    select P.PATH into PARENT_PATH from ASSET P where P.ID = NEW.PARENT_ID;
+    if PARENT_PATH @> array [text(NEW.ID)] then
+      raise exception 'Asset % cannot be a descendant of itself', NEW.ID;
+    end if;
+    NEW.PATH := array [text(NEW.ID)] || PARENT_PATH;
+  end if;
+  return NEW;
+end;
+$$
+language plpgsql;
+
+create or replace function UPDATE_ASSET_DESCENDANT_PATHS()
+  returns trigger as
+$$
+begin
+  update ASSET A
+  set PATH = A.PATH [1:array_position(A.PATH, text(NEW.ID)) - 1] || NEW.PATH
+  where A.PATH @> array [text(NEW.ID)] and A.ID != NEW.ID;
+  return null;
+end;
+$$
+language plpgsql;
+
+create trigger ASSET_PATH
+  before insert or update on ASSET
+  for each row execute procedure UPDATE_ASSET_PATH();
+
+create trigger ASSET_DESCENDANT_PATHS
+  after update of PARENT_ID on ASSET
+  for each row
+  when (OLD.PARENT_ID is distinct from NEW.PARENT_ID)
+  execute procedure UPDATE_ASSET_DESCENDANT_PATHS();
+
+/*
+  Kept for existing callers, the path is now read from the materialized column.
+ */
+create or replace function GET_ASSET_TREE_PATH(ASSET_ID text)
+  returns text [] as
+$$
+  select A.PATH from ASSET A where A.ID = ASSET_ID;
+$$
+language sql stable;
+
+create index ASSET_PATH on ASSET using gin (PATH);
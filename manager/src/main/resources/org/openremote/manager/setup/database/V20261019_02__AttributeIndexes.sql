@@ -0,0 +1,25 @@
+/*
+  ############################# ATTRIBUTE INDICES #############################
+
+  Attribute and meta item predicates of asset queries are complemented with JSON containment (@>) filters that can
+  use these indices, so only the matching assets have their attributes expanded.
+ */
+
+/*
+  All meta items of all attributes of an asset as a single JSON array, this is indexed so meta item predicates
+  (e.g. all assets with an attribute that has STORE_DATA_POINTS) don't need to expand the attributes of every asset.
+ */
+create or replace function ASSET_META_ITEMS(ATTRIBUTES jsonb)
+  returns jsonb as
+$$
+  select coalesce(jsonb_agg(AM.VALUE), '[]' :: jsonb)
+  from jsonb_each(ATTRIBUTES) as AX, jsonb_array_elements(AX.VALUE -> 'meta') as AM
+  where jsonb_typeof(AX.VALUE) = 'object' and jsonb_typeof(AX.VALUE -> 'meta') = 'array';
+$$
+language sql immutable;
+
+create index ASSET_ATTRIBUTES on ASSET using gin (ATTRIBUTES);
+
+create index ASSET_META_ITEMS on ASSET using gin (ASSET_META_ITEMS(ATTRIBUTES) jsonb_path_ops);
+
+create index ASSET_REALM_TYPE on ASSET (REALM, ASSET_TYPE);
@@ -0,0 +1,33 @@
+/*
+  ############################# DATAPOINT INDICES #############################
+
+  Datapoints are always queried per attribute and then by time range, so the datapoint tables are keyed on
+  (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP) instead of (TIMESTAMP, ENTITY_ID, ATTRIBUTE_NAME). The new keys are built
+  concurrently so existing tables stay writable while this migration runs; the primary keys are swapped over in the
+  following migration. A BRIN index on TIMESTAMP serves the time based purging of datapoints.
+
+  A failed concurrent build leaves an INVALID index behind that "if not exists" would skip, so any index left by a
+  previous attempt of this migration is dropped and built again. The check for INVALID indices can't be done in a
+  DO block, as that would mix transactional and non-transactional statements.
+
+  This migration only contains non-transactional statements, don't add any other statements.
+ */
+drop index concurrently if exists ASSET_DATAPOINT_KEY;
+
+create unique index concurrently ASSET_DATAPOINT_KEY
+  on ASSET_DATAPOINT (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP);
+
+drop index concurrently if exists ASSET_DATAPOINT_TIMESTAMP;
+
+create index concurrently ASSET_DATAPOINT_TIMESTAMP
+  on ASSET_DATAPOINT using brin (TIMESTAMP);
+
+drop index concurrently if exists ASSET_PREDICTED_DATAPOINT_KEY;
+
+create unique index concurrently ASSET_PREDICTED_DATAPOINT_KEY
+  on ASSET_PREDICTED_DATAPOINT (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP);
+
+drop index concurrently if exists ASSET_PREDICTED_DATAPOINT_TIMESTAMP;
+
+create index concurrently ASSET_PREDICTED_DATAPOINT_TIMESTAMP
+  on ASSET_PREDICTED_DATAPOINT using brin (TIMESTAMP);
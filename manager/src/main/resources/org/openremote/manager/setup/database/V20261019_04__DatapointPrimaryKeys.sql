@@ -0,0 +1,21 @@
+/*
+  Swap the datapoint primary keys over to the (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP) indices built in the previous
+  migration, this only changes the catalog so is quick regardless of the table sizes.
+ */
+alter table ASSET_DATAPOINT
+  drop constraint ASSET_DATAPOINT_PKEY,
+  add constraint ASSET_DATAPOINT_PKEY primary key using index ASSET_DATAPOINT_KEY;
+
+alter table ASSET_PREDICTED_DATAPOINT
+  drop constraint ASSET_PREDICTED_DATAPOINT_PKEY,
+  add constraint ASSET_PREDICTED_DATAPOINT_PKEY primary key using index ASSET_PREDICTED_DATAPOINT_KEY;
+
+/*
+  Mark the new keys for clustering, the tables are not clustered here as that would lock them for the duration;
+  a plain CLUSTER during maintenance will now order the rows per attribute.
+ */
+alter table ASSET_DATAPOINT
+  cluster on ASSET_DATAPOINT_PKEY;
+
+alter table ASSET_PREDICTED_DATAPOINT
+  cluster on ASSET_PREDICTED_DATAPOINT_PKEY;
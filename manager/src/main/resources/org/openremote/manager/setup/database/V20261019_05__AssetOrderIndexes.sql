@@ -0,0 +1,7 @@
+/*
+  Indices for keyset pagination of asset queries ordered by creation date or name, assets with the same value are
+  ordered by ID.
+ */
+create index ASSET_CREATED_ON_ID on ASSET (CREATED_ON, ID);
+
+create index ASSET_NAME_ID on ASSET (NAME, ID);
@@ -460,6 +460,27 @@ public class AssetAttribute extends Attribute {
         return copy;
     }
 
+    /**
+     * Copy of this attribute that shares the type, value and {@link Meta} with this attribute; the meta is copied
+     * by whichever attribute first modifies it through {@link #getMeta}.
+     */
+    public AssetAttribute copyOnWrite() {
+        AssetAttribute copy = new AssetAttribute(getObjectValue().shallowCopy());
+        copy.name = name;
+        copy.assetId = assetId;
+        shareMetaWith(copy);
+        return copy;
+    }
+
+    /**
+     * Copy of this attribute with the given value and timestamp, see {@link #copyOnWrite}.
+     */
+    public AssetAttribute copyWithValue(Value value, long timestamp) {
+        AssetAttribute copy = copyOnWrite();
+        copy.setValue(value, timestamp);
+        return copy;
+    }
+
     public void setUnitType(String  unitType) {
         if (!isNullOrEmpty(unitType)) {
             replaceMetaByName(getMeta(), UNIT_TYPE, Values.create(unitType));
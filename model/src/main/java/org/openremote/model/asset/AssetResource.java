@@ -21,7 +21,9 @@ package org.openremote.model.asset;
 
 import jsinterop.annotations.JsType;
 import org.openremote.model.Constants;
+import org.openremote.model.attribute.AttributeEvent;
 import org.openremote.model.attribute.AttributeRef;
+import org.openremote.model.attribute.AttributeWriteResult;
 import org.openremote.model.attribute.MetaItemType;
 import org.openremote.model.http.RequestParams;
 import org.openremote.model.http.SuccessStatusCode;
@@ -30,6 +32,7 @@ import org.openremote.model.query.AssetQuery;
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Response;
 
 import java.util.List;
 
@@ -59,6 +62,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
  * <li>{@link #get}</li>
  * <li>{@link #update}</li>
  * <li>{@link #writeAttributeValue}</li>
+ * <li>{@link #writeAttributeValues}</li>
  * </ul>
  */
 @Path("asset")
@@ -216,6 +220,24 @@ public interface AssetResource {
     @SuppressWarnings("unusable-by-js")
     void writeAttributeValue(@BeanParam RequestParams requestParams, @PathParam("assetId") String assetId, @PathParam("attributeName") String attributeName, String rawJson);
 
+    /**
+     * Updates attributes of one or more assets in a single request, the same access rules as for
+     * {@link #writeAttributeValue} apply to each {@link AttributeEvent}. As with {@link #writeAttributeValue} the
+     * events are stamped with the current server time, the timestamps of the request are ignored.
+     * <p>
+     * By default the call waits until every event has been processed and returns a 200 status with an
+     * {@link AttributeWriteResult} for each event, in request order, carrying the failure reason of rejected writes.
+     * When <code>async</code> is set the events are only enqueued and a 202 status is returned with one result per
+     * event; events the processing queue can't take are rejected with {@link AttributeWriteResult.Failure#QUEUE_FULL}
+     * and can be sent again later.
+     */
+    @PUT
+    @Path("attributes")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @SuppressWarnings("unusable-by-js")
+    Response writeAttributeValues(@BeanParam RequestParams requestParams, @QueryParam("async") boolean async, AttributeEvent[] attributeEvents);
+
     /**
      * Creates an asset. The identifier value of the asset can be provided, it should be a globally unique string value,
      * and must be 22 characters long. If no identifier value is provided, a unique value will be generated by
@@ -262,6 +284,21 @@ public interface AssetResource {
     @SuppressWarnings("unusable-by-js")
     Asset[] queryAssets(@BeanParam RequestParams requestParams, AssetQuery query);
 
+    /**
+     * Same as {@link #queryAssets} but the assets are streamed as newline delimited JSON (one asset per line), they
+     * are read from the database and written to the response in pages so large results don't have to be held in
+     * memory. The response is not compressed. A 400 status is returned if the query is invalid. Use {@link
+     * AssetQuery#after} and {@link AssetQuery#limit} to resume or limit the stream.
+     */
+    @POST
+    @Path("query/stream")
+    @Consumes(APPLICATION_JSON)
+    @Produces("application/x-ndjson")
+    @SuccessStatusCode(200)
+    @RolesAllowed({Constants.READ_ASSETS_ROLE})
+    @SuppressWarnings("unusable-by-js")
+    Response streamAssets(@BeanParam RequestParams requestParams, AssetQuery query);
+
     /**
      * Retrieve public assets using an {@link AssetQuery}.
      * <p>
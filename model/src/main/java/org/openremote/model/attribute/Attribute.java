@@ -66,6 +66,13 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
     @JsonIgnore
     protected Meta meta;
 
+    /**
+     * Set when the meta array of this attribute is shared with another attribute (either side of a copy made
+     * with {@link #shareMetaWith}), the array is then copied on first write access through {@link #getMeta}.
+     */
+    @JsonIgnore
+    protected boolean metaShared;
+
     protected Attribute(ObjectValue objectValue) {
         super(objectValue);
     }
@@ -147,6 +154,11 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
     @JsonIgnore
     public Meta getMeta() {
         if (meta == null) {
+            if (metaShared) {
+                getObjectValue().getArray(META_FIELD_NAME)
+                    .ifPresent(arrayValue -> getObjectValue().put(META_FIELD_NAME, arrayValue.deepCopy()));
+                metaShared = false;
+            }
             return new Meta(getObjectValue()
                 .getArray(META_FIELD_NAME)
                 .orElseGet(() -> {
@@ -159,13 +171,45 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
         return meta;
     }
 
+    /**
+     * Read access to the {@link Meta} of this attribute, unlike {@link #getMeta} this doesn't copy meta shared
+     * with another attribute. The returned meta is unmodifiable and its items are copies, see {@link Meta#readOnly}.
+     */
+    @JsonIgnore
+    public Meta getMetaReadOnly() {
+        return Meta.readOnly(getObjectValue().getArray(META_FIELD_NAME).orElseGet(Values::createArray));
+    }
+
+    /**
+     * Shares the meta array of this attribute with the given copy; both attributes copy the array on their
+     * first write access through {@link #getMeta}, so neither sees modifications made through the other.
+     */
+    protected void shareMetaWith(Attribute copy) {
+        if (getObjectValue().getArray(META_FIELD_NAME).isPresent()) {
+            meta = null;
+            metaShared = true;
+            copy.metaShared = true;
+        }
+    }
+
+    /**
+     * Meta without copying shared meta, only for read access within this class.
+     */
+    protected Meta getMetaView() {
+        return new Meta(getObjectValue().getArray(META_FIELD_NAME).orElseGet(Values::createArray));
+    }
+
     @JsonProperty("meta")
     private List<MetaItem> getMetaInternal() {
-        return getMeta();
+        return getMetaView();
     }
 
+    /**
+     * The items are backed by the meta of this attribute and must not be modified, use {@link #getMeta} to modify
+     * meta.
+     */
     public Stream<MetaItem> getMetaStream() {
-        return getMeta().stream();
+        return getMetaView().stream();
     }
 
     public boolean hasMetaItem(String metaName) {
@@ -218,6 +262,7 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
         }
 
         this.meta = meta;
+        this.metaShared = false;
         getObjectValue().put(META_FIELD_NAME, meta.getArrayValue());
     }
 
@@ -254,7 +299,7 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
     public List<ValidationFailure> getMetaItemsValidationFailures() {
         List<ValidationFailure> failures = new ArrayList<>();
         if (hasMetaItems()) {
-            for (MetaItem metaItem : getMeta()) {
+            for (MetaItem metaItem : getMetaView()) {
                 failures.addAll(getMetaItemValidationFailures(metaItem, Optional.empty()));
             }
         }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.model.attribute;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The outcome of a single {@link AttributeEvent} of a batch attribute write request; {@link #getFailure} is null when
+ * the event was processed (or accepted for processing when the request doesn't wait for the outcome).
+ */
+public class AttributeWriteResult {
+
+    public enum Failure {
+
+        /**
+         * The asset doesn't exist.
+         */
+        ASSET_NOT_FOUND,
+
+        /**
+         * The attribute doesn't exist on the asset.
+         */
+        ATTRIBUTE_NOT_FOUND,
+
+        /**
+         * The user isn't allowed to write the attribute.
+         */
+        INSUFFICIENT_ACCESS,
+
+        /**
+         * The event or value is not valid for the attribute.
+         */
+        INVALID_REQUEST,
+
+        /**
+         * The processing queue is full, the event should be sent again later.
+         */
+        QUEUE_FULL,
+
+        /**
+         * Processing failed for another reason.
+         */
+        PROCESSING_FAILED
+    }
+
+    @JsonProperty
+    protected AttributeRef ref;
+    @JsonProperty
+    protected Failure failure;
+
+    @JsonCreator
+    public AttributeWriteResult(@JsonProperty("ref") AttributeRef ref,
+                                @JsonProperty("failure") Failure failure) {
+        this.ref = ref;
+        this.failure = failure;
+    }
+
+    public AttributeRef getRef() {
+        return ref;
+    }
+
+    public Failure getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "ref=" + ref +
+            ", failure=" + failure +
+            '}';
+    }
+}
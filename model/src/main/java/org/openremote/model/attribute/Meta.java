@@ -24,6 +24,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import org.openremote.model.value.ArrayValue;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Value;
 import org.openremote.model.value.Values;
 
 import java.util.*;
@@ -108,6 +110,84 @@ public class Meta extends AbstractList<MetaItem> {
         return new Meta(getArrayValue().deepCopy());
     }
 
+    /**
+     * An unmodifiable view of the given array; the view and its items throw {@link UnsupportedOperationException} on
+     * modification. Item views are created once per index and then shared by all reads of the view.
+     */
+    public static Meta readOnly(ArrayValue arrayValue) {
+        return new ReadOnlyMeta(arrayValue);
+    }
+
+    protected static class ReadOnlyMeta extends Meta {
+
+        protected MetaItem[] items;
+
+        protected ReadOnlyMeta(ArrayValue arrayValue) {
+            super(arrayValue);
+        }
+
+        @Override
+        public MetaItem get(int index) {
+            if (items == null) {
+                items = new MetaItem[size()];
+            }
+            if (index < 0 || index >= items.length) {
+                return super.get(index);
+            }
+            MetaItem item = items[index];
+            if (item == null) {
+                item = new ReadOnlyMetaItem(
+                    arrayValue.getObject(index)
+                        .orElseThrow(() -> new NoSuchElementException("At index: " + index))
+                );
+                items[index] = item;
+            }
+            return item;
+        }
+
+        @Override
+        public MetaItem set(int index, MetaItem metaItem) {
+            throw new UnsupportedOperationException("Meta is read only");
+        }
+
+        @Override
+        public void add(int index, MetaItem item) {
+            throw new UnsupportedOperationException("Meta is read only");
+        }
+
+        @Override
+        public MetaItem remove(int index) {
+            throw new UnsupportedOperationException("Meta is read only");
+        }
+    }
+
+    protected static class ReadOnlyMetaItem extends MetaItem {
+
+        protected ReadOnlyMetaItem(ObjectValue objectValue) {
+            super(objectValue);
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Meta item is read only");
+        }
+
+        @Override
+        public void clearName() {
+            throw new UnsupportedOperationException("Meta item is read only");
+        }
+
+        @Override
+        public void setValue(Value value) {
+            throw new UnsupportedOperationException("Meta item is read only");
+        }
+
+        @Override
+        public void clearValue() {
+            throw new UnsupportedOperationException("Meta item is read only");
+        }
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.model.gateway;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.openremote.model.event.shared.SharedEvent;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Carries a number of {@link SharedEvent}s from an edge gateway to the central manager in a single message; the
+ * {@link #events} must be processed in the order they appear. A {@link #replay} batch holds events that were kept by the
+ * gateway whilst it was disconnected, these are likely to be older than the current state of the central manager. It
+ * is sent as a request and the central manager responds with a {@link GatewayReplayAckEvent} once it has been stored.
+ */
+public class GatewayEventBatch extends SharedEvent {
+
+    protected List<SharedEvent> events;
+    protected boolean replay;
+
+    @JsonCreator
+    public GatewayEventBatch(@JsonProperty("timestamp") Date timestamp, @JsonProperty("events") List<SharedEvent> events, @JsonProperty("replay") boolean replay) {
+        super(timestamp != null ? timestamp.getTime() : new Date().getTime());
+        this.events = events;
+        this.replay = replay;
+    }
+
+    public GatewayEventBatch(List<SharedEvent> events) {
+        this(events, false);
+    }
+
+    public GatewayEventBatch(List<SharedEvent> events, boolean replay) {
+        this.events = events;
+        this.replay = replay;
+    }
+
+    public List<SharedEvent> getEvents() {
+        return events;
+    }
+
+    public boolean isReplay() {
+        return replay;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "events=" + (events != null ? events.size() : 0) +
+            ", replay=" + replay +
+            '}';
+    }
+}
@@ -186,6 +186,52 @@ public class AssetQuery {
         }
     }
 
+    /**
+     * Keyset pagination position; only assets ordered after the asset with these values are returned, use the values
+     * of the last asset of the previous page. Requires ordering by {@link OrderBy.Property#CREATED_ON} (uses
+     * {@link #createdOn}) or {@link OrderBy.Property#NAME} (uses {@link #name}), assets with the same value are
+     * ordered by ID. Unlike paging with an offset this doesn't get slower with each page.
+     */
+    public static class After {
+
+        public String id;
+        public Long createdOn;
+        public String name;
+
+        public After() {
+        }
+
+        public After(String id, Long createdOn, String name) {
+            this.id = id;
+            this.createdOn = createdOn;
+            this.name = name;
+        }
+
+        public After id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public After createdOn(Long createdOn) {
+            this.createdOn = createdOn;
+            return this;
+        }
+
+        public After name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{" +
+                    "id='" + id + '\'' +
+                    ", createdOn=" + createdOn +
+                    ", name='" + name + '\'' +
+                    '}';
+        }
+    }
+
     public enum Access {
         PRIVATE,
         PROTECTED,
@@ -249,6 +295,7 @@ public class AssetQuery {
     public MetaPredicate[] attributeMeta;
     // Ordering
     public OrderBy orderBy;
+    public After after;
     public int limit;
 
     public AssetQuery() {
@@ -422,6 +469,16 @@ public class AssetQuery {
         return this;
     }
 
+    public AssetQuery after(After after) {
+        this.after = after;
+        return this;
+    }
+
+    public AssetQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
@@ -436,6 +493,8 @@ public class AssetQuery {
                 ", attribute=" + (attributes != null ? attributes.toString() : "null") +
                 ", attributeMeta=" + Arrays.toString(attributeMeta) +
                 ", orderBy=" + orderBy +
+                ", after=" + after +
+                ", limit=" + limit +
                 ", recursive=" + recursive +
                 '}';
     }
@@ -42,7 +42,7 @@ import java.util.Optional;
  * <p>
  * This class layout is convenient for writing rules. Two asset states
  * are equal if they have the same asset ID and attribute name (the same attribute
- * reference).
+ * reference). Asset states are immutable snapshots, this includes the {@link #getMeta} of the attribute.
  */
 @GwtIncompatible
 public class AssetState implements Comparable<AssetState> {
@@ -126,7 +126,7 @@ public class AssetState implements Comparable<AssetState> {
         this.parentTypeString = asset.getParentType();
         this.parentType = asset.getParentWellKnownType();
         this.realm = asset.getRealm();
-        this.meta = attribute.getMeta();
+        this.meta = attribute.getMetaReadOnly();
     }
 
     public String getAttributeName() {
@@ -201,6 +201,11 @@ public class AssetState implements Comparable<AssetState> {
         return realm;
     }
 
+    /**
+     * The meta of the attribute when the state was captured; this is a read only view shared with the attribute
+     * snapshot, modifying it or its items throws {@link UnsupportedOperationException}. Use {@link Meta#copy} to get
+     * a modifiable copy.
+     */
     public Meta getMeta() {
         return meta;
     }
@@ -20,6 +20,7 @@
 package org.openremote.model.value;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 
@@ -39,6 +40,13 @@ public class JsonPathFilter extends ValueFilter<Value> {
     @JsonProperty
     public boolean returnLast;
 
+    /**
+     * The compiled form of the {@link #path}, set by the filter implementation on first use; it lives as long as this
+     * filter instance so it is dropped together with the filters of a linked attribute.
+     */
+    @JsonIgnore
+    public transient Object compiledPath;
+
     @JsonCreator
     public JsonPathFilter(@JsonProperty("path") String path,
                           @JsonProperty("returnFirst") boolean returnFirst,
@@ -80,6 +80,11 @@ public interface ObjectValue extends Value {
 
     ObjectValue deepCopy();
 
+    /**
+     * A copy of this object with the same keys, the values are shared with this object and not copied.
+     */
+    ObjectValue shallowCopy();
+
     /**
      * @param ignoreKeyPredicate Ignore given keys in the comparison.
      */
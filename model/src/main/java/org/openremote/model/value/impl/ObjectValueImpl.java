@@ -163,7 +163,18 @@ public class ObjectValueImpl extends ValueImpl implements ObjectValue {
 
     @Override
     public ObjectValue deepCopy() {
-        return Values.<ObjectValue>parse(toJson()).orElseThrow(() -> new IllegalStateException("Error copying object value"));
+        ObjectValueImpl copy = new ObjectValueImpl(factory);
+        for (Map.Entry<String, Value> entry : map.entrySet()) {
+            copy.map.put(entry.getKey(), ValueUtil.deepCopy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @Override
+    public ObjectValue shallowCopy() {
+        ObjectValueImpl copy = new ObjectValueImpl(factory);
+        copy.map.putAll(map);
+        return copy;
     }
 
     @Override
@@ -280,6 +280,20 @@ public class ValueUtil {
         return sb.toString();
     }
 
+    /**
+     * Copies the tree of the given value without a JSON round-trip; object and array nodes are
+     * copied, primitive values are immutable and therefore shared with the copy.
+     */
+    public static Value deepCopy(Value value) {
+        if (value instanceof ObjectValue) {
+            return ((ObjectValue) value).deepCopy();
+        }
+        if (value instanceof ArrayValue) {
+            return ((ArrayValue) value).deepCopy();
+        }
+        return value;
+    }
+
     /**
      * Turn a single unicode character into a 32-bit unicode hex literal.
      */
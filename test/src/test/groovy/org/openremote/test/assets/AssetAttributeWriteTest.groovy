@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.assets
+
+import org.openremote.manager.asset.AssetStorageService
+import org.openremote.manager.setup.SetupService
+import org.openremote.manager.setup.builtin.KeycloakTestSetup
+import org.openremote.model.asset.Asset
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetResource
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeValueType
+import org.openremote.model.attribute.AttributeWriteResult
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import static org.openremote.container.util.MapAccess.getString
+import static org.openremote.manager.security.ManagerIdentityProvider.SETUP_ADMIN_PASSWORD
+import static org.openremote.manager.security.ManagerIdentityProvider.SETUP_ADMIN_PASSWORD_DEFAULT
+import static org.openremote.model.Constants.*
+import static org.openremote.model.asset.AssetType.THING
+
+class AssetAttributeWriteTest extends Specification implements ManagerContainerTrait {
+
+    def "Write attribute values in a batch"() {
+
+        given: "the server container is started"
+        def container = startContainer(defaultConfig(), defaultServices())
+        def keycloakTestSetup = container.getService(SetupService.class).getTaskOfType(KeycloakTestSetup.class)
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def conditions = new PollingConditions(timeout: 10, delay: 0.2)
+
+        and: "an asset with two attributes"
+        def asset = new Asset("Batch Write", THING, null, keycloakTestSetup.masterTenant.realm)
+        asset.setAttributes(
+            new AssetAttribute("foo", AttributeValueType.STRING),
+            new AssetAttribute("bar", AttributeValueType.NUMBER)
+        )
+        asset = assetStorageService.merge(asset)
+
+        and: "the asset resource of an authenticated admin user"
+        def accessToken = authenticate(
+            container,
+            MASTER_REALM,
+            KEYCLOAK_CLIENT_ID,
+            MASTER_REALM_ADMIN_USER,
+            getString(container.getConfig(), SETUP_ADMIN_PASSWORD, SETUP_ADMIN_PASSWORD_DEFAULT)
+        ).token
+        def assetResource = getClientApiTarget(serverUri(serverPort), MASTER_REALM, accessToken).proxy(AssetResource.class)
+
+        when: "a batch with a valid, an unknown attribute and an invalid event is written"
+        def before = getClockTimeOf(container)
+        def response = assetResource.writeAttributeValues(null, false, [
+            new AttributeEvent(asset.id, "foo", Values.create("batch"), 1000),
+            new AttributeEvent(asset.id, "unknown", Values.create("batch")),
+            new AttributeEvent(null, "foo", Values.create("batch"))
+        ] as AttributeEvent[])
+        def results = response.readEntity(AttributeWriteResult[].class)
+
+        then: "each event should have a result in request order"
+        response.status == 200
+        results*.failure == [null, AttributeWriteResult.Failure.ATTRIBUTE_NOT_FOUND, AttributeWriteResult.Failure.INVALID_REQUEST]
+
+        and: "the value should be written with the server time rather than the time of the request"
+        def fooAttribute = assetStorageService.find(asset.id, true).getAttribute("foo").get()
+        fooAttribute.getValueAsString().get() == "batch"
+        fooAttribute.getValueTimestamp().get() >= before
+
+        when: "a batch larger than a chunk is written"
+        response = assetResource.writeAttributeValues(null, false, (1..150).collect {
+            new AttributeEvent(asset.id, "bar", Values.create(it))
+        } as AttributeEvent[])
+        results = response.readEntity(AttributeWriteResult[].class)
+
+        then: "all events should be processed"
+        response.status == 200
+        results.length == 150
+        results.every { it.failure == null }
+
+        and: "the events should have been applied in request order so the last value is the final value"
+        assetStorageService.find(asset.id, true).getAttribute("bar").get().getValueAsNumber().get() == 150
+
+        when: "a batch with several writes to the same attribute is written"
+        response = assetResource.writeAttributeValues(null, false, [
+            new AttributeEvent(asset.id, "foo", Values.create("first")),
+            new AttributeEvent(asset.id, "bar", Values.create(1)),
+            new AttributeEvent(asset.id, "foo", Values.create("second")),
+            new AttributeEvent(asset.id, "foo", Values.create("third"))
+        ] as AttributeEvent[])
+        results = response.readEntity(AttributeWriteResult[].class)
+
+        then: "the final value should be the last one written"
+        response.status == 200
+        results.every { it.failure == null }
+        def batchAsset = assetStorageService.find(asset.id, true)
+        batchAsset.getAttribute("foo").get().getValueAsString().get() == "third"
+        batchAsset.getAttribute("bar").get().getValueAsNumber().get() == 1
+
+        when: "a batch is written asynchronously"
+        response = assetResource.writeAttributeValues(null, true, [
+            new AttributeEvent(asset.id, "foo", Values.create("async"))
+        ] as AttributeEvent[])
+        results = response.readEntity(AttributeWriteResult[].class)
+
+        then: "the event should be accepted"
+        response.status == 202
+        results*.failure == [null]
+
+        and: "eventually be processed"
+        conditions.eventually {
+            assert assetStorageService.find(asset.id, true).getAttribute("foo").get().getValueAsString().get() == "async"
+        }
+    }
+}
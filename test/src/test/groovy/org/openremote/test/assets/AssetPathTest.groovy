@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.assets
+
+import org.openremote.manager.asset.AssetStorageService
+import org.openremote.manager.setup.SetupService
+import org.openremote.manager.setup.builtin.KeycloakTestSetup
+import org.openremote.model.asset.Asset
+import org.openremote.model.query.AssetQuery
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+
+import static org.openremote.model.asset.AssetType.THING
+
+class AssetPathTest extends Specification implements ManagerContainerTrait {
+
+    def "Asset paths are maintained when assets are created and moved"() {
+
+        given: "the server container is started"
+        def container = startContainer(defaultConfig(), defaultServices())
+        def keycloakTestSetup = container.getService(SetupService.class).getTaskOfType(KeycloakTestSetup.class)
+        def assetStorageService = container.getService(AssetStorageService.class)
+
+        when: "a root asset with a child and a grandchild is created"
+        def root1 = assetStorageService.merge(new Asset("Root 1", THING, null, keycloakTestSetup.masterTenant.realm))
+        def child = assetStorageService.merge(new Asset("Child", THING, root1))
+        def grandchild = assetStorageService.merge(new Asset("Grandchild", THING, child))
+
+        then: "the paths should contain the asset and its ancestors"
+        assetStorageService.find(root1.id, true).path == [root1.id] as String[]
+        assetStorageService.find(child.id, true).path == [child.id, root1.id] as String[]
+        assetStorageService.find(grandchild.id, true).path == [grandchild.id, child.id, root1.id] as String[]
+
+        when: "the child is moved to another root asset"
+        def root2 = assetStorageService.merge(new Asset("Root 2", THING, null, keycloakTestSetup.masterTenant.realm))
+        child = assetStorageService.find(child.id, true)
+        child.setParent(root2)
+        assetStorageService.merge(child)
+
+        then: "the paths of the child and its descendants should be updated"
+        assetStorageService.find(child.id, true).path == [child.id, root2.id] as String[]
+        assetStorageService.find(grandchild.id, true).path == [grandchild.id, child.id, root2.id] as String[]
+
+        and: "a recursive query of the parents should return the moved descendants"
+        assetStorageService.findAll(new AssetQuery().parents(root1.id).recursive(true)).isEmpty()
+        assetStorageService.findAll(new AssetQuery().parents(root2.id).recursive(true))*.id.sort() == [child.id, grandchild.id].sort()
+
+        when: "the child is moved to the root of the tree"
+        child = assetStorageService.find(child.id, true)
+        child.setParentId(null)
+        assetStorageService.merge(child)
+
+        then: "the paths should start at the child"
+        assetStorageService.find(child.id, true).path == [child.id] as String[]
+        assetStorageService.find(grandchild.id, true).path == [grandchild.id, child.id] as String[]
+    }
+}
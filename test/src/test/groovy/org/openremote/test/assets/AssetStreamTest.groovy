@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.assets
+
+import org.openremote.container.Container
+import org.openremote.manager.asset.AssetStorageService
+import org.openremote.manager.setup.SetupService
+import org.openremote.manager.setup.builtin.KeycloakTestSetup
+import org.openremote.model.asset.Asset
+import org.openremote.model.asset.AssetResource
+import org.openremote.model.query.AssetQuery
+import org.openremote.model.query.AssetQuery.OrderBy
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+
+import javax.ws.rs.core.HttpHeaders
+
+import static org.openremote.container.util.MapAccess.getString
+import static org.openremote.manager.security.ManagerIdentityProvider.SETUP_ADMIN_PASSWORD
+import static org.openremote.manager.security.ManagerIdentityProvider.SETUP_ADMIN_PASSWORD_DEFAULT
+import static org.openremote.model.Constants.*
+import static org.openremote.model.asset.AssetType.THING
+import static org.openremote.model.query.AssetQuery.Select.selectExcludePathAndAttributes
+
+class AssetStreamTest extends Specification implements ManagerContainerTrait {
+
+    def "Stream assets in pages"() {
+
+        given: "the server container is started"
+        def container = startContainer(defaultConfig(), defaultServices())
+        def keycloakTestSetup = container.getService(SetupService.class).getTaskOfType(KeycloakTestSetup.class)
+        def assetStorageService = container.getService(AssetStorageService.class)
+
+        and: "more child assets than fit in one page"
+        def parent = assetStorageService.merge(new Asset("Stream Parent", THING, null, keycloakTestSetup.masterTenant.realm))
+        def childIds = (1..250).collect { assetStorageService.merge(new Asset("Stream Child " + it, THING, parent)).id }
+
+        when: "the children are read in pages"
+        def pages = assetStorageService.findAllPages(new AssetQuery().parents(parent.id).select(selectExcludePathAndAttributes())).collect()
+
+        then: "all children should be returned once in creation order"
+        pages*.size() == [200, 50]
+        pages.flatten()*.id as Set == childIds as Set
+        pages.flatten()*.createdOn == pages.flatten()*.createdOn.sort(false)
+
+        when: "the children are read in pages ordered by name with a limit"
+        pages = assetStorageService.findAllPages(
+            new AssetQuery().parents(parent.id).select(selectExcludePathAndAttributes()).orderBy(new OrderBy(OrderBy.Property.NAME)).limit(210)
+        ).collect()
+
+        then: "the limit should apply to all pages"
+        pages*.size() == [200, 10]
+        pages.flatten()*.name == (1..250).collect { "Stream Child " + it }.sort().take(210)
+        pages.flatten()*.id.unique().size() == 210
+
+        when: "the children are read in pages by ID"
+        def idsQuery = new AssetQuery().ids(childIds.reverse() as String[]).select(selectExcludePathAndAttributes())
+        pages = assetStorageService.findAllPages(idsQuery).collect()
+
+        then: "all children should be returned once in creation order"
+        pages*.size() == [200, 50]
+        pages.flatten()*.id.unique().size() == 250
+        pages.flatten()*.id as Set == childIds as Set
+        pages.flatten()*.createdOn == pages.flatten()*.createdOn.sort(false)
+
+        and: "the query should not have been modified"
+        idsQuery.orderBy == null
+        idsQuery.after == null
+        idsQuery.limit == 0
+
+        when: "the children are streamed by the asset resource"
+        def accessToken = authenticate(
+            container,
+            MASTER_REALM,
+            KEYCLOAK_CLIENT_ID,
+            MASTER_REALM_ADMIN_USER,
+            getString(container.getConfig(), SETUP_ADMIN_PASSWORD, SETUP_ADMIN_PASSWORD_DEFAULT)
+        ).token
+        def assetResource = getClientApiTarget(serverUri(serverPort), MASTER_REALM, accessToken).proxy(AssetResource.class)
+        def response = assetResource.streamAssets(null, new AssetQuery().parents(parent.id).select(selectExcludePathAndAttributes()))
+        def lines = response.readEntity(String.class).readLines()
+
+        then: "each child should be written as a line of uncompressed JSON"
+        response.status == 200
+        response.getHeaderString(HttpHeaders.CONTENT_ENCODING) == null
+        lines.size() == 250
+        lines.collect { Container.JSON.readValue(it, Asset.class).id } as Set == childIds as Set
+
+        when: "an invalid query is streamed"
+        response = assetResource.streamAssets(
+            null,
+            new AssetQuery().parents(parent.id).orderBy(new OrderBy(OrderBy.Property.NAME)).after(new AssetQuery.After().id(childIds[0]))
+        )
+
+        then: "the request should be bad"
+        response.status == 400
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.assets
+
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.JsonPath
+import com.jayway.jsonpath.Option
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import groovy.transform.CompileStatic
+import org.openremote.manager.agent.AgentService
+import org.openremote.model.util.TextUtil
+import org.openremote.model.value.*
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.lang.management.ManagementFactory
+import java.util.logging.Logger
+
+/**
+ * Micro-benchmark of JSON path value filters on protocol payloads, comparing the compiled filter evaluated on value
+ * trees with the previous string round trips; allocation is measured with the thread allocation counter of the JVM
+ * so the comparison doesn't depend on timing.
+ */
+@Requires({ ValueFilterBenchmarkTest.allocationCounterSupported() })
+class ValueFilterBenchmarkTest extends Specification {
+
+    private static final Logger LOG = Logger.getLogger(ValueFilterBenchmarkTest.class.getName())
+
+    static final int WARMUP_ITERATIONS = 5000
+    static final int ITERATIONS = 20000
+
+    // Typical HTTP client protocol payload (weather API response)
+    static final String HTTP_PAYLOAD = '''{"coord":{"lon":4.48,"lat":51.92},"weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"}],"base":"stations","main":{"temp":12.4,"feels_like":9.8,"temp_min":11.1,"temp_max":13.9,"pressure":1019,"humidity":76},"visibility":10000,"wind":{"speed":5.1,"deg":240},"clouds":{"all":75},"dt":1603110000,"sys":{"type":1,"id":1541,"country":"NL","sunrise":1603087994,"sunset":1603125782},"timezone":7200,"id":2747891,"name":"Rotterdam","cod":200}'''
+
+    // Typical websocket/MQTT protocol payload, already parsed into a value tree
+    static final String DEVICE_PAYLOAD = '''[{"id":"sensor1","readings":[{"type":"temperature","value":21.5},{"type":"humidity","value":48}]},{"id":"sensor2","readings":[{"type":"temperature","value":19.0},{"type":"humidity","value":55}]}]'''
+
+    static class BenchmarkAgentService extends AgentService {
+
+        BenchmarkAgentService() {
+            jsonPathParser = JsonPath.using(
+                Configuration.builder()
+                    .jsonProvider(new JacksonJsonNodeJsonProvider())
+                    .mappingProvider(new JacksonMappingProvider())
+                    .build()
+                    .addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL)
+            )
+        }
+
+        @CompileStatic
+        Object compiledFilter(Value value, JsonPathFilter filter, int iterations) {
+            Object sink = null
+            for (int i = 0; i < iterations; i++) {
+                sink = applyJsonPathFilter(value, filter)
+            }
+            return sink
+        }
+
+        /**
+         * The previous filter implementation: serialize, re-parse and evaluate the path string, then parse the
+         * string form of the result.
+         */
+        @CompileStatic
+        Value stringRoundTripFilter(Value value, JsonPathFilter filter) {
+            if (value.getType() == ValueType.STRING) {
+                value = Values.<Value>parse(((StringValue) value).getString()).orElse(null)
+            }
+            if (value == null) {
+                return null
+            }
+            Object obj = jsonPathParser.parse(value.toJson()).read(filter.path)
+            String pathJson = obj != null ? obj.toString() : null
+            if (TextUtil.isNullOrEmpty(pathJson)) {
+                return null
+            }
+            Value pathValue = Values.<Value>parse(pathJson).orElse(null)
+            if ((filter.returnFirst || filter.returnLast) && pathValue != null && pathValue.getType() == ValueType.ARRAY) {
+                ArrayValue arr = (ArrayValue) pathValue
+                pathValue = arr.length() > 0 ? (filter.returnFirst ? arr.get(0) : arr.get(arr.length() - 1)).orElse(null) : null
+            }
+            return pathValue
+        }
+
+        @CompileStatic
+        Object stringRoundTripFilter(Value value, JsonPathFilter filter, int iterations) {
+            Object sink = null
+            for (int i = 0; i < iterations; i++) {
+                sink = stringRoundTripFilter(value, filter)
+            }
+            return sink
+        }
+    }
+
+    static boolean allocationCounterSupported() {
+        def bean = ManagementFactory.getThreadMXBean()
+        return bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+    }
+
+    @CompileStatic
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId())
+    }
+
+    @CompileStatic
+    static long[] measure(Closure<Object> filter) {
+        filter.call(WARMUP_ITERATIONS)
+        long start = System.nanoTime()
+        long bytes = allocatedBytes()
+        filter.call(ITERATIONS)
+        bytes = allocatedBytes() - bytes
+        long nanos = System.nanoTime() - start
+        return [bytes.intdiv(ITERATIONS).longValue(), nanos.intdiv(ITERATIONS).longValue()] as long[]
+    }
+
+    def "Allocation per filtered protocol payload"() {
+
+        given: "an agent service and protocol payloads"
+        def agentService = new BenchmarkAgentService()
+
+        expect: "both filter implementations to return the same result"
+        agentService.compiledFilter(payload, new JsonPathFilter(path, returnFirst, false), 1) == agentService.stringRoundTripFilter(payload, new JsonPathFilter(path, returnFirst, false))
+        agentService.compiledFilter(payload, new JsonPathFilter(path, returnFirst, false), 1) == expected
+
+        when: "the filter is applied to the payload with both implementations"
+        def filter = new JsonPathFilter(path, returnFirst, false)
+        long[] stringRoundTrip = measure({ int iterations -> agentService.stringRoundTripFilter(payload, filter, iterations) })
+        long[] compiled = measure({ int iterations -> agentService.compiledFilter(payload, filter, iterations) })
+        LOG.info("JSON path '" + path + "' with string round trips: " + stringRoundTrip[0] + " bytes, " + stringRoundTrip[1] + " ns")
+        LOG.info("JSON path '" + path + "' compiled on value trees: " + compiled[0] + " bytes, " + compiled[1] + " ns")
+
+        then: "the compiled filter should allocate less per payload"
+        compiled[0] < stringRoundTrip[0]
+
+        and: "the path should have been compiled once and kept on the filter"
+        filter.compiledPath instanceof JsonPath
+
+        where:
+        payload                                 | path                               | returnFirst | expected
+        Values.create(HTTP_PAYLOAD)             | "\$.main.temp"                     | false       | Values.create(12.4d)
+        Values.create(HTTP_PAYLOAD)             | "\$.weather[*].description"        | true        | Values.create("broken clouds")
+        Values.parseOrNull(DEVICE_PAYLOAD)      | "\$[1].readings[0].value"          | false       | Values.create(19.0d)
+    }
+}
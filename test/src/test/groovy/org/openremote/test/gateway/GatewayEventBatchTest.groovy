@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.gateway
+
+import org.openremote.container.Container
+import org.openremote.container.util.UniqueIdentifierGenerator
+import org.openremote.manager.asset.AssetProcessingService
+import org.openremote.manager.asset.AssetStorageService
+import org.openremote.manager.concurrent.ManagerExecutorService
+import org.openremote.manager.datapoint.AssetDatapointService
+import org.openremote.manager.gateway.GatewayClientService
+import org.openremote.manager.gateway.GatewayConnector
+import org.openremote.model.asset.Asset
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetEvent
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeValueType
+import org.openremote.model.attribute.MetaItem
+import org.openremote.model.attribute.MetaItemType
+import org.openremote.model.datapoint.AssetDatapoint
+import org.openremote.model.event.shared.EventRequestResponseWrapper
+import org.openremote.model.event.shared.SharedEvent
+import org.openremote.model.gateway.GatewayEventBatch
+import org.openremote.model.gateway.GatewayReplayAckEvent
+import org.openremote.model.value.Values
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledFuture
+
+import static org.openremote.manager.gateway.GatewayConnector.mapAssetId
+
+class GatewayEventBatchTest extends Specification {
+
+    def "Gateway client packs pending events into a batch and coalesces attribute events"() {
+
+        given: "a gateway client service that batches up to 3 events"
+        List<String> messages = []
+        Runnable flushTask = null
+        def gatewayClientService = new GatewayClientService() {
+            @Override
+            protected boolean isClientConnected(String realm) {
+                return true
+            }
+
+            @Override
+            protected void sendCentralManagerMessage(String realm, String message) {
+                messages.add(message)
+            }
+        }
+        gatewayClientService.eventBatchMillis = 100
+        gatewayClientService.eventBatchSize = 3
+        gatewayClientService.executorService = Stub(ManagerExecutorService) {
+            schedule(_ as Runnable, _ as Long) >> { Runnable runnable, long delayMillis ->
+                flushTask = runnable
+                Stub(ScheduledFuture)
+            }
+        }
+
+        when: "two events of the same attribute and an event of another attribute are queued"
+        [
+            new AttributeEvent("asset1", "attribute1", Values.create(1)),
+            new AttributeEvent("asset1", "attribute2", Values.create(2)),
+            new AttributeEvent("asset1", "attribute1", Values.create(3))
+        ].each {
+            gatewayClientService.queueCentralManagerEvent("realm", it.attributeRef, it)
+        }
+
+        then: "nothing should have been sent yet and a flush should have been scheduled"
+        messages.isEmpty()
+        flushTask != null
+
+        when: "the flush runs"
+        flushTask.run()
+
+        then: "a single batch should have been sent with the latest event of each attribute in queue order"
+        messages.size() == 1
+        messages[0].startsWith(SharedEvent.MESSAGE_PREFIX)
+        def batch = Container.JSON.readValue(messages[0].substring(SharedEvent.MESSAGE_PREFIX.length()), SharedEvent.class)
+        batch instanceof GatewayEventBatch
+        !((GatewayEventBatch)batch).replay
+        ((GatewayEventBatch)batch).events.size() == 2
+        ((AttributeEvent)((GatewayEventBatch)batch).events[0]).attributeName == "attribute2"
+        ((AttributeEvent)((GatewayEventBatch)batch).events[1]).attributeName == "attribute1"
+        ((AttributeEvent)((GatewayEventBatch)batch).events[1]).value.flatMap{Values.getNumber(it)}.orElse(null) == 3d
+
+        when: "as many distinct events as the batch size are queued"
+        messages.clear()
+        (1..3).each {
+            gatewayClientService.queueCentralManagerEvent("realm", new Object(), new AssetEvent(AssetEvent.Cause.UPDATE, new Asset("Asset " + it, AssetType.THING), null))
+        }
+
+        then: "the batch should be sent immediately"
+        messages.size() == 1
+        ((GatewayEventBatch)Container.JSON.readValue(messages[0].substring(SharedEvent.MESSAGE_PREFIX.length()), SharedEvent.class)).events.size() == 3
+
+        when: "batching is disabled and an event is queued"
+        messages.clear()
+        gatewayClientService.eventBatchMillis = 0
+        gatewayClientService.queueCentralManagerEvent("realm", new Object(), new AttributeEvent("asset1", "attribute1", Values.create(4)))
+
+        then: "the event should be sent as is"
+        messages.size() == 1
+        Container.JSON.readValue(messages[0].substring(SharedEvent.MESSAGE_PREFIX.length()), SharedEvent.class) instanceof AttributeEvent
+    }
+
+    def "Gateway connector unpacks batches in order"() {
+
+        given: "a connected gateway connector that has finished its initial sync"
+        def assetProcessingService = Mock(AssetProcessingService)
+        def gateway = new Asset("Gateway", AssetType.GATEWAY)
+        gateway.setId(UniqueIdentifierGenerator.generateId())
+        gateway.setRealm("realm")
+        def connector = new GatewayConnector(
+            Mock(AssetStorageService),
+            assetProcessingService,
+            Mock(AssetDatapointService),
+            Mock(ManagerExecutorService),
+            gateway
+        )
+        connector.gatewayMessageConsumer = { message -> }
+        connector.initialSyncInProgress = false
+        def gatewayAssetId = UniqueIdentifierGenerator.generateId()
+
+        and: "a batch received from the gateway"
+        def message = SharedEvent.MESSAGE_PREFIX + Container.JSON.writeValueAsString(new GatewayEventBatch([
+            new AttributeEvent(gatewayAssetId, "attribute1", Values.create(1), 1000),
+            new AttributeEvent(gatewayAssetId, "attribute2", Values.create(2), 2000),
+            new AttributeEvent(gatewayAssetId, "attribute1", Values.create(3), 3000)
+        ] as List<SharedEvent>))
+
+        when: "the batch is processed by the connector"
+        connector.onGatewayEvent(null, Container.JSON.readValue(message.substring(SharedEvent.MESSAGE_PREFIX.length()), SharedEvent.class))
+
+        then: "each event should be passed on for processing in order"
+        1 * assetProcessingService.sendAttributeEvent({ AttributeEvent e -> e.entityId == mapAssetId(gateway.id, gatewayAssetId, false) && e.attributeName == "attribute1" && e.timestamp == 1000 }, AttributeEvent.Source.GATEWAY)
+
+        then:
+        1 * assetProcessingService.sendAttributeEvent({ AttributeEvent e -> e.attributeName == "attribute2" && e.timestamp == 2000 }, AttributeEvent.Source.GATEWAY)
+
+        then:
+        1 * assetProcessingService.sendAttributeEvent({ AttributeEvent e -> e.attributeName == "attribute1" && e.timestamp == 3000 }, AttributeEvent.Source.GATEWAY)
+    }
+
+    def "Gateway connector only stores the datapoints of replayed events"() {
+
+        given: "a connected gateway connector that is syncing"
+        def assetProcessingService = Mock(AssetProcessingService)
+        def assetDatapointService = Mock(AssetDatapointService)
+        def gateway = new Asset("Gateway", AssetType.GATEWAY)
+        gateway.setId(UniqueIdentifierGenerator.generateId())
+        gateway.setRealm("realm")
+        def gatewayAssetId = UniqueIdentifierGenerator.generateId()
+        def asset = new Asset("Thing", AssetType.THING)
+        asset.setId(mapAssetId(gateway.id, gatewayAssetId, false))
+        asset.addAttributes(
+            new AssetAttribute("attribute1", AttributeValueType.NUMBER, Values.create(5), 5000)
+                .setMeta(new MetaItem(MetaItemType.STORE_DATA_POINTS, Values.create(true)))
+        )
+        def connector = new GatewayConnector(
+            Stub(AssetStorageService) {
+                findAll(_) >> [asset]
+            },
+            assetProcessingService,
+            assetDatapointService,
+            Stub(ManagerExecutorService) {
+                execute(_) >> { Runnable runnable -> runnable.run() }
+            },
+            gateway
+        )
+        List<Object> messages = []
+        connector.gatewayMessageConsumer = { message -> messages.add(message) }
+        connector.initialSyncInProgress = true
+        connector.cachedAttributeEvents = []
+
+        and: "the synced state of the gateway asset"
+        def gatewayAsset = new Asset("Thing", AssetType.THING)
+        gatewayAsset.setId(gatewayAssetId)
+        gatewayAsset.addAttributes(new AssetAttribute("attribute1", AttributeValueType.NUMBER, Values.create(5), 5000))
+        connector.syncedAssetStates.put(gatewayAssetId, new GatewayConnector.SyncedAssetState(gatewayAsset))
+
+        when: "a replay batch is received during the initial sync"
+        connector.onGatewayEvent("replay1", new GatewayEventBatch([
+            new AttributeEvent(gatewayAssetId, "attribute1", Values.create(1), 1000),
+            new AttributeEvent(gatewayAssetId, "attribute1", Values.create(2), 2000)
+        ] as List<SharedEvent>, true))
+
+        then: "the datapoints should be stored and confirmed"
+        1 * assetDatapointService.storeDatapoints({ Collection<AssetDatapoint> datapoints ->
+            datapoints*.timestamp == [1000L, 2000L] && datapoints.every { it.entityId == asset.id && it.attributeName == "attribute1" }
+        })
+        messages.size() == 1
+        ((EventRequestResponseWrapper) messages[0]).messageId == "replay1"
+        ((EventRequestResponseWrapper) messages[0]).event instanceof GatewayReplayAckEvent
+
+        and: "the events should not be processed or cached for processing after the sync"
+        0 * assetProcessingService.sendAttributeEvent(_, _)
+        connector.cachedAttributeEvents.isEmpty()
+        connector.syncedAssetStates.get(gatewayAssetId).matches(gatewayAsset)
+
+        when: "a replay batch is received after the initial sync"
+        connector.initialSyncInProgress = false
+        connector.onGatewayEvent("replay2", new GatewayEventBatch([
+            new AttributeEvent(gatewayAssetId, "attribute1", Values.create(3), 3000)
+        ] as List<SharedEvent>, true))
+
+        then: "only the datapoints should be stored and the synced state should be unchanged"
+        1 * assetDatapointService.storeDatapoints({ Collection<AssetDatapoint> datapoints -> datapoints*.timestamp == [3000L] })
+        0 * assetProcessingService.sendAttributeEvent(_, _)
+        connector.syncedAssetStates.get(gatewayAssetId).matches(gatewayAsset)
+
+        when: "a live event older than the synced state is received"
+        connector.onGatewayEvent(null, new AttributeEvent(gatewayAssetId, "attribute1", Values.create(4), 4000))
+
+        then: "it should be processed without moving the synced state backwards"
+        1 * assetProcessingService.sendAttributeEvent({ AttributeEvent e -> e.timestamp == 4000 }, AttributeEvent.Source.GATEWAY)
+        connector.syncedAssetStates.get(gatewayAssetId).attributeTimestamps["attribute1"] == 5000L
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.gateway
+
+import org.openremote.manager.gateway.GatewayOutbox
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static java.nio.file.StandardOpenOption.WRITE
+
+class GatewayOutboxTest extends Specification {
+
+    // Each record is 8 bytes plus the 12 byte record header
+    static final int RECORD_SIZE = 20
+
+    Path directory
+    Path file
+    GatewayOutbox outbox
+
+    def setup() {
+        directory = Files.createTempDirectory("gateway-outbox")
+        file = directory.resolve("test.outbox")
+    }
+
+    def cleanup() {
+        outbox?.close()
+        Files.deleteIfExists(file)
+        Files.deleteIfExists(directory)
+    }
+
+    static byte[] record(int i) {
+        return ("record-" + i).getBytes(UTF_8)
+    }
+
+    static List<String> toStrings(List<byte[]> records) {
+        return records.collect { new String(it, UTF_8) }
+    }
+
+    void writeInt(long position, int value) {
+        def channel = FileChannel.open(file, WRITE)
+        try {
+            channel.write(ByteBuffer.allocate(4).putInt(0, value), position)
+        } finally {
+            channel.close()
+        }
+    }
+
+    def "Records are only removed once acknowledged"() {
+
+        given: "an outbox with three records"
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+        (1..3).each { outbox.append(1000, record(it)) }
+
+        expect: "the records to be pending"
+        !outbox.isEmpty()
+        outbox.size == 3 * RECORD_SIZE
+
+        when: "two records are peeked"
+        def records = outbox.peek(2, 0)
+
+        then: "the first two records should be returned and kept"
+        toStrings(records) == ["record-1", "record-2"]
+        outbox.size == 3 * RECORD_SIZE
+
+        when: "the next records are peeked"
+        records = outbox.peek(10, 0)
+
+        then: "only the record following the peeked records should be returned"
+        toStrings(records) == ["record-3"]
+
+        when: "the outbox is reset and peeked again"
+        outbox.reset()
+        records = outbox.peek(2, 0)
+
+        then: "the records should be returned again"
+        toStrings(records) == ["record-1", "record-2"]
+
+        when: "the peeked records are acknowledged"
+        outbox.acknowledge()
+
+        then: "only the remaining record should be pending"
+        outbox.size == RECORD_SIZE
+        toStrings(outbox.peek(10, 0)) == ["record-3"]
+
+        when: "the last record is acknowledged"
+        outbox.acknowledge()
+
+        then: "the outbox should be empty"
+        outbox.isEmpty()
+        outbox.peek(10, 0).isEmpty()
+    }
+
+    def "Records wrap around the end of the outbox and the oldest are dropped when full"() {
+
+        given: "an outbox with space for two and a half records"
+        outbox = new GatewayOutbox(file, (int) (2.5 * RECORD_SIZE))
+
+        when: "two records are appended and the first is acknowledged"
+        outbox.append(1000, record(1))
+        outbox.append(1000, record(2))
+        outbox.peek(1, 0)
+        outbox.acknowledge()
+
+        and: "a record is appended that doesn't fit before the end of the outbox"
+        outbox.append(1000, record(3))
+
+        then: "the record should wrap around and be read back intact"
+        outbox.dropped == 0
+        toStrings(outbox.peek(10, 0)) == ["record-2", "record-3"]
+
+        when: "another record is appended to the full outbox"
+        outbox.reset()
+        outbox.append(1000, record(4))
+
+        then: "the oldest record should have been dropped"
+        outbox.dropped == 1
+        outbox.size == 2 * RECORD_SIZE
+        toStrings(outbox.peek(10, 0)) == ["record-3", "record-4"]
+
+        when: "enough records are appended to drop the peeked records"
+        outbox.append(1000, record(5))
+        outbox.append(1000, record(6))
+
+        then: "the peeked records should have been dropped"
+        outbox.dropped == 3
+
+        when: "the outbox is acknowledged"
+        outbox.acknowledge()
+
+        then: "only what was left of the peeked records should have been removed"
+        toStrings(outbox.peek(10, 0)) == ["record-5", "record-6"]
+
+        when: "a record larger than the outbox is appended"
+        def appended = outbox.append(1000, new byte[3 * RECORD_SIZE])
+
+        then: "it should be rejected without dropping other records"
+        !appended
+        outbox.size == 2 * RECORD_SIZE
+    }
+
+    def "Expired records are skipped"() {
+
+        given: "an outbox with records of increasing age"
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+        outbox.append(1000, record(1))
+        outbox.append(2000, record(2))
+        outbox.append(3000, record(3))
+        outbox.append(1500, record(4))
+
+        when: "records are peeked with a minimum timestamp"
+        def records = outbox.peek(10, 2500)
+
+        then: "the expired records should be skipped and the expired head removed straight away"
+        toStrings(records) == ["record-3"]
+        outbox.dropped == 2
+        outbox.size == 2 * RECORD_SIZE
+
+        when: "the peeked records are acknowledged"
+        outbox.acknowledge()
+
+        then: "the expired records following them should be removed too"
+        outbox.isEmpty()
+    }
+
+    def "Pending records survive a restart and a corrupt outbox is truncated"() {
+
+        given: "an outbox with three records of which the first is acknowledged"
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+        (1..3).each { outbox.append(1000, record(it)) }
+        outbox.peek(1, 0)
+        outbox.acknowledge()
+
+        when: "the outbox is closed and opened again"
+        outbox.close()
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+
+        then: "the pending records should still be there"
+        outbox.size == 2 * RECORD_SIZE
+        toStrings(outbox.peek(10, 0)) == ["record-2", "record-3"]
+
+        when: "the outbox is closed and the length of the last record is corrupted"
+        outbox.close()
+        // File header is 16 bytes, the last record is the third record in the file
+        writeInt(16 + 2 * RECORD_SIZE, Integer.MAX_VALUE)
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+
+        then: "the outbox should be truncated at the corrupt record"
+        outbox.size == RECORD_SIZE
+        toStrings(outbox.peek(10, 0)) == ["record-2"]
+
+        when: "the outbox is closed and the file header is corrupted"
+        outbox.close()
+        writeInt(0, 0)
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+
+        then: "the outbox should be reinitialised"
+        outbox.isEmpty()
+    }
+
+    def "Pending records are kept when the outbox is opened with a different capacity"() {
+
+        given: "an outbox with records that wrap around the end"
+        outbox = new GatewayOutbox(file, 4 * RECORD_SIZE)
+        (1..3).each { outbox.append(1000 * it, record(it)) }
+        outbox.peek(2, 0)
+        outbox.acknowledge()
+        (4..6).each { outbox.append(1000 * it, record(it)) }
+
+        expect: "the records to be pending"
+        toStrings(outbox.peek(10, 0)) == ["record-3", "record-4", "record-5", "record-6"]
+
+        when: "the outbox is closed and opened with a larger capacity"
+        outbox.close()
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+
+        then: "the pending records should have been moved into the larger outbox"
+        Files.size(file) == 16 + 10 * RECORD_SIZE
+        outbox.size == 4 * RECORD_SIZE
+        toStrings(outbox.peek(10, 0)) == ["record-3", "record-4", "record-5", "record-6"]
+
+        when: "more records are appended and the outbox is opened again with the same capacity"
+        outbox.reset()
+        (7..8).each { outbox.append(1000 * it, record(it)) }
+        outbox.close()
+        outbox = new GatewayOutbox(file, 10 * RECORD_SIZE)
+
+        then: "all records should still be pending"
+        toStrings(outbox.peek(10, 0)) == (3..8).collect { "record-" + it }
+
+        when: "the outbox is closed and opened with a smaller capacity"
+        outbox.close()
+        outbox = new GatewayOutbox(file, 3 * RECORD_SIZE)
+
+        then: "the newest records that fit should be kept with their timestamps"
+        Files.size(file) == 16 + 3 * RECORD_SIZE
+        outbox.dropped == 3
+        toStrings(outbox.peek(10, 7000)) == ["record-7", "record-8"]
+        outbox.dropped == 4
+    }
+}
@@ -139,7 +139,8 @@ class GatewayTest extends Specification implements ManagerContainerTrait {
             assert response.messageId == GatewayConnector.ASSET_READ_EVENT_NAME_INITIAL
             def readAssetsEvent = response.event as ReadAssetsEvent
             assert readAssetsEvent.assetQuery != null
-            assert readAssetsEvent.assetQuery.select.excludeAttributes
+            assert readAssetsEvent.assetQuery.select.excludeAttributeValue
+            assert readAssetsEvent.assetQuery.select.excludeAttributeMeta
             assert readAssetsEvent.assetQuery.select.excludePath
             assert readAssetsEvent.assetQuery.select.excludeParentInfo
             assert readAssetsEvent.assetQuery.recursive
@@ -250,11 +251,11 @@ class GatewayTest extends Specification implements ManagerContainerTrait {
             new AssetsEvent(sendAssets))
         gatewayClient.sendMessage(EventRequestResponseWrapper.MESSAGE_PREFIX + Container.JSON.writeValueAsString(readAssetsReplyEvent))
 
-        then: "the central manager should have requested the full loading of the first batch of assets"
+        then: "the central manager should have requested the full loading of both batches of assets at once"
         String messageId = null
         ReadAssetsEvent readAssetsEvent = null
         conditions.eventually {
-            assert clientReceivedMessages.size() == 1
+            assert clientReceivedMessages.size() == 2
             assert clientReceivedMessages.get(0).startsWith(EventRequestResponseWrapper.MESSAGE_PREFIX)
             assert clientReceivedMessages.get(0).contains("read-assets")
             def response = Container.JSON.readValue(clientReceivedMessages[0].substring(EventRequestResponseWrapper.MESSAGE_PREFIX.length()), EventRequestResponseWrapper.class)
@@ -647,7 +648,7 @@ class GatewayTest extends Specification implements ManagerContainerTrait {
         )
         gatewayClient.sendMessage(EventRequestResponseWrapper.MESSAGE_PREFIX + Container.JSON.writeValueAsString(readAssetsReplyEvent))
 
-        then: "the central manager should have requested the full loading of the first batch of assets"
+        then: "the central manager should only have requested the assets that are new or have changed whilst disconnected"
         conditions.eventually {
             assert clientReceivedMessages.size() == 1
             assert clientReceivedMessages.get(0).startsWith(EventRequestResponseWrapper.MESSAGE_PREFIX)
@@ -660,9 +661,10 @@ class GatewayTest extends Specification implements ManagerContainerTrait {
             assert readAssetsEvent.assetQuery.select.excludePath
             assert readAssetsEvent.assetQuery.select.excludeParentInfo
             assert readAssetsEvent.assetQuery.ids != null
-            assert readAssetsEvent.assetQuery.ids.length == GatewayConnector.SYNC_ASSET_BATCH_SIZE
-            assert agentAssetIds.stream().filter{readAssetsEvent.assetQuery.ids.contains(it)}.count() == agentAssetIds.size()
-            assert assetIds.stream().filter{readAssetsEvent.assetQuery.ids.contains(it)}.count() + 1 == GatewayConnector.SYNC_ASSET_BATCH_SIZE - agentAssetIds.size()
+            assert readAssetsEvent.assetQuery.ids.length < GatewayConnector.SYNC_ASSET_BATCH_SIZE
+            assert readAssetsEvent.assetQuery.ids.contains(building1Room5Asset.id)
+            assert readAssetsEvent.assetQuery.ids.contains(assetIds[0])
+            assert agentAssetIds.stream().noneMatch{readAssetsEvent.assetQuery.ids.contains(it)}
         }
 
         when: "another asset is added to the gateway during the initial sync process"
@@ -700,33 +702,8 @@ class GatewayTest extends Specification implements ManagerContainerTrait {
         def removedAsset = assets.remove(10)
         gatewayClient.sendMessage(SharedEvent.MESSAGE_PREFIX + Container.JSON.writeValueAsString(new AssetEvent(AssetEvent.Cause.DELETE, removedAsset, null)))
 
-        and: "the gateway returns the requested assets (minus the deleted Building 3 Room 1 asset)"
-        sendAssets = [building1Room5Asset]
-        sendAssets.addAll(agentAssets)
-        sendAssets.addAll(Arrays.stream(readAssetsEvent.assetQuery.ids).filter{!agentAssetIds.contains(it) && it != removedAsset.id && it != building1Room5Asset.id}.map{id -> assets.stream().filter{asset -> asset.id == id}.findFirst().orElse(null)}.collect(Collectors.toList()))
-        readAssetsReplyEvent = new EventRequestResponseWrapper(messageId, new AssetsEvent(sendAssets))
-        gatewayClient.sendMessage(EventRequestResponseWrapper.MESSAGE_PREFIX + Container.JSON.writeValueAsString(readAssetsReplyEvent))
-
-        then: "the central manager should have requested the full loading of the second batch of assets"
-        conditions.eventually {
-            assert clientReceivedMessages.size() == 2
-            assert clientReceivedMessages.get(1).startsWith(EventRequestResponseWrapper.MESSAGE_PREFIX)
-            assert clientReceivedMessages.get(1).contains("read-assets")
-            def request = Container.JSON.readValue(clientReceivedMessages[1].substring(EventRequestResponseWrapper.MESSAGE_PREFIX.length()), EventRequestResponseWrapper.class)
-            messageId = request.messageId
-            readAssetsEvent = request.event as ReadAssetsEvent
-            assert messageId == GatewayConnector.ASSET_READ_EVENT_NAME_BATCH + (GatewayConnector.SYNC_ASSET_BATCH_SIZE - 1)
-            assert readAssetsEvent.assetQuery != null
-            assert readAssetsEvent.assetQuery.select.excludePath
-            assert readAssetsEvent.assetQuery.select.excludeParentInfo
-            assert readAssetsEvent.assetQuery.ids != null
-            assert readAssetsEvent.assetQuery.ids.length == agentAssetIds.size() + assets.size() + 1 - GatewayConnector.SYNC_ASSET_BATCH_SIZE + 1
-            assert assets.stream().filter{asset -> sendAssets.stream().noneMatch{it.id == asset.id}}.count() == readAssetsEvent.assetQuery.ids.length
-        }
-
-        when: "the gateway returns the requested assets"
-        sendAssets = []
-        sendAssets.addAll(Arrays.stream(readAssetsEvent.assetQuery.ids).map{id -> assets.stream().filter{asset -> asset.id == id}.findFirst().orElse(null)}.collect(Collectors.toList()))
+        and: "the gateway returns the requested assets"
+        sendAssets = Arrays.stream(readAssetsEvent.assetQuery.ids).map{id -> id == building1Room5Asset.id ? building1Room5Asset : assets.stream().filter{asset -> asset.id == id}.findFirst().orElse(null)}.filter{it != null}.collect(Collectors.toList())
         readAssetsReplyEvent = new EventRequestResponseWrapper(messageId, new AssetsEvent(sendAssets))
         gatewayClient.sendMessage(EventRequestResponseWrapper.MESSAGE_PREFIX + Container.JSON.writeValueAsString(readAssetsReplyEvent))
 
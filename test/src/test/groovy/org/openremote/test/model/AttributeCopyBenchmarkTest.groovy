@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.model
+
+import groovy.transform.CompileStatic
+import org.openremote.model.asset.Asset
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeValueType
+import org.openremote.model.attribute.MetaItem
+import org.openremote.model.attribute.MetaItemType
+import org.openremote.model.rules.AssetState
+import org.openremote.model.value.Value
+import org.openremote.model.value.Values
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.lang.management.ManagementFactory
+import java.util.logging.Logger
+
+/**
+ * Micro-benchmark of the per event attribute copies made by asset processing and rules; allocation is measured with
+ * the thread allocation counter of the JVM so the comparison doesn't depend on timing.
+ */
+@Requires({ AttributeCopyBenchmarkTest.allocationCounterSupported() })
+class AttributeCopyBenchmarkTest extends Specification {
+
+    private static final Logger LOG = Logger.getLogger(AttributeCopyBenchmarkTest.class.getName())
+
+    static final int WARMUP_ITERATIONS = 20000
+    static final int ITERATIONS = 100000
+
+    static boolean allocationCounterSupported() {
+        def bean = ManagementFactory.getThreadMXBean()
+        return bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+    }
+
+    @CompileStatic
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId())
+    }
+
+    /**
+     * Previous processing of an attribute event: deep copy the attribute for the update and again for the rule fact.
+     */
+    @CompileStatic
+    static Object deepCopyEvents(Asset asset, AssetAttribute attribute, int iterations) {
+        Object sink = null
+        for (int i = 0; i < iterations; i++) {
+            AssetAttribute updated = attribute.deepCopy()
+            updated.setValue(Values.create(i), i)
+            AssetState assetState = new AssetState(asset, updated.deepCopy(), AttributeEvent.Source.SENSOR)
+            sink = assetState.getMeta().get(0)
+        }
+        return sink
+    }
+
+    /**
+     * Current processing of an attribute event: copy on write for the update and for the rule fact.
+     */
+    @CompileStatic
+    static Object copyOnWriteEvents(Asset asset, AssetAttribute attribute, int iterations) {
+        Object sink = null
+        for (int i = 0; i < iterations; i++) {
+            AssetAttribute updated = attribute.copyWithValue(Values.create(i), i)
+            AssetState assetState = new AssetState(asset, updated.copyOnWrite(), AttributeEvent.Source.SENSOR)
+            sink = assetState.getMeta().get(0)
+        }
+        return sink
+    }
+
+    @CompileStatic
+    static long[] measure(Closure<Object> events) {
+        events.call(WARMUP_ITERATIONS)
+        long start = System.nanoTime()
+        long bytes = allocatedBytes()
+        events.call(ITERATIONS)
+        bytes = allocatedBytes() - bytes
+        long nanos = System.nanoTime() - start
+        return [bytes.intdiv(ITERATIONS).longValue(), nanos.intdiv(ITERATIONS).longValue()] as long[]
+    }
+
+    def "Allocation per processed attribute event"() {
+
+        given: "an asset with an agent linked attribute carrying typical meta"
+        Asset asset = new Asset("Thermostat", AssetType.THING)
+        AssetAttribute attribute = new AssetAttribute("temperature", AttributeValueType.TEMPERATURE, Values.create(20), 1000)
+        attribute.setMeta(
+            new MetaItem(MetaItemType.LABEL, Values.create("Room temperature")),
+            new MetaItem(MetaItemType.DESCRIPTION, Values.create("Temperature measured by the thermostat")),
+            new MetaItem(MetaItemType.AGENT_LINK, Values.parseOrNull('["agent1234567890", "thermostatConfig"]')),
+            new MetaItem(MetaItemType.STORE_DATA_POINTS, Values.create(true)),
+            new MetaItem(MetaItemType.RULE_STATE, Values.create(true)),
+            new MetaItem(MetaItemType.FORMAT, Values.create("%0.1f")),
+            new MetaItem(MetaItemType.UNIT_TYPE, Values.create("CELSIUS"))
+        )
+        asset.addAttributes(attribute)
+        attribute = asset.getAttribute("temperature").get()
+
+        when: "events are processed with deep copies and with copy on write"
+        long[] deepCopy = measure({ int iterations -> deepCopyEvents(asset, attribute, iterations) })
+        long[] copyOnWrite = measure({ int iterations -> copyOnWriteEvents(asset, attribute, iterations) })
+        LOG.info("Attribute event with deep copies: " + deepCopy[0] + " bytes, " + deepCopy[1] + " ns")
+        LOG.info("Attribute event with copy on write: " + copyOnWrite[0] + " bytes, " + copyOnWrite[1] + " ns")
+
+        then: "copy on write should allocate significantly less per event"
+        copyOnWrite[0] * 2 < deepCopy[0]
+
+        and: "the processed attribute should be unchanged"
+        attribute.getValueAsNumber().get() == 20
+        attribute.getMeta().size() == 7
+    }
+}
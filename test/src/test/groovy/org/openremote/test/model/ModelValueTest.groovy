@@ -1,5 +1,15 @@
 package org.openremote.test.model
 
+import org.openremote.model.asset.Asset
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.Attribute
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeValueType
+import org.openremote.model.attribute.Meta
+import org.openremote.model.attribute.MetaItem
+import org.openremote.model.attribute.MetaItemType
+import org.openremote.model.rules.AssetState
 import org.openremote.model.value.ArrayValue
 import org.openremote.model.value.ObjectValue
 import org.openremote.model.value.Value
@@ -159,4 +169,95 @@ class ModelValueTest extends Specification {
         differentValues1.hashCode() != differentValues2.hashCode()
     }
 
+    def "Copy values and attributes"() {
+        given: "an object value tree"
+        ObjectValue original = Values.<ObjectValue>parse('{"a":"AAA","b":[1,true,{"c":null}],"d":{"e":123}}').get()
+
+        when: "the tree is deep copied"
+        ObjectValue copy = original.deepCopy()
+
+        then: "the copy should be equal but not share any object or array nodes"
+        copy == original
+        copy.toJson() == original.toJson()
+        !copy.getArray("b").get().is(original.getArray("b").get())
+        !copy.getObject("d").get().is(original.getObject("d").get())
+
+        when: "an attribute is copied with a new value"
+        AssetAttribute attribute = new AssetAttribute("temperature", AttributeValueType.NUMBER, Values.create(10), 1000)
+        attribute.setMeta(new MetaItem(MetaItemType.LABEL, Values.create("Temperature")))
+        AssetAttribute updated = attribute.copyWithValue(Values.create(20), 2000)
+
+        then: "the copy should have the new value and share the unchanged meta"
+        updated.getValueAsNumber().get() == 20
+        updated.getValueTimestamp().get() == 2000
+        attribute.getValueAsNumber().get() == 10
+        attribute.getValueTimestamp().get() == 1000
+        updated.getLabel().get() == "Temperature"
+        updated.getObjectValue().getArray(Attribute.META_FIELD_NAME).get().is(attribute.getObjectValue().getArray(Attribute.META_FIELD_NAME).get())
+
+        when: "the meta of the copy is modified"
+        updated.setLabel("Room temperature")
+
+        then: "the meta of the original attribute should not be modified"
+        updated.getLabel().get() == "Room temperature"
+        attribute.getLabel().get() == "Temperature"
+
+        when: "the original attribute is modified after another copy has been made"
+        AssetAttribute snapshot = attribute.copyWithValue(Values.create(30), 3000)
+        attribute.setLabel("Outside temperature")
+
+        then: "the meta of the copy should not be modified"
+        attribute.getLabel().get() == "Outside temperature"
+        snapshot.getLabel().get() == "Temperature"
+
+        when: "the read only meta is modified"
+        snapshot.getMetaReadOnly().add(new MetaItem(MetaItemType.READ_ONLY, Values.create(true)))
+
+        then: "an exception should be thrown"
+        thrown(UnsupportedOperationException)
+
+        when: "an item of the read only meta is modified"
+        snapshot.getMetaReadOnly().get(0).setValue(Values.create("Changed"))
+
+        then: "an exception should be thrown and the meta of the attribute should not be modified"
+        thrown(UnsupportedOperationException)
+        snapshot.getLabel().get() == "Temperature"
+
+        when: "the read only meta is read several times"
+        Meta readOnlyMeta = snapshot.getMetaReadOnly()
+
+        then: "the same item view should be returned without copying the item"
+        readOnlyMeta.get(0).is(readOnlyMeta.get(0))
+        readOnlyMeta.iterator().next().is(readOnlyMeta.get(0))
+        readOnlyMeta.get(0).getObjectValue().is(snapshot.getObjectValue().getArray(Attribute.META_FIELD_NAME).get().getObject(0).get())
+        snapshot.getLabel().get() == "Temperature"
+    }
+
+    def "Asset state meta is read only"() {
+        given: "an asset with an attribute"
+        Asset asset = new Asset("Test", AssetType.THING)
+        AssetAttribute attribute = new AssetAttribute("temperature", AttributeValueType.NUMBER, Values.create(10), 1000)
+        attribute.setMeta(new MetaItem(MetaItemType.LABEL, Values.create("Temperature")))
+        asset.addAttributes(attribute)
+
+        when: "an asset state is created for a value update"
+        AssetState assetState = new AssetState(asset, attribute.copyWithValue(Values.create(20), 2000), AttributeEvent.Source.SENSOR)
+
+        then: "the meta should be readable"
+        assetState.getMeta().size() == 1
+        assetState.getMeta().get(0).getValueAsString().get() == "Temperature"
+
+        when: "a rule modifies the meta of the asset state"
+        assetState.getMeta().add(new MetaItem(MetaItemType.READ_ONLY, Values.create(true)))
+
+        then: "an exception should be thrown"
+        thrown(UnsupportedOperationException)
+
+        when: "a rule modifies an item of the asset state meta"
+        assetState.getMeta().get(0).setValue(Values.create("Changed"))
+
+        then: "an exception should be thrown and the attribute meta should not be modified"
+        thrown(UnsupportedOperationException)
+        attribute.getLabel().get() == "Temperature"
+    }
 }
@@ -6,6 +6,8 @@ import org.openremote.container.web.WebService
 import org.openremote.manager.asset.AssetStorageService
 import org.openremote.manager.asset.console.ConsoleResourceImpl
 import org.openremote.manager.notification.EmailNotificationHandler
+import org.openremote.manager.notification.NotificationHandler
+import org.openremote.manager.notification.NotificationProcessingException
 import org.openremote.manager.notification.NotificationService
 import org.openremote.manager.notification.PushNotificationHandler
 import org.openremote.manager.rules.geofence.ORConsoleGeofenceAssetAdapter
@@ -29,6 +31,7 @@ import spock.util.concurrent.PollingConditions
 import javax.ws.rs.WebApplicationException
 import java.time.Instant
 import java.time.temporal.ChronoUnit
+import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
 
 import static org.openremote.container.util.MapAccess.getString
@@ -601,4 +604,76 @@ class NotificationTest extends Specification implements ManagerContainerTrait {
         cleanup: "the mock is removed"
         notificationService.notificationHandlerMap.put(emailNotificationHandler.getTypeName(), emailNotificationHandler)
     }
+
+    def "Check notification dispatch persists and records results in batches"() {
+
+        given: "the container environment is started"
+        def container = startContainer(defaultConfig(), defaultServices())
+        def notificationService = container.getService(NotificationService.class)
+
+        and: "a notification service that records results in batches of two"
+        List<Integer> recordedBatches = []
+        def testNotificationService = new NotificationService() {
+            @Override
+            protected void recordResults(List<SentNotification> sentNotifications) {
+                recordedBatches << sentNotifications.size()
+                super.recordResults(sentNotifications)
+            }
+        }
+        testNotificationService.persistenceService = notificationService.persistenceService
+        testNotificationService.timerService = notificationService.timerService
+        testNotificationService.dispatchBatchSize = 2
+        testNotificationService.dispatchExecutor = testNotificationService.createDispatchExecutor(1, 1)
+
+        and: "a handler that fails to send to one of the targets"
+        def handler = Stub(NotificationHandler) {
+            sendMessage(_ as Long, _ as Notification.Source, _ as String, _ as Notification.Target, _ as AbstractNotificationMessage) >> {
+                id, source, sourceId, Notification.Target target, message ->
+                    target.id == "custom3@openremote.local" ? NotificationSendResult.failure("Rejected") : NotificationSendResult.success()
+            }
+        }
+
+        and: "a notification with five targets"
+        def targets = (1..5).collect { new Notification.Target(Notification.TargetType.CUSTOM, "custom" + it + "@openremote.local") }
+        def notification = new Notification(
+            "Bulk",
+            new EmailNotificationMessage().setSubject("Bulk").setText("Hello world!"),
+            targets, null, null)
+
+        when: "the notifications are persisted"
+        def sentNotifications = testNotificationService.persistSentNotifications(notification, Notification.Source.INTERNAL, "", targets)
+
+        then: "a sent notification should have been stored for each target in one go"
+        sentNotifications.size() == 5
+        sentNotifications.every { it.id != null }
+        sentNotifications*.id.unique().size() == 5
+        sentNotifications*.targetId == targets*.id
+        sentNotifications.every { notificationService.getSentNotification(it.id) != null }
+
+        when: "the notifications are dispatched"
+        testNotificationService.dispatch(handler, notification, Notification.Source.INTERNAL, "", targets, sentNotifications).get(10, TimeUnit.SECONDS)
+
+        then: "the results should have been recorded in batches"
+        recordedBatches == [2, 2, 1]
+        notificationService.getSentNotification(sentNotifications[2].id).error == "Rejected"
+        sentNotifications.findAll { it.id != sentNotifications[2].id }.every { notificationService.getSentNotification(it.id).error == null }
+
+        when: "the dispatch executor is stopped and the notifications are persisted and dispatched again"
+        recordedBatches.clear()
+        testNotificationService.dispatchExecutor.shutdown()
+        def rejectedNotifications = testNotificationService.persistSentNotifications(notification, Notification.Source.INTERNAL, "", targets)
+        testNotificationService.dispatch(handler, notification, Notification.Source.INTERNAL, "", targets, rejectedNotifications)
+
+        then: "the dispatch should be rejected and the failure recorded for all notifications at once"
+        def ex = thrown(NotificationProcessingException)
+        ex.reason == NotificationProcessingException.Reason.SEND_FAILURE
+        recordedBatches == [5]
+        rejectedNotifications.every { notificationService.getSentNotification(it.id).error == "Notification dispatch has been stopped" }
+
+        when: "a task is given to the stopped dispatch executor"
+        testNotificationService.dispatchExecutor.execute({ -> })
+
+        then: "it should be rejected rather than run or discarded"
+        thrown(RejectedExecutionException)
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol
+
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.PooledByteBufAllocator
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import io.netty.handler.codec.DelimiterBasedFrameDecoder
+import org.openremote.agent.protocol.Protocol
+import org.openremote.agent.protocol.io.AbstractNettyIoClient
+import org.openremote.agent.protocol.tcp.TcpIoClient
+import org.openremote.model.asset.agent.ConnectionStatus
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+class ByteBufFrameDecoderTest extends Specification {
+
+    def "Frame slices are converted without copying and released once consumed"() {
+
+        given: "a connected client that records the messages it receives"
+        def client = new TcpIoClient<String>("localhost", 0, null)
+        client.connectionStatus = ConnectionStatus.CONNECTED
+        def messages = []
+        client.addMessageConsumer({ String msg -> messages.add(msg) } as Consumer<String>)
+
+        and: "a pipeline that splits frames on a delimiter and converts each frame slice to hex"
+        def frames = []
+        def channel = new EmbeddedChannel(
+            new DelimiterBasedFrameDecoder(64, true, Unpooled.wrappedBuffer([0xFF] as byte[])),
+            new AbstractNettyIoClient.ByteBufFrameDecoder<String>(client, { ByteBuf frame, List<String> out ->
+                frames.add(frame)
+                out.add(Protocol.bytesToHexString(frame))
+            })
+        )
+
+        when: "two frames and part of a third are received in a pooled buffer"
+        ByteBuf received = PooledByteBufAllocator.DEFAULT.buffer()
+        received.writeBytes([0x0A, 0x0B, 0xFF, 0x1C, 0xFF, 0x2D] as byte[])
+        channel.writeInbound(received)
+
+        then: "the complete frames are passed to the client"
+        messages == ["0a0b", "1c"]
+
+        and: "each frame was a slice of the received buffer and has been released"
+        frames.size() == 2
+        frames.every { it.unwrap().is(received) && it.refCnt() == 0 }
+
+        and: "the received buffer is only held for the incomplete frame"
+        received.refCnt() == 1
+
+        when: "the rest of the third frame is received"
+        channel.writeInbound(Unpooled.wrappedBuffer([0x3E, 0xFF] as byte[]))
+
+        then: "it is passed to the client and no buffers are left over"
+        messages == ["0a0b", "1c", "2d3e"]
+        !channel.finish()
+        received.refCnt() == 0
+    }
+
+    def "Frame conversion matches the byte array conversion"() {
+
+        given: "some bytes"
+        def bytes = [0x00, 0x01, 0x7F, 0x80, 0xA5, 0xFF] as byte[]
+        def buf = Unpooled.wrappedBuffer([0x55] as byte[], bytes)
+        buf.readByte()
+
+        expect: "the same strings as the byte array versions and the buffer isn't read"
+        Protocol.bytesToHexString(buf) == Protocol.bytesToHexString(bytes)
+        Protocol.bytesToBinaryString(buf) == Protocol.bytesToBinaryString(bytes)
+        buf.readableBytes() == bytes.length
+    }
+}
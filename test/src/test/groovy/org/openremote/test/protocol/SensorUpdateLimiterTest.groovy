@@ -0,0 +1,71 @@
+package org.openremote.test.protocol
+
+import org.openremote.agent.protocol.ProtocolExecutorService
+import org.openremote.agent.protocol.SensorUpdateLimiter
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.value.Values
+import spock.lang.Specification
+
+class SensorUpdateLimiterTest extends Specification {
+
+    def "Coalesce sensor updates within the min interval"() {
+
+        given: "a limiter with a min interval and a controllable clock"
+        def now = 1000L
+        Runnable scheduled = null
+        def executorService = Mock(ProtocolExecutorService) {
+            schedule(_ as Runnable, _ as Long) >> { Runnable runnable, long delay -> scheduled = runnable; null }
+        }
+        def sent = []
+        def limiter = new SensorUpdateLimiter(100, 0, null, executorService, { now }, { sent << it })
+
+        when: "values are received in quick succession"
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(1)))
+        now += 10
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(2)))
+        now += 10
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(3)))
+
+        then: "only the first value should have been sent and the latest should be pending"
+        sent.size() == 1
+        sent[0].value.get() == Values.create(1)
+        scheduled != null
+
+        when: "the min interval ends"
+        now += 80
+        scheduled.run()
+
+        then: "only the latest value should have been sent"
+        sent.size() == 2
+        sent[1].value.get() == Values.create(3)
+    }
+
+    def "Drop sensor updates within the deadband"() {
+
+        given: "a limiter with a deadband and max interval"
+        def now = 1000L
+        def sent = []
+        def limiter = new SensorUpdateLimiter(0, 1000, 0.5d, Mock(ProtocolExecutorService), { now }, { sent << it })
+
+        when: "values are received that change by less than the deadband"
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(10)))
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(10.2)))
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(9.8)))
+
+        then: "only the first value should have been sent"
+        sent.size() == 1
+
+        when: "a value outside the deadband is received"
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(10.6)))
+
+        then: "it should have been sent"
+        sent.size() == 2
+
+        when: "the max interval elapses and an unchanged value is received"
+        now += 1000
+        limiter.offer(new AttributeEvent("asset1", "attribute1", Values.create(10.6)))
+
+        then: "it should have been sent"
+        sent.size() == 3
+    }
+}
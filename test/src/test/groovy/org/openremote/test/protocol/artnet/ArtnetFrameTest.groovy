@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol.artnet
+
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.PooledByteBufAllocator
+import org.openremote.agent.protocol.artnet.ArtnetClientProtocol
+import org.openremote.agent.protocol.artnet.ArtnetLight
+import org.openremote.agent.protocol.artnet.ArtnetLightState
+import org.openremote.agent.protocol.artnet.ArtnetPacket
+import org.openremote.agent.protocol.artnet.ArtnetUniverse
+import org.openremote.agent.protocol.io.AbstractIoClientProtocol
+import org.openremote.agent.protocol.udp.UdpIoClient
+import org.openremote.model.asset.agent.ConnectionStatus
+import org.openremote.model.attribute.AttributeRef
+import spock.lang.Specification
+
+class ArtnetFrameTest extends Specification {
+
+    static final int HEADER_SIZE = 18
+
+    static ArtnetLightState state(int lightId, Map<String, Integer> values) {
+        new ArtnetLightState(lightId, new LinkedHashMap<String, Integer>(values), 100, true)
+    }
+
+    static byte[] encode(ArtnetPacket packet) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.buffer()
+        try {
+            packet.toByteBuf(buf)
+            byte[] bytes = new byte[buf.readableBytes()]
+            buf.readBytes(bytes)
+            return bytes
+        } finally {
+            buf.release()
+        }
+    }
+
+    static List<Integer> dmx(byte[] packet) {
+        (HEADER_SIZE..<packet.length).collect { packet[it] & 0xFF }
+    }
+
+    def "Lights are laid out by light ID using the required values as channel width"() {
+
+        given: "a universe with an RGB light that has no state yet and a two LED RGB light"
+        def rgb = ["r", "g", "b"] as String[]
+        def unlit = new ArtnetLight(1, 0, 3, 1, rgb, null, null)
+        def strip = new ArtnetLight(2, 0, 3, 2, rgb, state(2, [r: 10, g: 20, b: 30]), null)
+        def universe = new ArtnetUniverse(3)
+
+        when: "the lights are set out of order"
+        universe.setLights([strip, unlit])
+
+        then: "no frame is sent until a light changes"
+        !universe.isDirty()
+        universe.takeFrame() == null
+
+        when: "the strip is updated"
+        assert universe.updateLight(strip)
+        def frame = universe.takeFrame()
+
+        then: "the frame has the Art-Net header and the light without state still takes its channels"
+        frame != null
+        !universe.isDirty()
+        universe.takeFrame() == null
+        def bytes = encode(frame)
+        new String(bytes, 0, 7, "US-ASCII") == "Art-Net"
+        (bytes[14] & 0xFF) == 0 && (bytes[15] & 0xFF) == 3
+        ((bytes[16] & 0xFF) << 8 | (bytes[17] & 0xFF)) == 9
+        dmx(bytes) == [0, 0, 0, 10, 20, 30, 10, 20, 30]
+
+        when: "the unlit light gets a state with fewer values than required"
+        unlit.setLightState(state(1, [r: 40]))
+        universe.updateLight(unlit)
+
+        then: "the missing channels are zero and the layout doesn't move"
+        def next = universe.takeFrame()
+        next.is(frame)
+        dmx(encode(next)) == [40, 0, 0, 10, 20, 30, 10, 20, 30]
+
+        and: "a light of another universe is ignored"
+        !universe.updateLight(new ArtnetLight(5, 0, 4, 1, rgb, null, null))
+        !universe.isDirty()
+    }
+
+    def "Only changed universes are sent by the frame sender"() {
+
+        given: "a protocol with a connected client and two universes"
+        def protocolRef = new AttributeRef("agent", "artnet")
+        def protocol = new ArtnetClientProtocol()
+        def rgb = ["r", "g", "b"] as String[]
+        def light1 = new ArtnetLight(1, 0, 1, 1, rgb, state(1, [r: 1, g: 2, b: 3]), null)
+        def light2 = new ArtnetLight(2, 0, 2, 1, rgb, state(2, [r: 4, g: 5, b: 6]), null)
+        protocol.getLightMemory().addAll([light1, light2])
+        def sent = []
+        def client = Mock(UdpIoClient) {
+            getConnectionStatus() >> ConnectionStatus.CONNECTED
+            sendMessage(_) >> { args -> sent.add(args[0]) }
+        }
+        protocol.protocolIoClientMap.put(protocolRef, new AbstractIoClientProtocol.ProtocolIoClient(protocol, protocolRef, client, null, null))
+        def universe1 = protocol.getUniverse(protocolRef, 1)
+        def universe2 = protocol.getUniverse(protocolRef, 2)
+
+        when: "nothing has changed"
+        protocol.sendFrames(protocolRef)
+
+        then: "no packets are sent"
+        sent.isEmpty()
+
+        when: "a light in the second universe changes twice before the next frame"
+        light2.setLightState(state(2, [r: 7, g: 8, b: 9]))
+        universe2.updateLight(light2)
+        light2.setLightState(state(2, [r: 10, g: 11, b: 12]))
+        universe2.updateLight(light2)
+        protocol.sendFrames(protocolRef)
+
+        then: "a single packet with the latest values is sent for that universe"
+        sent.size() == 1
+        def bytes = encode(sent[0] as ArtnetPacket)
+        (bytes[15] & 0xFF) == 2
+        dmx(bytes) == [10, 11, 12]
+
+        when: "the next frame is due"
+        sent.clear()
+        protocol.sendFrames(protocolRef)
+
+        then: "nothing is sent again"
+        sent.isEmpty()
+
+        when: "the first universe changes but the client is disconnected"
+        universe1.updateLight(light1)
+        protocol.sendFrames(protocolRef)
+
+        then: "the frame is held until the client is connected"
+        1 * client.getConnectionStatus() >> ConnectionStatus.DISCONNECTED
+        sent.isEmpty()
+        universe1.isDirty()
+    }
+}
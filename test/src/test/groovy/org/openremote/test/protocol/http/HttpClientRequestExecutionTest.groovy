@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol.http
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder
+import org.openremote.agent.protocol.ProtocolExecutorService
+import org.openremote.agent.protocol.http.HttpClientProtocol
+import org.openremote.model.attribute.AttributeRef
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import javax.ws.rs.core.MultivaluedMap
+import javax.ws.rs.core.Response
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
+
+class HttpClientRequestExecutionTest extends Specification {
+
+    HttpClientProtocol protocol
+    ResteasyClient client
+    HttpClientProtocol.HttpClientRequest request
+
+    def setup() {
+        protocol = new HttpClientProtocol()
+        protocol.maxRequestsPerHost = 1
+        protocol.requestExecutor = Executors.newFixedThreadPool(4)
+        client = new ResteasyClientBuilder().build()
+        request = new HttpClientProtocol.HttpClientRequest(client.target("http://127.0.0.1:1"), "test", "GET", null, null, null, false, false, null)
+    }
+
+    def cleanup() {
+        protocol.requestExecutor.shutdownNow()
+        client.close()
+    }
+
+    def "Requests to a busy host are queued and executed in order"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 5)
+        def executed = new CopyOnWriteArrayList<Integer>()
+        def release = new CountDownLatch(1)
+        def completed = new CountDownLatch(4)
+
+        when: "a long running request and three more requests are submitted to the same host"
+        protocol.submitRequest(request, { executed.add(0); release.await(5, TimeUnit.SECONDS) }, { completed.countDown() }, true)
+        (1..3).each { i -> protocol.submitRequest(request, { executed.add(i) }, { completed.countDown() }, true) }
+
+        then: "only the first request should be running and the others should be queued rather than skipped"
+        conditions.eventually {
+            assert executed == [0]
+            assert protocol.hostRequestQueues.values().first().getQueued() == 3
+            assert protocol.pollsSkipped.get() == 0
+        }
+
+        when: "a request that isn't host limited (ping) is submitted to the same host"
+        def pinged = new CountDownLatch(1)
+        protocol.submitRequest(request, { pinged.countDown() }, {}, false)
+
+        then: "it should not wait for the host request slot"
+        pinged.await(5, TimeUnit.SECONDS)
+
+        when: "the long running request completes"
+        release.countDown()
+
+        then: "the queued requests should all be executed in submission order and the slot released"
+        completed.await(5, TimeUnit.SECONDS)
+        executed == [0, 1, 2, 3]
+        conditions.eventually {
+            assert protocol.hostRequestQueues.values().first().getActive() == 0
+            assert protocol.requestsCompleted.get() == 5
+        }
+    }
+
+    def "Rejected requests are completed and release their host request slot"() {
+
+        given: "a request executor that rejects all requests"
+        protocol.requestExecutor.shutdownNow()
+        def completed = new CountDownLatch(2)
+
+        when: "two requests are submitted to the same host"
+        protocol.submitRequest(request, { }, { completed.countDown() }, true)
+        protocol.submitRequest(request, { }, { completed.countDown() }, true)
+
+        then: "both completion callbacks should be called and the host slot should be free"
+        completed.await(5, TimeUnit.SECONDS)
+        protocol.requestsRejected.get() == 2
+        protocol.hostRequestQueues.values().first().getActive() == 0
+        protocol.hostRequestQueues.values().first().getQueued() == 0
+    }
+
+    def "Rescheduling a polling request doesn't overlap a request that is still in flight"() {
+
+        given: "a protocol whose polling requests block until released"
+        def scheduler = Executors.newSingleThreadScheduledExecutor()
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        protocol.requestExecutor.shutdownNow()
+        protocol = new HttpClientProtocol() {
+            @Override
+            protected void executePollingRequest(HttpClientProtocol.HttpClientRequest clientRequest, String body, MultivaluedMap<String, Object> additionalHeaders, Consumer<Response> responseConsumer) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), { a, b -> Math.max(a, b) })
+                started.countDown()
+                release.await(10, TimeUnit.SECONDS)
+                running.decrementAndGet()
+            }
+        }
+        protocol.maxRequestsPerHost = 4
+        protocol.requestExecutor = Executors.newFixedThreadPool(4)
+        protocol.executorService = Stub(ProtocolExecutorService) {
+            scheduleWithFixedDelay(_ as Runnable, _ as Long, _ as Long, _ as TimeUnit) >> { Runnable runnable, long initialDelay, long delay, TimeUnit unit ->
+                scheduler.scheduleWithFixedDelay(runnable, initialDelay, delay, unit)
+            }
+        }
+        def conditions = new PollingConditions(timeout: 10)
+        def pollingRequest = new HttpClientProtocol.HttpPollingRequest(request, null, null, false)
+        pollingRequest.attributePollingMillis.put(new AttributeRef("asset1", "attribute1"), 100)
+
+        when: "the polling request is scheduled and its first request is in flight"
+        protocol.schedulePollingRequest(pollingRequest)
+
+        then: "the request should be running"
+        started.await(5, TimeUnit.SECONDS)
+
+        when: "the polling request is rescheduled with a different polling interval"
+        pollingRequest.attributePollingMillis.put(new AttributeRef("asset1", "attribute2"), 50)
+        protocol.schedulePollingRequest(pollingRequest)
+
+        then: "the new schedule should skip polls whilst the request of the cancelled schedule is in flight"
+        conditions.eventually {
+            assert pollingRequest.pollingMillis == 50
+            assert protocol.pollsSkipped.get() > 1
+        }
+        maxRunning.get() == 1
+
+        when: "the request in flight completes"
+        release.countDown()
+
+        then: "the new schedule should resume polling without overlapping requests"
+        conditions.eventually {
+            assert protocol.requestsCompleted.get() > 2
+        }
+        maxRunning.get() == 1
+
+        cleanup:
+        pollingRequest.pollingTask?.cancel(false)
+        scheduler.shutdownNow()
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol.velbus
+
+import org.openremote.agent.protocol.velbus.VelbusNetwork
+import org.openremote.agent.protocol.velbus.VelbusPacket
+import org.openremote.container.concurrent.ContainerScheduledExecutor
+import org.openremote.model.asset.agent.ConnectionStatus
+import org.openremote.test.MockVelbusClient
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import static org.openremote.agent.protocol.velbus.VelbusPacket.OutboundCommand.*
+import static org.openremote.agent.protocol.velbus.VelbusPacket.PacketPriority.HIGH
+import static org.openremote.agent.protocol.velbus.VelbusPacket.PacketPriority.LOW
+
+class VelbusPacketQueueTest extends Specification {
+
+    static packet(int address, VelbusPacket.OutboundCommand command, VelbusPacket.PacketPriority priority, int channel, int value) {
+        new VelbusPacket(address, command.getCode(), priority, (byte) channel, (byte) value)
+    }
+
+    static drain(queue) {
+        def packets = []
+        def entry
+        while ((entry = queue.poll()) != null) {
+            packets.add(entry.packet)
+        }
+        packets
+    }
+
+    def "Consecutive level packets for the same channel are coalesced"() {
+
+        given: "a packet queue"
+        def queue = new VelbusNetwork.PacketQueue()
+
+        when: "several levels are queued for the same channel"
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 10), true, 0L)
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 20), true, 0L)
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 30), true, 0L)
+
+        then: "only the latest level is left in the queue"
+        queue.size() == 1
+        queue.superseded == 2
+
+        when: "a level for another channel and another level for the first channel are queued"
+        queue.add(packet(1, SET_LEVEL, HIGH, 2, 40), true, 0L)
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 50), true, 0L)
+
+        then: "the first channel level is appended rather than moved ahead of the other channel"
+        def packets = drain(queue)
+        packets.size() == 3
+        packets.collect { [it.getInt(1), it.getInt(2)] } == [[1, 30], [2, 40], [1, 50]]
+    }
+
+    def "Packets queued in between are not overtaken by a superseding packet"() {
+
+        given: "a packet queue"
+        def queue = new VelbusNetwork.PacketQueue()
+
+        when: "a blind is positioned, halted and positioned again"
+        queue.add(packet(2, BLIND_POSITION, HIGH, 1, 10), true, 0L)
+        queue.add(new VelbusPacket(2, BLIND_HALT.getCode(), HIGH, (byte) 1), true, 0L)
+        queue.add(packet(2, BLIND_POSITION, HIGH, 1, 90), true, 0L)
+
+        then: "the commands are written in the order they were queued"
+        queue.superseded == 0
+        drain(queue).collect { VelbusPacket.OutboundCommand.fromCode(it.getCommand()) } == [BLIND_POSITION, BLIND_HALT, BLIND_POSITION]
+
+        when: "a level is set followed by a timer"
+        queue.add(packet(3, SET_LEVEL, HIGH, 1, 10), true, 0L)
+        queue.add(packet(3, LEVEL_ON_TIMER, HIGH, 1, 0), true, 0L)
+        queue.add(packet(3, SET_LEVEL, HIGH, 1, 20), true, 0L)
+
+        then: "the timer is not reordered behind the second level"
+        queue.superseded == 0
+        drain(queue).collect { VelbusPacket.OutboundCommand.fromCode(it.getCommand()) } == [SET_LEVEL, LEVEL_ON_TIMER, SET_LEVEL]
+        queue.size() == 0
+    }
+
+    def "Write packets are sent before poll packets whatever their priority"() {
+
+        given: "a packet queue"
+        def queue = new VelbusNetwork.PacketQueue()
+
+        when: "poll and write packets are interleaved"
+        queue.add(new VelbusPacket(1, MODULE_STATUS.getCode(), HIGH, (byte) 0xFF), false, 0L)
+        queue.add(packet(2, TEMP_SET, LOW, 1, 40), true, 0L)
+        queue.add(new VelbusPacket(3, MODULE_STATUS.getCode(), HIGH, (byte) 0xFF), false, 0L)
+        queue.add(packet(4, SET_LEVEL, HIGH, 1, 10), true, 0L)
+
+        then: "the write packets come first and each lane keeps its order"
+        drain(queue).collect { it.getAddress() } == [2, 4, 1, 3]
+    }
+
+    def "Packets for a module keep their order across priorities and lanes"() {
+
+        given: "a packet queue"
+        def queue = new VelbusNetwork.PacketQueue()
+
+        when: "a thermostat mode is written with low priority followed by a high priority setpoint"
+        queue.add(new VelbusPacket(1, MODULE_STATUS.getCode(), LOW, (byte) 0xFF), false, 0L)
+        queue.add(new VelbusPacket(2, TEMP_MODE2_COMFORT.getCode(), LOW, (byte) 0x00), true, 0L)
+        queue.add(packet(2, TEMP_SET, HIGH, 1, 40), true, 0L)
+
+        then: "the mode is written before the setpoint"
+        drain(queue).collect { VelbusPacket.OutboundCommand.fromCode(it.getCommand()) } == [TEMP_MODE2_COMFORT, TEMP_SET, MODULE_STATUS]
+
+        when: "status requests are queued for a module before a write"
+        queue.add(new VelbusPacket(3, MODULE_STATUS.getCode(), LOW, (byte) 0xFF), false, 0L)
+        queue.add(new VelbusPacket(4, MODULE_STATUS.getCode(), LOW, (byte) 0xFF), false, 0L)
+        queue.add(new VelbusPacket(4, READ_MEMORY.getCode(), LOW, (byte) 0x00, (byte) 0x00), false, 0L)
+        queue.add(packet(4, SET_LEVEL, HIGH, 1, 10), true, 0L)
+        queue.add(new VelbusPacket(4, MODULE_STATUS.getCode(), LOW, (byte) 0xFF), false, 0L)
+
+        then: "the earlier requests for that module are moved ahead of the write and later ones stay behind it"
+        drain(queue).collect { [it.getAddress(), VelbusPacket.OutboundCommand.fromCode(it.getCommand())] } == [
+            [4, MODULE_STATUS],
+            [4, READ_MEMORY],
+            [4, SET_LEVEL],
+            [3, MODULE_STATUS],
+            [4, MODULE_STATUS]
+        ]
+    }
+
+    def "Poll packets do not supersede write packets"() {
+
+        given: "a packet queue"
+        def queue = new VelbusNetwork.PacketQueue()
+
+        when: "a level is written and then queued again from a poll"
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 10), true, 0L)
+        queue.add(packet(1, SET_LEVEL, HIGH, 1, 20), false, 0L)
+
+        then: "both packets are kept"
+        queue.superseded == 0
+        queue.size() == 2
+    }
+
+    def "Writes wait for an acknowledgement or the write delay"() {
+
+        given: "a connected network with a long write delay"
+        def writeDelayMillis = VelbusNetwork.DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS
+        VelbusNetwork.DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS = 2000
+        def executor = new ContainerScheduledExecutor("Velbus test", 1)
+        def client = new MockVelbusClient()
+        def network = new VelbusNetwork(client, executor, null)
+        def conditions = new PollingConditions(timeout: 5, delay: 0.05)
+        network.connect()
+        assert network.getConnectionStatus() == ConnectionStatus.CONNECTED
+
+        when: "three packets are written to a module"
+        network.writePackets(
+            packet(5, SET_LEVEL, HIGH, 1, 10),
+            packet(5, SET_LEVEL, HIGH, 2, 20),
+            packet(5, SET_LEVEL, HIGH, 4, 30)
+        )
+
+        then: "only the first packet is written"
+        conditions.eventually {
+            assert client.sentMessages.size() == 1
+        }
+
+        when: "the module hasn't responded yet"
+        Thread.sleep(500)
+
+        then: "the next packet is held back"
+        client.sentMessages.size() == 1
+        network.getQueueSize() == 2
+
+        when: "the module responds"
+        client.onMessageReceived(new VelbusPacket(5, VelbusPacket.InboundCommand.MODULE_STATUS.getCode(), (byte) 0x01, (byte) 0x00))
+
+        then: "the next packet is written without waiting for the write delay"
+        new PollingConditions(timeout: 1, delay: 0.05).eventually {
+            assert client.sentMessages.size() == 2
+        }
+
+        and: "the last packet is written once the write delay has passed without a response"
+        conditions.eventually {
+            assert client.sentMessages.size() == 3
+            assert network.getQueueSize() == 0
+        }
+        client.sentMessages.collect { it.getInt(1) } == [1, 2, 4]
+
+        cleanup: "restore the write delay and stop the network"
+        VelbusNetwork.DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS = writeDelayMillis
+        network?.close()
+        executor?.shutdownNow()
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.syslog
+
+import org.hibernate.Session
+import org.hibernate.jdbc.Work
+import org.openremote.container.persistence.PersistenceService
+import org.openremote.manager.event.ClientEventService
+import org.openremote.manager.syslog.SyslogService
+import org.openremote.model.syslog.SyslogCategory
+import org.openremote.model.syslog.SyslogConfig
+import org.openremote.model.syslog.SyslogEvent
+import org.openremote.model.syslog.SyslogLevel
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+
+import javax.persistence.EntityManager
+import javax.persistence.EntityManagerFactory
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import java.util.function.Consumer
+import java.util.logging.Level
+import java.util.logging.LogRecord
+
+import static org.openremote.model.syslog.SyslogCategory.*
+
+class SyslogServiceTest extends Specification implements ManagerContainerTrait {
+
+    static SyslogEvent event(int i, SyslogLevel level = SyslogLevel.INFO, SyslogCategory category = ASSET) {
+        return new SyslogEvent(System.currentTimeMillis(), level, category, null, "Test event " + i)
+    }
+
+    def "Events are dropped once the syslog buffer is full"() {
+
+        given: "a syslog service with a buffer of three events that stores INFO asset events"
+        def syslogService = new SyslogService()
+        syslogService.persistenceService = Stub(PersistenceService) {
+            getEntityManagerFactory() >> Stub(EntityManagerFactory)
+        }
+        syslogService.maxBatchSize = 3
+        syslogService.config = new SyslogConfig(SyslogLevel.INFO, [ASSET] as SyslogCategory[], 60)
+
+        when: "events that shouldn't be stored are given to the service"
+        syslogService.store(event(0, SyslogLevel.DEBUG))
+        syslogService.store(event(0, SyslogLevel.INFO, RULES))
+
+        then: "they should neither be buffered nor counted as dropped"
+        syslogService.batchSize.get() == 0
+        syslogService.droppedEvents == 0
+
+        when: "more events than fit in the buffer are stored"
+        (1..5).each { syslogService.store(event(it)) }
+
+        then: "the buffer should be full and the newest events dropped"
+        syslogService.batchSize.get() == 3
+        syslogService.batch*.message == (1..3).collect { "Test event " + it }
+        syslogService.droppedEvents == 2
+    }
+
+    def "Buffered events are flushed with JDBC batches"() {
+
+        given: "a syslog service that executes a JDBC batch every two events"
+        def statement = Mock(PreparedStatement)
+        def connection = Stub(Connection) {
+            prepareStatement(_ as String) >> statement
+        }
+        def session = Stub(Session) {
+            doWork(_ as Work) >> { Work work -> work.execute(connection) }
+        }
+        def entityManager = Stub(EntityManager) {
+            unwrap(Session) >> session
+        }
+        def syslogService = new SyslogService()
+        syslogService.persistenceService = Stub(PersistenceService) {
+            getEntityManagerFactory() >> Stub(EntityManagerFactory)
+            doTransaction(_ as Consumer) >> { Consumer<EntityManager> consumer -> consumer.accept(entityManager) }
+        }
+        syslogService.maxBatchSize = 10
+        syslogService.flushBatchSize = 2
+        syslogService.config = new SyslogConfig(SyslogLevel.INFO, [ASSET] as SyslogCategory[], 60)
+
+        and: "five buffered events"
+        (1..5).each { syslogService.store(event(it)) }
+        List<String> messages = []
+
+        when: "the buffer is flushed"
+        syslogService.flushBatch()
+
+        then: "each event should have been added to the batch in order"
+        5 * statement.setTimestamp(1, _)
+        5 * statement.setString(4, _) >> { int index, String message -> messages << message }
+        5 * statement.addBatch()
+        messages == (1..5).collect { "Test event " + it }
+
+        and: "the batch should have been executed every two events and for the remainder"
+        3 * statement.executeBatch()
+        1 * statement.close()
+
+        and: "the buffer should be empty"
+        syslogService.batchSize.get() == 0
+        syslogService.batch.isEmpty()
+
+        when: "the empty buffer is flushed"
+        syslogService.flushBatch()
+
+        then: "nothing should be written"
+        0 * statement._
+    }
+
+    def "Buffered events are stored in the database"() {
+
+        given: "the container environment is started"
+        def container = startContainer(defaultConfig(), defaultServices())
+
+        and: "a syslog service using the database with a JDBC batch size of two"
+        def syslogService = new SyslogService()
+        syslogService.persistenceService = container.getService(PersistenceService.class)
+        syslogService.maxBatchSize = 10
+        syslogService.flushBatchSize = 2
+        syslogService.config = new SyslogConfig(SyslogLevel.INFO, [ASSET] as SyslogCategory[], 60)
+        syslogService.clearStoredEvents()
+
+        when: "five events are stored and flushed"
+        (1..5).each { syslogService.store(new SyslogEvent(System.currentTimeMillis(), SyslogLevel.WARN, ASSET, "SyslogServiceTest", "Test event " + it)) }
+        syslogService.flushBatch()
+
+        then: "all events should be in the database"
+        def events = syslogService.getEvents(SyslogLevel.INFO, 10, 1, Instant.now().minus(1, ChronoUnit.HOURS), Instant.now().plus(1, ChronoUnit.MINUTES), null, ["SyslogServiceTest"])
+        events.key == 5
+        events.value*.message.sort() == (1..5).collect { "Test event " + it }
+        events.value.every { it.level == SyslogLevel.WARN && it.category == ASSET && it.subCategoryOptional.orElse(null) == "SyslogServiceTest" }
+
+        cleanup: "the stored events are removed"
+        syslogService?.clearStoredEvents()
+    }
+
+    def "Publishing is limited to a rate per second beyond which events are sampled"() {
+
+        given: "a syslog service publishing up to three events per second and every second event beyond that"
+        def clientEventService = Mock(ClientEventService)
+        def syslogService = new SyslogService()
+        syslogService.clientEventService = clientEventService
+        syslogService.publishRate = 3
+        syslogService.publishSampleInterval = 2
+        def second = 1600000000000L
+
+        when: "ten events are checked within a second"
+        def allowed = (0..9).collect { syslogService.isPublishAllowed(second + it) }
+
+        then: "the first three events and then every second event should be published"
+        allowed == [true, true, true, false, true, false, true, false, true, false]
+        syslogService.suppressedEvents == 4
+
+        when: "events are checked in the next second"
+        allowed = (0..4).collect { syslogService.isPublishAllowed(second + 1000 + it) }
+
+        then: "the rate should apply again"
+        allowed == [true, true, true, false, true]
+        syslogService.suppressedEvents == 5
+
+        when: "the publish rate is disabled"
+        syslogService.publishRate = 0
+
+        then: "all events should be published"
+        (0..9).every { syslogService.isPublishAllowed(second + 2000) }
+        syslogService.suppressedEvents == 5
+
+        when: "log records are published"
+        syslogService.publishRate = 2
+        syslogService.publishSampleInterval = 3
+        (0..5).each {
+            def record = new LogRecord(Level.INFO, "Test record " + it)
+            record.setLoggerName("org.openremote.test.ASSET")
+            record.setMillis(second + 3000 + it)
+            syslogService.publish(record)
+        }
+
+        then: "only the records within the rate and the sampled records should have been published"
+        1 * clientEventService.publishEvent({ SyslogEvent e -> e.message == "Test record 0" })
+        1 * clientEventService.publishEvent({ SyslogEvent e -> e.message == "Test record 1" })
+        1 * clientEventService.publishEvent({ SyslogEvent e -> e.message == "Test record 4" })
+        syslogService.suppressedEvents == 8
+        0 * clientEventService.publishEvent(_)
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.web
+
+import org.openremote.container.web.file.AbstractFileServlet
+import org.openremote.container.web.file.FileContentCache
+import spock.lang.Specification
+
+import javax.servlet.ServletOutputStream
+import javax.servlet.WriteListener
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.nio.file.Files
+import java.util.zip.GZIPInputStream
+
+import static org.openremote.container.web.file.AbstractFileServlet.DEFAULT_CONTENT_CACHE_ENTRY_SIZE
+import static org.openremote.container.web.file.AbstractFileServlet.DEFAULT_CONTENT_CACHE_SIZE
+
+class FileServletTest extends Specification {
+
+    static class TestFileServlet extends AbstractFileServlet {
+        File root
+
+        @Override
+        protected File getFile(HttpServletRequest request) {
+            return new File(root, request.getPathInfo())
+        }
+
+        @Override
+        protected boolean isCompressible(HttpServletRequest request, File file) {
+            return file.getName().endsWith(".js")
+        }
+
+        @Override
+        protected String getContentType(HttpServletRequest request, File file) {
+            return file.getName().endsWith(".js") ? "application/javascript" : "image/png"
+        }
+    }
+
+    static class TestResponse {
+        int status = HttpServletResponse.SC_OK
+        Map<String, String> headers = [:]
+        ByteArrayOutputStream body = new ByteArrayOutputStream()
+    }
+
+    File root
+    TestFileServlet servlet
+
+    def setup() {
+        root = Files.createTempDirectory("fileservlet").toFile()
+        servlet = new TestFileServlet(root: root)
+    }
+
+    def cleanup() {
+        root.deleteDir()
+    }
+
+    HttpServletRequest request(String path, String acceptEncoding, String ifNoneMatch = null) {
+        Stub(HttpServletRequest) {
+            getPathInfo() >> path
+            getHeader("If-None-Match") >> ifNoneMatch
+            getHeader(_) >> null
+            getHeaders("Accept-Encoding") >> { Collections.enumeration(acceptEncoding != null ? [acceptEncoding] : []) }
+            getDateHeader(_) >> -1L
+        }
+    }
+
+    TestResponse get(String path, String acceptEncoding, String ifNoneMatch = null) {
+        def result = new TestResponse()
+        def output = new ServletOutputStream() {
+            @Override
+            boolean isReady() {
+                return true
+            }
+
+            @Override
+            void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            void write(int b) throws IOException {
+                result.body.write(b)
+            }
+
+            @Override
+            void write(byte[] b, int off, int len) throws IOException {
+                result.body.write(b, off, len)
+            }
+        }
+        def response = Stub(HttpServletResponse) {
+            setHeader(_, _) >> { String name, String value -> result.headers[name] = value }
+            setStatus(_) >> { int status -> result.status = status }
+            sendError(_) >> { int status -> result.status = status }
+            getStatus() >> { result.status }
+            getOutputStream() >> output
+        }
+        servlet.doGet(request(path, acceptEncoding, ifNoneMatch), response)
+        return result
+    }
+
+    File createFile(String name, byte[] content, long lastModified) {
+        def file = new File(root, name)
+        file.bytes = content
+        file.setLastModified(lastModified)
+        return file
+    }
+
+    static String gunzip(byte[] content) {
+        return new GZIPInputStream(new ByteArrayInputStream(content)).text
+    }
+
+    def "Serve pre-compressed siblings of a file"() {
+
+        given: "a file with brotli and gzip siblings"
+        def lastModified = 1600000000000L
+        createFile("app.js", "console.log('app');".bytes, lastModified)
+        createFile("app.js.br", "brotli content".bytes, lastModified)
+        createFile("app.js.gz", "gzip content".bytes, lastModified)
+
+        when: "the file is requested by a client accepting brotli and gzip"
+        def response = get("app.js", "gzip, deflate, br")
+
+        then: "the brotli sibling should be served"
+        response.status == HttpServletResponse.SC_OK
+        response.headers["Content-Encoding"] == "br"
+        response.headers["Vary"] == "Accept-Encoding"
+        response.headers["Content-Length"] == "14"
+        new String(response.body.toByteArray()) == "brotli content"
+
+        when: "the file is requested by a client accepting gzip only"
+        def gzipResponse = get("app.js", "gzip, br;q=0")
+
+        then: "the gzip sibling should be served with its own ETag"
+        gzipResponse.headers["Content-Encoding"] == "gzip"
+        gzipResponse.headers["Vary"] == "Accept-Encoding"
+        gzipResponse.headers["ETag"] != response.headers["ETag"]
+        new String(gzipResponse.body.toByteArray()) == "gzip content"
+
+        when: "the file is requested by a client not accepting any encoding"
+        def identityResponse = get("app.js", null)
+
+        then: "the file itself should be served, still varying on the accepted encoding"
+        identityResponse.headers["Content-Encoding"] == null
+        identityResponse.headers["Vary"] == "Accept-Encoding"
+        new String(identityResponse.body.toByteArray()) == "console.log('app');"
+
+        when: "the client revalidates its cached identity representation"
+        def notModifiedResponse = get("app.js", null, identityResponse.headers["ETag"])
+
+        then: "the not modified response should also vary on the accepted encoding"
+        notModifiedResponse.status == HttpServletResponse.SC_NOT_MODIFIED
+        notModifiedResponse.headers["Vary"] == "Accept-Encoding"
+        notModifiedResponse.body.size() == 0
+
+        when: "a client accepting gzip revalidates with the identity ETag"
+        def changedResponse = get("app.js", "gzip", identityResponse.headers["ETag"])
+
+        then: "the gzip representation should be served"
+        changedResponse.status == HttpServletResponse.SC_OK
+        changedResponse.headers["Content-Encoding"] == "gzip"
+    }
+
+    def "Ignore pre-compressed siblings that are older than the file"() {
+
+        given: "a compressible file with outdated siblings"
+        createFile("app.js", "console.log('new');".bytes, 1600000010000L)
+        createFile("app.js.br", "old brotli".bytes, 1600000000000L)
+        createFile("app.js.gz", "old gzip".bytes, 1600000000000L)
+
+        when: "the file is requested by a client accepting brotli and gzip"
+        def response = get("app.js", "br, gzip")
+
+        then: "the file should be compressed and served instead of the outdated siblings"
+        response.headers["Content-Encoding"] == "gzip"
+        response.headers["Vary"] == "Accept-Encoding"
+        gunzip(response.body.toByteArray()) == "console.log('new');"
+
+        and: "the compressed content should be cached"
+        servlet.contentCache.misses.get() == 1
+
+        when: "the file is requested again"
+        response = get("app.js", "gzip")
+
+        then: "the compressed content should come from the cache"
+        gunzip(response.body.toByteArray()) == "console.log('new');"
+        servlet.contentCache.hits.get() == 1
+    }
+
+    def "Serve files without encoded representations as is"() {
+
+        given: "a file that isn't compressible and has no siblings"
+        createFile("image.png", [1, 2, 3, 4] as byte[], 1600000000000L)
+
+        when: "the file is requested by a client accepting gzip"
+        def response = get("image.png", "gzip")
+
+        then: "the file should be served without encoding and without varying on the accepted encoding"
+        response.status == HttpServletResponse.SC_OK
+        response.headers["Content-Encoding"] == null
+        response.headers["Vary"] == null
+        response.body.toByteArray() == [1, 2, 3, 4] as byte[]
+    }
+
+    def "Bound the file content cache"() {
+
+        given: "a content cache with the default limits"
+        def cache = new FileContentCache(DEFAULT_CONTENT_CACHE_SIZE, DEFAULT_CONTENT_CACHE_ENTRY_SIZE)
+        def loads = 0
+        def entrySize = (int) DEFAULT_CONTENT_CACHE_ENTRY_SIZE
+        def load = { int size -> { -> loads++; new byte[size] } as FileContentCache.Loader }
+
+        when: "a file larger than the maximum entry size is requested"
+        def content = cache.get(new File("large.bin"), null, 1L, DEFAULT_CONTENT_CACHE_ENTRY_SIZE + 1, load(entrySize + 1))
+
+        then: "it should not be loaded or cached"
+        content == null
+        loads == 0
+        cache.size == 0
+
+        when: "content compressing to more than the maximum entry size is loaded"
+        content = cache.get(new File("incompressible.bin"), "gzip", 1L, entrySize, load(entrySize + 1))
+
+        then: "it should be returned but not cached"
+        content.length == entrySize + 1
+        loads == 1
+        cache.size == 0
+
+        when: "files with more content than the maximum cache size are loaded"
+        def fileCount = (int) (DEFAULT_CONTENT_CACHE_SIZE / DEFAULT_CONTENT_CACHE_ENTRY_SIZE) + 1
+        loads = 0
+        (1..fileCount).each { cache.get(new File("file" + it + ".bin"), null, 1L, entrySize, load(entrySize)) }
+
+        then: "the least recently used entry should have been evicted to stay within the maximum size"
+        loads == fileCount
+        cache.size == DEFAULT_CONTENT_CACHE_SIZE
+        cache.entries.size() == fileCount - 1
+        !cache.entries.containsKey(new File("file1.bin").getPath())
+
+        when: "the oldest remaining entry is used and another file is loaded"
+        loads = 0
+        cache.get(new File("file2.bin"), null, 1L, entrySize, load(entrySize))
+        cache.get(new File("other.bin"), null, 1L, entrySize, load(entrySize))
+
+        then: "the used entry should be kept and the next least recently used entry evicted"
+        loads == 1
+        cache.entries.containsKey(new File("file2.bin").getPath())
+        !cache.entries.containsKey(new File("file3.bin").getPath())
+        cache.size == DEFAULT_CONTENT_CACHE_SIZE
+
+        when: "a cached file is modified"
+        loads = 0
+        cache.get(new File("file2.bin"), null, 2L, entrySize, load(entrySize))
+
+        then: "its content should be reloaded"
+        loads == 1
+        cache.size == DEFAULT_CONTENT_CACHE_SIZE
+    }
+}